@@ -2,27 +2,20 @@ package de.th_koeln.iws.sh2.ranking;
 
 import static com.google.common.math.Stats.meanOf;
 
-import java.io.BufferedReader;
-import java.io.IOException;
-import java.io.InputStreamReader;
 import java.math.BigDecimal;
-import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
 import java.time.Month;
+import java.time.Period;
 import java.time.YearMonth;
 import java.util.ArrayList;
 import java.util.Arrays;
-import java.util.Collection;
 import java.util.Collections;
-import java.util.HashMap;
 import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
-import java.util.Optional;
 import java.util.Properties;
 import java.util.Set;
-import java.util.TreeMap;
 
 import org.apache.logging.log4j.Level;
 import org.apache.logging.log4j.LogManager;
@@ -30,29 +23,30 @@ import org.apache.logging.log4j.Logger;
 import org.apache.logging.log4j.core.LoggerContext;
 import org.apache.logging.log4j.core.config.Configuration;
 import org.apache.logging.log4j.core.config.LoggerConfig;
-import org.checkerframework.checker.nullness.qual.Nullable;
-import org.dblp.rbo.AmbiguousRankingException;
-import org.dblp.rbo.model.IndefiniteRanking;
-import org.dblp.rbo.model.SimilarityReport;
 
-import com.google.common.collect.ArrayListMultimap;
-import com.google.common.collect.HashBasedTable;
 import com.google.common.collect.ImmutableList;
-import com.google.common.collect.Multimap;
 import com.google.common.collect.Table;
 import com.google.common.collect.Tables;
 
-import de.th_koeln.iws.sh2.ranking.analysis.ScoreCalculator;
+import de.th_koeln.iws.sh2.ranking.analysis.EvaluationResults;
+import de.th_koeln.iws.sh2.ranking.analysis.EvaluationScheduler;
+import de.th_koeln.iws.sh2.ranking.analysis.MultiConfigScorer;
+import de.th_koeln.iws.sh2.ranking.analysis.ParallelScorer;
+import de.th_koeln.iws.sh2.ranking.analysis.RunCache;
+import de.th_koeln.iws.sh2.ranking.analysis.TemporalFeatureCache;
+import de.th_koeln.iws.sh2.ranking.analysis.WalkForwardBacktest;
 import de.th_koeln.iws.sh2.ranking.analysis.data.ConferenceStream;
-import de.th_koeln.iws.sh2.ranking.analysis.data.util.Calculator;
 import de.th_koeln.iws.sh2.ranking.analysis.data.util.EvaluationConfiguration;
 import de.th_koeln.iws.sh2.ranking.analysis.data.util.EvaluationConfiguration.Builder;
 import de.th_koeln.iws.sh2.ranking.analysis.data.util.ResultExporter;
-import de.th_koeln.iws.sh2.ranking.analysis.evaluation.Goldstandard;
-import de.th_koeln.iws.sh2.ranking.analysis.evaluation.RelevanceRanker;
+import de.th_koeln.iws.sh2.ranking.analysis.evaluation.PairedSignificance;
+import de.th_koeln.iws.sh2.ranking.analysis.evaluation.RankBiasedOverlap;
 import de.th_koeln.iws.sh2.ranking.config.PropertiesUtil;
+import de.th_koeln.iws.sh2.ranking.core.DataReader;
 import de.th_koeln.iws.sh2.ranking.core.DatabaseManager;
 import de.th_koeln.iws.sh2.ranking.core.DbDataReader;
+import de.th_koeln.iws.sh2.ranking.core.IncrementalDataReader;
+import de.th_koeln.iws.sh2.ranking.core.SnapshotDataReader;
 
 public class EvaluateApplication {
     private static Logger LOGGER = LogManager.getLogger(EvaluateApplication.class);
@@ -61,8 +55,7 @@ public class EvaluateApplication {
     private static Path outputFolder;
     private static Path rawOutputFolder;
 
-    /* The evaluation year */
-    // TODO make this a configurable parameter, too
+    /* The evaluation year, unless evaluation.years is set */
     private static final int EVAL_YEAR = 2018;
     // TODO make this a configurable parameter, too
     private static final boolean SIMPLE_EVAL = true;
@@ -91,21 +84,41 @@ public class EvaluateApplication {
         return configs;
     }
 
-    private static List<Month> setupEvaluationMonths(String[] args) {
+    private static List<YearMonth> setupEvaluationMonths(String[] args) {
+        // a single year, or a range of years such as 2010-2025
+        String[] years = SETUP_PROPERTIES.getProperty("evaluation.years", String.valueOf(EVAL_YEAR)).split("-");
+        int firstYear = Integer.parseInt(years[0].trim());
+        int lastYear = Integer.parseInt(years[years.length - 1].trim());
+
         List<Month> evalMonths = null;
         if (args.length > 0) {
             evalMonths = parseArgs(args);
         }
         if ((null == evalMonths) || (evalMonths.size() == 0)) {
-            // no specific month(s) provided - take all months of the year
-            LOGGER.info(
-                    "No month privided or arguments could not be parsed - evaluation with all months (for which log data is available).");
-            // evalMonths = Arrays.asList(Month.values());
-            evalMonths = ImmutableList.of(Month.MAY, Month.JUNE, Month.JULY, Month.AUGUST, Month.SEPTEMBER,
-                    Month.OCTOBER, Month.NOVEMBER);
+            if (firstYear != lastYear) {
+                // walk through every month of the years
+                LOGGER.info("No month privided or arguments could not be parsed - evaluation with all months.");
+                evalMonths = Arrays.asList(Month.values());
+            } else {
+                // no specific month(s) provided - take all months of the year
+                LOGGER.info(
+                        "No month privided or arguments could not be parsed - evaluation with all months (for which log data is available).");
+                // evalMonths = Arrays.asList(Month.values());
+                evalMonths = ImmutableList.of(Month.MAY, Month.JUNE, Month.JULY, Month.AUGUST, Month.SEPTEMBER,
+                        Month.OCTOBER, Month.NOVEMBER);
+            }
+        }
+        LOGGER.info(String.format("Months for evaluation: %s of %d to %d", evalMonths, firstYear, lastYear));
+
+        List<YearMonth> evalYMs = new ArrayList<>();
+        for (int year = firstYear; year <= lastYear; year++) {
+            for (Month month : evalMonths) {
+                evalYMs.add(YearMonth.of(year, month));
+            }
         }
-        LOGGER.info(String.format("Months for evaluation: %s", evalMonths));
-        return evalMonths;
+        // the backtest steps forward in time
+        Collections.sort(evalYMs);
+        return evalYMs;
     }
 
     /**
@@ -114,7 +127,25 @@ public class EvaluateApplication {
      * @return set of conferences
      */
     private static Set<ConferenceStream> getConferencesFromDatabase() {
-        DbDataReader reader = new DbDataReader(DatabaseManager.getInstance());
+        DbDataReader dbReader = new DbDataReader(DatabaseManager.getInstance());
+        dbReader.setParallelLoading(true);
+
+        Properties setupProperties = SETUP_PROPERTIES;
+        // decode binary COPY output instead of result sets if configured
+        dbReader.setCopyIngest(Boolean.parseBoolean(setupProperties.getProperty("ingest.copy", "false")));
+        DataReader reader = dbReader;
+        // use a snapshot of the database if configured
+        String snapshotFile = setupProperties.getProperty("snapshot.file", "");
+        if (!snapshotFile.isEmpty()) {
+            if (Boolean.parseBoolean(setupProperties.getProperty("snapshot.incremental", "false"))) {
+                // only fetch the records added since the snapshot was written
+                reader = new IncrementalDataReader(dbReader, Paths.get(snapshotFile),
+                        Period.ofDays(Integer.parseInt(setupProperties.getProperty("snapshot.lookback.days",
+                                String.valueOf(IncrementalDataReader.DEFAULT_LOOKBACK.getDays())))));
+            } else {
+                reader = new SnapshotDataReader(Paths.get(snapshotFile), dbReader);
+            }
+        }
         Set<ConferenceStream> data = reader.getData();
         return Collections.unmodifiableSet(data);
     }
@@ -125,7 +156,7 @@ public class EvaluateApplication {
 
         setupOutputFolders();
 
-        final List<Month> evalMonths = setupEvaluationMonths(args);
+        final List<YearMonth> evalYMs = setupEvaluationMonths(args);
 
         final Set<ConferenceStream> allConfs = getConferencesFromDatabase();
         LOGGER.info(String.format("Done reading %d conferences from database", allConfs.size()));
@@ -133,43 +164,82 @@ public class EvaluateApplication {
         final List<EvaluationConfiguration> configs = setupConfigurations();
         LOGGER.info(String.format("Done creating %d configurations for evaluation", configs.size()));
 
-        runEvaluationPipeline(allConfs, evalMonths, configs);
+        runEvaluationPipeline(allConfs, evalYMs, configs);
     }
 
-    private static void runEvaluationPipeline(Set<ConferenceStream> allConfs, List<Month> evalMonths,
+    private static void runEvaluationPipeline(Set<ConferenceStream> allConfs, List<YearMonth> evalYMs,
             List<EvaluationConfiguration> configs) {
 
-        Map<ConferenceStream, Integer> gold;
-
-        /* create gold standard for each month */
-        for (final Month month : evalMonths) {
-            YearMonth evalYM = YearMonth.of(EVAL_YEAR, month);
-
-            String targetQrelFileName = evalYM.toString() + ".qrel";
-            Path targetQrelFilePath = rawOutputFolder.resolve(targetQrelFileName);
-
-            /*
-             * create the gold standard = a map of those conferences, that have already been
-             * added to dblp by testMonth-testYear, to their relevance which reflects the
-             * relative importance of the conference at the given point in time
-             */
-            gold = Goldstandard.create(allConfs, evalYM);
-
-            ResultExporter.exportTrecQrel(gold, targetQrelFilePath);
+        // qrels and run files are only needed for manual inspection
+        boolean writeFiles = Boolean.parseBoolean(SETUP_PROPERTIES.getProperty("evaluation.files", "true"));
+
+        /* temporal stream features only depend on the year, share them across runs */
+        TemporalFeatureCache featureCache = new TemporalFeatureCache();
+        MultiConfigScorer scorer = new MultiConfigScorer(configs, featureCache);
+        // streams are scored independently, spread them over the cores
+        ParallelScorer parallel = new ParallelScorer(Integer.parseInt(SETUP_PROPERTIES
+                .getProperty("scoring.parallelism", String.valueOf(Runtime.getRuntime().availableProcessors()))));
+
+        /* evaluate the configuration x month cells on a pool of workers */
+        EvaluationScheduler scheduler = new EvaluationScheduler(Integer.parseInt(SETUP_PROPERTIES
+                .getProperty("evaluation.workers", String.valueOf(Runtime.getRuntime().availableProcessors()))));
+        String memoryBudget = SETUP_PROPERTIES.getProperty("evaluation.memory.mb", "");
+        if (!memoryBudget.isEmpty()) {
+            scheduler = new EvaluationScheduler(scheduler.getWorkers(), Long.parseLong(memoryBudget) << 20);
         }
 
-        /* go through all available configurations... */
-        for (final EvaluationConfiguration config : configs) {
-            Table<String, String, BigDecimal> trec_results = Tables.newCustomTable(new LinkedHashMap<>(),
-                    LinkedHashMap::new);
-
-            /* ... and evaluate each month with the current configuration */
-            for (final Month month : evalMonths) {
-                YearMonth evalYM = YearMonth.of(EVAL_YEAR, month);
+        List<RankBiasedOverlap.Setting> rboSettings = RankBiasedOverlap.Setting
+                .parseAll(SETUP_PROPERTIES.getProperty("rbo.settings", "0.9984:500,0.973:30,0.992:100,0.996:200"));
+        // rbo files are named by month, and by year-month if there are several years
+        boolean severalYears = evalYMs.get(0).getYear() != evalYMs.get(evalYMs.size() - 1).getYear();
+
+        /* cells of earlier runs on the same data and code are not evaluated again */
+        RunCache cache = null;
+        if (Boolean.parseBoolean(SETUP_PROPERTIES.getProperty("evaluation.cache", "true"))) {
+            cache = new RunCache(outputFolder.resolve("cache"), SnapshotDataReader.fingerprint(allConfs),
+                    RunCache.codeVersion());
+            LOGGER.info("Using run cache for dataset {} and code version {}", cache.getDatasetHash(),
+                    cache.getCodeVersion());
+        }
 
-                Path rankingFilePath = evaluate(evalYM, config, allConfs);
-                runTrecEval(rawOutputFolder.resolve(evalYM + ".qrel"), rankingFilePath, trec_results);
-            }
+        /* step through the months, with the records known so far at each step */
+        WalkForwardBacktest backtest = new WalkForwardBacktest(allConfs);
+        EvaluationResults results = backtest.run(evalYMs, scorer, parallel, scheduler, cache,
+                new WalkForwardBacktest.StepListener() {
+                    @Override
+                    public void judged(YearMonth evalYM, byte[] gold) {
+                        /*
+                         * the gold standard = the relevance of each conference, which is positive
+                         * for those conferences that have already been added to dblp by
+                         * testMonth-testYear and reflects the relative importance of the
+                         * conference at the given point in time
+                         */
+                        if (writeFiles) {
+                            String targetQrelFileName = evalYM.toString() + ".qrel";
+                            ResultExporter.exportTrecQrel(backtest.getStreams(), gold,
+                                    rawOutputFolder.resolve(targetQrelFileName));
+                        }
+                    }
+
+                    @Override
+                    public void ranked(YearMonth evalYM, int column, Map<ConferenceStream, Double> scored,
+                            int[] ranking) {
+                        if (writeFiles) {
+                            exportRun(evalYM, configs.get(column), scored, ranking);
+                        }
+                    }
+
+                    @Override
+                    public void evaluated(YearMonth evalYM, List<int[]> rankings) {
+                        /* compare the rankings of the month */
+                        String name = severalYears ? evalYM.toString() : evalYM.getMonth().toString();
+                        calcRbo(name, configs, rankings, rboSettings);
+                    }
+                });
+
+        for (int column = 0; column < configs.size(); column++) {
+            EvaluationConfiguration config = configs.get(column);
+            Table<String, String, BigDecimal> trec_results = results.getTable(column);
 
             /* average the results over all months */
             LOGGER.info("Calculating averages for config {}", config);
@@ -180,212 +250,133 @@ public class EvaluateApplication {
             ResultExporter.exportInfo(outputFolder.resolve(config + "INFO.txt"), config);
         }
 
-        calcRbo(evalMonths, configs);
+        /* test the differences between the configurations over the months */
+        String measures = SETUP_PROPERTIES.getProperty("significance.measures", "map,ndcg");
+        if (!measures.trim().isEmpty() && (configs.size() > 1)) {
+            PairedSignificance significance = new PairedSignificance(
+                    Integer.parseInt(SETUP_PROPERTIES.getProperty("significance.resamples",
+                            String.valueOf(PairedSignificance.DEFAULT_RESAMPLES))),
+                    Long.parseLong(SETUP_PROPERTIES.getProperty("significance.seed", "1")),
+                    PairedSignificance.DEFAULT_CONFIDENCE);
+            for (String measure : measures.split(",")) {
+                calcSignificance(measure.trim(), results, significance);
+            }
+        }
+        parallel.shutdown();
+        LOGGER.info(featureCache);
+        if (null != cache) {
+            LOGGER.info(cache);
+        }
     }
 
-    private static void calcRbo(List<Month> evalMonths, List<EvaluationConfiguration> configs) {
-        LOGGER.info(String.format("Calculating rbo... (%d months and %d configs)", evalMonths.size(), configs.size()));
-
-        /*
-         * p=0.973, d=30 p=0.992, d=100 p=0.996, d=200 p=0.9984, d=500
-         */
-        int depth = 500;
-        double p = 0.9984;
-
-        Table<String, String, BigDecimal> crossTable;
-        /* for each month... */
-        for (final Month month : evalMonths) {
-            YearMonth evalYM = YearMonth.of(EVAL_YEAR, month);
-            crossTable = HashBasedTable.create();
-            /* look at the results of two configs each and compare rankings */
-            for (final EvaluationConfiguration config : configs) {
-                for (final EvaluationConfiguration otherConfig : configs) {
-
-                    Path ranking1FilePath = rawOutputFolder.resolve(config.toString() + evalYM + ".trec");
-                    Path ranking2FilePath = rawOutputFolder.resolve(otherConfig.toString() + evalYM + ".trec");
-
-                    /*
-                     * for each ranking: create IndefiniteRanking from trec-style ranking
-                     */
-                    IndefiniteRanking<Integer, String> ranking1 = readTrecRanking(ranking1FilePath);
-                    IndefiniteRanking<Integer, String> ranking2 = readTrecRanking(ranking2FilePath);
-
-                    /*
-                     * create SimilarityReport from the two rankings
-                     */
-                    SimilarityReport<Integer, String> report = ranking1.compareTo(ranking2);
-                    double rboExt = report.rboExt(p, depth);
-                    crossTable.put(config.toString(), otherConfig.toString(), BigDecimal.valueOf(rboExt));
+    /**
+     * Compare the rankings of all configurations in a month by rbo, and write one
+     * matrix per setting. The first setting is written to {@code <name>_RBO.csv},
+     * the others to {@code <name>_RBO_p<p>_d<depth>.csv}.
+     *
+     * @param name
+     *            name of the evaluation month
+     * @param configs
+     *            the configurations
+     * @param rankings
+     *            the ranking of each configuration
+     * @param settings
+     *            values of p and depth to calculate rbo for
+     */
+    private static void calcRbo(String name, List<EvaluationConfiguration> configs, List<int[]> rankings,
+            List<RankBiasedOverlap.Setting> settings) {
+        LOGGER.info(String.format("Calculating rbo for %s... (%d configs, %d settings)", name, configs.size(),
+                settings.size()));
+
+        double[][][] rbo = new RankBiasedOverlap(settings).matrix(rankings);
+        for (int k = 0; k < settings.size(); k++) {
+            Table<String, String, BigDecimal> crossTable = Tables.newCustomTable(new LinkedHashMap<>(),
+                    LinkedHashMap::new);
+            for (int i = 0; i < configs.size(); i++) {
+                for (int j = 0; j < configs.size(); j++) {
+                    crossTable.put(configs.get(i).toString(), configs.get(j).toString(),
+                            BigDecimal.valueOf(rbo[k][i][j]));
                 }
             }
-            ResultExporter.printToCsv(outputFolder.resolve(month + "_RBO.csv"), crossTable);
+            String suffix = k == 0 ? "" : "_" + settings.get(k);
+            ResultExporter.printToCsv(outputFolder.resolve(name + "_RBO" + suffix + ".csv"), crossTable);
         }
-
-        LOGGER.info("Done calculating rbo.");
     }
 
     /**
+     * Test the differences between each pair of configurations in a measure, with
+     * the months as topics, and write them to {@code <measure>_SIGNIFICANCE.csv},
+     * along with the number of topics.
      *
-     * Read the ranking back from a file in TREC format.
-     *
-     * @param path
-     *            name of the file - file has to be in TREC format
-     * @return instance of {@link IndefiniteRanking}
+     * @param measure
+     *            name of the measure
+     * @param results
+     *            the measures of all configurations and months
+     * @param significance
+     *            the tests
      */
-    private static IndefiniteRanking<Integer, String> readTrecRanking(Path path) {
-        IndefiniteRanking<Integer, String> result = null;
-
-        try {
-            Multimap<Integer, String> ranking = ArrayListMultimap.create();
-
-            Files.lines(path).forEach(line -> {
-                String[] lineParts = line.split("\t");
-                @Nullable
-                Integer rank = Integer.parseInt(lineParts[3]) + 1;
-                @Nullable
-                String conf = lineParts[2];
-                ranking.put(rank, conf);
-            });
-
-            result = IndefiniteRanking.of(ranking);
-        } catch (IOException e) {
-            LOGGER.error(String.format("Error reading file '%s'", path), e);
-            return null;
-        } catch (AmbiguousRankingException e) {
-            LOGGER.error("Ranking contains duplicates");
-            return null;
+    private static void calcSignificance(String measure, EvaluationResults results,
+            PairedSignificance significance) {
+        List<EvaluationConfiguration> configs = results.getConfigurations();
+        LOGGER.info(String.format("Testing significance of %s... (%d configs, %d months, %d resamples)", measure,
+                configs.size(), results.getMonths().size(), significance.getResamples()));
+
+        List<double[]> values = new ArrayList<>();
+        for (int column = 0; column < configs.size(); column++) {
+            values.add(results.getValues(column, measure));
         }
-        return result;
+        PairedSignificance.Result[][] tested = significance.compareAll(values);
+
+        Table<String, String, BigDecimal> table = Tables.newCustomTable(new LinkedHashMap<>(), LinkedHashMap::new);
+        for (int i = 0; i < configs.size(); i++) {
+            for (int j = i + 1; j < configs.size(); j++) {
+                PairedSignificance.Result result = tested[i][j];
+                String pair = configs.get(i) + " vs " + configs.get(j);
+                table.put(pair, "topics", BigDecimal.valueOf(result.getTopics()));
+                table.put(pair, "mean_diff", BigDecimal.valueOf(result.getMeanDifference()));
+                table.put(pair, "p", BigDecimal.valueOf(result.getPValue()));
+                // 1 if p counts all sign flips of the topics, 0 if it is estimated
+                table.put(pair, "p_exact", result.isExact() ? BigDecimal.ONE : BigDecimal.ZERO);
+                table.put(pair, "ci_low", BigDecimal.valueOf(result.getLower()));
+                table.put(pair, "ci_high", BigDecimal.valueOf(result.getUpper()));
+            }
+        }
+        ResultExporter.printToCsv(outputFolder.resolve(measure + "_SIGNIFICANCE.csv"), table);
     }
 
     /**
-     * Evaluate the ranking for a given month.
+     * Export the ranking for a given month as a trec run file.
      *
      * @param evalYM
      *            month to evaluate
      * @param config
      *            configuration to use
-     * @param confs
-     *            set of all conferences to rank
-     * @param rbo_results
-     * @return
+     * @param scored
+     *            scores of all conferences with this configuration
+     * @param ranking
+     *            positions of the conferences in the order of the scores, best
+     *            first
      */
-    private static Path evaluate(YearMonth evalYM, EvaluationConfiguration config, Set<ConferenceStream> confs) {
-        Map<ConferenceStream, Double> scored;
-
+    private static void exportRun(YearMonth evalYM, EvaluationConfiguration config,
+            Map<ConferenceStream, Double> scored, int[] ranking) {
         String targetRunFileName = config.toString() + evalYM.toString() + ".trec";
 
         Path targetRunFilePath = rawOutputFolder.resolve(targetRunFileName);
 
-        LOGGER.info("Evaluating month " + evalYM.getMonth() + " of " + EVAL_YEAR);
-
-        ScoreCalculator scorer = new ScoreCalculator(config);
-        scored = new TreeMap<>();
-
-        /*
-         * Go through _all_ conferences and score each one
-         */
-        for (ConferenceStream conf : confs) {
-            Double score = scorer.getScore(conf, evalYM, null);
-            if (score != null)
-                scored.put(conf, score);
-        }
-
-        // create a mapping of streams to delays to be used for tie-breaking when
-        // sorting result list
-        Map<ConferenceStream, Long> delays = calculateDelays(confs, evalYM);
-        // for (ConferenceStream key : delays.keySet().stream()
-        // .collect(ImmutableSortedSet.toImmutableSortedSet(Comparator.naturalOrder())))
-        // {
-        // LOGGER.info(String.format("[%s, %s] delay: %d", evalYM, key.getKey(),
-        // delays.get(key)));
-        // }
-        /*
-         *
-         */
         /*
          * Get a sorted list of the conferences, sorted by their score in descending
          * order.
          *
          * Sorting is not needed for the trec evaluation, just for manual inspection of
-         * ranked lists and rbo calculations.
+         * ranked lists.
          */
-        ArrayList<ConferenceStream> ranked = new ArrayList<>(scored.keySet());
-        Collections.sort(ranked, new RelevanceRanker(Collections.unmodifiableMap(scored), delays));
-
-        ResultExporter.exportTrecResult(ranked, scored, targetRunFilePath, evalYM.toString());
-
-        return targetRunFilePath;
-    }
-
-    private static Map<ConferenceStream, Long> calculateDelays(Collection<ConferenceStream> conferenceStreams,
-            YearMonth evalYM) {
-
-        Map<ConferenceStream, Long> delays = new HashMap<>();
-
-        for (ConferenceStream conferenceStream : conferenceStreams) {
-            Optional<Long> monthsSinceLastCreation = Calculator
-                    .calcMonthsSinceLastCreation(conferenceStream.getRecordsCreatedBefore(evalYM), evalYM);
-            if (monthsSinceLastCreation.isPresent()) {
-                delays.put(conferenceStream, monthsSinceLastCreation.get());
-            }
+        ConferenceStream[] streams = scored.keySet().toArray(new ConferenceStream[scored.size()]);
+        ArrayList<ConferenceStream> ranked = new ArrayList<>(ranking.length);
+        for (int index : ranking) {
+            ranked.add(streams[index]);
         }
-        return delays;
-    }
-
-    /**
-     * Run the trec_eval script on the result.
-     *
-     * @param targetQrelFilePath
-     *            path to the qrels file
-     * @param targetRunFilePath
-     *            path to the run file
-     * @param results
-     *            table where the results go to
-     */
-    private static void runTrecEval(Path targetQrelFilePath, Path targetRunFilePath,
-            Table<String, String, BigDecimal> results) {
-        String scriptPath = EvaluateApplication.class.getClassLoader().getResource("script/trec_eval").getPath();
-        LOGGER.info("Found trec-eval script in path: " + scriptPath);
-
-        List<String> command = new ArrayList<>();
-        command.add(scriptPath);
-        command.add("-m");
-        command.add("all_trec");
-        command.add(targetQrelFilePath.toString());
-        command.add(targetRunFilePath.toString());
-        ProcessBuilder pb = new ProcessBuilder(command);
-
-        try {
-            String line = null;
-            BigDecimal value;
-            String measurement;
-
-            Process p = pb.start();
-
-            BufferedReader stdInput = new BufferedReader(new InputStreamReader(p.getInputStream()));
-
-            // read first line to use as header later on
-            line = stdInput.readLine();
-            String month = line.split("\t")[2].trim();
-            // read the output from the command
-            while ((line = stdInput.readLine()) != null) {
-                // type of measurement in first column
-                measurement = line.split("\t")[0].trim();
-                try {
-                    // value in third column
-                    value = new BigDecimal(line.split("\t")[2].trim());
-
-                    results.put(measurement, month, value);
-                } catch (NumberFormatException nfe) {
-                    LOGGER.warn(String.format("Could not parse double value from trec result. Line: '%s'", line));
-                    continue;// TODO OK? - should not happen
-                }
-            }
 
-        } catch (IOException e) {
-            e.printStackTrace();
-        }
+        ResultExporter.exportTrecResult(ranked, scored, targetRunFilePath, evalYM.toString());
     }
 
     /**
@@ -1,10 +1,10 @@
 package de.th_koeln.iws.sh2.ranking;
 
+import java.nio.file.Paths;
 import java.sql.Connection;
 import java.sql.DatabaseMetaData;
 import java.sql.DriverManager;
 import java.sql.SQLException;
-import java.sql.Statement;
 import java.time.Month;
 import java.time.YearMonth;
 import java.util.ArrayList;
@@ -14,8 +14,8 @@ import java.util.HashMap;
 import java.util.Map;
 import java.util.Map.Entry;
 import java.util.Optional;
+import java.util.Properties;
 import java.util.Set;
-import java.util.TreeMap;
 
 import org.apache.logging.log4j.Level;
 import org.apache.logging.log4j.LogManager;
@@ -24,13 +24,19 @@ import org.apache.logging.log4j.core.LoggerContext;
 import org.apache.logging.log4j.core.config.Configuration;
 import org.apache.logging.log4j.core.config.LoggerConfig;
 
+import de.th_koeln.iws.sh2.ranking.analysis.ParallelScorer;
 import de.th_koeln.iws.sh2.ranking.analysis.ScoreCalculator;
 import de.th_koeln.iws.sh2.ranking.analysis.data.ConferenceStream;
 import de.th_koeln.iws.sh2.ranking.analysis.data.util.Calculator;
 import de.th_koeln.iws.sh2.ranking.analysis.data.util.EvaluationConfiguration;
+import de.th_koeln.iws.sh2.ranking.analysis.data.util.RankingWriter;
 import de.th_koeln.iws.sh2.ranking.analysis.evaluation.RelevanceRanker;
+import de.th_koeln.iws.sh2.ranking.config.PropertiesUtil;
+import de.th_koeln.iws.sh2.ranking.core.DataReader;
 import de.th_koeln.iws.sh2.ranking.core.DatabaseManager;
 import de.th_koeln.iws.sh2.ranking.core.DbDataReader;
+import de.th_koeln.iws.sh2.ranking.core.IncrementalDataReader;
+import de.th_koeln.iws.sh2.ranking.core.SnapshotDataReader;
 
 /**
  * 
@@ -88,14 +94,8 @@ public class RankingApplication {
     }
 
     private static void createTableIfNotExists(Connection conn) {
-        // SQL statement for creating a new table
-        String createTableStmt = "CREATE TABLE IF NOT EXISTS ranking (" + "conf_key text PRIMARY KEY NOT NULL,"
-                + " score real NOT NULL," + " interval integer," + " month text," + " delay real," + " last_entry text,"
-                + " expected text," + " activity real," + " rating real," + " prominence real,"
-                + " internationality real," + " size real," + " affiliations real," + " log real" + ");";
-
-        try (Statement stmt = conn.createStatement()) {
-            stmt.execute(createTableStmt);
+        try {
+            RankingWriter.createTableIfNotExists(conn);
         } catch (SQLException e) {
             LOGGER.error(e.getMessage());
         }
@@ -110,29 +110,83 @@ public class RankingApplication {
             EvaluationConfiguration config, Connection conn) {
         YearMonth evalYM = YearMonth.of(EVAL_YEAR, EVAL_MONTH);
 
-        Map<ConferenceStream, Double> scored;
+        Map<ConferenceStream, Double> scored = null;
 
         ScoreCalculator scorer = new ScoreCalculator(config);
-        scored = new TreeMap<>();
+
+        // streams are scored independently, spread them over the cores
+        Properties setupProperties = PropertiesUtil.loadExternalDataSetupConfig();
+        ParallelScorer parallel = new ParallelScorer(Integer.parseInt(setupProperties
+                .getProperty("scoring.parallelism", String.valueOf(Runtime.getRuntime().availableProcessors()))));
+
+        // only keep the best conferences if configured
+        int topK = Integer.parseInt(setupProperties.getProperty("ranking.topk", "0"));
 
         /*
-         * Go through _all_ conferences and score each one
+         * Go through _all_ conferences and score each one; the scores are written in
+         * one transaction
          */
-        for (ConferenceStream conf : confs) {
-            Double score = scorer.getScore(conf, evalYM, conn);
-            if (score != null)
-                scored.put(conf, score);
+        if (null != conn) {
+            try (RankingWriter writer = new RankingWriter(conn,
+                    Integer.parseInt(setupProperties.getProperty("ranking.batchsize",
+                            String.valueOf(RankingWriter.DEFAULT_BATCH_SIZE))),
+                    true, true)) {
+                scored = score(parallel, scorer, confs, evalYM, writer, topK);
+                writer.commit();
+            } catch (SQLException | IllegalStateException e) {
+                // a failed row stops the scoring; closing the writer without a
+                // commit rolls back
+                LOGGER.error(e.getMessage());
+            }
         }
+        if (null == scored) {
+            // no connection, or the ranking could not be written
+            scored = score(parallel, scorer, confs, evalYM, null, topK);
+        }
+        parallel.shutdown();
         return scored;
     }
 
+    /**
+     * Score all conferences.
+     *
+     * @return all scores sorted by conference key, or the scores of the topK best
+     *         conferences, best first, if topK is positive
+     */
+    private static Map<ConferenceStream, Double> score(ParallelScorer parallel, ScoreCalculator scorer,
+            Set<ConferenceStream> confs, YearMonth evalYM, RankingWriter writer, int topK) {
+        if (topK <= 0) {
+            return parallel.score(scorer, confs, evalYM, writer);
+        }
+        // months since the last creation break ties, as in the evaluation
+        return parallel.rankTopK(scorer, confs, evalYM, writer, topK, conf -> Calculator
+                .calcMonthsSinceLastCreation(conf.viewRecordsCreatedBefore(evalYM), evalYM).orElse(null))
+                .getScores();
+    }
+
     /**
      * Read the set of conferences to evaluate from the database.
      *
      * @return set of conferences
      */
     private static Set<ConferenceStream> getConferencesFromDatabase() {
-        DbDataReader reader = new DbDataReader(DatabaseManager.getInstance());
+        DbDataReader dbReader = new DbDataReader(DatabaseManager.getInstance());
+        dbReader.setParallelLoading(true);
+
+        Properties setupProperties = PropertiesUtil.loadExternalDataSetupConfig();
+        // decode binary COPY output instead of result sets if configured
+        dbReader.setCopyIngest(Boolean.parseBoolean(setupProperties.getProperty("ingest.copy", "false")));
+        DataReader reader = dbReader;
+        // use a snapshot of the database if configured
+        String snapshotFile = setupProperties.getProperty("snapshot.file", "");
+        if (!snapshotFile.isEmpty()) {
+            if (Boolean.parseBoolean(setupProperties.getProperty("snapshot.incremental", "false"))) {
+                // only fetch the records added since the snapshot was written
+                reader = new IncrementalDataReader(dbReader, Paths.get(snapshotFile));
+            } else {
+                reader = new SnapshotDataReader(Paths.get(snapshotFile), dbReader);
+            }
+        }
         Set<ConferenceStream> data = reader.getData();
         return Collections.unmodifiableSet(data);
     }
@@ -0,0 +1,143 @@
+package de.th_koeln.iws.sh2.ranking.analysis;
+
+import java.math.BigDecimal;
+import java.time.YearMonth;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+import com.google.common.collect.Table;
+import com.google.common.collect.Tables;
+
+import de.th_koeln.iws.sh2.ranking.analysis.data.util.EvaluationConfiguration;
+import de.th_koeln.iws.sh2.ranking.analysis.evaluation.TrecEvaluator;
+
+/**
+ * The trec measures of each cell of a configuration × month evaluation.
+ *
+ * Cells can be added by several threads in any order. Every cell has its own
+ * slot, and the result tables are assembled in the order of the configurations
+ * and months, so they do not depend on the order in which cells were added.
+ */
+public class EvaluationResults {
+
+    private final List<EvaluationConfiguration> configs;
+    private final List<YearMonth> months;
+    // measures of column c and month m at c * months + m
+    private final AtomicReferenceArray<Map<String, Double>> cells;
+
+    /**
+     * Constructor.
+     *
+     * @param configs
+     *            the configurations
+     * @param months
+     *            the evaluation months
+     */
+    public EvaluationResults(List<EvaluationConfiguration> configs, List<YearMonth> months) {
+        this.configs = new ArrayList<>(configs);
+        this.months = new ArrayList<>(months);
+        this.cells = new AtomicReferenceArray<>(configs.size() * months.size());
+    }
+
+    public List<EvaluationConfiguration> getConfigurations() {
+        return this.configs;
+    }
+
+    public List<YearMonth> getMonths() {
+        return this.months;
+    }
+
+    /**
+     * Add the measures of a cell.
+     *
+     * @param column
+     *            index of the configuration
+     * @param evalYM
+     *            the evaluation month
+     * @param measures
+     *            the measures, in the order of the table rows
+     */
+    public void put(int column, YearMonth evalYM, Map<String, Double> measures) {
+        int month = this.months.indexOf(evalYM);
+        if ((column < 0) || (column >= this.configs.size()) || (month < 0)) {
+            throw new IllegalArgumentException(String.format("No cell for column %d and month %s", column, evalYM));
+        }
+        if (!this.cells.compareAndSet((column * this.months.size()) + month, null, measures)) {
+            throw new IllegalStateException(String.format("Cell of column %d and month %s added twice", column, evalYM));
+        }
+    }
+
+    /**
+     * @param column
+     *            index of the configuration
+     * @param evalYM
+     *            the evaluation month
+     * @return the measures of the cell, null if it has not been added
+     */
+    public Map<String, Double> get(int column, YearMonth evalYM) {
+        return this.cells.get((column * this.months.size()) + this.months.indexOf(evalYM));
+    }
+
+    /**
+     * @param column
+     *            index of the configuration
+     * @param measure
+     *            name of the measure
+     * @return the unrounded values of the measure, in the order of the months
+     * @throws IllegalStateException
+     *             if a month has no value of the measure
+     */
+    public double[] getValues(int column, String measure) {
+        double[] values = new double[this.months.size()];
+        for (int month = 0; month < values.length; month++) {
+            Map<String, Double> measures = this.cells.get((column * this.months.size()) + month);
+            Double value = null == measures ? null : measures.get(measure);
+            if (null == value) {
+                throw new IllegalStateException(String.format("No value of %s for column %d and month %s", measure,
+                        column, this.months.get(month)));
+            }
+            values[month] = value;
+        }
+        return values;
+    }
+
+    /**
+     * @return number of cells added so far
+     */
+    public int size() {
+        int size = 0;
+        for (int i = 0; i < this.cells.length(); i++) {
+            if (null != this.cells.get(i)) {
+                size++;
+            }
+        }
+        return size;
+    }
+
+    /**
+     * Create the result table of a configuration: one row per measure, one column
+     * per month, with the values rounded as trec_eval prints them. Months without
+     * measures are left out.
+     *
+     * @param column
+     *            index of the configuration
+     * @return the table
+     */
+    public Table<String, String, BigDecimal> getTable(int column) {
+        Table<String, String, BigDecimal> table = Tables.newCustomTable(new LinkedHashMap<>(), LinkedHashMap::new);
+        for (YearMonth evalYM : this.months) {
+            Map<String, Double> measures = this.get(column, evalYM);
+            if (null == measures) {
+                continue;
+            }
+            for (Map.Entry<String, Double> entry : measures.entrySet()) {
+                table.put(entry.getKey(), evalYM.toString(),
+                        TrecEvaluator.toPrinted(entry.getKey(), entry.getValue()));
+            }
+        }
+        return table;
+    }
+}
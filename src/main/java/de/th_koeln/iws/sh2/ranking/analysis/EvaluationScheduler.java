@@ -0,0 +1,310 @@
+package de.th_koeln.iws.sh2.ranking.analysis;
+
+import java.time.YearMonth;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Consumer;
+import java.util.function.Function;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import de.th_koeln.iws.sh2.ranking.analysis.data.ConferenceStream;
+import de.th_koeln.iws.sh2.ranking.analysis.data.util.EvaluationConfiguration;
+
+/**
+ * Evaluates the cells of a configuration × month matrix on a bounded pool of
+ * workers.
+ *
+ * Each month is scored under all configurations at once, and the ranking of
+ * each configuration is then evaluated as a cell of its own. The score matrix
+ * of a month is the largest structure of the evaluation, so the number of
+ * months in flight is limited by a memory budget, and the number of cells
+ * running at once by the number of workers. The results are collected in
+ * {@link EvaluationResults}, so they do not depend on the number of workers or
+ * on the order in which cells finish. Work on a month as a whole, such as
+ * comparing the rankings of its configurations, can be done as soon as its
+ * last cell is evaluated, before the next month is let in.
+ */
+public class EvaluationScheduler {
+
+    private static Logger LOGGER = LogManager.getLogger(EvaluationScheduler.class);
+
+    /**
+     * Estimated heap used per stream by a running cell: the score map of its
+     * configuration and the arrays its ranking is evaluated with.
+     */
+    static final long CELL_BYTES_PER_STREAM = 160;
+
+    /**
+     * Evaluates the ranking of one configuration in one month.
+     */
+    @FunctionalInterface
+    public interface CellEvaluator {
+        /**
+         * @param evalYM
+         *            the evaluation month
+         * @param config
+         *            the configuration
+         * @param scored
+         *            the scores of all streams under the configuration, sorted by
+         *            stream key
+         * @return the measures of the ranking
+         */
+        Map<String, Double> evaluate(YearMonth evalYM, EvaluationConfiguration config,
+                Map<ConferenceStream, Double> scored);
+    }
+
+    private final int workers;
+    private final long memoryBudget;
+
+    /**
+     * Constructor with a memory budget of half the heap that is not in use.
+     *
+     * @param workers
+     *            number of cells evaluated at once
+     */
+    public EvaluationScheduler(int workers) {
+        this(workers, defaultMemoryBudget());
+    }
+
+    /**
+     * Constructor.
+     *
+     * @param workers
+     *            number of cells evaluated at once
+     * @param memoryBudget
+     *            bytes the score matrices and running cells may use
+     */
+    public EvaluationScheduler(int workers, long memoryBudget) {
+        if (workers < 1) {
+            throw new IllegalArgumentException("Number of workers must be positive: " + workers);
+        }
+        this.workers = workers;
+        this.memoryBudget = memoryBudget;
+    }
+
+    private static long defaultMemoryBudget() {
+        Runtime runtime = Runtime.getRuntime();
+        return (runtime.maxMemory() - (runtime.totalMemory() - runtime.freeMemory())) / 2;
+    }
+
+    public int getWorkers() {
+        return this.workers;
+    }
+
+    public long getMemoryBudget() {
+        return this.memoryBudget;
+    }
+
+    /**
+     * Number of months that are scored and evaluated at the same time: as many as
+     * the score matrices fit into the memory budget next to the running cells,
+     * at least one and at most one per worker.
+     *
+     * @param streamCount
+     *            number of streams
+     * @param configCount
+     *            number of configurations
+     * @return the number of months in flight
+     */
+    public int getMaxConcurrentMonths(int streamCount, int configCount) {
+        long matrixBytes = Math.max(1L, (long) streamCount * configCount * Double.BYTES);
+        long cellBytes = (long) this.workers * streamCount * CELL_BYTES_PER_STREAM;
+        long months = (this.memoryBudget - cellBytes) / matrixBytes;
+        return (int) Math.max(1L, Math.min(months, this.workers));
+    }
+
+    /**
+     * Score and evaluate all cells.
+     *
+     * @param months
+     *            the evaluation months, scored in this order
+     * @param configs
+     *            the configurations, the columns of the score matrices
+     * @param streamCount
+     *            number of streams, for the memory estimate
+     * @param scorer
+     *            scores all streams under all configurations for a month
+     * @param evaluator
+     *            evaluates a cell
+     * @return the measures of all cells
+     * @throws IllegalStateException
+     *             if a month or cell fails, after the months in flight are done
+     */
+    public EvaluationResults run(List<YearMonth> months, List<EvaluationConfiguration> configs, int streamCount,
+            Function<YearMonth, ScoreMatrix> scorer, CellEvaluator evaluator) {
+        return this.run(months, configs, streamCount, scorer, evaluator, evalYM -> {
+        });
+    }
+
+    /**
+     * Score and evaluate all cells, and finish each month once all of its cells
+     * are evaluated.
+     *
+     * @param months
+     *            the evaluation months, scored in this order
+     * @param configs
+     *            the configurations, the columns of the score matrices
+     * @param streamCount
+     *            number of streams, for the memory estimate
+     * @param scorer
+     *            scores all streams under all configurations for a month
+     * @param evaluator
+     *            evaluates a cell
+     * @param monthEvaluator
+     *            called for a month after all of its cells are evaluated
+     *            successfully, on the worker that evaluated the last cell
+     * @return the measures of all cells
+     * @throws IllegalStateException
+     *             if a month or cell fails, after the months in flight are done
+     */
+    public EvaluationResults run(List<YearMonth> months, List<EvaluationConfiguration> configs, int streamCount,
+            Function<YearMonth, ScoreMatrix> scorer, CellEvaluator evaluator, Consumer<YearMonth> monthEvaluator) {
+        EvaluationResults results = new EvaluationResults(configs, months);
+        int maxMonths = this.getMaxConcurrentMonths(streamCount, configs.size());
+        LOGGER.info("Evaluating {} cells with {} workers, at most {} months at once", months.size() * configs.size(),
+                this.workers, maxMonths);
+
+        Semaphore monthPermits = new Semaphore(maxMonths);
+        Progress progress = new Progress(months.size() * configs.size());
+        AtomicReference<Throwable> failure = new AtomicReference<>();
+        ExecutorService executor = Executors.newFixedThreadPool(this.workers);
+        try {
+            for (YearMonth evalYM : months) {
+                // a permit is released when the last cell of a month is done
+                monthPermits.acquire();
+                if (null != failure.get()) {
+                    monthPermits.release();
+                    break;
+                }
+                executor.execute(() -> this.runMonth(executor, evalYM, configs, scorer, evaluator, monthEvaluator,
+                        results, monthPermits, progress, failure));
+            }
+            // wait for the months in flight
+            monthPermits.acquire(maxMonths);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Evaluation interrupted", e);
+        } finally {
+            executor.shutdownNow();
+        }
+        if (null != failure.get()) {
+            throw new IllegalStateException("Evaluation failed", failure.get());
+        }
+        return results;
+    }
+
+    private void runMonth(ExecutorService executor, YearMonth evalYM, List<EvaluationConfiguration> configs,
+            Function<YearMonth, ScoreMatrix> scorer, CellEvaluator evaluator, Consumer<YearMonth> monthEvaluator,
+            EvaluationResults results, Semaphore monthPermits, Progress progress,
+            AtomicReference<Throwable> failure) {
+        ScoreMatrix matrix = scoreMonth(evalYM, scorer, monthPermits, failure);
+        if (null == matrix) {
+            return;
+        }
+        if (configs.isEmpty()) {
+            this.finishMonth(evalYM, monthEvaluator, monthPermits, failure);
+            return;
+        }
+
+        AtomicInteger remaining = new AtomicInteger(configs.size());
+        AtomicInteger evaluated = new AtomicInteger();
+        for (int column = 0; column < configs.size(); column++) {
+            final int cellColumn = column;
+            executor.execute(() -> {
+                try {
+                    EvaluationConfiguration config = configs.get(cellColumn);
+                    results.put(cellColumn, evalYM, evaluator.evaluate(evalYM, config, matrix.getScores(cellColumn)));
+                    evaluated.incrementAndGet();
+                    progress.cellDone();
+                } catch (Throwable e) {
+                    LOGGER.error(String.format("Could not evaluate config %s in month %s", configs.get(cellColumn),
+                            evalYM), e);
+                    failure.compareAndSet(null, e);
+                } finally {
+                    if (remaining.decrementAndGet() == 0) {
+                        if (evaluated.get() == configs.size()) {
+                            this.finishMonth(evalYM, monthEvaluator, monthPermits, failure);
+                        } else {
+                            monthPermits.release();
+                        }
+                    }
+                }
+            });
+        }
+    }
+
+    /*
+     * score a month; if that fails, record the failure, release the permit of the
+     * month and return null
+     */
+    private static ScoreMatrix scoreMonth(YearMonth evalYM, Function<YearMonth, ScoreMatrix> scorer,
+            Semaphore monthPermits, AtomicReference<Throwable> failure) {
+        ScoreMatrix matrix = null;
+        try {
+            matrix = Objects.requireNonNull(scorer.apply(evalYM), "No scores");
+        } catch (Throwable e) {
+            LOGGER.error("Could not score month " + evalYM, e);
+            failure.compareAndSet(null, e);
+        } finally {
+            // the cells of a scored month release its permit
+            if (null == matrix) {
+                monthPermits.release();
+            }
+        }
+        return matrix;
+    }
+
+    private void finishMonth(YearMonth evalYM, Consumer<YearMonth> monthEvaluator, Semaphore monthPermits,
+            AtomicReference<Throwable> failure) {
+        try {
+            monthEvaluator.accept(evalYM);
+        } catch (Throwable e) {
+            LOGGER.error("Could not finish month " + evalYM, e);
+            failure.compareAndSet(null, e);
+        } finally {
+            monthPermits.release();
+        }
+    }
+
+    /**
+     * Logs the number of evaluated cells and the estimated time left, each time
+     * another tenth of the cells is done.
+     */
+    private static final class Progress {
+
+        private final int total;
+        private final long start = System.nanoTime();
+        private int done;
+        private int loggedTenths;
+
+        Progress(int total) {
+            this.total = total;
+        }
+
+        synchronized void cellDone() {
+            this.done++;
+            int tenths = (this.done * 10) / this.total;
+            if (tenths > this.loggedTenths) {
+                this.loggedTenths = tenths;
+                long elapsed = System.nanoTime() - this.start;
+                long left = (elapsed / this.done) * (this.total - this.done);
+                LOGGER.info(String.format("Evaluated %d/%d cells (%d%%), ETA %s", this.done, this.total,
+                        (this.done * 100) / this.total, format(left)));
+            }
+        }
+
+        private static String format(long nanos) {
+            long seconds = TimeUnit.NANOSECONDS.toSeconds(nanos);
+            return String.format("%d:%02d:%02d", seconds / 3600, (seconds / 60) % 60, seconds % 60);
+        }
+    }
+}
@@ -0,0 +1,124 @@
+package de.th_koeln.iws.sh2.ranking.analysis;
+
+import java.time.Year;
+import java.time.YearMonth;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.Set;
+
+import de.th_koeln.iws.sh2.ranking.analysis.ScoringPlan.Factor;
+import de.th_koeln.iws.sh2.ranking.analysis.TemporalFeatureCache.TemporalFeatures;
+import de.th_koeln.iws.sh2.ranking.analysis.data.ConferenceStream;
+import de.th_koeln.iws.sh2.ranking.analysis.data.util.EvaluationConfiguration;
+import de.th_koeln.iws.sh2.ranking.analysis.data.util.PackedYearMonth;
+
+/**
+ * Scores streams under several configurations at once.
+ *
+ * The expected next entry, the delay factor and the factors of a stream are
+ * the same for all configurations, so they are calculated once per stream and
+ * month. The score of each configuration is then the product of the delay
+ * factor and the factors it uses, in the same order as {@link ScoringPlan},
+ * which gives the same scores as a {@link ScoreCalculator} per configuration.
+ */
+public class MultiConfigScorer {
+
+    private final List<EvaluationConfiguration> configs;
+    private final ScoringPlan[] plans;
+    private final Factor[] usedFactors;
+    private final TemporalFeatureCache featureCache;
+
+    /**
+     * Constructor.
+     *
+     * @param configs
+     *            the configurations, one column of the score matrix each
+     * @param featureCache
+     *            cache of the temporal stream features
+     */
+    public MultiConfigScorer(List<EvaluationConfiguration> configs, TemporalFeatureCache featureCache) {
+        this.configs = new ArrayList<>(configs);
+        this.plans = new ScoringPlan[configs.size()];
+        Set<Factor> used = EnumSet.noneOf(Factor.class);
+        for (int i = 0; i < this.plans.length; i++) {
+            this.plans[i] = ScoringPlan.compile(configs.get(i));
+            used.addAll(this.plans[i].getFactors());
+        }
+        this.usedFactors = used.toArray(new Factor[used.size()]);
+        this.featureCache = featureCache;
+    }
+
+    public List<EvaluationConfiguration> getConfigurations() {
+        return this.configs;
+    }
+
+    /**
+     * Score streams under all configurations.
+     *
+     * @param streams
+     *            the streams, one row of the score matrix each
+     * @param evalYM
+     *            the evaluation year-month
+     * @return the scores; 0.0 for streams without records before the evaluation
+     *         year or whose next entry is not yet expected
+     */
+    public ScoreMatrix score(Collection<ConferenceStream> streams, YearMonth evalYM) {
+        return this.score(streams, evalYM, null);
+    }
+
+    /**
+     * Score streams under all configurations, with chunks of streams scored in
+     * parallel.
+     *
+     * @param streams
+     *            the streams, one row of the score matrix each
+     * @param evalYM
+     *            the evaluation year-month
+     * @param parallel
+     *            scorer that runs the chunks, null to score in the calling thread
+     * @return the scores; 0.0 for streams without records before the evaluation
+     *         year or whose next entry is not yet expected
+     */
+    public ScoreMatrix score(Collection<ConferenceStream> streams, YearMonth evalYM, ParallelScorer parallel) {
+        ScoreMatrix matrix = new ScoreMatrix(new ArrayList<>(streams), this.configs);
+        Year cutoff = Year.of(evalYM.getYear());
+        int evalYearMonth = PackedYearMonth.pack(evalYM);
+
+        ParallelScorer.ChunkTask task = (from, to) -> {
+            double[] factorValues = new double[Factor.values().length];
+            for (int row = from; row < to; row++) {
+                ConferenceStream conf = matrix.getStreams().get(row);
+                this.scoreRow(matrix, row, conf, this.featureCache.get(conf, cutoff), evalYearMonth, factorValues);
+            }
+        };
+        if (null == parallel) {
+            task.run(0, matrix.getRowCount());
+        } else {
+            parallel.forEachChunk(matrix.getRowCount(), task);
+        }
+        return matrix;
+    }
+
+    private void scoreRow(ScoreMatrix matrix, int row, ConferenceStream conf, TemporalFeatures features,
+            int evalYearMonth, double[] factorValues) {
+        if (features.isEmpty()) {
+            // matrix is initialized with 0.0
+            return;
+        }
+        int expectedNextEntry = ScoringPlan.expectedNextEntry(features);
+        if (evalYearMonth < expectedNextEntry) {
+            return;
+        }
+
+        double delayFactor = ScoringPlan.delayFactor(evalYearMonth - expectedNextEntry);
+        double activityScore = ScoringPlan.activityScore(features, evalYearMonth);
+        for (Factor factor : this.usedFactors) {
+            factorValues[factor.ordinal()] = factor.get(conf, evalYearMonth, activityScore);
+        }
+        for (int column = 0; column < this.plans.length; column++) {
+            matrix.set(row, column, this.plans[column].score(delayFactor, factorValues));
+        }
+    }
+}
@@ -0,0 +1,215 @@
+package de.th_koeln.iws.sh2.ranking.analysis;
+
+import java.time.YearMonth;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.function.Function;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+import de.th_koeln.iws.sh2.ranking.analysis.data.ConferenceStream;
+import de.th_koeln.iws.sh2.ranking.analysis.data.util.RankingWriter;
+import de.th_koeln.iws.sh2.ranking.analysis.evaluation.TopKRanking;
+
+/**
+ * Scores conference streams in parallel on a fork/join pool.
+ *
+ * The streams are sorted by key, which gives every stream an ordinal. The
+ * ordinals are split into chunks that are scored independently, each chunk
+ * writing into its own range of a pre-sized array, so the result does not
+ * depend on the number of threads or the order in which chunks finish.
+ */
+public class ParallelScorer {
+
+    /**
+     * Streams scored by one task without splitting further.
+     */
+    static final int CHUNK_SIZE = 256;
+
+    /**
+     * Task on a range of stream ordinals.
+     */
+    @FunctionalInterface
+    public interface ChunkTask {
+        /**
+         * @param from
+         *            first ordinal, inclusive
+         * @param to
+         *            last ordinal, exclusive
+         */
+        void run(int from, int to);
+    }
+
+    private final int parallelism;
+    private final ForkJoinPool pool;
+
+    /**
+     * Constructor.
+     *
+     * @param parallelism
+     *            number of threads; 1 scores in the calling thread
+     */
+    public ParallelScorer(int parallelism) {
+        if (parallelism < 1) {
+            throw new IllegalArgumentException("Parallelism must be positive: " + parallelism);
+        }
+        this.parallelism = parallelism;
+        this.pool = parallelism > 1 ? new ForkJoinPool(parallelism) : null;
+    }
+
+    public int getParallelism() {
+        return this.parallelism;
+    }
+
+    /**
+     * Sort streams into ordinal order.
+     *
+     * @param streams
+     *            the streams
+     * @return the streams, sorted by key
+     */
+    public static ConferenceStream[] ordinals(Collection<ConferenceStream> streams) {
+        ConferenceStream[] sorted = streams.toArray(new ConferenceStream[streams.size()]);
+        Arrays.sort(sorted);
+        return sorted;
+    }
+
+    /**
+     * Score streams with a calculator.
+     *
+     * @param scorer
+     *            the calculator
+     * @param streams
+     *            the streams to score
+     * @param evalYM
+     *            the evaluation year-month
+     * @return the scores, sorted by stream key
+     */
+    public Map<ConferenceStream, Double> score(ScoreCalculator scorer, Collection<ConferenceStream> streams,
+            YearMonth evalYM) {
+        return this.score(scorer, streams, evalYM, null);
+    }
+
+    /**
+     * Score streams with a calculator and write the scores to a DB table.
+     *
+     * @param scorer
+     *            the calculator
+     * @param streams
+     *            the streams to score
+     * @param evalYM
+     *            the evaluation year-month
+     * @param writer
+     *            writer for the scores (optional); rows are added in the order
+     *            the chunks are scored
+     * @return the scores, sorted by stream key
+     */
+    public Map<ConferenceStream, Double> score(ScoreCalculator scorer, Collection<ConferenceStream> streams,
+            YearMonth evalYM, RankingWriter writer) {
+        ConferenceStream[] sorted = ordinals(streams);
+        double[] scores = new double[sorted.length];
+        this.forEachChunk(sorted.length, (from, to) -> {
+            for (int ordinal = from; ordinal < to; ordinal++) {
+                scores[ordinal] = scorer.getScore(sorted[ordinal], evalYM, writer);
+            }
+        });
+
+        Map<ConferenceStream, Double> scored = new TreeMap<>();
+        for (int ordinal = 0; ordinal < sorted.length; ordinal++) {
+            scored.put(sorted[ordinal], scores[ordinal]);
+        }
+        return scored;
+    }
+
+    /**
+     * Score streams with a calculator and keep only the K best of them. Each
+     * chunk ranks its streams in its own bounded heap, and the heaps are merged,
+     * so no score map of all streams is built.
+     *
+     * @param scorer
+     *            the calculator
+     * @param streams
+     *            the streams to score
+     * @param evalYM
+     *            the evaluation year-month
+     * @param writer
+     *            writer for the scores of all streams (optional)
+     * @param k
+     *            number of streams to keep
+     * @param delays
+     *            months since the last creation of a stream, for tie-breaking;
+     *            only called for streams with a score above 0.0
+     * @return the K best streams
+     */
+    public TopKRanking rankTopK(ScoreCalculator scorer, Collection<ConferenceStream> streams, YearMonth evalYM,
+            RankingWriter writer, int k, Function<ConferenceStream, Long> delays) {
+        ConferenceStream[] sorted = ordinals(streams);
+        TopKRanking ranking = new TopKRanking(k);
+        this.forEachChunk(sorted.length, (from, to) -> {
+            TopKRanking chunkRanking = new TopKRanking(k);
+            for (int ordinal = from; ordinal < to; ordinal++) {
+                double score = scorer.getScore(sorted[ordinal], evalYM, writer);
+                if (score != 0.0) {
+                    chunkRanking.offer(sorted[ordinal], score, delays.apply(sorted[ordinal]));
+                }
+            }
+            synchronized (ranking) {
+                ranking.merge(chunkRanking);
+            }
+        });
+        return ranking;
+    }
+
+    /**
+     * Run a task on chunks of ordinals. Chunks may run concurrently, so the task
+     * must only write to state that belongs to its range.
+     *
+     * @param size
+     *            number of ordinals
+     * @param task
+     *            the task
+     */
+    public void forEachChunk(int size, ChunkTask task) {
+        if ((null == this.pool) || (size <= CHUNK_SIZE)) {
+            task.run(0, size);
+        } else {
+            this.pool.invoke(new ChunkAction(task, 0, size));
+        }
+    }
+
+    /**
+     * Stop the threads of this scorer.
+     */
+    public void shutdown() {
+        if (null != this.pool) {
+            this.pool.shutdown();
+        }
+    }
+
+    private static final class ChunkAction extends RecursiveAction {
+
+        private static final long serialVersionUID = 1L;
+
+        private final ChunkTask task;
+        private final int from;
+        private final int to;
+
+        ChunkAction(ChunkTask task, int from, int to) {
+            this.task = task;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected void compute() {
+            if (this.to - this.from <= CHUNK_SIZE) {
+                this.task.run(this.from, this.to);
+                return;
+            }
+            int middle = (this.from + this.to) >>> 1;
+            invokeAll(new ChunkAction(this.task, this.from, middle), new ChunkAction(this.task, middle, this.to));
+        }
+    }
+}
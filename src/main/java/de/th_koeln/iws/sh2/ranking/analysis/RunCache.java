@@ -0,0 +1,336 @@
+package de.th_koeln.iws.sh2.ranking.analysis;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.net.URISyntaxException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.FileSystem;
+import java.nio.file.FileSystems;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.time.YearMonth;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Stream;
+import java.util.zip.CRC32;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import com.google.common.hash.Hasher;
+import com.google.common.hash.Hashing;
+
+import de.th_koeln.iws.sh2.ranking.analysis.data.util.EvaluationConfiguration;
+
+/**
+ * Cache for the ranking and measures of each cell of an evaluation, so an
+ * interrupted evaluation can be resumed and a repeated one only evaluates the
+ * cells that changed.
+ *
+ * A cell is stored in a file of its own, addressed by the hash of everything
+ * its result depends on: the dataset, the configuration, the evaluation month
+ * and the version of the code that scores and evaluates. Changing any of them
+ * addresses a different file, so cached cells never have to be invalidated;
+ * adding a configuration only evaluates the cells of that configuration. Files
+ * are replaced atomically and carry a checksum, and files that cannot be read
+ * are treated as missing.
+ */
+public class RunCache {
+
+    private static Logger LOGGER = LogManager.getLogger(RunCache.class);
+
+    /* "SH2C" */
+    private static final int MAGIC = 0x53483243;
+    static final int FORMAT_VERSION = 1;
+
+    /* magic, version, checksum, body length */
+    private static final int HEADER_LENGTH = 4 + 4 + 8 + 4;
+
+    /**
+     * Package whose classes, with those of its subpackages, determine the result
+     * of a cell.
+     */
+    private static final String VERSIONED_PACKAGE = RunCache.class.getPackage().getName().replace('.', '/');
+
+    private final Path directory;
+    private final String datasetHash;
+    private final String codeVersion;
+
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+
+    /**
+     * Constructor.
+     *
+     * @param directory
+     *            directory of the cache files
+     * @param datasetHash
+     *            hash of the dataset, e.g.
+     *            {@link de.th_koeln.iws.sh2.ranking.core.SnapshotDataReader#fingerprint(java.util.Collection)}
+     * @param codeVersion
+     *            version of the code, e.g. {@link #codeVersion()}
+     */
+    public RunCache(Path directory, String datasetHash, String codeVersion) {
+        this.directory = directory;
+        this.datasetHash = datasetHash;
+        this.codeVersion = codeVersion;
+    }
+
+    /**
+     * @return hash of the class files of the code that scores and evaluates the
+     *         cells, so cells are evaluated again after that code changed: all
+     *         classes of the analysis packages, including nested and anonymous
+     *         ones
+     */
+    public static String codeVersion() {
+        try {
+            return codeVersion(Paths.get(RunCache.class.getProtectionDomain().getCodeSource().getLocation().toURI()));
+        } catch (URISyntaxException e) {
+            throw new IllegalStateException("Cannot locate the class files", e);
+        }
+    }
+
+    /**
+     * @param classes
+     *            directory or jar of the class files
+     * @return hash of the class files of the analysis packages in the directory
+     *         or jar
+     */
+    static String codeVersion(Path classes) {
+        try {
+            if (Files.isDirectory(classes)) {
+                return codeVersion(classes, classes.resolve(VERSIONED_PACKAGE));
+            }
+            try (FileSystem jar = FileSystems.newFileSystem(classes, (ClassLoader) null)) {
+                Path root = jar.getPath("/");
+                return codeVersion(root, root.resolve(VERSIONED_PACKAGE));
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /*
+     * hash the names and contents of the class files below the package, in the
+     * order of their names
+     */
+    private static String codeVersion(Path root, Path versionedPackage) throws IOException {
+        Map<String, Path> files = new TreeMap<>();
+        try (Stream<Path> paths = Files.walk(versionedPackage)) {
+            paths.filter(path -> path.getFileName().toString().endsWith(".class")).filter(Files::isRegularFile)
+                    .forEach(path -> files.put(root.relativize(path).toString().replace('\\', '/'), path));
+        }
+        if (files.isEmpty()) {
+            throw new IllegalStateException("No class files in " + versionedPackage);
+        }
+        Hasher hasher = Hashing.sha256().newHasher().putInt(FORMAT_VERSION);
+        for (Map.Entry<String, Path> file : files.entrySet()) {
+            byte[] bytes = Files.readAllBytes(file.getValue());
+            hasher.putString(file.getKey(), StandardCharsets.UTF_8).putInt(bytes.length).putBytes(bytes);
+        }
+        return hasher.hash().toString();
+    }
+
+    public String getDatasetHash() {
+        return this.datasetHash;
+    }
+
+    public String getCodeVersion() {
+        return this.codeVersion;
+    }
+
+    /**
+     * Read a cell.
+     *
+     * @param config
+     *            the configuration
+     * @param evalYM
+     *            the evaluation month
+     * @return the cell, null if it is not cached or cannot be read
+     */
+    public Cell get(EvaluationConfiguration config, YearMonth evalYM) {
+        String key = this.key(config, evalYM);
+        Path file = this.file(key);
+        Cell cell = null;
+        try {
+            cell = read(Files.readAllBytes(file), key);
+            if (null == cell) {
+                LOGGER.warn("Ignoring invalid cache file '{}'", file);
+            }
+        } catch (NoSuchFileException e) {
+            // not cached
+        } catch (IOException | RuntimeException e) {
+            LOGGER.warn(String.format("Could not read cache file '%s'", file), e);
+        }
+        (null == cell ? this.misses : this.hits).incrementAndGet();
+        return cell;
+    }
+
+    /**
+     * Write a cell, replacing the file atomically.
+     *
+     * @param config
+     *            the configuration
+     * @param evalYM
+     *            the evaluation month
+     * @param ranking
+     *            the ordinals of the streams, best first
+     * @param measures
+     *            the measures of the ranking
+     */
+    public void put(EvaluationConfiguration config, YearMonth evalYM, int[] ranking, Map<String, Double> measures) {
+        String key = this.key(config, evalYM);
+        Path file = this.file(key);
+        try {
+            Files.createDirectories(file.getParent());
+            Path tempFile = Files.createTempFile(file.getParent(), file.getFileName().toString(), ".tmp");
+            try (OutputStream out = Files.newOutputStream(tempFile)) {
+                out.write(write(key, ranking, measures));
+            }
+            Files.move(tempFile, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException e) {
+            // the cell is evaluated again next time
+            LOGGER.error(String.format("Could not write cache file '%s'", file), e);
+        }
+    }
+
+    private String key(EvaluationConfiguration config, YearMonth evalYM) {
+        return String.join("\n", this.datasetHash, config.toString(), evalYM.toString(), this.codeVersion);
+    }
+
+    private Path file(String key) {
+        String hash = Hashing.sha256().hashString(key, StandardCharsets.UTF_8).toString();
+        return this.directory.resolve(hash.substring(0, 2)).resolve(hash + ".cell");
+    }
+
+    private static byte[] write(String key, int[] ranking, Map<String, Double> measures) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        DataOutputStream out = new DataOutputStream(bytes);
+        // the key is stored to tell cells apart if their hashes ever collide
+        out.writeUTF(key);
+        out.writeInt(ranking.length);
+        for (int ordinal : ranking) {
+            out.writeInt(ordinal);
+        }
+        out.writeInt(measures.size());
+        for (Map.Entry<String, Double> entry : measures.entrySet()) {
+            out.writeUTF(entry.getKey());
+            out.writeDouble(entry.getValue());
+        }
+        out.flush();
+        byte[] body = bytes.toByteArray();
+
+        CRC32 crc = new CRC32();
+        crc.update(body);
+        ByteBuffer file = ByteBuffer.allocate(HEADER_LENGTH + body.length);
+        file.putInt(MAGIC);
+        file.putInt(FORMAT_VERSION);
+        file.putLong(crc.getValue());
+        file.putInt(body.length);
+        file.put(body);
+        return file.array();
+    }
+
+    private static Cell read(byte[] bytes, String key) {
+        ByteBuffer in = ByteBuffer.wrap(bytes);
+        try {
+            if ((in.getInt() != MAGIC) || (in.getInt() != FORMAT_VERSION)) {
+                return null;
+            }
+            long checksum = in.getLong();
+            if (in.getInt() != in.remaining()) {
+                return null;
+            }
+            CRC32 crc = new CRC32();
+            crc.update(in.duplicate());
+            if (crc.getValue() != checksum) {
+                return null;
+            }
+
+            if (!key.equals(readUTF(in))) {
+                return null;
+            }
+            int[] ranking = new int[in.getInt()];
+            for (int i = 0; i < ranking.length; i++) {
+                ranking[i] = in.getInt();
+            }
+            int measureCount = in.getInt();
+            Map<String, Double> measures = new LinkedHashMap<>();
+            for (int i = 0; i < measureCount; i++) {
+                measures.put(readUTF(in), in.getDouble());
+            }
+            return new Cell(ranking, Collections.unmodifiableMap(measures));
+        } catch (BufferUnderflowException | NegativeArraySizeException e) {
+            return null;
+        }
+    }
+
+    // reads what DataOutputStream.writeUTF writes, for strings without
+    // supplementary or null characters
+    private static String readUTF(ByteBuffer in) {
+        byte[] utf = new byte[in.getShort() & 0xFFFF];
+        in.get(utf);
+        return new String(utf, StandardCharsets.UTF_8);
+    }
+
+    /**
+     * @return number of cells read from the cache
+     */
+    public long getHitCount() {
+        return this.hits.get();
+    }
+
+    /**
+     * @return number of cells not found in the cache
+     */
+    public long getMissCount() {
+        return this.misses.get();
+    }
+
+    @Override
+    public String toString() {
+        long h = this.hits.get();
+        long total = h + this.misses.get();
+        return String.format("run cache: %d hits, %d misses (hit rate %.1f%%)", h, this.misses.get(),
+                total == 0 ? 0.0 : (h * 100.0) / total);
+    }
+
+    /**
+     * The ranking and measures of a cell.
+     */
+    public static final class Cell {
+
+        private final int[] ranking;
+        private final Map<String, Double> measures;
+
+        Cell(int[] ranking, Map<String, Double> measures) {
+            this.ranking = ranking;
+            this.measures = measures;
+        }
+
+        /**
+         * @return the ordinals of the streams, best first
+         */
+        public int[] getRanking() {
+            return this.ranking;
+        }
+
+        /**
+         * @return the measures, in the order they were evaluated
+         */
+        public Map<String, Double> getMeasures() {
+            return this.measures;
+        }
+    }
+}
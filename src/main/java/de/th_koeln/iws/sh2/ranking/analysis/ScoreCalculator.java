@@ -2,26 +2,27 @@ package de.th_koeln.iws.sh2.ranking.analysis;
 
 import static java.time.temporal.ChronoUnit.MONTHS;
 
-import java.sql.Connection;
-import java.sql.PreparedStatement;
 import java.sql.SQLException;
-import java.time.Month;
 import java.time.Year;
 import java.time.YearMonth;
 
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
 
-import com.google.common.collect.TreeMultimap;
-
-import de.th_koeln.iws.sh2.ranking.analysis.data.ConferenceRecord;
+import de.th_koeln.iws.sh2.ranking.analysis.ScoringPlan.Factor;
+import de.th_koeln.iws.sh2.ranking.analysis.TemporalFeatureCache.TemporalFeatures;
 import de.th_koeln.iws.sh2.ranking.analysis.data.ConferenceStream;
-import de.th_koeln.iws.sh2.ranking.analysis.data.util.Calculator;
 import de.th_koeln.iws.sh2.ranking.analysis.data.util.EvaluationConfiguration;
+import de.th_koeln.iws.sh2.ranking.analysis.data.util.PackedYearMonth;
+import de.th_koeln.iws.sh2.ranking.analysis.data.util.RankingWriter;
 
 /**
  * Calculator for scoring {@link ConferenceStream}s.
  *
+ * A calculator can be used by several threads: it only reads the streams, its
+ * feature cache is concurrent, the debug output of a score is logged from local
+ * state and {@link RankingWriter} is synchronized.
+ *
  * @author neumannm
  *
  */
@@ -29,9 +30,9 @@ public class ScoreCalculator {
 
     private static Logger LOGGER = LogManager.getLogger(ScoreCalculator.class);
 
-    private static final int DELTA_MEDIAN_SAMPLE_SIZE = 5;
-
-    private EvaluationConfiguration config;
+    private final EvaluationConfiguration config;
+    private final ScoringPlan plan;
+    private final TemporalFeatureCache featureCache;
 
     /**
      * Constructor.
@@ -40,7 +41,22 @@ public class ScoreCalculator {
      *            configuration for evaluation that sets the parameters for scoring
      */
     public ScoreCalculator(EvaluationConfiguration config) {
+        this(config, new TemporalFeatureCache());
+    }
+
+    /**
+     * Constructor for calculators that share the temporal features of the
+     * streams, e.g. all calculators of an evaluation run.
+     *
+     * @param config
+     *            configuration for evaluation that sets the parameters for scoring
+     * @param featureCache
+     *            cache of the temporal stream features
+     */
+    public ScoreCalculator(EvaluationConfiguration config, TemporalFeatureCache featureCache) {
         this.config = config;
+        this.plan = ScoringPlan.compile(config);
+        this.featureCache = featureCache;
     }
 
     /**
@@ -50,41 +66,37 @@ public class ScoreCalculator {
      *            the conference to be scored
      * @param evalYM
      *            the evaluation year-month
-     * @param conn
-     *            a database connection to write the parameters and score to a DB
-     *            table (optional)
+     * @param writer
+     *            a writer for the parameters and score to a DB table (optional)
      * @return conference score, will be 0.0 if there are no records older than the
      *         test year or if next conference entry is not yet expected
      */
-    public Double getScore(ConferenceStream conf, YearMonth evalYM, Connection conn) {
-        double minValue = 0.0;
+    public Double getScore(ConferenceStream conf, YearMonth evalYM, RankingWriter writer) {
+        // temporal features of all records of this conference that have been created
+        // before the given year
+        TemporalFeatures features = this.featureCache.get(conf, Year.of(evalYM.getYear()));
+
+        if ((null == writer) && !LOGGER.isDebugEnabled()) {
+            return this.plan.score(conf, features, PackedYearMonth.pack(evalYM));
+        }
+        return this.traceScore(conf, evalYM, features, writer);
+    }
 
-        // get all records of this conference that have been created before the given
-        // year
-        TreeMultimap<YearMonth, ConferenceRecord> recordsCreatedBefore = conf
-                .getRecordsCreatedBefore(Year.of(evalYM.getYear()));
+    /*
+     * same calculation as the plan, but logging each step and optionally writing
+     * the parameters to the DB
+     */
+    private double traceScore(ConferenceStream conf, YearMonth evalYM, TemporalFeatures features,
+            RankingWriter writer) {
+        double minValue = 0.0;
 
         String streamKey = conf.getKey();
-        LOGGER.debug("[{}, {}] eventYM list: {}", evalYM, streamKey, recordsCreatedBefore.keySet());
+        LOGGER.debug("[{}, {}] features: {}", evalYM, streamKey, features);
 
-        if (recordsCreatedBefore.isEmpty())
+        if (features.isEmpty())
             // no records available that are from before the test year - conf not relevant
             return minValue;
 
-        // calculate usual delay (median of delays)
-        long medianDelay = Calculator.calcMedianDelay(recordsCreatedBefore, DELTA_MEDIAN_SAMPLE_SIZE);
-        LOGGER.debug("[{}, {}] median delay: {}", evalYM, streamKey, medianDelay);
-        // calculate usualMonth (mode of months)
-        Month modeMonth = Calculator.calcModeMonth(recordsCreatedBefore, DELTA_MEDIAN_SAMPLE_SIZE);
-        LOGGER.debug("[{}, {}] mode month: {}", evalYM, streamKey, modeMonth);
-        // calculate usual interval (median of intervals)
-        long medianInterval = Calculator.calcMedianInterval(recordsCreatedBefore, DELTA_MEDIAN_SAMPLE_SIZE);
-        LOGGER.debug("[{}, {}] interval: {}", evalYM, streamKey, medianInterval);
-
-        // the latest record year
-        YearMonth lastYearMonth = recordsCreatedBefore.keySet().first();
-        LOGGER.debug("[{}, {}] latest record year: {}", evalYM, streamKey, lastYearMonth);
-
         /*
          * next entry is expected in 'interval' years from last entry and in
          * 'medianDelay' from the 'avgMonth'
@@ -96,8 +108,8 @@ public class ScoreCalculator {
          * also works across year boundaries: e.g. if month is normally November and the
          * delay is usually 3 months, entry of 2016 is expected in February 2017
          */
-        YearMonth expectedNextEntry = YearMonth.of(lastYearMonth.getYear(), modeMonth.getValue())
-                .plusMonths(medianInterval).plusMonths(medianDelay);
+        int evalYearMonth = PackedYearMonth.pack(evalYM);
+        YearMonth expectedNextEntry = PackedYearMonth.unpack(ScoringPlan.expectedNextEntry(features));
         LOGGER.debug("[{}, {}] expected next entry: {}", evalYM, streamKey, expectedNextEntry);
 
         if (!evalYM.isBefore(expectedNextEntry)) { // check if conference should be expected
@@ -105,99 +117,12 @@ public class ScoreCalculator {
             long delay = expectedNextEntry.until(evalYM, MONTHS);
             LOGGER.debug("[{}, {}] raw delay in months: {}", evalYM, streamKey, delay);
 
-            final double delayFactor = this.getDelayFactor(delay);
+            final double delayFactor = ScoringPlan.delayFactor(delay);
             LOGGER.debug("[{}, {}] delay factor score: {}", evalYM, streamKey, delayFactor);
 
-            double activityFactor = 1.0, ratingFactor = 1.0, intlFactor = 1.0, citeFactor = 1.0, prominenceFactor = 1.0,
-                    sizeFactor = 1.0, affilFactor = 1.0, logFactor = 1.0;
             double activityScore = 0;
-
             if (this.config.isUseActivityScore()) {
-                // intervalAge = eventAgeInMonths / medianIntervalInMonths;
-                final double intervalAge = lastYearMonth.until(evalYM, MONTHS) / (double) medianInterval;
-                LOGGER.debug("[{}, {}] interval age in months: {}", evalYM, streamKey, intervalAge);
-                // active(c) = 1 / (1 + intervalAge^2) global max 1 with intervalAge = 0;
-                // lim(activity(c)) = 0 for intervalAge -> +Infinity;
-                activityScore = 1d / (1d + (intervalAge * intervalAge));
-                // w_active(c) = 1 + active(c);
-                activityFactor = 1 + activityScore;
-                LOGGER.debug("[{}, {}] activity factor score: {}", evalYM, streamKey, activityFactor);
-            }
-
-            if (this.config.isUseSizeScore()) {
-                Double avgSize = conf.getAvgSize();
-                if (null == avgSize) {
-                    LOGGER.warn("No size score available for conf '" + streamKey + "'");
-                } else {
-                    sizeFactor = 1 + avgSize;
-                }
-
-                LOGGER.debug("[{}, {}] size factor score: {}", evalYM, streamKey, sizeFactor);
-            }
-
-            if (this.config.isUseRatingScore()) {
-                Double avgRating = conf.getAvgRating();
-                if (null != avgRating) { // a lot of conferences have no rating info available
-                    ratingFactor = 1 + avgRating;
-                }
-
-                LOGGER.debug("[{}, {}] rating factor score: {}", evalYM, streamKey, ratingFactor);
-            }
-
-            if (this.config.isUseIntlScore()) {
-                Double intlScore = conf.getIntlScore();
-                if (null == intlScore) {
-                    LOGGER.warn("No internationality score available for conf '" + streamKey + "'");
-                } else {
-                    intlFactor = 1 + intlScore;
-                }
-
-                LOGGER.debug("[{}, {}] internationality factor score: {}", evalYM, streamKey, intlFactor);
-            }
-
-            if (this.config.isUseCitationScore()) {
-                Double citationsScore = conf.getCitationsScore();
-                if (null == citationsScore) {
-                    LOGGER.warn("No citations score available for conf '" + streamKey + "'");
-                } else {
-                    citeFactor = 1 + citationsScore;
-                }
-
-                LOGGER.debug("[{}, {}] cite factor score: {}", evalYM, streamKey, citeFactor);
-            }
-
-            if (this.config.isUsePromScore()) {
-                Double prominence = conf.getProminence();
-                if (null == prominence) {
-                    LOGGER.warn("No prominence score available for conf '" + streamKey + "'");
-                } else {
-                    prominenceFactor = 1 + prominence;
-                }
-
-                LOGGER.debug("[{}, {}] prominence factor score: {}", evalYM, streamKey, prominenceFactor);
-            }
-
-            if (this.config.isUseAffilScore()) {
-                Double affilScore = conf.getAffilScore();
-                if (null == affilScore) {
-                    // LOGGER.warn("No affiliation score available for conf '" + conf.getKey() +
-                    // "'");
-                } else {
-                    affilFactor = 1 + affilScore;
-                }
-
-                LOGGER.debug("[{}, {}] affiliation factor score: {}", evalYM, streamKey, affilFactor);
-            }
-
-            if (this.config.isUseLogScore()) {
-                // get log score of the month before the test month
-                Double logScore = conf.getLogScores().get(evalYM.minusMonths(1));
-                if (null != logScore) {
-                    LOGGER.debug("Log score available for conf '" + streamKey + "'");
-                    logFactor = 1 + logScore;
-                }
-
-                LOGGER.debug("[{}, {}] log factor score: {}", evalYM, streamKey, logFactor);
+                activityScore = ScoringPlan.activityScore(features, evalYearMonth);
             }
 
             /*
@@ -206,34 +131,24 @@ public class ScoreCalculator {
              * score = (delay/dead²) * (1+avgRank) * (1+internationality) * (1+citations)
              * *(1+prominence)
              */
-            double score = delayFactor * activityFactor * sizeFactor * ratingFactor * intlFactor * citeFactor
-                    * prominenceFactor * affilFactor * logFactor;
+            double score = delayFactor;
+            for (Factor factor : this.plan.getFactors()) {
+                double value = factor.get(conf, evalYearMonth, activityScore);
+                LOGGER.debug("[{}, {}] {} factor score: {}", evalYM, streamKey, factor, value);
+                score *= value;
+            }
             LOGGER.debug("[{}, {}] final score: {}", evalYM, streamKey, score);
 
-            if (null != conn) {
-                String insertStmt = "INSERT INTO ranking("
-                        + "conf_key, score, interval, month, delay, last_entry, expected, activity, rating, prominence, internationality, size, affiliations, log"
-                        + ") " + "VALUES" + "(?,?,?,?,?,?,?,?,?,?,?,?,?,?)";
-
-                try (PreparedStatement pstmt = conn.prepareStatement(insertStmt)) {
-                    pstmt.setString(1, conf.getKey());
-                    pstmt.setDouble(2, score);
-                    pstmt.setInt(3, (int) medianInterval);
-                    pstmt.setString(4, modeMonth.name());
-                    pstmt.setInt(5, (int) medianDelay);
-                    pstmt.setString(6, lastYearMonth.toString());
-                    pstmt.setString(7, expectedNextEntry.toString());
-                    pstmt.setFloat(8, (float) activityScore);
-                    pstmt.setFloat(9, conf.getAvgRating().floatValue());
-                    pstmt.setFloat(10, conf.getProminence().floatValue());
-                    pstmt.setFloat(11, conf.getIntlScore().floatValue());
-                    pstmt.setFloat(12, conf.getAvgSize().floatValue());
-                    pstmt.setFloat(13, conf.getAffilScore().floatValue());
-                    pstmt.setFloat(14, conf.getLogScores().get(evalYM).floatValue());
-
-                    pstmt.executeUpdate();
+            if (null != writer) {
+                try {
+                    writer.add(new RankingWriter.Row(streamKey, score, (int) features.getMedianInterval(),
+                            features.getModeMonth().name(), features.getMedianDelay(),
+                            features.getLatestEventYearMonth().toString(), expectedNextEntry.toString(), activityScore,
+                            conf.getAvgRating(), conf.getProminence(), conf.getIntlScore(), conf.getAvgSize(),
+                            conf.getAffilScore(), conf.getLogScore(evalYM)));
                 } catch (SQLException e) {
-                    LOGGER.error(e.getMessage());
+                    // the writer rolls back when it is closed; stop scoring into it
+                    throw new IllegalStateException("Cannot write the ranking row of " + streamKey, e);
                 }
             }
 
@@ -241,11 +156,4 @@ public class ScoreCalculator {
         }
         return minValue;
     }
-
-    private double getDelayFactor(long delay) {
-        if (delay >= 0) {
-            return 1.0 + (1.0 / (1.0 + (Math.log1p(delay) / Math.log(2))));
-        }
-        return -1;
-    }
 }
@@ -0,0 +1,80 @@
+package de.th_koeln.iws.sh2.ranking.analysis;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+import de.th_koeln.iws.sh2.ranking.analysis.data.ConferenceStream;
+import de.th_koeln.iws.sh2.ranking.analysis.data.util.EvaluationConfiguration;
+
+/**
+ * Scores of a list of streams (rows) under several configurations (columns)
+ * for one evaluation month. The scores of a configuration are stored
+ * contiguously.
+ */
+public final class ScoreMatrix {
+
+    private final List<ConferenceStream> streams;
+    private final List<EvaluationConfiguration> configs;
+    private final double[] scores;
+
+    ScoreMatrix(List<ConferenceStream> streams, List<EvaluationConfiguration> configs) {
+        this.streams = Collections.unmodifiableList(streams);
+        this.configs = Collections.unmodifiableList(configs);
+        this.scores = new double[streams.size() * configs.size()];
+    }
+
+    void set(int row, int column, double score) {
+        this.scores[column * this.streams.size() + row] = score;
+    }
+
+    /**
+     * @return number of streams
+     */
+    public int getRowCount() {
+        return this.streams.size();
+    }
+
+    /**
+     * @return number of configurations
+     */
+    public int getColumnCount() {
+        return this.configs.size();
+    }
+
+    public List<ConferenceStream> getStreams() {
+        return this.streams;
+    }
+
+    public List<EvaluationConfiguration> getConfigurations() {
+        return this.configs;
+    }
+
+    /**
+     * @param row
+     *            index of the stream
+     * @param column
+     *            index of the configuration
+     * @return the score
+     */
+    public double get(int row, int column) {
+        return this.scores[column * this.streams.size() + row];
+    }
+
+    /**
+     * Get the scores of a configuration as a map, like the ones scored one by one
+     * with a {@link ScoreCalculator}.
+     *
+     * @param column
+     *            index of the configuration
+     * @return the scores by stream
+     */
+    public Map<ConferenceStream, Double> getScores(int column) {
+        Map<ConferenceStream, Double> scored = new TreeMap<>();
+        for (int row = 0; row < this.streams.size(); row++) {
+            scored.put(this.streams.get(row), this.get(row, column));
+        }
+        return scored;
+    }
+}
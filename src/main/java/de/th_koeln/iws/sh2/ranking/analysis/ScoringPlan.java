@@ -0,0 +1,328 @@
+package de.th_koeln.iws.sh2.ranking.analysis;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import de.th_koeln.iws.sh2.ranking.analysis.TemporalFeatureCache.TemporalFeatures;
+import de.th_koeln.iws.sh2.ranking.analysis.data.ConferenceStream;
+import de.th_koeln.iws.sh2.ranking.analysis.data.util.EvaluationConfiguration;
+import de.th_koeln.iws.sh2.ranking.analysis.data.util.PackedYearMonth;
+
+/**
+ * An {@link EvaluationConfiguration} compiled for scoring: the factors the
+ * configuration uses are resolved once, so that scoring a stream does not check
+ * the configuration flags and does no logging.
+ *
+ * The score is the product of the delay factor and the active factors, in the
+ * order of {@link Factor}. Inactive factors are 1.0 and multiplying by 1.0 is
+ * exact, so leaving them out gives the same scores bit for bit.
+ */
+public final class ScoringPlan {
+
+    private static Logger LOGGER = LogManager.getLogger(ScoringPlan.class);
+
+    /**
+     * Delay factors are looked up for delays below this many months (100 years)
+     * and calculated for larger delays.
+     */
+    static final int DELAY_TABLE_SIZE = 1200;
+
+    private static final double[] DELAY_FACTORS = new double[DELAY_TABLE_SIZE];
+
+    static {
+        for (int delay = 0; delay < DELAY_TABLE_SIZE; delay++) {
+            DELAY_FACTORS[delay] = calcDelayFactor(delay);
+        }
+    }
+
+    /**
+     * The factors of the score formula, in the order they are multiplied.
+     */
+    public enum Factor {
+        ACTIVITY("activity") {
+            @Override
+            boolean isActive(EvaluationConfiguration config) {
+                return config.isUseActivityScore();
+            }
+
+            @Override
+            public double get(ConferenceStream conf, int evalYearMonth, double activityScore) {
+                // w_active(c) = 1 + active(c);
+                return 1 + activityScore;
+            }
+        },
+        SIZE("size") {
+            @Override
+            boolean isActive(EvaluationConfiguration config) {
+                return config.isUseSizeScore();
+            }
+
+            @Override
+            public double get(ConferenceStream conf, int evalYearMonth, double activityScore) {
+                Double avgSize = conf.getAvgSize();
+                if (null == avgSize) {
+                    LOGGER.warn("No size score available for conf '" + conf.getKey() + "'");
+                    return 1.0;
+                }
+                return 1 + avgSize;
+            }
+        },
+        RATING("rating") {
+            @Override
+            boolean isActive(EvaluationConfiguration config) {
+                return config.isUseRatingScore();
+            }
+
+            @Override
+            public double get(ConferenceStream conf, int evalYearMonth, double activityScore) {
+                Double avgRating = conf.getAvgRating();
+                // a lot of conferences have no rating info available
+                return null == avgRating ? 1.0 : 1 + avgRating;
+            }
+        },
+        INTERNATIONALITY("internationality") {
+            @Override
+            boolean isActive(EvaluationConfiguration config) {
+                return config.isUseIntlScore();
+            }
+
+            @Override
+            public double get(ConferenceStream conf, int evalYearMonth, double activityScore) {
+                Double intlScore = conf.getIntlScore();
+                if (null == intlScore) {
+                    LOGGER.warn("No internationality score available for conf '" + conf.getKey() + "'");
+                    return 1.0;
+                }
+                return 1 + intlScore;
+            }
+        },
+        CITATION("cite") {
+            @Override
+            boolean isActive(EvaluationConfiguration config) {
+                return config.isUseCitationScore();
+            }
+
+            @Override
+            public double get(ConferenceStream conf, int evalYearMonth, double activityScore) {
+                Double citationsScore = conf.getCitationsScore();
+                if (null == citationsScore) {
+                    LOGGER.warn("No citations score available for conf '" + conf.getKey() + "'");
+                    return 1.0;
+                }
+                return 1 + citationsScore;
+            }
+        },
+        PROMINENCE("prominence") {
+            @Override
+            boolean isActive(EvaluationConfiguration config) {
+                return config.isUsePromScore();
+            }
+
+            @Override
+            public double get(ConferenceStream conf, int evalYearMonth, double activityScore) {
+                Double prominence = conf.getProminence();
+                if (null == prominence) {
+                    LOGGER.warn("No prominence score available for conf '" + conf.getKey() + "'");
+                    return 1.0;
+                }
+                return 1 + prominence;
+            }
+        },
+        AFFILIATION("affiliation") {
+            @Override
+            boolean isActive(EvaluationConfiguration config) {
+                return config.isUseAffilScore();
+            }
+
+            @Override
+            public double get(ConferenceStream conf, int evalYearMonth, double activityScore) {
+                Double affilScore = conf.getAffilScore();
+                return null == affilScore ? 1.0 : 1 + affilScore;
+            }
+        },
+        LOG("log") {
+            @Override
+            boolean isActive(EvaluationConfiguration config) {
+                return config.isUseLogScore();
+            }
+
+            @Override
+            public double get(ConferenceStream conf, int evalYearMonth, double activityScore) {
+                // get log score of the month before the test month
+                double logScore = conf.getLogScore(evalYearMonth - 1);
+                return Double.isNaN(logScore) ? 1.0 : 1 + logScore;
+            }
+        };
+
+        private final String label;
+
+        private Factor(String label) {
+            this.label = label;
+        }
+
+        abstract boolean isActive(EvaluationConfiguration config);
+
+        /**
+         * Calculate the factor for a stream.
+         *
+         * @param conf
+         *            the stream
+         * @param evalYearMonth
+         *            the evaluation year-month, packed by {@link PackedYearMonth}
+         * @param activityScore
+         *            the activity score of the stream in the evaluation month
+         * @return the factor, 1.0 if the stream has no value for it
+         */
+        public abstract double get(ConferenceStream conf, int evalYearMonth, double activityScore);
+
+        @Override
+        public String toString() {
+            return this.label;
+        }
+    }
+
+    private final EvaluationConfiguration config;
+    private final Factor[] factors;
+    private final boolean useActivity;
+
+    private ScoringPlan(EvaluationConfiguration config) {
+        this.config = config;
+        List<Factor> active = new ArrayList<>();
+        for (Factor factor : Factor.values()) {
+            if (factor.isActive(config)) {
+                active.add(factor);
+            }
+        }
+        this.factors = active.toArray(new Factor[active.size()]);
+        this.useActivity = config.isUseActivityScore();
+    }
+
+    /**
+     * Compile a configuration.
+     *
+     * @param config
+     *            the configuration
+     * @return the plan
+     */
+    public static ScoringPlan compile(EvaluationConfiguration config) {
+        return new ScoringPlan(config);
+    }
+
+    public EvaluationConfiguration getConfiguration() {
+        return this.config;
+    }
+
+    /**
+     * @return the active factors in the order they are multiplied
+     */
+    public List<Factor> getFactors() {
+        return Collections.unmodifiableList(Arrays.asList(this.factors));
+    }
+
+    /**
+     * Multiply the delay factor with the values of the active factors.
+     *
+     * @param delayFactor
+     *            the delay factor of a stream
+     * @param factorValues
+     *            the values of the factors of the stream, by
+     *            {@link Factor#ordinal()}; only the active factors are read
+     * @return the score
+     */
+    double score(double delayFactor, double[] factorValues) {
+        double score = delayFactor;
+        for (Factor factor : this.factors) {
+            score *= factorValues[factor.ordinal()];
+        }
+        return score;
+    }
+
+    /**
+     * Calculate the score of a stream.
+     *
+     * @param conf
+     *            the stream
+     * @param features
+     *            the temporal features of the stream for the evaluation year
+     * @param evalYearMonth
+     *            the evaluation year-month, packed by {@link PackedYearMonth}
+     * @return the score, 0.0 if there are no features or if the next entry of the
+     *         stream is not yet expected
+     */
+    public double score(ConferenceStream conf, TemporalFeatures features, int evalYearMonth) {
+        if (features.isEmpty()) {
+            return 0.0;
+        }
+        int expectedNextEntry = expectedNextEntry(features);
+        if (evalYearMonth < expectedNextEntry) {
+            return 0.0;
+        }
+
+        double activityScore = this.useActivity ? activityScore(features, evalYearMonth) : 0;
+        double score = delayFactor(evalYearMonth - expectedNextEntry);
+        for (Factor factor : this.factors) {
+            score *= factor.get(conf, evalYearMonth, activityScore);
+        }
+        return score;
+    }
+
+    /**
+     * The next entry is expected in 'interval' months from the usual month of the
+     * latest event and 'medianDelay' months after that.
+     *
+     * @param features
+     *            the temporal features of a stream, not empty
+     * @return the expected year-month, packed by {@link PackedYearMonth}
+     */
+    public static int expectedNextEntry(TemporalFeatures features) {
+        return PackedYearMonth.pack(PackedYearMonth.year(features.getPackedLatestEventYearMonth()),
+                features.getModeMonth().getValue()) + (int) features.getMedianInterval()
+                + features.getMedianDelay();
+    }
+
+    /**
+     * active(c) = 1 / (1 + intervalAge^2), with intervalAge being the age of the
+     * latest event in intervals: global max 1 with intervalAge = 0, 0 for
+     * intervalAge -> +Infinity.
+     *
+     * @param features
+     *            the temporal features of a stream, not empty
+     * @param evalYearMonth
+     *            the evaluation year-month, packed by {@link PackedYearMonth}
+     * @return the activity score
+     */
+    public static double activityScore(TemporalFeatures features, int evalYearMonth) {
+        final double intervalAge = (long) (evalYearMonth - features.getPackedLatestEventYearMonth())
+                / (double) features.getMedianInterval();
+        return 1d / (1d + (intervalAge * intervalAge));
+    }
+
+    /**
+     * @param delay
+     *            months since the next entry has been expected
+     * @return the delay factor, -1 for negative delays
+     */
+    public static double delayFactor(long delay) {
+        if ((delay >= 0) && (delay < DELAY_TABLE_SIZE)) {
+            return DELAY_FACTORS[(int) delay];
+        }
+        return calcDelayFactor(delay);
+    }
+
+    private static double calcDelayFactor(long delay) {
+        if (delay >= 0) {
+            return 1.0 + (1.0 / (1.0 + (Math.log1p(delay) / Math.log(2))));
+        }
+        return -1;
+    }
+
+    @Override
+    public String toString() {
+        return this.config + " " + this.getFactors();
+    }
+}
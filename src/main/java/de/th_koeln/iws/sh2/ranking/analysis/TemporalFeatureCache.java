@@ -0,0 +1,225 @@
+package de.th_koeln.iws.sh2.ranking.analysis;
+
+import java.time.Month;
+import java.time.Year;
+import java.time.YearMonth;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+import de.th_koeln.iws.sh2.ranking.analysis.data.ConferenceStream;
+import de.th_koeln.iws.sh2.ranking.analysis.data.RecordView;
+import de.th_koeln.iws.sh2.ranking.analysis.data.util.Calculator;
+import de.th_koeln.iws.sh2.ranking.analysis.data.util.PackedYearMonth;
+
+/**
+ * Cache for the temporal features of a {@link ConferenceStream} (median delay,
+ * mode month, median interval and latest event year-month).
+ *
+ * These features only depend on the records of the stream that have been
+ * created before a cutoff year, not on the evaluation configuration or the
+ * month within that year. One cache can therefore be shared by all
+ * {@link ScoreCalculator}s of an evaluation run. The cache has to be
+ * {@link #clear() cleared} whenever the records of the streams change.
+ */
+public class TemporalFeatureCache {
+
+    /**
+     * Default number of latest events the features are calculated from.
+     */
+    public static final int DEFAULT_SAMPLE_SIZE = 5;
+
+    private final int sampleSize;
+    private final ConcurrentMap<Key, TemporalFeatures> features = new ConcurrentHashMap<>();
+
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+
+    /**
+     * Constructor using the {@link #DEFAULT_SAMPLE_SIZE}.
+     */
+    public TemporalFeatureCache() {
+        this(DEFAULT_SAMPLE_SIZE);
+    }
+
+    /**
+     * Constructor.
+     *
+     * @param sampleSize
+     *            number of latest events the features are calculated from
+     */
+    public TemporalFeatureCache(int sampleSize) {
+        this.sampleSize = sampleSize;
+    }
+
+    /**
+     * Get the features of a stream for all records created before the given
+     * year, calculating them if they are not cached yet.
+     *
+     * @param conf
+     *            the conference stream
+     * @param cutoff
+     *            only records created before this year are considered
+     * @return the features, {@link TemporalFeatures#isEmpty() empty} if there are
+     *         no records created before the cutoff
+     */
+    public TemporalFeatures get(ConferenceStream conf, Year cutoff) {
+        Key key = new Key(conf, cutoff.getValue());
+        TemporalFeatures cached = this.features.get(key);
+        if (null != cached) {
+            this.hits.incrementAndGet();
+            return cached;
+        }
+        // two threads may compute the same features concurrently; both results are
+        // equal, so the first one wins and the other one is discarded
+        this.misses.incrementAndGet();
+        TemporalFeatures computed = this.compute(conf.viewRecordsCreatedBefore(cutoff));
+        cached = this.features.putIfAbsent(key, computed);
+        return null == cached ? computed : cached;
+    }
+
+    private TemporalFeatures compute(RecordView records) {
+        if (records.isEmpty())
+            return TemporalFeatures.EMPTY;
+
+        return new TemporalFeatures(Calculator.calcMedianDelay(records, this.sampleSize),
+                Calculator.calcModeMonth(records, this.sampleSize),
+                Calculator.calcMedianInterval(records, this.sampleSize),
+                records.getEvtYearMonth(records.getFirstRecordOfLatestEvent()));
+    }
+
+    /**
+     * Remove all cached features. Counters are kept.
+     */
+    public void clear() {
+        this.features.clear();
+    }
+
+    /**
+     * @return number of cached (stream, cutoff) entries
+     */
+    public int size() {
+        return this.features.size();
+    }
+
+    /**
+     * @return number of lookups answered from the cache
+     */
+    public long getHitCount() {
+        return this.hits.get();
+    }
+
+    /**
+     * @return number of lookups that had to calculate the features
+     */
+    public long getMissCount() {
+        return this.misses.get();
+    }
+
+    /**
+     * @return share of lookups answered from the cache, 0 if there were none
+     */
+    public double getHitRate() {
+        long h = this.hits.get();
+        long total = h + this.misses.get();
+        return total == 0 ? 0.0 : h / (double) total;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("temporal feature cache: %d entries, %d hits, %d misses (hit rate %.1f%%)", this.size(),
+                this.getHitCount(), this.getMissCount(), this.getHitRate() * 100);
+    }
+
+    private static final class Key {
+        private final ConferenceStream conf;
+        private final int cutoffYear;
+
+        Key(ConferenceStream conf, int cutoffYear) {
+            this.conf = conf;
+            this.cutoffYear = cutoffYear;
+        }
+
+        @Override
+        public boolean equals(Object obj) {
+            if (this == obj)
+                return true;
+            if (!(obj instanceof Key))
+                return false;
+            Key other = (Key) obj;
+            return this.cutoffYear == other.cutoffYear && this.conf.equals(other.conf);
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(this.conf, this.cutoffYear);
+        }
+    }
+
+    /**
+     * Temporal features of a stream for a cutoff year.
+     */
+    public static final class TemporalFeatures {
+
+        /**
+         * Features of a stream without records before the cutoff.
+         */
+        public static final TemporalFeatures EMPTY = new TemporalFeatures(0, null, 0, 0);
+
+        private final int medianDelay;
+        private final Month modeMonth;
+        private final long medianInterval;
+        private final int latestEventYearMonth;
+
+        TemporalFeatures(int medianDelay, Month modeMonth, long medianInterval, int latestEventYearMonth) {
+            this.medianDelay = medianDelay;
+            this.modeMonth = modeMonth;
+            this.medianInterval = medianInterval;
+            this.latestEventYearMonth = latestEventYearMonth;
+        }
+
+        /**
+         * @return true if there were no records before the cutoff, in which case
+         *         the other getters are meaningless
+         */
+        public boolean isEmpty() {
+            return this == EMPTY;
+        }
+
+        public int getMedianDelay() {
+            return this.medianDelay;
+        }
+
+        public Month getModeMonth() {
+            return this.modeMonth;
+        }
+
+        public long getMedianInterval() {
+            return this.medianInterval;
+        }
+
+        /**
+         * @return the event year-month of the latest event
+         */
+        public YearMonth getLatestEventYearMonth() {
+            return PackedYearMonth.unpack(this.latestEventYearMonth);
+        }
+
+        /**
+         * @return the event year-month of the latest event, packed by
+         *         {@link PackedYearMonth}
+         */
+        public int getPackedLatestEventYearMonth() {
+            return this.latestEventYearMonth;
+        }
+
+        @Override
+        public String toString() {
+            if (this.isEmpty())
+                return "no features";
+            return String.format("median delay: %d, mode month: %s, interval: %d, latest event: %s", this.medianDelay,
+                    this.modeMonth, this.medianInterval, this.getLatestEventYearMonth());
+        }
+    }
+}
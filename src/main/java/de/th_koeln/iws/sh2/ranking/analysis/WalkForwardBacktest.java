@@ -0,0 +1,309 @@
+package de.th_koeln.iws.sh2.ranking.analysis;
+
+import java.time.LocalDate;
+import java.time.Year;
+import java.time.YearMonth;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import de.th_koeln.iws.sh2.ranking.analysis.data.ConferenceStream;
+import de.th_koeln.iws.sh2.ranking.analysis.data.RecordStore;
+import de.th_koeln.iws.sh2.ranking.analysis.data.util.EvaluationConfiguration;
+import de.th_koeln.iws.sh2.ranking.analysis.data.util.PackedYearMonth;
+import de.th_koeln.iws.sh2.ranking.analysis.evaluation.GoldstandardIndex;
+import de.th_koeln.iws.sh2.ranking.analysis.evaluation.IndexRanker;
+import de.th_koeln.iws.sh2.ranking.analysis.evaluation.TrecEvaluator;
+
+/**
+ * Evaluates the rankings of all configurations month by month over a period of
+ * any length.
+ *
+ * The records each stream has at a step are those created before the month of
+ * the step. Instead of viewing them anew for every month, the backtest walks
+ * forward through the records of each stream in creation order, and only looks
+ * at the records whose creation date has passed since the previous step. The
+ * creation of the latest known event, which ranks streams with equal scores,
+ * is updated from these records alone.
+ *
+ * The walk itself is sequential and cheap; scoring and evaluating the steps is
+ * left to an {@link EvaluationScheduler}, so several steps run at once.
+ */
+public class WalkForwardBacktest {
+
+    private static Logger LOGGER = LogManager.getLogger(WalkForwardBacktest.class);
+
+    // streams without known records
+    private static final int NO_CREATION = Integer.MIN_VALUE;
+
+    /**
+     * Receives the results of the steps.
+     */
+    public interface StepListener {
+        /**
+         * Called for each step before it is scored, in the order of the steps.
+         *
+         * @param evalYM
+         *            the month of the step
+         * @param gold
+         *            relevance of each stream by ordinal
+         */
+        default void judged(YearMonth evalYM, byte[] gold) {
+        }
+
+        /**
+         * Called for each configuration of a step, on the worker that ranked it.
+         *
+         * @param evalYM
+         *            the month of the step
+         * @param column
+         *            index of the configuration
+         * @param scored
+         *            the scores of the streams, sorted by stream key
+         * @param ranking
+         *            the ordinals of the streams, best first
+         */
+        default void ranked(YearMonth evalYM, int column, Map<ConferenceStream, Double> scored, int[] ranking) {
+        }
+
+        /**
+         * Called once all configurations of a step are evaluated, on the worker
+         * that evaluated the last one.
+         *
+         * @param evalYM
+         *            the month of the step
+         * @param rankings
+         *            the ranking of each configuration
+         */
+        default void evaluated(YearMonth evalYM, List<int[]> rankings) {
+        }
+    }
+
+    private final List<ConferenceStream> streams;
+    private final RecordStore[] stores;
+    // per stream ordinal: number of records created before the current month
+    private final int[] known;
+    // per stream ordinal: packed event year-month of the latest known event
+    private final int[] latestEvent;
+    // per stream ordinal: packed creation year-month of its first created record
+    private final int[] latestCreation;
+    private YearMonth month;
+
+    /**
+     * Constructor. The backtest starts before the first record of any stream.
+     *
+     * @param streams
+     *            the streams
+     */
+    public WalkForwardBacktest(Collection<ConferenceStream> streams) {
+        ConferenceStream[] sorted = streams.toArray(new ConferenceStream[streams.size()]);
+        Arrays.sort(sorted);
+        this.streams = Collections.unmodifiableList(Arrays.asList(sorted));
+        this.stores = new RecordStore[sorted.length];
+        for (int ordinal = 0; ordinal < sorted.length; ordinal++) {
+            this.stores[ordinal] = sorted[ordinal].getRecordStore();
+        }
+        this.known = new int[sorted.length];
+        this.latestEvent = new int[sorted.length];
+        this.latestCreation = new int[sorted.length];
+        Arrays.fill(this.latestCreation, NO_CREATION);
+    }
+
+    /**
+     * @return the streams, in the order of their ordinals (by key)
+     */
+    public List<ConferenceStream> getStreams() {
+        return this.streams;
+    }
+
+    /**
+     * @return the month of the current step, null before the first step
+     */
+    public YearMonth getMonth() {
+        return this.month;
+    }
+
+    /**
+     * Step forward: add the records created before the given month.
+     *
+     * @param evalYM
+     *            the month of the next step, not before the current one
+     */
+    public void advanceTo(YearMonth evalYM) {
+        if ((null != this.month) && evalYM.isBefore(this.month)) {
+            throw new IllegalArgumentException(String.format("Cannot step back from %s to %s", this.month, evalYM));
+        }
+        int until = (int) evalYM.atDay(1).toEpochDay();
+        for (int ordinal = 0; ordinal < this.stores.length; ordinal++) {
+            RecordStore store = this.stores[ordinal];
+            int index = this.known[ordinal];
+            for (; (index < store.size()) && (store.getcDay(index) < until); index++) {
+                // records are visited in creation order, so the first record of an event
+                // is the first one created
+                int evtYearMonth = store.getEvtYearMonth(index);
+                if ((this.latestCreation[ordinal] == NO_CREATION) || (evtYearMonth > this.latestEvent[ordinal])) {
+                    this.latestEvent[ordinal] = evtYearMonth;
+                    this.latestCreation[ordinal] = PackedYearMonth.pack(LocalDate.ofEpochDay(store.getcDay(index)));
+                }
+            }
+            this.known[ordinal] = index;
+        }
+        this.month = evalYM;
+    }
+
+    /**
+     * @param ordinal
+     *            ordinal of a stream
+     * @return number of records of the stream created before the current month
+     */
+    public int getKnownRecordCount(int ordinal) {
+        return this.known[ordinal];
+    }
+
+    /**
+     * @return per stream ordinal, the months since the creation of the first
+     *         record of its latest known event, {@link IndexRanker#NO_DELAY} for
+     *         streams without known records
+     */
+    public long[] getDelays() {
+        int current = PackedYearMonth.pack(this.month);
+        long[] delays = new long[this.latestCreation.length];
+        for (int ordinal = 0; ordinal < delays.length; ordinal++) {
+            delays[ordinal] = this.latestCreation[ordinal] == NO_CREATION ? IndexRanker.NO_DELAY
+                    : current - this.latestCreation[ordinal];
+        }
+        return delays;
+    }
+
+    /**
+     * Walk through the given months and evaluate the rankings of all
+     * configurations at each step against the gold standard of the step.
+     *
+     * @param months
+     *            the months of the steps, in ascending order
+     * @param scorer
+     *            scores the streams under all configurations
+     * @param parallel
+     *            scorer that runs chunks of streams, null to score on the workers
+     *            of the scheduler alone
+     * @param scheduler
+     *            runs the steps
+     * @param listener
+     *            receives the results of the steps
+     * @return the measures of all configurations and steps
+     */
+    public EvaluationResults run(List<YearMonth> months, MultiConfigScorer scorer, ParallelScorer parallel,
+            EvaluationScheduler scheduler, StepListener listener) {
+        return this.run(months, scorer, parallel, scheduler, null, listener);
+    }
+
+    /**
+     * Walk through the given months and evaluate the rankings of all
+     * configurations at each step against the gold standard of the step, taking
+     * the cells that are cached from the cache. A step is only scored if one of
+     * its cells is not cached.
+     *
+     * @param months
+     *            the months of the steps, in ascending order
+     * @param scorer
+     *            scores the streams under all configurations
+     * @param parallel
+     *            scorer that runs chunks of streams, null to score on the workers
+     *            of the scheduler alone
+     * @param scheduler
+     *            runs the steps
+     * @param cache
+     *            cache of the cells, null to evaluate all cells
+     * @param listener
+     *            receives the results of the steps; cells taken from the cache
+     *            are not {@link StepListener#ranked ranked}
+     * @return the measures of all configurations and steps
+     */
+    public EvaluationResults run(List<YearMonth> months, MultiConfigScorer scorer, ParallelScorer parallel,
+            EvaluationScheduler scheduler, RunCache cache, StepListener listener) {
+        List<EvaluationConfiguration> configs = scorer.getConfigurations();
+        if (months.isEmpty()) {
+            return new EvaluationResults(configs, months);
+        }
+        LOGGER.info("Walking forward through {} months from {} to {}", months.size(), months.get(0),
+                months.get(months.size() - 1));
+
+        /* the state of each step is small, collect it before the steps run in parallel */
+        Map<YearMonth, long[]> delays = new ConcurrentHashMap<>();
+        Map<YearMonth, byte[]> golds = new ConcurrentHashMap<>();
+        GoldstandardIndex index = null;
+        for (YearMonth evalYM : months) {
+            this.advanceTo(evalYM);
+            delays.put(evalYM, this.getDelays());
+            if ((null == index) || (index.getYear().getValue() != evalYM.getYear())) {
+                index = GoldstandardIndex.create(this.streams, Year.of(evalYM.getYear()));
+            }
+            byte[] gold = index.relevance(evalYM);
+            golds.put(evalYM, gold);
+            listener.judged(evalYM, gold);
+        }
+
+        Map<YearMonth, int[][]> rankings = new ConcurrentHashMap<>();
+        Map<YearMonth, RunCache.Cell[]> cachedCells = new ConcurrentHashMap<>();
+        return scheduler.run(months, configs, this.streams.size(), evalYM -> {
+            rankings.put(evalYM, new int[configs.size()][]);
+            RunCache.Cell[] cells = new RunCache.Cell[configs.size()];
+            boolean allCached = null != cache;
+            if (null != cache) {
+                for (int column = 0; column < cells.length; column++) {
+                    cells[column] = cache.get(configs.get(column), evalYM);
+                    allCached &= null != cells[column];
+                }
+            }
+            cachedCells.put(evalYM, cells);
+            if (allCached) {
+                LOGGER.info("Month " + evalYM + " is cached");
+                return new ScoreMatrix(Collections.emptyList(), configs);
+            }
+            LOGGER.info("Evaluating month " + evalYM);
+            return scorer.score(this.streams, evalYM, parallel);
+        }, (evalYM, config, scored) -> {
+            int column = configs.indexOf(config);
+            RunCache.Cell cell = cachedCells.get(evalYM)[column];
+            if (null != cell) {
+                rankings.get(evalYM)[column] = cell.getRanking();
+                return cell.getMeasures();
+            }
+            int[] ranking = IndexRanker.rankIndexes(scored, delays.get(evalYM));
+            rankings.get(evalYM)[column] = ranking;
+            listener.ranked(evalYM, column, scored, ranking);
+            Map<String, Double> measures = TrecEvaluator.evaluate(golds.get(evalYM), scored);
+            if (null != cache) {
+                cache.put(config, evalYM, ranking, measures);
+            }
+            return measures;
+        }, evalYM -> {
+            delays.remove(evalYM);
+            golds.remove(evalYM);
+            cachedCells.remove(evalYM);
+            listener.evaluated(evalYM, Arrays.asList(rankings.remove(evalYM)));
+        });
+    }
+
+    /**
+     * @param from
+     *            the first month
+     * @param to
+     *            the last month
+     * @return all months from the first to the last, inclusive
+     */
+    public static List<YearMonth> months(YearMonth from, YearMonth to) {
+        List<YearMonth> months = new ArrayList<>();
+        for (YearMonth evalYM = from; !evalYM.isAfter(to); evalYM = evalYM.plusMonths(1)) {
+            months.add(evalYM);
+        }
+        return months;
+    }
+}
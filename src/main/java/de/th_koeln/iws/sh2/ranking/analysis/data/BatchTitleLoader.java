@@ -0,0 +1,46 @@
+package de.th_koeln.iws.sh2.ranking.analysis.data;
+
+import java.util.Collections;
+import java.util.Map;
+import java.util.function.Supplier;
+
+/**
+ * {@link TitleLoader} that reads the titles of all records of a load in one
+ * batch, when the first title is asked for. The source is released once the
+ * titles are read, so records that keep the loader do not keep the source
+ * alive. Thread-safe.
+ */
+public final class BatchTitleLoader implements TitleLoader {
+
+    private Supplier<Map<String, String>> source;
+    private volatile Map<String, String> titles;
+
+    /**
+     * Constructor.
+     *
+     * @param source
+     *            supplies the titles by record key; called at most once
+     */
+    public BatchTitleLoader(Supplier<Map<String, String>> source) {
+        this.source = source;
+    }
+
+    @Override
+    public String loadTitle(String recordKey) {
+        Map<String, String> loaded = this.titles;
+        if (null == loaded) {
+            synchronized (this) {
+                loaded = this.titles;
+                if (null == loaded) {
+                    loaded = this.source.get();
+                    if (null == loaded) {
+                        loaded = Collections.emptyMap();
+                    }
+                    this.titles = loaded;
+                    this.source = null;
+                }
+            }
+        }
+        return loaded.get(recordKey);
+    }
+}
@@ -5,6 +5,8 @@ import java.time.Month;
 import java.time.Year;
 import java.time.YearMonth;
 
+import de.th_koeln.iws.sh2.ranking.analysis.data.util.PackedYearMonth;
+
 /**
  * Java Bean class representing a conference stream record.
  *
@@ -15,34 +17,77 @@ import java.time.YearMonth;
 public class ConferenceRecord extends StreamRecord{
 
     // conference-specific fields: event dates and place
-    private Month evtMonth;
-    private Year evtYear;
-    private String evtPlace;
-    private long insertDelayInMonths;
+    private final int evtYearMonth;
+    private int evtPlaceId;
+    private final int insertDelayInMonths;
 
     public ConferenceRecord(String key, String streamKey, String title, LocalDate cDate, Year pubYear, Type type,
             Month eventMonth, Year eventYear, String eventPlace, long insertDelay) {
         super(key, streamKey, title, cDate, pubYear, type);
-        this.evtMonth = eventMonth;
-        this.evtYear = eventYear;
-        this.evtPlace = eventPlace;
-        this.insertDelayInMonths = insertDelay;
+        this.evtYearMonth = PackedYearMonth.pack(eventYear.getValue(), eventMonth.getValue());
+        this.evtPlaceId = this.strings.encode(eventPlace);
+        this.insertDelayInMonths = Math.toIntExact(insertDelay);
+    }
+
+    /**
+     * Constructor for records whose repeating strings are dictionary-encoded and
+     * whose title is loaded lazily.
+     *
+     * @param strings
+     *            the dictionary of the load this record belongs to
+     * @param key
+     *            the record key
+     * @param streamKeyId
+     *            id of the stream key in the dictionary
+     * @param cDate
+     *            creation date
+     * @param pubYear
+     *            publication year
+     * @param type
+     *            type of the record
+     * @param eventMonth
+     *            month of the event
+     * @param eventYear
+     *            year of the event
+     * @param eventPlaceId
+     *            id of the event country in the dictionary
+     * @param insertDelay
+     *            delay between event and insertion in months
+     * @param titleLoader
+     *            source of the title (may be null if the record has no title)
+     */
+    public ConferenceRecord(StringDictionary strings, String key, int streamKeyId, LocalDate cDate, Year pubYear,
+            Type type, Month eventMonth, Year eventYear, int eventPlaceId, long insertDelay,
+            TitleLoader titleLoader) {
+        super(strings, key, streamKeyId, cDate, pubYear, type, titleLoader);
+        this.evtYearMonth = PackedYearMonth.pack(eventYear.getValue(), eventMonth.getValue());
+        this.evtPlaceId = eventPlaceId;
+        this.insertDelayInMonths = Math.toIntExact(insertDelay);
     }
 
     public Month getEvtMonth() {
-        return this.evtMonth;
+        return Month.of(PackedYearMonth.month(this.evtYearMonth));
     }
 
     public Year getEvtYear() {
-        return this.evtYear;
+        return Year.of(PackedYearMonth.year(this.evtYearMonth));
     }
 
     public String getEvtPlace() {
-        return this.evtPlace;
+        return this.strings.decode(this.evtPlaceId);
     }
 
     public YearMonth getEvtYearMonth() {
-        return YearMonth.of(this.evtYear.getValue(), this.evtMonth.getValue());
+        return PackedYearMonth.unpack(this.evtYearMonth);
+    }
+
+    /**
+     * Get the event year-month without creating a {@link YearMonth}.
+     *
+     * @return the event year-month, packed by {@link PackedYearMonth}
+     */
+    public int getPackedEvtYearMonth() {
+        return this.evtYearMonth;
     }
 
     public long getInsertDelayInMonths() {
@@ -52,7 +97,7 @@ public class ConferenceRecord extends StreamRecord{
     @Override
     public String toString() {
         return String.format("Conference record %s (stream: %s): created on %s, event was on %s, delay of %d",
-                this.recordKey, this.streamKey, this.cDate,
-                YearMonth.of(this.evtYear.getValue(), this.evtMonth).toString(), this.insertDelayInMonths);
+                this.recordKey, this.getStreamKey(), this.getcDate(), this.getEvtYearMonth().toString(),
+                this.insertDelayInMonths);
     }
 }
\ No newline at end of file
@@ -1,7 +1,6 @@
 package de.th_koeln.iws.sh2.ranking.analysis.data;
 
-import static java.util.stream.Collectors.toList;
-
+import java.time.LocalDate;
 import java.time.Year;
 import java.time.YearMonth;
 import java.util.ArrayList;
@@ -9,13 +8,14 @@ import java.util.Collection;
 import java.util.Comparator;
 import java.util.List;
 import java.util.Map;
-import java.util.function.Predicate;
+import java.util.function.IntPredicate;
 
 import com.google.common.collect.ListMultimap;
 import com.google.common.collect.MultimapBuilder;
 import com.google.common.collect.Ordering;
 import com.google.common.collect.TreeMultimap;
 
+import de.th_koeln.iws.sh2.ranking.analysis.data.util.PackedYearMonth;
 import de.th_koeln.iws.sh2.ranking.analysis.data.util.RecordByCDateComparator;
 
 /**
@@ -27,13 +27,16 @@ import de.th_koeln.iws.sh2.ranking.analysis.data.util.RecordByCDateComparator;
  */
 public class ConferenceStream implements Comparable<ConferenceStream> {
 
-    private String key;
-    private Collection<ConferenceRecord> records;
+    private final StringDictionary strings;
+    private final int keyId;
+    private RecordStore store;
 
+    /* built on first use */
     private ListMultimap<Year, ConferenceRecord> recordsByEvtYear;
 
     private Double avgRating, intlScore, citScore, promScore, sizeScore, affilScore;
-    private Map<YearMonth, Double> logScores;
+    private LogScoreMatrix logScores = LogScoreMatrix.EMPTY;
+    private int logScoreRow = -1;
 
     /**
      * Constructor.
@@ -44,23 +47,46 @@ public class ConferenceStream implements Comparable<ConferenceStream> {
      *            all records belonging to a conference (i.e. proceedings)
      */
     public ConferenceStream(String streamKey, Collection<ConferenceRecord> records) {
-        this.key = streamKey;
-        this.records = records;
-        this.createRecordsByEvtYearMap();
+        this(new StringDictionary(1), streamKey, records);
+    }
+
+    private ConferenceStream(StringDictionary strings, String streamKey, Collection<ConferenceRecord> records) {
+        this(strings, strings.encode(streamKey), records);
     }
 
     public ConferenceStream(String streamKey) {
         this(streamKey, new ArrayList<ConferenceRecord>());
     }
 
-    private void createRecordsByEvtYearMap() {
+    /**
+     * Constructor for streams whose key is dictionary-encoded.
+     *
+     * @param strings
+     *            the dictionary of the load this stream belongs to
+     * @param keyId
+     *            id of the stream key in the dictionary
+     * @param records
+     *            all records belonging to a conference (i.e. proceedings)
+     */
+    public ConferenceStream(StringDictionary strings, int keyId, Collection<ConferenceRecord> records) {
+        this.strings = strings;
+        this.keyId = keyId;
+        this.setRecords(records);
+    }
+
+    private ListMultimap<Year, ConferenceRecord> createRecordsByEvtYearMap() {
         // build a Multimap that orders Keys (years) in descending order
-        this.recordsByEvtYear = MultimapBuilder.treeKeys(DESC_ORDER).arrayListValues().build();
+        ListMultimap<Year, ConferenceRecord> byEvtYear = MultimapBuilder.treeKeys(DESC_ORDER).arrayListValues()
+                .build();
         // füge alle event years der einzelnen records und die records selbst zur
         // Multimap hinzu
-        this.records.forEach(r -> this.recordsByEvtYear.put(r.getEvtYear(), r));
+        this.store.asList().forEach(r -> byEvtYear.put(r.getEvtYear(), r));
+        return byEvtYear;
     }
 
+    /* order of the records of an event in the multimaps returned by the queries */
+    private static final Comparator<ConferenceRecord> CREATION_ORDER = new RecordByCDateComparator();
+
     static final Comparator<Year> DESC_ORDER = new Comparator<Year>() {
         @Override
         public int compare(Year e1, Year e2) {
@@ -77,7 +103,8 @@ public class ConferenceStream implements Comparable<ConferenceStream> {
      *         reverse order (newest record first)
      */
     public TreeMultimap<YearMonth, ConferenceRecord> getRecordsWithEventsBefore(Year year) {
-        Predicate<? super ConferenceRecord> predicate = r -> r.getEvtYear().isBefore(year);
+        int before = PackedYearMonth.pack(year.getValue(), 1);
+        IntPredicate predicate = i -> this.store.getEvtYearMonth(i) < before;
         Ordering<YearMonth> keyOrdering = Ordering.natural().reverse();
         Ordering<ConferenceRecord> valueOrdering = Ordering.natural();
         return this.filterAndMapEventRecords(predicate, keyOrdering, valueOrdering);
@@ -92,7 +119,8 @@ public class ConferenceStream implements Comparable<ConferenceStream> {
      *         sorted in reverse order (newest record first)
      */
     public TreeMultimap<YearMonth, ConferenceRecord> getRecordsWithEventsBefore(YearMonth yearMonth) {
-        Predicate<? super ConferenceRecord> predicate = r -> r.getEvtYearMonth().isBefore(yearMonth);
+        int before = PackedYearMonth.pack(yearMonth);
+        IntPredicate predicate = i -> this.store.getEvtYearMonth(i) < before;
         Ordering<YearMonth> keyOrdering = Ordering.natural().reverse();
         Ordering<ConferenceRecord> valueOrdering = Ordering.natural();
         return this.filterAndMapEventRecords(predicate, keyOrdering, valueOrdering);
@@ -105,15 +133,11 @@ public class ConferenceStream implements Comparable<ConferenceStream> {
      * @param year
      * @return all records that are created before the given year, sorted in reverse
      *         order (newest record first). Values for each key are sorted by
-     *         creation date in reverse order (latest first). Values with same
-     *         creation date are sorted alphabetically.
+     *         creation date. Values with same creation date are sorted
+     *         alphabetically.
      */
     public TreeMultimap<YearMonth, ConferenceRecord> getRecordsCreatedBefore(Year year) {
-        Predicate<? super ConferenceRecord> predicate = r -> Year.from(r.getcDate()).isBefore(year);
-        Ordering<YearMonth> keyOrdering = Ordering.natural().reverse();
-        Ordering<ConferenceRecord> valueOrdering = Ordering
-                .from((r2, r1) -> new RecordByCDateComparator().compare(r2, r1));
-        return this.filterAndMapEventRecords(predicate, keyOrdering, valueOrdering);
+        return this.viewRecordsCreatedBefore(year).toMultimap(CREATION_ORDER);
     }
 
     /**
@@ -127,11 +151,7 @@ public class ConferenceStream implements Comparable<ConferenceStream> {
      *         sorted alphabetically.
      */
     public TreeMultimap<YearMonth, ConferenceRecord> getRecordsCreatedUntilIncludingYear(Year year) {
-        Predicate<? super ConferenceRecord> predicate = r -> !Year.from(r.getcDate()).isAfter(year);
-        Ordering<YearMonth> keyOrdering = Ordering.natural().reverse();
-        Ordering<ConferenceRecord> valueOrdering = Ordering
-                .from((r1, r2) -> new RecordByCDateComparator().compare(r1, r2));
-        return this.filterAndMapEventRecords(predicate, keyOrdering, valueOrdering);
+        return this.viewRecordsCreatedBefore(year.plusYears(1)).toMultimap(CREATION_ORDER);
     }
 
     /**
@@ -144,47 +164,97 @@ public class ConferenceStream implements Comparable<ConferenceStream> {
      *         are sorted alphabetically.
      */
     public TreeMultimap<YearMonth, ConferenceRecord> getRecordsCreatedBefore(YearMonth yearMonth) {
-        Predicate<? super ConferenceRecord> predicate = r -> YearMonth.from(r.getcDate()).isBefore(yearMonth);
-        Ordering<YearMonth> keyOrdering = Ordering.natural().reverse();
-        Ordering<ConferenceRecord> valueOrdering = Ordering
-                .from((r2, r1) -> new RecordByCDateComparator().compare(r2, r1));
-        return this.filterAndMapEventRecords(predicate, keyOrdering, valueOrdering);
+        return this.viewRecordsCreatedBefore(yearMonth).toMultimap(CREATION_ORDER);
     }
 
     public TreeMultimap<YearMonth, ConferenceRecord> getRecordsCreatedInYear(Year year) {
-        Predicate<? super ConferenceRecord> predicate = r -> r.getcDate().getYear() == year.getValue();
-        Ordering<YearMonth> keyOrdering = Ordering.natural().reverse();
-        Ordering<ConferenceRecord> valueOrdering = Ordering
-                .from((r2, r1) -> new RecordByCDateComparator().compare(r2, r1));
-        return this.filterAndMapEventRecords(predicate, keyOrdering, valueOrdering);
+        return this.viewRecordsCreatedInYear(year).toMultimap(CREATION_ORDER);
     }
 
-    private TreeMultimap<YearMonth, ConferenceRecord> filterAndMapEventRecords(
-            Predicate<? super ConferenceRecord> predicate, Comparator<YearMonth> keyOrdering,
-            Comparator<ConferenceRecord> valueOrdering) {
+    /**
+     * Get a view of all records created before a given year. Unlike
+     * {@link #getRecordsCreatedBefore(Year)}, no records are copied.
+     *
+     * @param year
+     * @return view of the records created before the given year
+     */
+    public RecordView viewRecordsCreatedBefore(Year year) {
+        return this.store.view(0, this.store.lowerBound(epochDay(year.atDay(1))));
+    }
 
-        TreeMultimap<YearMonth, ConferenceRecord> eventRecordMapping = TreeMultimap.create(keyOrdering, valueOrdering);
+    /**
+     * Get a view of all records created before a given year-month. Unlike
+     * {@link #getRecordsCreatedBefore(YearMonth)}, no records are copied.
+     *
+     * @param yearMonth
+     * @return view of the records created before the given year-month
+     */
+    public RecordView viewRecordsCreatedBefore(YearMonth yearMonth) {
+        return this.store.view(0, this.store.lowerBound(epochDay(yearMonth.atDay(1))));
+    }
+
+    /**
+     * Get a view of all records created in a given year. Unlike
+     * {@link #getRecordsCreatedInYear(Year)}, no records are copied.
+     *
+     * @param year
+     * @return view of the records created in the given year
+     */
+    public RecordView viewRecordsCreatedInYear(Year year) {
+        return this.store.view(this.store.lowerBound(epochDay(year.atDay(1))),
+                this.store.lowerBound(epochDay(year.plusYears(1).atDay(1))));
+    }
+
+    /*
+     * the predicate is tested on the positions of the records in the store, so
+     * filtering only reads the primitive columns
+     */
+    private TreeMultimap<YearMonth, ConferenceRecord> filterAndMapEventRecords(IntPredicate predicate,
+            Comparator<YearMonth> keyOrdering, Comparator<ConferenceRecord> valueOrdering) {
 
-        List<ConferenceRecord> filteredRecords = this.records.stream().filter(predicate).collect(toList());
+        TreeMultimap<YearMonth, ConferenceRecord> eventRecordMapping = TreeMultimap.create(keyOrdering, valueOrdering);
 
-        for (ConferenceRecord conferenceRecord : filteredRecords) {
-            eventRecordMapping.put(conferenceRecord.getEvtYearMonth(), conferenceRecord);
+        RecordStore records = this.store;
+        YearMonth eventYearMonth = null;
+        for (int i = 0; i < records.size(); i++) {
+            if (predicate.test(i)) {
+                int packed = records.getEvtYearMonth(i);
+                // reuse the key object for consecutive records of the same event
+                if ((null == eventYearMonth) || (PackedYearMonth.pack(eventYearMonth) != packed)) {
+                    eventYearMonth = PackedYearMonth.unpack(packed);
+                }
+                eventRecordMapping.put(eventYearMonth, records.getRecord(i));
+            }
         }
         return eventRecordMapping;
     }
 
+    private static int epochDay(LocalDate date) {
+        return Math.toIntExact(date.toEpochDay());
+    }
+
     /**
-     * @return all records of this conference stream
+     * @return all records of this conference stream, sorted by creation date
      */
     public Collection<ConferenceRecord> getRecords() {
-        return this.records;
+        return this.store.asList();
+    }
+
+    /**
+     * Get the records of this conference stream in columnar form, for queries
+     * that only need primitive values.
+     *
+     * @return the record store
+     */
+    public RecordStore getRecordStore() {
+        return this.store;
     }
 
     /**
      * @return conference stream key
      */
     public String getKey() {
-        return this.key;
+        return this.strings.decode(this.keyId);
     }
 
     /**
@@ -194,7 +264,12 @@ public class ConferenceStream implements Comparable<ConferenceStream> {
      * @return a mapping from event years to stream records
      */
     public ListMultimap<Year, ConferenceRecord> getRecordsByEventYear() {
-        return this.recordsByEvtYear;
+        ListMultimap<Year, ConferenceRecord> byEvtYear = this.recordsByEvtYear;
+        if (null == byEvtYear) {
+            byEvtYear = this.createRecordsByEvtYearMap();
+            this.recordsByEvtYear = byEvtYear;
+        }
+        return byEvtYear;
     }
 
     /**
@@ -267,8 +342,36 @@ public class ConferenceStream implements Comparable<ConferenceStream> {
         return this.affilScore;
     }
 
+    /**
+     * Get the log scores of this conference stream as a map. The map is created
+     * on every call; use {@link #getLogScore(int)} to look up single scores.
+     *
+     * @return the log scores by month
+     */
     public Map<YearMonth, Double> getLogScores() {
-        return this.logScores;
+        return this.logScores.toMap(this.logScoreRow);
+    }
+
+    /**
+     * Get the log score of a month.
+     *
+     * @param packedYearMonth
+     *            the month, packed by {@link PackedYearMonth}
+     * @return the log score, or NaN if there is none
+     */
+    public double getLogScore(int packedYearMonth) {
+        return this.logScores.get(this.logScoreRow, packedYearMonth);
+    }
+
+    /**
+     * Get the log score of a month.
+     *
+     * @param yearMonth
+     *            the month
+     * @return the log score, or NaN if there is none
+     */
+    public double getLogScore(YearMonth yearMonth) {
+        return this.getLogScore(PackedYearMonth.pack(yearMonth));
     }
 
     public void setAffilScore(Double affilScore) {
@@ -276,7 +379,21 @@ public class ConferenceStream implements Comparable<ConferenceStream> {
     }
 
     public void setLogScores(Map<YearMonth, Double> map) {
-        this.logScores = map;
+        this.setLogScores(LogScoreMatrix.of(this.getKey(), map), 0);
+    }
+
+    /**
+     * Set the log scores to a row of a log score matrix shared by all streams.
+     *
+     * @param matrix
+     *            the log score matrix
+     * @param row
+     *            the row of this stream, or -1 if the matrix holds no scores for
+     *            it
+     */
+    public void setLogScores(LogScoreMatrix matrix, int row) {
+        this.logScores = matrix;
+        this.logScoreRow = (row < matrix.getRowCount()) ? row : -1;
     }
 
     /*
@@ -288,25 +405,54 @@ public class ConferenceStream implements Comparable<ConferenceStream> {
      */
     @Override
     public int compareTo(ConferenceStream o) {
-        return this.key.compareTo(o.key);
+        return this.getKey().compareTo(o.getKey());
     }
 
     @Override
     public boolean equals(Object obj) {
-        return (obj instanceof ConferenceStream) && ((ConferenceStream) obj).key.equals(this.key);
+        return (obj instanceof ConferenceStream) && ((ConferenceStream) obj).getKey().equals(this.getKey());
     }
 
     @Override
     public int hashCode() {
-        return this.key.hashCode();
+        return this.getKey().hashCode();
     }
 
     @Override
     public String toString() {
-        return String.format("DataStream %s with %d records.", this.key, this.records.size());
+        return String.format("DataStream %s with %d records.", this.getKey(), this.store.size());
     }
 
     public void setRecords(Collection<ConferenceRecord> records) {
-        this.records = records;
+        this.store = records.isEmpty() ? RecordStore.EMPTY : new RecordStore(records);
+        this.recordsByEvtYear = null;
+    }
+
+    /**
+     * Add new records to this stream. Records created on the same date with the
+     * same key as a known record are ignored, as when the stream is loaded at
+     * once; a known key with another creation date is a history row of its own
+     * and is added. The record store is rebuilt if any record has been added.
+     *
+     * @param newRecords
+     *            the records to add
+     * @return the number of records that have been added
+     */
+    public int addRecords(Collection<ConferenceRecord> newRecords) {
+        if (newRecords.isEmpty()) {
+            return 0;
+        }
+        Collection<ConferenceRecord> records = this.getRecords();
+        List<ConferenceRecord> merged = new ArrayList<>(records.size() + newRecords.size());
+        merged.addAll(records);
+        merged.addAll(newRecords);
+        // the store keeps the first of equal records, which is the known one
+        RecordStore store = new RecordStore(merged);
+        int added = store.size() - records.size();
+        if (added > 0) {
+            this.store = store;
+            this.recordsByEvtYear = null;
+        }
+        return added;
     }
 }
\ No newline at end of file
@@ -0,0 +1,177 @@
+package de.th_koeln.iws.sh2.ranking.analysis.data;
+
+import java.time.YearMonth;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import de.th_koeln.iws.sh2.ranking.analysis.data.util.PackedYearMonth;
+
+/**
+ * Dense matrix of monthly log scores: one row per conference stream, one
+ * column per month from the first to the last log month. Missing values are
+ * NaN.
+ */
+public final class LogScoreMatrix {
+
+    /**
+     * Matrix without any rows or months.
+     */
+    public static final LogScoreMatrix EMPTY = new Builder(0, -1).build();
+
+    /* packed year-month of the first column */
+    private final int firstMonth;
+    private final int monthCount;
+    private final double[][] scores;
+    private final Map<String, Integer> rowsByStreamKey;
+
+    private LogScoreMatrix(Builder builder) {
+        this.firstMonth = builder.firstMonth;
+        this.monthCount = builder.monthCount;
+        this.scores = builder.rows.values().toArray(new double[builder.rows.size()][]);
+        this.rowsByStreamKey = new HashMap<>(builder.rows.size() * 2);
+        int row = 0;
+        for (String streamKey : builder.rows.keySet()) {
+            this.rowsByStreamKey.put(streamKey, row++);
+        }
+    }
+
+    /**
+     * @param streamKey
+     *            key of a conference stream
+     * @return the row of the stream, or -1 if the matrix holds no scores for it
+     */
+    public int getRow(String streamKey) {
+        Integer row = this.rowsByStreamKey.get(streamKey);
+        return (null == row) ? -1 : row;
+    }
+
+    /**
+     * Get a log score.
+     *
+     * @param row
+     *            the row of a stream (may be -1)
+     * @param packedYearMonth
+     *            the month, packed by {@link PackedYearMonth}
+     * @return the log score, or NaN if there is none
+     */
+    public double get(int row, int packedYearMonth) {
+        int offset = packedYearMonth - this.firstMonth;
+        if ((row < 0) || (offset < 0) || (offset >= this.monthCount)) {
+            return Double.NaN;
+        }
+        return this.scores[row][offset];
+    }
+
+    /**
+     * Get all log scores of a row as a map. Creates a new map on every call.
+     *
+     * @param row
+     *            the row of a stream (may be -1)
+     * @return the log scores by month, without missing values
+     */
+    public Map<YearMonth, Double> toMap(int row) {
+        Map<YearMonth, Double> map = new HashMap<>();
+        if (row < 0) {
+            return map;
+        }
+        double[] rowScores = this.scores[row];
+        for (int offset = 0; offset < this.monthCount; offset++) {
+            if (!Double.isNaN(rowScores[offset])) {
+                map.put(PackedYearMonth.unpack(this.firstMonth + offset), rowScores[offset]);
+            }
+        }
+        return map;
+    }
+
+    /**
+     * @return the number of rows
+     */
+    public int getRowCount() {
+        return this.scores.length;
+    }
+
+    /**
+     * @return the number of months
+     */
+    public int getMonthCount() {
+        return this.monthCount;
+    }
+
+    /**
+     * Create a matrix holding the scores of a single stream.
+     *
+     * @param streamKey
+     *            key of the stream
+     * @param logScores
+     *            log scores by month
+     * @return the matrix
+     */
+    public static LogScoreMatrix of(String streamKey, Map<YearMonth, Double> logScores) {
+        if (logScores.isEmpty()) {
+            return EMPTY;
+        }
+        int first = logScores.keySet().stream().mapToInt(PackedYearMonth::pack).min().getAsInt();
+        int last = logScores.keySet().stream().mapToInt(PackedYearMonth::pack).max().getAsInt();
+        Builder builder = new Builder(first, last);
+        logScores.forEach((month, score) -> {
+            if (null != score) {
+                builder.set(streamKey, PackedYearMonth.pack(month), score);
+            }
+        });
+        return builder.build();
+    }
+
+    /**
+     * Builder for {@link LogScoreMatrix}.
+     */
+    public static class Builder {
+        private final int firstMonth;
+        private final int monthCount;
+        private final Map<String, double[]> rows = new LinkedHashMap<>();
+
+        /**
+         * Constructor.
+         *
+         * @param firstMonth
+         *            the first month of the matrix, packed by {@link PackedYearMonth}
+         * @param lastMonth
+         *            the last month of the matrix, packed by {@link PackedYearMonth};
+         *            less than the first month for a matrix without months
+         */
+        public Builder(int firstMonth, int lastMonth) {
+            this.firstMonth = firstMonth;
+            this.monthCount = Math.max(0, (lastMonth - firstMonth) + 1);
+        }
+
+        /**
+         * Set a log score, adding a row for the stream if needed.
+         *
+         * @param streamKey
+         *            key of the stream
+         * @param packedYearMonth
+         *            the month, packed by {@link PackedYearMonth}
+         * @param score
+         *            the log score
+         * @return this builder
+         */
+        public Builder set(String streamKey, int packedYearMonth, double score) {
+            int offset = packedYearMonth - this.firstMonth;
+            if ((offset < 0) || (offset >= this.monthCount)) {
+                throw new IllegalArgumentException(String.format("Month %s is outside of the matrix",
+                        PackedYearMonth.unpack(packedYearMonth)));
+            }
+            this.rows.computeIfAbsent(streamKey, key -> {
+                double[] row = new double[this.monthCount];
+                Arrays.fill(row, Double.NaN);
+                return row;
+            })[offset] = score;
+            return this;
+        }
+
+        public LogScoreMatrix build() {
+            return new LogScoreMatrix(this);
+        }
+    }
+}
@@ -0,0 +1,156 @@
+package de.th_koeln.iws.sh2.ranking.analysis.data;
+
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+
+import de.th_koeln.iws.sh2.ranking.analysis.data.util.PackedYearMonth;
+import de.th_koeln.iws.sh2.ranking.analysis.data.util.RecordByCDateComparator;
+
+/**
+ * Columnar store of the records of a conference stream. The records are sorted
+ * by creation date (and key, for records created on the same date), and the
+ * values needed by temporal queries are kept in primitive arrays in the same
+ * order, so queries can scan them without touching the record objects.
+ * Records created before a date are a prefix of the store and are found by
+ * binary search. Records created on the same date with the same key are kept
+ * once, as in the multimaps the store replaces.
+ *
+ * A store is immutable; adding records creates a new store.
+ */
+public final class RecordStore {
+
+    static final RecordStore EMPTY = new RecordStore(Collections.emptyList());
+
+    private final ConferenceRecord[] records;
+    /* creation dates as epoch days */
+    private final int[] cDays;
+    /* event year-months, packed by PackedYearMonth */
+    private final int[] evtYearMonths;
+    private final int[] delays;
+
+    private final List<ConferenceRecord> view;
+
+    /**
+     * Constructor.
+     *
+     * @param records
+     *            the records of a stream, in any order; of records created on the
+     *            same date with the same key, the first is kept
+     */
+    public RecordStore(Collection<ConferenceRecord> records) {
+        this.records = dedup(records.toArray(new ConferenceRecord[records.size()]));
+
+        int size = this.records.length;
+        this.cDays = new int[size];
+        this.evtYearMonths = new int[size];
+        this.delays = new int[size];
+        for (int i = 0; i < size; i++) {
+            ConferenceRecord record = this.records[i];
+            this.cDays[i] = record.getcDay();
+            this.evtYearMonths[i] = record.getPackedEvtYearMonth();
+            this.delays[i] = (int) record.getInsertDelayInMonths();
+        }
+        this.view = Collections.unmodifiableList(Arrays.asList(this.records));
+    }
+
+    /*
+     * sort the records by creation date and key (stable, so the first of equal
+     * records stays first) and drop the equal records that follow it
+     */
+    private static ConferenceRecord[] dedup(ConferenceRecord[] records) {
+        RecordByCDateComparator comparator = new RecordByCDateComparator();
+        Arrays.sort(records, comparator);
+        int size = 0;
+        for (ConferenceRecord record : records) {
+            if ((size == 0) || (comparator.compare(records[size - 1], record) != 0)) {
+                records[size++] = record;
+            }
+        }
+        return (size == records.length) ? records : Arrays.copyOf(records, size);
+    }
+
+    /**
+     * @return the number of records
+     */
+    public int size() {
+        return this.records.length;
+    }
+
+    /**
+     * @param index
+     *            position of a record in creation order
+     * @return the record
+     */
+    public ConferenceRecord getRecord(int index) {
+        return this.records[index];
+    }
+
+    /**
+     * @param index
+     *            position of a record in creation order
+     * @return the record's creation date as epoch day
+     */
+    public int getcDay(int index) {
+        return this.cDays[index];
+    }
+
+    /**
+     * @param index
+     *            position of a record in creation order
+     * @return the record's event year-month, packed by {@link PackedYearMonth}
+     */
+    public int getEvtYearMonth(int index) {
+        return this.evtYearMonths[index];
+    }
+
+    /**
+     * @param index
+     *            position of a record in creation order
+     * @return the record's insertion delay in months
+     */
+    public int getInsertDelay(int index) {
+        return this.delays[index];
+    }
+
+    /**
+     * Find the first record created on or after a given day.
+     *
+     * @param cDay
+     *            a day as epoch day
+     * @return the position of the first record created on or after the day, or
+     *         {@link #size()} if there is none
+     */
+    public int lowerBound(int cDay) {
+        int low = 0;
+        int high = this.cDays.length;
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (this.cDays[mid] < cDay) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        return low;
+    }
+
+    /**
+     * @param from
+     *            first position of the view
+     * @param to
+     *            position after the last position of the view
+     * @return read-only view of the records at the given positions
+     */
+    public RecordView view(int from, int to) {
+        return new RecordView(this, from, to);
+    }
+
+    /**
+     * @return unmodifiable view of the records in creation order
+     */
+    public List<ConferenceRecord> asList() {
+        return this.view;
+    }
+}
@@ -0,0 +1,281 @@
+package de.th_koeln.iws.sh2.ranking.analysis.data;
+
+import java.time.YearMonth;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.StringJoiner;
+
+import com.google.common.collect.Ordering;
+import com.google.common.collect.TreeMultimap;
+
+import de.th_koeln.iws.sh2.ranking.analysis.data.util.PackedYearMonth;
+
+/**
+ * Read-only view of a range of the records of a {@link RecordStore}, e.g. all
+ * records created before a given date. Creating a view does not copy any
+ * records.
+ *
+ * Records are addressed by their index in the view (in creation order), or
+ * visited in event order: latest event first, and the records of an event in
+ * creation order. This is the iteration order of the multimaps returned by
+ * {@link ConferenceStream#getRecordsCreatedBefore(java.time.Year)}. Queries only
+ * scan the records of the view.
+ */
+public final class RecordView {
+
+    /**
+     * Visitor for the records of a view.
+     */
+    @FunctionalInterface
+    public interface RecordVisitor {
+        /**
+         * @param index
+         *            index of a record in the view
+         * @return false to stop visiting
+         */
+        boolean visit(int index);
+    }
+
+    private final RecordStore store;
+    private final int from;
+    private final int to;
+
+    RecordView(RecordStore store, int from, int to) {
+        this.store = store;
+        this.from = from;
+        this.to = to;
+    }
+
+    /**
+     * @return the number of records in this view
+     */
+    public int size() {
+        return this.to - this.from;
+    }
+
+    public boolean isEmpty() {
+        return this.to == this.from;
+    }
+
+    /**
+     * @param index
+     *            index of a record in this view
+     * @return the record
+     */
+    public ConferenceRecord getRecord(int index) {
+        return this.store.getRecord(this.from + index);
+    }
+
+    /**
+     * @param index
+     *            index of a record in this view
+     * @return the record's creation date as epoch day
+     */
+    public int getcDay(int index) {
+        return this.store.getcDay(this.from + index);
+    }
+
+    /**
+     * @param index
+     *            index of a record in this view
+     * @return the record's event year-month, packed by {@link PackedYearMonth}
+     */
+    public int getEvtYearMonth(int index) {
+        return this.store.getEvtYearMonth(this.from + index);
+    }
+
+    /**
+     * @param index
+     *            index of a record in this view
+     * @return the record's insertion delay in months
+     */
+    public int getInsertDelay(int index) {
+        return this.store.getInsertDelay(this.from + index);
+    }
+
+    /**
+     * Visit the records of this view in event order: latest event first, and the
+     * records of an event in creation order.
+     *
+     * @param visitor
+     *            the visitor
+     */
+    public void visitInEventOrder(RecordVisitor visitor) {
+        int size = this.size();
+        // sort (event year-month, reversed index) pairs packed into longs, then
+        // visit them in reverse
+        long[] keys = new long[size];
+        for (int index = 0; index < size; index++) {
+            keys[index] = ((long) this.getEvtYearMonth(index) << 32) | (size - 1 - index);
+        }
+        Arrays.sort(keys);
+        for (int k = size - 1; k >= 0; k--) {
+            if (!visitor.visit(size - 1 - (int) keys[k])) {
+                return;
+            }
+        }
+    }
+
+    /**
+     * Get the distinct event year-months of the latest events, latest first.
+     *
+     * @param target
+     *            array to write the packed year-months to; at most
+     *            {@code target.length} year-months are written
+     * @return the number of year-months written
+     */
+    public int getLatestEventYearMonths(int[] target) {
+        return this.getLatestEventYearMonths(target, target.length);
+    }
+
+    /**
+     * Get the distinct event year-months of the latest events, latest first.
+     *
+     * @param target
+     *            array to write the packed year-months to
+     * @param max
+     *            maximum number of year-months to write, at most
+     *            {@code target.length}
+     * @return the number of year-months written
+     */
+    public int getLatestEventYearMonths(int[] target, int max) {
+        int count = 0;
+        if (max <= 0) {
+            return count;
+        }
+        // insert each year-month into the descending list of the latest ones
+        for (int index = 0; index < this.size(); index++) {
+            int evtYearMonth = this.getEvtYearMonth(index);
+            if ((count == max) && (evtYearMonth <= target[count - 1])) {
+                continue;
+            }
+            int insert = count;
+            while ((insert > 0) && (target[insert - 1] < evtYearMonth)) {
+                insert--;
+            }
+            if ((insert > 0) && (target[insert - 1] == evtYearMonth)) {
+                continue;
+            }
+            int last = Math.min(count, max - 1);
+            System.arraycopy(target, insert, target, insert + 1, last - insert);
+            target[insert] = evtYearMonth;
+            count = last + 1;
+        }
+        return count;
+    }
+
+    /**
+     * Get the insertion delays of all records of the latest events, in event
+     * order.
+     *
+     * @param events
+     *            number of latest events whose records are considered
+     * @param target
+     *            array to write the delays to; at most {@code target.length}
+     *            delays are written
+     * @return the number of records of the latest events, which is larger than
+     *         {@code target.length} if not all delays fit into the array
+     */
+    public int getLatestEventDelays(int events, int[] target) {
+        int[] latest = new int[Math.max(0, events)];
+        int eventCount = this.getLatestEventYearMonths(latest);
+        if (eventCount == 0) {
+            return 0;
+        }
+        // count the records of each event, then write the delays of each event
+        // from its offset on
+        int[] offsets = new int[eventCount + 1];
+        for (int index = 0; index < this.size(); index++) {
+            int event = eventOf(latest, eventCount, this.getEvtYearMonth(index));
+            if (event >= 0) {
+                offsets[event + 1]++;
+            }
+        }
+        for (int event = 0; event < eventCount; event++) {
+            offsets[event + 1] += offsets[event];
+        }
+        int count = offsets[eventCount];
+        for (int index = 0; index < this.size(); index++) {
+            int event = eventOf(latest, eventCount, this.getEvtYearMonth(index));
+            if (event < 0) {
+                continue;
+            }
+            int offset = offsets[event]++;
+            if (offset < target.length) {
+                target[offset] = this.getInsertDelay(index);
+            }
+        }
+        return count;
+    }
+
+    /*
+     * position of a year-month in the descending year-months, -1 if it is not
+     * among them
+     */
+    private static int eventOf(int[] yearMonths, int count, int evtYearMonth) {
+        for (int event = 0; (event < count) && (yearMonths[event] >= evtYearMonth); event++) {
+            if (yearMonths[event] == evtYearMonth) {
+                return event;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * @return the index of the first created record of the latest event, or -1 if
+     *         the view is empty
+     */
+    public int getFirstRecordOfLatestEvent() {
+        int first = -1;
+        int latest = Integer.MIN_VALUE;
+        for (int index = 0; index < this.size(); index++) {
+            int evtYearMonth = this.getEvtYearMonth(index);
+            if ((first < 0) || (evtYearMonth > latest)) {
+                first = index;
+                latest = evtYearMonth;
+            }
+        }
+        return first;
+    }
+
+    /**
+     * Copy the records of this view into a multimap of event year-months to
+     * records, with the year-months in descending order.
+     *
+     * @param valueOrdering
+     *            ordering of the records of an event
+     * @return the multimap
+     */
+    public TreeMultimap<YearMonth, ConferenceRecord> toMultimap(Comparator<ConferenceRecord> valueOrdering) {
+        TreeMultimap<YearMonth, ConferenceRecord> multimap = TreeMultimap.create(Ordering.natural().reverse(),
+                valueOrdering);
+        YearMonth eventYearMonth = null;
+        for (int index = 0; index < this.size(); index++) {
+            int packed = this.getEvtYearMonth(index);
+            if ((null == eventYearMonth) || (PackedYearMonth.pack(eventYearMonth) != packed)) {
+                eventYearMonth = PackedYearMonth.unpack(packed);
+            }
+            multimap.put(eventYearMonth, this.getRecord(index));
+        }
+        return multimap;
+    }
+
+    /*
+     * lists the event year-months, as the keys of the multimaps this view
+     * replaces did
+     */
+    @Override
+    public String toString() {
+        StringJoiner joiner = new StringJoiner(", ", "[", "]");
+        int[] last = { Integer.MIN_VALUE };
+        this.visitInEventOrder(index -> {
+            int evtYearMonth = this.getEvtYearMonth(index);
+            if (last[0] != evtYearMonth) {
+                joiner.add(PackedYearMonth.unpack(evtYearMonth).toString());
+                last[0] = evtYearMonth;
+            }
+            return true;
+        });
+        return joiner.toString();
+    }
+}
@@ -12,20 +12,58 @@ import java.time.Year;
  */
 public class StreamRecord implements Comparable<StreamRecord> {
 
-    protected String streamKey;
+    /* repeating strings are stored as ids of this dictionary */
+    protected final StringDictionary strings;
+    protected final int streamKeyId;
     protected String recordKey;
-    protected LocalDate cDate;
-    protected String title;
-    protected Year pubYear;
+    /* dates are kept as primitives; objects are only created by the getters */
+    protected final int cDay;
+    protected final short pubYear;
     protected Type type;
 
+    /* the title is written before the loader is cleared */
+    private String title;
+    private volatile TitleLoader titleLoader;
+
     public StreamRecord(String key, String streamKey, String title, LocalDate cDate, Year pubYear, Type type) {
-        this.recordKey = key;
-        this.streamKey = streamKey;
+        this(new StringDictionary(2), key, streamKey, cDate, pubYear, type);
         this.title = title;
-        this.cDate = cDate;
-        this.pubYear = pubYear;
+    }
+
+    private StreamRecord(StringDictionary strings, String key, String streamKey, LocalDate cDate, Year pubYear,
+            Type type) {
+        this(strings, key, strings.encode(streamKey), cDate, pubYear, type, null);
+    }
+
+    /**
+     * Constructor for records whose repeating strings are dictionary-encoded and
+     * whose title is loaded lazily.
+     *
+     * @param strings
+     *            the dictionary of the load this record belongs to
+     * @param key
+     *            the record key
+     * @param streamKeyId
+     *            id of the stream key in the dictionary
+     * @param cDate
+     *            creation date
+     * @param pubYear
+     *            publication year
+     * @param type
+     *            type of the record
+     * @param titleLoader
+     *            source of the title, called on the first call of
+     *            {@link #getTitle()} (may be null if the record has no title)
+     */
+    public StreamRecord(StringDictionary strings, String key, int streamKeyId, LocalDate cDate, Year pubYear,
+            Type type, TitleLoader titleLoader) {
+        this.strings = strings;
+        this.recordKey = key;
+        this.streamKeyId = streamKeyId;
+        this.cDay = Math.toIntExact(cDate.toEpochDay());
+        this.pubYear = (short) pubYear.getValue();
         this.type = type;
+        this.titleLoader = titleLoader;
     }
 
     /**
@@ -34,7 +72,16 @@ public class StreamRecord implements Comparable<StreamRecord> {
      * @return the record's creation date
      */
     public LocalDate getcDate() {
-        return this.cDate;
+        return LocalDate.ofEpochDay(this.cDay);
+    }
+
+    /**
+     * Get the record's creation date without creating a {@link LocalDate}.
+     *
+     * @return the record's creation date as epoch day
+     */
+    public int getcDay() {
+        return this.cDay;
     }
 
     /**
@@ -48,10 +95,24 @@ public class StreamRecord implements Comparable<StreamRecord> {
      * @return the key of the data stream this record belongs to
      */
     public String getStreamKey() {
-        return this.streamKey;
+        return this.strings.decode(this.streamKeyId);
     }
 
+    /**
+     * Get the record's title. A lazily loaded title is fetched on the first call.
+     *
+     * @return the record's title
+     */
     public String getTitle() {
+        if (null != this.titleLoader) {
+            synchronized (this) {
+                TitleLoader loader = this.titleLoader;
+                if (null != loader) {
+                    this.title = loader.loadTitle(this.recordKey);
+                    this.titleLoader = null;
+                }
+            }
+        }
         return this.title;
     }
 
@@ -60,7 +121,7 @@ public class StreamRecord implements Comparable<StreamRecord> {
     }
 
     public Year getYear() {
-        return this.pubYear;
+        return Year.of(this.pubYear);
     }
 
     @Override
@@ -70,6 +131,6 @@ public class StreamRecord implements Comparable<StreamRecord> {
 
     @Override
     public String toString() {
-        return String.format("Record %s (stream: %s): created on %s.", this.recordKey, this.streamKey, this.cDate);
+        return String.format("Record %s (stream: %s): created on %s.", this.recordKey, this.getStreamKey(), this.getcDate());
     }
 }
@@ -0,0 +1,101 @@
+package de.th_koeln.iws.sh2.ranking.analysis.data;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Table of distinct strings that assigns an int id to each of them. Records
+ * and streams store the ids of strings that repeat across many records (stream
+ * keys, countries) instead of their own copies.
+ *
+ * A dictionary is owned by the reader that creates it, and a new one is
+ * created per load of the data, so the strings of a load are released with
+ * it. Records and streams created without a reader get a small dictionary of
+ * their own. All methods are thread-safe. Decoding does not lock, as it is
+ * called for every access to a key.
+ */
+public final class StringDictionary {
+
+    /**
+     * Id representing null.
+     */
+    public static final int NULL_ID = -1;
+
+    private final Map<String, Integer> ids = new HashMap<>();
+    /* entries are written before the array is (re)published, so it can be read without locking */
+    private volatile String[] strings;
+    private int size;
+
+    public StringDictionary() {
+        this(64);
+    }
+
+    /**
+     * Constructor.
+     *
+     * @param capacity
+     *            number of strings the dictionary holds before it grows
+     */
+    public StringDictionary(int capacity) {
+        this.strings = new String[Math.max(1, capacity)];
+    }
+
+    /**
+     * Get the id of a string, adding the string if it is not known yet.
+     *
+     * @param string
+     *            the string (may be null)
+     * @return the id of the string, or {@link #NULL_ID} for null
+     */
+    public synchronized int encode(String string) {
+        if (null == string) {
+            return NULL_ID;
+        }
+        Integer id = this.ids.get(string);
+        if (null == id) {
+            id = this.size;
+            String[] table = this.strings;
+            if (id == table.length) {
+                table = Arrays.copyOf(table, table.length * 2);
+            }
+            table[id] = string;
+            this.strings = table;
+            this.size++;
+            this.ids.put(string, id);
+        }
+        return id;
+    }
+
+    /**
+     * Get the string of an id.
+     *
+     * @param id
+     *            the id
+     * @return the string, or null for {@link #NULL_ID}
+     */
+    public String decode(int id) {
+        if (id == NULL_ID) {
+            return null;
+        }
+        return this.strings[id];
+    }
+
+    /**
+     * Get the single instance of a string that is stored in this dictionary.
+     *
+     * @param string
+     *            the string (may be null)
+     * @return the stored instance of an equal string
+     */
+    public String canonical(String string) {
+        return this.decode(this.encode(string));
+    }
+
+    /**
+     * @return the number of distinct strings
+     */
+    public synchronized int size() {
+        return this.size;
+    }
+}
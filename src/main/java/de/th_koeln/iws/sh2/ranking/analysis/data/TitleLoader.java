@@ -0,0 +1,15 @@
+package de.th_koeln.iws.sh2.ranking.analysis.data;
+
+/**
+ * Source of record titles that are only loaded when they are asked for.
+ */
+@FunctionalInterface
+public interface TitleLoader {
+
+    /**
+     * @param recordKey
+     *            the key of a record
+     * @return the title of the record, or null if it has none
+     */
+    String loadTitle(String recordKey);
+}
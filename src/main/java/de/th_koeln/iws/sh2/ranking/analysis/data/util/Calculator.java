@@ -1,8 +1,10 @@
 package de.th_koeln.iws.sh2.ranking.analysis.data.util;
 
+import java.time.LocalDate;
 import java.time.Month;
 import java.time.YearMonth;
 import java.time.temporal.ChronoUnit;
+import java.util.Arrays;
 import java.util.Collection;
 import java.util.Comparator;
 import java.util.List;
@@ -25,6 +27,7 @@ import com.google.common.collect.TreeMultimap;
 import com.google.common.math.Quantiles;
 
 import de.th_koeln.iws.sh2.ranking.analysis.data.ConferenceRecord;
+import de.th_koeln.iws.sh2.ranking.analysis.data.RecordView;
 
 /**
  * Utility class for calculating several time-related values.
@@ -71,6 +74,22 @@ public class Calculator {
         }
     }
 
+    /**
+     * Calculate the interval between events of a view of conference records. Same
+     * as {@link #calcMedianInterval(Multimap, int)} for the multimap of the view.
+     *
+     * @param eventRecords
+     *            the records whose interval should be found
+     * @param sampleSize
+     *            use only this many entries of records
+     * @return the estimated interval
+     */
+    public static long calcMedianInterval(RecordView eventRecords, int sampleSize) {
+        final int[] mostRecentYearMonths = Scratch.get().yearMonths(sampleSize + 1);
+        final int count = eventRecords.getLatestEventYearMonths(mostRecentYearMonths, sampleSize + 1);
+        return medianInterval(mostRecentYearMonths, count);
+    }
+
     /**
      * Determine the "usual" (=mode) event month of a list of conference records.
      * 
@@ -105,6 +124,25 @@ public class Calculator {
         }
     }
 
+    /**
+     * Determine the "usual" (=mode) event month of a view of conference records.
+     * Same as {@link #calcModeMonth(Multimap, int)} for the multimap of the view:
+     * if several months are equally frequent, the latest month of the year is
+     * chosen.
+     *
+     * @param eventRecords
+     *            the records whose most frequent event month should be found; must
+     *            not be empty
+     * @param sampleSize
+     *            use only this many entries of records
+     * @return the estimated usual event month
+     */
+    public static Month calcModeMonth(RecordView eventRecords, int sampleSize) {
+        final int[] mostRecentYearMonths = Scratch.get().yearMonths(sampleSize);
+        final int count = eventRecords.getLatestEventYearMonths(mostRecentYearMonths, sampleSize);
+        return Month.of(modeMonth(mostRecentYearMonths, count));
+    }
+
     // kudos to stackoverflow {@link https://stackoverflow.com/a/4191729/1948454}
     // TODO mal überlegen, ob diese Methode bleiben kann (würde dann innerhalb von
     // calcModeMonth aufgerufen werden), oder ob die momentane oben besser ist weil
@@ -143,6 +181,143 @@ public class Calculator {
         return median;
     }
 
+    /**
+     * Calculates the median of insert delays for a view of conference records.
+     * Same as {@link #calcMedianDelay(Multimap, int)} for the multimap of the view.
+     *
+     * @param eventRecords
+     *            the records whose median insert delay should be determined
+     * @param sampleSize
+     *            use only the records of this many events
+     * @return the median of insertion delays
+     */
+    public static int calcMedianDelay(RecordView eventRecords, int sampleSize) {
+        final Scratch scratch = Scratch.get();
+        int[] delays = scratch.delays;
+        int count = eventRecords.getLatestEventDelays(sampleSize, delays);
+        if (count > delays.length) {
+            delays = scratch.delays(count);
+            eventRecords.getLatestEventDelays(sampleSize, delays);
+        }
+        return medianFloor(delays, count);
+    }
+
+    /**
+     * Median of the first values of an array, rounded down as
+     * {@link Quantiles#median()} followed by {@link Math#floor(double)} would.
+     * The values are sorted in place; nothing is allocated.
+     *
+     * @param values
+     *            the values; the first {@code count} entries are reordered
+     * @param count
+     *            number of values to use
+     * @return the median, rounded down
+     * @throws IllegalArgumentException
+     *             if count is 0
+     */
+    public static int medianFloor(int[] values, int count) {
+        if (count == 0) {
+            throw new IllegalArgumentException("Cannot calculate quantiles of an empty dataset");
+        }
+        // insertion sort, the samples are tiny
+        for (int i = 1; i < count; i++) {
+            final int value = values[i];
+            int j = i - 1;
+            while ((j >= 0) && (values[j] > value)) {
+                values[j + 1] = values[j];
+                j--;
+            }
+            values[j + 1] = value;
+        }
+        final int upper = values[count / 2];
+        if ((count & 1) == 1) {
+            return upper;
+        }
+        return (int) Math.floorDiv((long) values[count / 2 - 1] + upper, 2L);
+    }
+
+    /**
+     * Median of the intervals between consecutive event year-months, rounded
+     * down. The intervals are computed in place; nothing is allocated.
+     *
+     * @param packedYearMonths
+     *            distinct event year-months packed by {@link PackedYearMonth},
+     *            latest first; the first {@code count} entries are overwritten
+     * @param count
+     *            number of year-months to use
+     * @return the median interval in months, or 12 if there are less than two
+     *         year-months
+     */
+    public static int medianInterval(int[] packedYearMonths, int count) {
+        if (count < 2) {
+            return 12;
+        }
+        // packed year-months: the difference is the number of months between them
+        for (int i = 1; i < count; i++) {
+            packedYearMonths[i - 1] -= packedYearMonths[i];
+        }
+        return medianFloor(packedYearMonths, count - 1);
+    }
+
+    /**
+     * Most frequent month of event year-months. If several months are equally
+     * frequent, the latest month of the year is chosen. Nothing is allocated.
+     *
+     * @param packedYearMonths
+     *            event year-months packed by {@link PackedYearMonth}
+     * @param count
+     *            number of year-months to use; must be positive
+     * @return the month of the year (1-12)
+     */
+    public static int modeMonth(int[] packedYearMonths, int count) {
+        int[] monthCounts = Scratch.get().monthCounts();
+        for (int i = 0; i < count; i++) {
+            monthCounts[PackedYearMonth.month(packedYearMonths[i]) - 1]++;
+        }
+        int mode = 0;
+        int maxCount = 0;
+        // latest month first, so that ties keep the latest month
+        for (int month = 12; month >= 1; month--) {
+            if (monthCounts[month - 1] > maxCount) {
+                maxCount = monthCounts[month - 1];
+                mode = month;
+            }
+        }
+        return mode;
+    }
+
+    /*
+     * per-thread sample buffers of the view overloads, grown on demand
+     */
+    private static final class Scratch {
+        private static final ThreadLocal<Scratch> SCRATCH = ThreadLocal.withInitial(Scratch::new);
+
+        private int[] yearMonths = new int[8];
+        private int[] delays = new int[32];
+        private final int[] monthCounts = new int[12];
+
+        static Scratch get() {
+            return SCRATCH.get();
+        }
+
+        int[] yearMonths(int minLength) {
+            if (this.yearMonths.length < minLength) {
+                this.yearMonths = new int[minLength];
+            }
+            return this.yearMonths;
+        }
+
+        int[] monthCounts() {
+            Arrays.fill(this.monthCounts, 0);
+            return this.monthCounts;
+        }
+
+        int[] delays(int minLength) {
+            this.delays = new int[Math.max(minLength, 2 * this.delays.length)];
+            return this.delays;
+        }
+    }
+
     /**
      * Calculate how many months have passed since the latest record of the latest
      * event has been added to the dataset.
@@ -174,4 +349,29 @@ public class Calculator {
 
         return Optional.of(creationYM.until(ym, ChronoUnit.MONTHS));
     }
+
+    /**
+     * Calculate how many months have passed since the first record of the latest
+     * event has been added to the dataset. Same as
+     * {@link #calcMonthsSinceLastCreation(TreeMultimap, YearMonth)} for the
+     * multimap of the view.
+     *
+     * @param records
+     *            the records
+     * @param ym
+     *            the reference date as year-month
+     * @return if the view is not empty, the number of months that have passed
+     *         since the creation of the first record of the latest event.
+     */
+    public static Optional<Long> calcMonthsSinceLastCreation(RecordView records, YearMonth ym) {
+        // no records = no delay
+        if (records.isEmpty()) {
+            return Optional.empty();
+        }
+
+        int creationDay = records.getcDay(records.getFirstRecordOfLatestEvent());
+        int creationYM = PackedYearMonth.pack(LocalDate.ofEpochDay(creationDay));
+
+        return Optional.of((long) (PackedYearMonth.pack(ym) - creationYM));
+    }
 }
@@ -0,0 +1,72 @@
+package de.th_koeln.iws.sh2.ranking.analysis.data.util;
+
+import java.time.LocalDate;
+import java.time.YearMonth;
+
+/**
+ * Utility class for year-months packed into a single int as
+ * {@code year * 12 + (month - 1)}. Packed year-months keep the natural order
+ * of year-months, and the number of months between two of them is their
+ * difference.
+ */
+public final class PackedYearMonth {
+
+    private PackedYearMonth() {
+    }
+
+    /**
+     * @param year
+     *            the year
+     * @param month
+     *            the month of the year, from 1 to 12
+     * @return the packed year-month
+     */
+    public static int pack(int year, int month) {
+        return (year * 12) + (month - 1);
+    }
+
+    /**
+     * @param yearMonth
+     *            a year-month
+     * @return the packed year-month
+     */
+    public static int pack(YearMonth yearMonth) {
+        return pack(yearMonth.getYear(), yearMonth.getMonthValue());
+    }
+
+    /**
+     * @param date
+     *            a date
+     * @return the packed year-month of the date
+     */
+    public static int pack(LocalDate date) {
+        return pack(date.getYear(), date.getMonthValue());
+    }
+
+    /**
+     * @param packed
+     *            a packed year-month
+     * @return its year
+     */
+    public static int year(int packed) {
+        return Math.floorDiv(packed, 12);
+    }
+
+    /**
+     * @param packed
+     *            a packed year-month
+     * @return its month of the year, from 1 to 12
+     */
+    public static int month(int packed) {
+        return Math.floorMod(packed, 12) + 1;
+    }
+
+    /**
+     * @param packed
+     *            a packed year-month
+     * @return the year-month
+     */
+    public static YearMonth unpack(int packed) {
+        return YearMonth.of(year(packed), month(packed));
+    }
+}
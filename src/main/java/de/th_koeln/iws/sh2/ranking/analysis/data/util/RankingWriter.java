@@ -0,0 +1,273 @@
+package de.th_koeln.iws.sh2.ranking.analysis.data.util;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.sql.Types;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+/**
+ * Writes the scores of a ranking and the parameters they have been calculated
+ * from to the {@code ranking} table of a SQLite database.
+ *
+ * Rows are collected in batches of a reused statement, and all rows are
+ * written in one transaction that is committed by {@link #commit()} once all
+ * rows are added. Closing a writer that has not been committed, e.g. because
+ * scoring failed, rolls the transaction back. If a row cannot be added, the
+ * writer fails: further rows are refused, and it cannot be committed.
+ * Writing a row for a conference that already is in the table replaces it, so
+ * that a ranking can be rerun into the same database.
+ */
+public class RankingWriter implements AutoCloseable {
+
+    private static Logger LOGGER = LogManager.getLogger(RankingWriter.class);
+
+    public static final int DEFAULT_BATCH_SIZE = 1000;
+
+    private static final String COLUMNS = "conf_key, score, interval, month, delay, last_entry, expected, activity, rating, prominence, internationality, size, affiliations, log";
+
+    private static final String INSERT = "INSERT INTO ranking(" + COLUMNS + ") VALUES (?,?,?,?,?,?,?,?,?,?,?,?,?,?)";
+
+    private static final String UPSERT = INSERT + " ON CONFLICT(conf_key) DO UPDATE SET score=excluded.score,"
+            + " interval=excluded.interval, month=excluded.month, delay=excluded.delay,"
+            + " last_entry=excluded.last_entry, expected=excluded.expected, activity=excluded.activity,"
+            + " rating=excluded.rating, prominence=excluded.prominence,"
+            + " internationality=excluded.internationality, size=excluded.size,"
+            + " affiliations=excluded.affiliations, log=excluded.log";
+
+    /**
+     * A row of the ranking table.
+     */
+    public static final class Row {
+        private final String confKey;
+        private final double score;
+        private final int interval;
+        private final String month;
+        private final int delay;
+        private final String lastEntry;
+        private final String expected;
+        private final double activity;
+        private final Double rating;
+        private final Double prominence;
+        private final Double internationality;
+        private final Double size;
+        private final Double affiliations;
+        private final double log;
+
+        /**
+         * Constructor. Scores that are null are written as NULL.
+         */
+        public Row(String confKey, double score, int interval, String month, int delay, String lastEntry,
+                String expected, double activity, Double rating, Double prominence, Double internationality,
+                Double size, Double affiliations, double log) {
+            this.confKey = confKey;
+            this.score = score;
+            this.interval = interval;
+            this.month = month;
+            this.delay = delay;
+            this.lastEntry = lastEntry;
+            this.expected = expected;
+            this.activity = activity;
+            this.rating = rating;
+            this.prominence = prominence;
+            this.internationality = internationality;
+            this.size = size;
+            this.affiliations = affiliations;
+            this.log = log;
+        }
+    }
+
+    private final Connection conn;
+    private final int batchSize;
+    private final boolean autoCommit;
+    private final PreparedStatement statement;
+    private int pending;
+    private int written;
+    private SQLException failure;
+    private boolean committed;
+
+    /**
+     * Constructor with the {@link #DEFAULT_BATCH_SIZE}, write-ahead logging and
+     * replacing existing rows.
+     *
+     * @param conn
+     *            connection to the SQLite database
+     * @throws SQLException
+     *             if the statement cannot be prepared
+     */
+    public RankingWriter(Connection conn) throws SQLException {
+        this(conn, DEFAULT_BATCH_SIZE, true, true);
+    }
+
+    /**
+     * Constructor.
+     *
+     * @param conn
+     *            connection to the SQLite database
+     * @param batchSize
+     *            number of rows sent to the database at once
+     * @param walJournal
+     *            switch the database to write-ahead logging, which makes the
+     *            commit cheaper and lets readers continue during the write
+     * @param upsert
+     *            replace rows of conferences that already are in the table;
+     *            otherwise such rows fail the batch
+     * @throws SQLException
+     *             if the statement cannot be prepared
+     */
+    public RankingWriter(Connection conn, int batchSize, boolean walJournal, boolean upsert) throws SQLException {
+        if (batchSize < 1) {
+            throw new IllegalArgumentException("Batch size must be positive: " + batchSize);
+        }
+        this.conn = conn;
+        this.batchSize = batchSize;
+        if (walJournal) {
+            // journal mode cannot be changed inside a transaction
+            try (Statement stmt = conn.createStatement()) {
+                stmt.execute("PRAGMA journal_mode=WAL");
+            }
+        }
+        this.autoCommit = conn.getAutoCommit();
+        conn.setAutoCommit(false);
+        this.statement = conn.prepareStatement(upsert ? UPSERT : INSERT);
+    }
+
+    /**
+     * Create the ranking table if it does not exist yet.
+     *
+     * @param conn
+     *            connection to the SQLite database
+     * @throws SQLException
+     *             if the table cannot be created
+     */
+    public static void createTableIfNotExists(Connection conn) throws SQLException {
+        String createTableStmt = "CREATE TABLE IF NOT EXISTS ranking (" + "conf_key text PRIMARY KEY NOT NULL,"
+                + " score real NOT NULL," + " interval integer," + " month text," + " delay real," + " last_entry text,"
+                + " expected text," + " activity real," + " rating real," + " prominence real,"
+                + " internationality real," + " size real," + " affiliations real," + " log real" + ");";
+
+        try (Statement stmt = conn.createStatement()) {
+            stmt.execute(createTableStmt);
+        }
+    }
+
+    /**
+     * Add a row. Rows are sent to the database when the batch is full, and
+     * committed by {@link #commit()}. Can be called by several threads.
+     *
+     * @param row
+     *            the row
+     * @throws SQLException
+     *             if a full batch cannot be written, or an earlier row could not
+     *             be added
+     */
+    public synchronized void add(Row row) throws SQLException {
+        if (null != this.failure) {
+            throw new SQLException("Ranking writer failed before", this.failure);
+        }
+        if (this.committed) {
+            throw new IllegalStateException("Ranking already committed");
+        }
+        try {
+            this.addBatch(row);
+        } catch (SQLException e) {
+            this.failure = e;
+            throw e;
+        }
+    }
+
+    private void addBatch(Row row) throws SQLException {
+        this.statement.setString(1, row.confKey);
+        this.statement.setDouble(2, row.score);
+        this.statement.setInt(3, row.interval);
+        this.statement.setString(4, row.month);
+        this.statement.setInt(5, row.delay);
+        this.statement.setString(6, row.lastEntry);
+        this.statement.setString(7, row.expected);
+        this.statement.setFloat(8, (float) row.activity);
+        this.setFloat(9, row.rating);
+        this.setFloat(10, row.prominence);
+        this.setFloat(11, row.internationality);
+        this.setFloat(12, row.size);
+        this.setFloat(13, row.affiliations);
+        this.statement.setFloat(14, (float) row.log);
+        this.statement.addBatch();
+
+        if (++this.pending == this.batchSize) {
+            this.flush();
+        }
+    }
+
+    private void setFloat(int index, Double value) throws SQLException {
+        if (null == value) {
+            this.statement.setNull(index, Types.REAL);
+        } else {
+            this.statement.setFloat(index, value.floatValue());
+        }
+    }
+
+    private void flush() throws SQLException {
+        if (this.pending > 0) {
+            this.statement.executeBatch();
+            this.written += this.pending;
+            this.pending = 0;
+        }
+    }
+
+    /**
+     * @return number of rows sent to the database so far
+     */
+    public synchronized int getWrittenCount() {
+        return this.written;
+    }
+
+    /**
+     * Write the remaining rows and commit the transaction. No rows can be added
+     * afterwards.
+     *
+     * @throws SQLException
+     *             if the rows cannot be written, or a row could not be added
+     *             before; the transaction is rolled back when the writer is
+     *             closed
+     */
+    public synchronized void commit() throws SQLException {
+        if (null != this.failure) {
+            throw new SQLException("Ranking not written, a row could not be added", this.failure);
+        }
+        if (this.committed) {
+            return;
+        }
+        try {
+            this.flush();
+            this.conn.commit();
+        } catch (SQLException e) {
+            this.failure = e;
+            throw e;
+        }
+        this.committed = true;
+        LOGGER.info("Wrote {} ranking rows", this.written);
+    }
+
+    /**
+     * Roll the transaction back unless it has been committed, and release the
+     * statement.
+     *
+     * @throws SQLException
+     *             if the transaction cannot be rolled back
+     */
+    @Override
+    public synchronized void close() throws SQLException {
+        try {
+            if (!this.committed) {
+                this.conn.rollback();
+                LOGGER.warn("Ranking not committed, discarded {} rows", this.written + this.pending);
+            }
+        } finally {
+            this.statement.close();
+            this.conn.setAutoCommit(this.autoCommit);
+        }
+    }
+}
@@ -18,7 +18,7 @@ public class RecordByCDateComparator implements Comparator<ConferenceRecord> {
 		if (o1.equals(o2)) {
 			return 0;
 		}
-		int cDateCompare = o1.getcDate().compareTo(o2.getcDate());
+		int cDateCompare = Integer.compare(o1.getcDay(), o2.getcDay());
 		if (cDateCompare == 0) {
 			int objectCompare = o1.compareTo(o2);
 			return objectCompare;
@@ -4,9 +4,12 @@ import java.io.File;
 import java.io.FileWriter;
 import java.io.IOException;
 import java.math.BigDecimal;
+import java.nio.charset.Charset;
+import java.nio.file.Files;
 import java.nio.file.Path;
 import java.time.LocalTime;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.LinkedList;
 import java.util.List;
 import java.util.Map;
@@ -148,6 +151,32 @@ public class ResultExporter {
 		}
 	}
 
+	/**
+	 * Export the gold standard in trec qrels format.
+	 *
+	 * @param streams
+	 *            the streams, in the order of their ordinals
+	 * @param relevance
+	 *            pseudo-relevance score of each stream by ordinal
+	 * @param targetQrelFilePath
+	 *            path to the target file
+	 */
+	public static void exportTrecQrel(List<ConferenceStream> streams, byte[] relevance, Path targetQrelFilePath) {
+		StringBuilder out = new StringBuilder();
+		String topicNum = "topic-001";
+		for (int ordinal = 0; ordinal < relevance.length; ordinal++) {
+			out.append(String.format("%s\t%d\t%s\t%d\n", topicNum, 0, streams.get(ordinal).getKey(),
+					relevance[ordinal]));
+		}
+		try {
+			if (writeIfChanged(targetQrelFilePath, out.toString())) {
+				LOGGER.info("Wrote Trec qrel to: " + targetQrelFilePath);
+			}
+		} catch (IOException e) {
+			LOGGER.error(String.format("Could not write qrel file '%s'", targetQrelFilePath), e);
+		}
+	}
+
 	/**
 	 * Export information on the current run.
 	 * @param outputFolder
@@ -194,17 +223,40 @@ public class ResultExporter {
 
 		// define printer format
 		CSVPrinter printer;
-		try (FileWriter writer = new FileWriter(outputFilePath.toFile())) {
+		try {
 			printer = CSVFormat.newFormat(';').withQuoteMode(QuoteMode.MINIMAL).withRecordSeparator('\n')
 					.withHeader(header.toArray(new String[header.size()])).print(out);
 			printer.printRecords(trec_results.rowMap().entrySet().stream()
 					.map(entry -> ImmutableList.builder().add(entry.getKey()).addAll(entry.getValue().values()).build())
 					.collect(Collectors.toList()));
 
-			writer.write(out.toString());
+			writeIfChanged(outputFilePath, out.toString());
 		} catch (IOException e) {
 			LOGGER.error(String.format("Could not write csv file '%s'", outputFilePath), e);
 		}
 	}
 
+	/**
+	 * Write a file, unless it already has the given content, so files of
+	 * unchanged results keep their modification time.
+	 *
+	 * @param targetFilePath
+	 *            path to the target file
+	 * @param content
+	 *            the content, written in the default charset like by a
+	 *            {@link FileWriter}
+	 * @return true if the file was written
+	 * @throws IOException
+	 */
+	static boolean writeIfChanged(Path targetFilePath, String content) throws IOException {
+		byte[] bytes = content.getBytes(Charset.defaultCharset());
+		if (Files.isRegularFile(targetFilePath) && (Files.size(targetFilePath) == bytes.length)
+				&& Arrays.equals(Files.readAllBytes(targetFilePath), bytes)) {
+			return false;
+		}
+		Files.write(targetFilePath, bytes);
+		return true;
+	}
+
+
 }
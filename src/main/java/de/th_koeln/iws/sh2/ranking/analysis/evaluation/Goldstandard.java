@@ -3,18 +3,12 @@ package de.th_koeln.iws.sh2.ranking.analysis.evaluation;
 import java.time.Year;
 import java.time.YearMonth;
 import java.util.Map;
-import java.util.Optional;
 import java.util.Set;
-import java.util.TreeMap;
 
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
 
-import com.google.common.collect.TreeMultimap;
-
 import de.th_koeln.iws.sh2.ranking.analysis.data.ConferenceStream;
-import de.th_koeln.iws.sh2.ranking.analysis.data.ConferenceRecord;
-import de.th_koeln.iws.sh2.ranking.analysis.data.util.Calculator;
 
 
 /**
@@ -44,8 +38,6 @@ public final class Goldstandard {
 	 *         time
 	 */
 	public static Map<ConferenceStream, Integer> create(Set<ConferenceStream> allConfs, YearMonth evalYM) {
-		Map<ConferenceStream, Integer> result = new TreeMap<>();
-
 		/*
 		 * how to create:
 		 * 
@@ -60,14 +52,8 @@ public final class Goldstandard {
 		 * if yes, tetermine relevance score
 		 * 
 		 */
-		for (ConferenceStream stream : allConfs) {
-
-			int relevance = defineRelevance(stream, evalYM);
-
-			result.put(stream, relevance);
-
-		}
-		return result;
+		GoldstandardIndex index = GoldstandardIndex.create(allConfs, Year.of(evalYM.getYear()));
+		return index.toMap(index.relevance(evalYM));
 	}
 
 	/**
@@ -77,41 +63,31 @@ public final class Goldstandard {
 	 * relevant at that given point in time. If yes, the relevance is defined
 	 * depending on how many months have passed since creation.
 	 *
-	 * @param stream
-	 *            the stream to define the relevance of
-	 * @param evalYM
-	 *            the point in time in relation to which the relevance shall be
-	 *            defined
-	 * @return
+	 * @param monthsSinceCreation
+	 *            months from the creation of the latest event record of the
+	 *            evaluation year to the evaluation month
+	 * @return the relevance level
 	 */
-	private static int defineRelevance(ConferenceStream stream, YearMonth evalYM) {
-		TreeMultimap<YearMonth, ConferenceRecord> recordsCreated = stream
-				.getRecordsCreatedInYear(Year.of(evalYM.getYear()));
-		Optional<Long> monthsSinceLastCreation = Calculator.calcMonthsSinceLastCreation(recordsCreated, evalYM);
-		if (monthsSinceLastCreation.isPresent()) {
-			long monthsSinceCreation = monthsSinceLastCreation.get();
-			/*
-			 * interval-based relevance:
-			 *
-			 * if the record has been added in the last month, it is highly relevant
-			 *
-			 * if it has been added between 1 and 2 months before, it is very relevant
-			 *
-			 * if it has been added between 3 and 5 months before, it is relevant
-			 *
-			 * if it has been added 6 months or more before, it is just a little relevant
-			 */
-			if (isInBetween(monthsSinceCreation, 0, 0))
-				return 4;
-			if (isInBetween(monthsSinceCreation, 1, 2))
-				return 3;
-			if (isInBetween(monthsSinceCreation, 3, 5))
-				return 2;
-			if (monthsSinceCreation >= 6)
-				return 1;
-		} else {
-			return 0;
-		}
+	static byte relevance(long monthsSinceCreation) {
+		/*
+		 * interval-based relevance:
+		 *
+		 * if the record has been added in the last month, it is highly relevant
+		 *
+		 * if it has been added between 1 and 2 months before, it is very relevant
+		 *
+		 * if it has been added between 3 and 5 months before, it is relevant
+		 *
+		 * if it has been added 6 months or more before, it is just a little relevant
+		 */
+		if (isInBetween(monthsSinceCreation, 0, 0))
+			return 4;
+		if (isInBetween(monthsSinceCreation, 1, 2))
+			return 3;
+		if (isInBetween(monthsSinceCreation, 3, 5))
+			return 2;
+		if (monthsSinceCreation >= 6)
+			return 1;
 		return 0;
 	}
 
@@ -0,0 +1,109 @@
+package de.th_koeln.iws.sh2.ranking.analysis.evaluation;
+
+import java.time.LocalDate;
+import java.time.Year;
+import java.time.YearMonth;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+import de.th_koeln.iws.sh2.ranking.analysis.data.ConferenceStream;
+import de.th_koeln.iws.sh2.ranking.analysis.data.RecordView;
+import de.th_koeln.iws.sh2.ranking.analysis.data.util.PackedYearMonth;
+
+/**
+ * Creation dates the {@link Goldstandard} of a year is defined by, collected in
+ * one pass over all streams: for each stream, the creation year-month of the
+ * first record of its latest event among the records created in the year.
+ *
+ * The gold standard of each month of the year is then derived from these dates
+ * alone, as one relevance level per stream. Streams are addressed by their
+ * ordinal, the position of the stream in the order of the stream keys, which is
+ * also the iteration order of the scores of a month.
+ */
+public final class GoldstandardIndex {
+
+	// streams without records created in the year
+	private static final int NO_CREATION = Integer.MIN_VALUE;
+
+	private final Year year;
+	private final List<ConferenceStream> streams;
+	// packed creation year-month by stream ordinal
+	private final int[] creations;
+
+	private GoldstandardIndex(Year year, List<ConferenceStream> streams, int[] creations) {
+		this.year = year;
+		this.streams = streams;
+		this.creations = creations;
+	}
+
+	/**
+	 * Index the creation dates of a year.
+	 *
+	 * @param streams
+	 *            all conference streams
+	 * @param year
+	 *            the evaluation year
+	 * @return the index
+	 */
+	public static GoldstandardIndex create(Collection<ConferenceStream> streams, Year year) {
+		ConferenceStream[] sorted = streams.toArray(new ConferenceStream[streams.size()]);
+		Arrays.sort(sorted);
+		int[] creations = new int[sorted.length];
+		for (int ordinal = 0; ordinal < sorted.length; ordinal++) {
+			RecordView recordsCreated = sorted[ordinal].viewRecordsCreatedInYear(year);
+			creations[ordinal] = recordsCreated.isEmpty() ? NO_CREATION
+					: PackedYearMonth.pack(LocalDate
+							.ofEpochDay(recordsCreated.getcDay(recordsCreated.getFirstRecordOfLatestEvent())));
+		}
+		return new GoldstandardIndex(year, Collections.unmodifiableList(Arrays.asList(sorted)), creations);
+	}
+
+	public Year getYear() {
+		return this.year;
+	}
+
+	/**
+	 * @return the streams, in the order of their ordinals
+	 */
+	public List<ConferenceStream> getStreams() {
+		return this.streams;
+	}
+
+	/**
+	 * Create the gold standard of a month.
+	 *
+	 * @param evalYM
+	 *            a month of the indexed year
+	 * @return the relevance level of each stream by ordinal
+	 */
+	public byte[] relevance(YearMonth evalYM) {
+		if (evalYM.getYear() != this.year.getValue()) {
+			throw new IllegalArgumentException(String.format("%s is not in %s", evalYM, this.year));
+		}
+		int packed = PackedYearMonth.pack(evalYM);
+		byte[] relevance = new byte[this.creations.length];
+		for (int ordinal = 0; ordinal < relevance.length; ordinal++) {
+			if (this.creations[ordinal] != NO_CREATION) {
+				relevance[ordinal] = Goldstandard.relevance(packed - this.creations[ordinal]);
+			}
+		}
+		return relevance;
+	}
+
+	/**
+	 * @param relevance
+	 *            relevance levels by ordinal, see {@link #relevance(YearMonth)}
+	 * @return the relevance of each stream, sorted by stream key
+	 */
+	public Map<ConferenceStream, Integer> toMap(byte[] relevance) {
+		Map<ConferenceStream, Integer> gold = new TreeMap<>();
+		for (int ordinal = 0; ordinal < relevance.length; ordinal++) {
+			gold.put(this.streams.get(ordinal), (int) relevance[ordinal]);
+		}
+		return gold;
+	}
+}
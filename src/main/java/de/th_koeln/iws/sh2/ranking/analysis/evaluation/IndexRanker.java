@@ -0,0 +1,247 @@
+package de.th_koeln.iws.sh2.ranking.analysis.evaluation;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Map;
+import java.util.SortedMap;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+import de.th_koeln.iws.sh2.ranking.analysis.data.ConferenceStream;
+
+/**
+ * Ranks streams in the order of {@link RelevanceRanker} by sorting a
+ * permutation of indexes into parallel primitive arrays instead of comparing
+ * boxed values looked up in maps: descending by score, then streams without a
+ * delay, then ascending by delay, then by key.
+ *
+ * Large inputs are sorted in parallel.
+ */
+public final class IndexRanker {
+
+	/**
+	 * Delay of streams without records, ranked before all others.
+	 */
+	public static final long NO_DELAY = Long.MIN_VALUE;
+
+	/**
+	 * Inputs of at least this size are sorted in parallel.
+	 */
+	static final int PARALLEL_THRESHOLD = 1 << 14;
+
+	// ranges of this size are sorted by insertion sort
+	private static final int INSERTION_SORT_SIZE = 32;
+
+	private final double[] scores;
+	private final long[] delays;
+	private final int[] keyOrder;
+
+	private IndexRanker(double[] scores, long[] delays, int[] keyOrder) {
+		this.scores = scores;
+		this.delays = delays;
+		this.keyOrder = keyOrder;
+	}
+
+	/**
+	 * Rank streams given as parallel arrays.
+	 *
+	 * @param scores
+	 *            score of each stream
+	 * @param delays
+	 *            months since the last creation of each stream, {@link #NO_DELAY}
+	 *            if it has no records
+	 * @param keyOrder
+	 *            position of each stream in the order of the stream keys
+	 * @return the indexes of the streams, best first
+	 */
+	public static int[] rank(double[] scores, long[] delays, int[] keyOrder) {
+		if ((scores.length != delays.length) || (scores.length != keyOrder.length)) {
+			throw new IllegalArgumentException("Arrays of different length");
+		}
+		int[] permutation = new int[scores.length];
+		for (int i = 0; i < permutation.length; i++) {
+			permutation[i] = i;
+		}
+		int[] buffer = new int[permutation.length];
+		IndexRanker ranker = new IndexRanker(scores, delays, keyOrder);
+		if (permutation.length >= PARALLEL_THRESHOLD) {
+			ForkJoinPool.commonPool().invoke(ranker.new SortAction(permutation, buffer, 0, permutation.length));
+		} else {
+			ranker.sort(permutation, buffer, 0, permutation.length);
+		}
+		return permutation;
+	}
+
+	/**
+	 * Rank scored streams.
+	 *
+	 * @param scores
+	 *            scores of the streams, in any order; ties are broken by the
+	 *            stream keys
+	 * @param delays
+	 *            months since the last creation of the streams; streams without
+	 *            delay are ranked first among equal scores
+	 * @return the streams, best first
+	 */
+	public static ArrayList<ConferenceStream> rank(Map<ConferenceStream, Double> scores,
+			Map<ConferenceStream, Long> delays) {
+		ConferenceStream[] streams = scores.keySet().toArray(new ConferenceStream[scores.size()]);
+		int[] permutation = rankIndexes(scores, delays);
+		ArrayList<ConferenceStream> ranked = new ArrayList<>(permutation.length);
+		for (int index : permutation) {
+			ranked.add(streams[index]);
+		}
+		return ranked;
+	}
+
+	/**
+	 * Rank scored streams by their position in the scores.
+	 *
+	 * @param scores
+	 *            scores of the streams, in any order; ties are broken by the
+	 *            stream keys
+	 * @param delays
+	 *            months since the last creation of the streams; streams without
+	 *            delay are ranked first among equal scores
+	 * @return the positions of the streams in the iteration order of the scores,
+	 *         best first
+	 */
+	public static int[] rankIndexes(Map<ConferenceStream, Double> scores, Map<ConferenceStream, Long> delays) {
+		long[] delayArray = new long[scores.size()];
+		int i = 0;
+		for (ConferenceStream stream : scores.keySet()) {
+			Long delay = delays.get(stream);
+			delayArray[i++] = null == delay ? NO_DELAY : delay;
+		}
+		return rankIndexes(scores, delayArray);
+	}
+
+	/**
+	 * Rank scored streams by their position in the scores.
+	 *
+	 * @param scores
+	 *            scores of the streams, in any order; ties are broken by the
+	 *            stream keys
+	 * @param delays
+	 *            months since the last creation of each stream by position in the
+	 *            scores, {@link #NO_DELAY} if it has no records
+	 * @return the positions of the streams in the iteration order of the scores,
+	 *         best first
+	 */
+	public static int[] rankIndexes(Map<ConferenceStream, Double> scores, long[] delays) {
+		double[] scoreArray = new double[scores.size()];
+		int i = 0;
+		for (double score : scores.values()) {
+			scoreArray[i++] = score;
+		}
+		return rank(scoreArray, delays, keyOrder(scores));
+	}
+
+	/*
+	 * position of each stream of the scores in the order of the stream keys;
+	 * sorted maps in natural order need no sorting
+	 */
+	private static int[] keyOrder(Map<ConferenceStream, Double> scores) {
+		int[] keyOrder = new int[scores.size()];
+		if ((scores instanceof SortedMap) && (null == ((SortedMap<ConferenceStream, Double>) scores).comparator())) {
+			for (int i = 0; i < keyOrder.length; i++) {
+				keyOrder[i] = i;
+			}
+			return keyOrder;
+		}
+		ConferenceStream[] streams = scores.keySet().toArray(new ConferenceStream[keyOrder.length]);
+		Integer[] byKey = new Integer[keyOrder.length];
+		for (int i = 0; i < byKey.length; i++) {
+			byKey[i] = i;
+		}
+		Arrays.sort(byKey, (a, b) -> streams[a].compareTo(streams[b]));
+		for (int rank = 0; rank < byKey.length; rank++) {
+			keyOrder[byKey[rank]] = rank;
+		}
+		return keyOrder;
+	}
+
+	private int compare(int i, int j) {
+		int compareVal = Double.compare(this.scores[j], this.scores[i]);
+		if (compareVal != 0) {
+			return compareVal;
+		}
+		if (this.delays[i] != this.delays[j]) {
+			// NO_DELAY is the smallest value, so streams without a delay come first
+			return this.delays[i] < this.delays[j] ? -1 : 1;
+		}
+		return Integer.compare(this.keyOrder[i], this.keyOrder[j]);
+	}
+
+	/*
+	 * merge sort of permutation[from, to), using the same range of buffer
+	 */
+	private void sort(int[] permutation, int[] buffer, int from, int to) {
+		if (to - from <= INSERTION_SORT_SIZE) {
+			this.insertionSort(permutation, from, to);
+			return;
+		}
+		int middle = (from + to) >>> 1;
+		this.sort(permutation, buffer, from, middle);
+		this.sort(permutation, buffer, middle, to);
+		this.merge(permutation, buffer, from, middle, to);
+	}
+
+	private void insertionSort(int[] permutation, int from, int to) {
+		for (int i = from + 1; i < to; i++) {
+			int index = permutation[i];
+			int j = i - 1;
+			while ((j >= from) && (this.compare(permutation[j], index) > 0)) {
+				permutation[j + 1] = permutation[j];
+				j--;
+			}
+			permutation[j + 1] = index;
+		}
+	}
+
+	private void merge(int[] permutation, int[] buffer, int from, int middle, int to) {
+		if (this.compare(permutation[middle - 1], permutation[middle]) <= 0) {
+			// already in order
+			return;
+		}
+		System.arraycopy(permutation, from, buffer, from, to - from);
+		int left = from;
+		int right = middle;
+		for (int k = from; k < to; k++) {
+			if ((right >= to) || ((left < middle) && (this.compare(buffer[left], buffer[right]) <= 0))) {
+				permutation[k] = buffer[left++];
+			} else {
+				permutation[k] = buffer[right++];
+			}
+		}
+	}
+
+	private final class SortAction extends RecursiveAction {
+
+		private static final long serialVersionUID = 1L;
+
+		private final int[] permutation;
+		private final int[] buffer;
+		private final int from;
+		private final int to;
+
+		SortAction(int[] permutation, int[] buffer, int from, int to) {
+			this.permutation = permutation;
+			this.buffer = buffer;
+			this.from = from;
+			this.to = to;
+		}
+
+		@Override
+		protected void compute() {
+			if (this.to - this.from < PARALLEL_THRESHOLD) {
+				IndexRanker.this.sort(this.permutation, this.buffer, this.from, this.to);
+				return;
+			}
+			int middle = (this.from + this.to) >>> 1;
+			invokeAll(new SortAction(this.permutation, this.buffer, this.from, middle),
+					new SortAction(this.permutation, this.buffer, middle, this.to));
+			IndexRanker.this.merge(this.permutation, this.buffer, this.from, middle, this.to);
+		}
+	}
+}
@@ -0,0 +1,338 @@
+package de.th_koeln.iws.sh2.ranking.analysis.evaluation;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * Paired significance of the differences between configurations, given one
+ * value of a measure per topic (e.g. per evaluation month) and configuration:
+ * <ul>
+ * <li>a two-sided randomization test, which flips the sign of the difference of
+ * each topic at random and counts the resamples whose mean difference is at
+ * least as large as the observed one (Smucker, Allan and Carterette: A
+ * Comparison of Statistical Significance Tests for Information Retrieval
+ * Evaluation, CIKM 2007). If the topics have no more sign flips than there
+ * are resamples, as with a few months, all flips are counted instead, which
+ * gives the exact p-value;</li>
+ * <li>a percentile bootstrap confidence interval of the mean difference, which
+ * draws the topics with replacement.</li>
+ * </ul>
+ *
+ * The resamples are drawn in blocks of fixed size, each from a generator of its
+ * own that is seeded from the seed and the position of the block. Blocks run in
+ * parallel, and the results do not depend on the number of threads.
+ */
+public final class PairedSignificance {
+
+	/**
+	 * Number of resamples of each test, unless given.
+	 */
+	public static final int DEFAULT_RESAMPLES = 100000;
+
+	/**
+	 * Level of the confidence intervals, unless given.
+	 */
+	public static final double DEFAULT_CONFIDENCE = 0.95;
+
+	/**
+	 * Resamples drawn from one generator.
+	 */
+	static final int BLOCK_SIZE = 1024;
+
+	private static final long GOLDEN_GAMMA = 0x9e3779b97f4a7c15L;
+
+	/**
+	 * Significance of the difference of two configurations.
+	 */
+	public static final class Result {
+		private final int topics;
+		private final boolean exact;
+		private final double meanDifference;
+		private final double pValue;
+		private final double lower;
+		private final double upper;
+
+		Result(int topics, boolean exact, double meanDifference, double pValue, double lower, double upper) {
+			this.topics = topics;
+			this.exact = exact;
+			this.meanDifference = meanDifference;
+			this.pValue = pValue;
+			this.lower = lower;
+			this.upper = upper;
+		}
+
+		/**
+		 * @return the number of topics
+		 */
+		public int getTopics() {
+			return this.topics;
+		}
+
+		/**
+		 * @return true if the p-value counts all sign flips, false if it is
+		 *         estimated from random ones
+		 */
+		public boolean isExact() {
+			return this.exact;
+		}
+
+		/**
+		 * @return the mean of the differences of the first and the second
+		 *         configuration
+		 */
+		public double getMeanDifference() {
+			return this.meanDifference;
+		}
+
+		/**
+		 * @return the two-sided p-value of the randomization test
+		 */
+		public double getPValue() {
+			return this.pValue;
+		}
+
+		/**
+		 * @return the lower bound of the confidence interval of the mean difference
+		 */
+		public double getLower() {
+			return this.lower;
+		}
+
+		/**
+		 * @return the upper bound of the confidence interval of the mean difference
+		 */
+		public double getUpper() {
+			return this.upper;
+		}
+
+		@Override
+		public String toString() {
+			return String.format("%d topics, mean difference %f, %s p = %f, ci [%f, %f]", this.topics,
+					this.meanDifference, this.exact ? "exact" : "estimated", this.pValue, this.lower, this.upper);
+		}
+	}
+
+	private final int resamples;
+	private final long seed;
+	private final double confidence;
+
+	/**
+	 * Constructor.
+	 *
+	 * @param resamples
+	 *            number of resamples of each test
+	 * @param seed
+	 *            seed of the resamples
+	 * @param confidence
+	 *            level of the confidence intervals, in (0, 1)
+	 */
+	public PairedSignificance(int resamples, long seed, double confidence) {
+		if (resamples < 1) {
+			throw new IllegalArgumentException("Number of resamples must be positive: " + resamples);
+		}
+		if (!(confidence > 0.0) || !(confidence < 1.0)) {
+			throw new IllegalArgumentException("Confidence must be between 0 and 1: " + confidence);
+		}
+		this.resamples = resamples;
+		this.seed = seed;
+		this.confidence = confidence;
+	}
+
+	public int getResamples() {
+		return this.resamples;
+	}
+
+	/**
+	 * Compare two configurations.
+	 *
+	 * @param a
+	 *            values of the first configuration, by topic
+	 * @param b
+	 *            values of the second configuration, by topic
+	 * @return the significance of the difference a - b
+	 */
+	public Result compare(double[] a, double[] b) {
+		return this.compare(a, b, this.seed);
+	}
+
+	/**
+	 * Compare each pair of configurations. Each pair is resampled with a seed of
+	 * its own, derived from the seed and the indexes of the configurations.
+	 *
+	 * @param values
+	 *            values of each configuration, by topic
+	 * @return at [i][j] with i &lt; j the significance of the difference of
+	 *         configuration i and j, null elsewhere
+	 */
+	public Result[][] compareAll(List<double[]> values) {
+		Result[][] results = new Result[values.size()][values.size()];
+		for (int i = 0; i < values.size(); i++) {
+			for (int j = i + 1; j < values.size(); j++) {
+				long pairSeed = mix64(mix64(this.seed + ((i + 1) * GOLDEN_GAMMA)) + ((j + 1) * GOLDEN_GAMMA));
+				results[i][j] = this.compare(values.get(i), values.get(j), pairSeed);
+			}
+		}
+		return results;
+	}
+
+	private Result compare(double[] a, double[] b, long pairSeed) {
+		if ((a.length != b.length) || (a.length == 0)) {
+			throw new IllegalArgumentException(
+					String.format("Need values of the same topics, got %d and %d", a.length, b.length));
+		}
+		double[] differences = new double[a.length];
+		double observed = 0.0;
+		double magnitude = 0.0;
+		for (int i = 0; i < differences.length; i++) {
+			differences[i] = a[i] - b[i];
+			observed += differences[i];
+			magnitude += Math.abs(differences[i]);
+		}
+		// sums that only differ from the observed one by rounding are as extreme
+		double threshold = Math.abs(observed) - (magnitude * 1e-12);
+		boolean exact = (differences.length < Integer.SIZE - 1) && ((1 << differences.length) <= this.resamples);
+
+		int blocks = ((this.resamples - 1) / BLOCK_SIZE) + 1;
+		long[] extreme = new long[blocks];
+		double[] means = new double[this.resamples];
+		ResampleAction action = new ResampleAction(differences, threshold, !exact, pairSeed, extreme, means, 0,
+				blocks);
+		if (blocks > 1) {
+			ForkJoinPool.commonPool().invoke(action);
+		} else {
+			action.compute();
+		}
+
+		double pValue;
+		if (exact) {
+			pValue = (double) countAllFlips(differences, threshold) / (1 << differences.length);
+		} else {
+			long count = 0;
+			for (long blockCount : extreme) {
+				count += blockCount;
+			}
+			pValue = (count + 1.0) / (this.resamples + 1.0);
+		}
+		Arrays.sort(means);
+		double alpha = 1.0 - this.confidence;
+		int lower = (int) Math.floor((alpha / 2) * this.resamples);
+		int upper = Math.max(lower, (int) Math.ceil((1.0 - (alpha / 2)) * this.resamples) - 1);
+		return new Result(differences.length, exact, observed / differences.length, pValue, means[lower],
+				means[Math.min(upper, this.resamples - 1)]);
+	}
+
+	/*
+	 * count the sign flips of all topics that are at least as extreme as the
+	 * observed sum; the observed sum itself is one of them
+	 */
+	private static long countAllFlips(double[] differences, double threshold) {
+		int n = differences.length;
+		long count = 0;
+		for (int flips = 0; flips < (1 << n); flips++) {
+			double flipped = 0.0;
+			for (int i = 0; i < n; i++) {
+				flipped += differences[i] * (1 - (((flips >>> i) & 1) << 1));
+			}
+			if (Math.abs(flipped) >= threshold) {
+				count++;
+			}
+		}
+		return count;
+	}
+
+	/*
+	 * resample the blocks in [from, to): count the random sign flips at least as
+	 * extreme as the observed sum into extreme[block], if asked to, and write the
+	 * bootstrap means to means[resample]
+	 */
+	private void resample(double[] differences, double threshold, boolean flip, long pairSeed, long[] extreme,
+			double[] means, int from, int to) {
+		int n = differences.length;
+		for (int block = from; block < to; block++) {
+			SplittableRandom random = new SplittableRandom(mix64(pairSeed + ((block + 1) * GOLDEN_GAMMA)));
+			int end = Math.min(this.resamples, (block + 1) * BLOCK_SIZE);
+			long count = 0;
+			for (int r = block * BLOCK_SIZE; r < end; r++) {
+				if (flip) {
+					double flipped = 0.0;
+					long signs = 0;
+					for (int i = 0; i < n; i++) {
+						if ((i & 63) == 0) {
+							signs = random.nextLong();
+						}
+						flipped += differences[i] * (1 - ((signs & 1) << 1));
+						signs >>>= 1;
+					}
+					if (Math.abs(flipped) >= threshold) {
+						count++;
+					}
+				}
+
+				// two draws of a topic per random long, by multiplying 32 random bits
+				// with n; the bias of at most n / 2^32 is negligible
+				double drawn = 0.0;
+				long bits = 0;
+				for (int i = 0; i < n; i++) {
+					if ((i & 1) == 0) {
+						bits = random.nextLong();
+					}
+					drawn += differences[(int) (((bits & 0xffffffffL) * n) >>> 32)];
+					bits >>>= 32;
+				}
+				means[r] = drawn / n;
+			}
+			extreme[block] = count;
+		}
+	}
+
+	// finalizer of SplittableRandom / MurmurHash3
+	private static long mix64(long z) {
+		z = (z ^ (z >>> 30)) * 0xbf58476d1ce4e5b9L;
+		z = (z ^ (z >>> 27)) * 0x94d049bb133111ebL;
+		return z ^ (z >>> 31);
+	}
+
+	private final class ResampleAction extends RecursiveAction {
+
+		private static final long serialVersionUID = 1L;
+
+		private final double[] differences;
+		private final double threshold;
+		private final boolean flip;
+		private final long pairSeed;
+		private final long[] extreme;
+		private final double[] means;
+		private final int from;
+		private final int to;
+
+		ResampleAction(double[] differences, double threshold, boolean flip, long pairSeed, long[] extreme,
+				double[] means, int from, int to) {
+			this.differences = differences;
+			this.threshold = threshold;
+			this.flip = flip;
+			this.pairSeed = pairSeed;
+			this.extreme = extreme;
+			this.means = means;
+			this.from = from;
+			this.to = to;
+		}
+
+		@Override
+		protected void compute() {
+			if (this.to - this.from <= 1) {
+				PairedSignificance.this.resample(this.differences, this.threshold, this.flip, this.pairSeed,
+						this.extreme, this.means, this.from, this.to);
+				return;
+			}
+			int middle = (this.from + this.to) >>> 1;
+			invokeAll(
+					new ResampleAction(this.differences, this.threshold, this.flip, this.pairSeed, this.extreme,
+							this.means, this.from, middle),
+					new ResampleAction(this.differences, this.threshold, this.flip, this.pairSeed, this.extreme,
+							this.means, middle, this.to));
+		}
+	}
+}
@@ -0,0 +1,205 @@
+package de.th_koeln.iws.sh2.ranking.analysis.evaluation;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Extrapolated rank-biased overlap (Webber, Moffat and Zobel: A Similarity
+ * Measure for Indefinite Rankings, ACM TOIS 28(4), 2010, eq. 32) of rankings
+ * without ties:
+ *
+ * <pre>
+ * RBO_ext(S, T, p, k) = X_k / k * p^k + (1 - p) / p * sum_{d=1..k} X_d / d * p^d
+ * </pre>
+ *
+ * where X_d is the number of items in the top d of both rankings. Rankings are
+ * arrays of item ordinals in [0, n), best first, and are evaluated to the given
+ * depth or to the end of the shorter ranking.
+ *
+ * The overlaps X_d of a pair of rankings are calculated once, in one pass over
+ * the prefixes of both rankings, for all settings of p and depth.
+ */
+public final class RankBiasedOverlap {
+
+	/**
+	 * Persistence p and evaluation depth of the measure.
+	 */
+	public static final class Setting {
+		private final double p;
+		private final int depth;
+
+		/**
+		 * Constructor.
+		 *
+		 * @param p
+		 *            persistence, in (0, 1)
+		 * @param depth
+		 *            number of ranks evaluated
+		 */
+		public Setting(double p, int depth) {
+			if (!(p > 0.0) || !(p < 1.0)) {
+				throw new IllegalArgumentException("p must be between 0 and 1: " + p);
+			}
+			if (depth < 1) {
+				throw new IllegalArgumentException("Depth must be positive: " + depth);
+			}
+			this.p = p;
+			this.depth = depth;
+		}
+
+		public double getP() {
+			return this.p;
+		}
+
+		public int getDepth() {
+			return this.depth;
+		}
+
+		/**
+		 * Parse settings.
+		 *
+		 * @param settings
+		 *            comma separated settings of the form {@code p:depth}, e.g.
+		 *            {@code 0.9984:500,0.973:30}
+		 * @return the settings
+		 */
+		public static List<Setting> parseAll(String settings) {
+			List<Setting> parsed = new ArrayList<>();
+			for (String setting : settings.split(",")) {
+				String[] parts = setting.trim().split(":");
+				if (parts.length != 2) {
+					throw new IllegalArgumentException("Not a setting of the form p:depth: " + setting);
+				}
+				parsed.add(new Setting(Double.parseDouble(parts[0]), Integer.parseInt(parts[1])));
+			}
+			return parsed;
+		}
+
+		@Override
+		public String toString() {
+			return "p" + this.p + "_d" + this.depth;
+		}
+	}
+
+	private final Setting[] settings;
+	private final int maxDepth;
+	// items seen so far in the current pair carry the stamp of the pair
+	private int[] stampS = new int[0];
+	private int[] stampT = new int[0];
+	private int stamp;
+
+	/**
+	 * Constructor. A calculator keeps buffers between calls and is not
+	 * thread-safe.
+	 *
+	 * @param settings
+	 *            the settings to calculate
+	 */
+	public RankBiasedOverlap(List<Setting> settings) {
+		this.settings = settings.toArray(new Setting[settings.size()]);
+		int depth = 0;
+		for (Setting setting : this.settings) {
+			depth = Math.max(depth, setting.depth);
+		}
+		this.maxDepth = depth;
+	}
+
+	/**
+	 * Calculate the measure of two rankings for all settings.
+	 *
+	 * @param s
+	 *            the first ranking
+	 * @param t
+	 *            the second ranking
+	 * @return the measure for each setting, in the order of the settings
+	 */
+	public double[] rboExt(int[] s, int[] t) {
+		int length = Math.min(Math.min(s.length, t.length), this.maxDepth);
+		this.nextStamp(s, t, length);
+
+		double[] result = new double[this.settings.length];
+		double[] weight = new double[this.settings.length];
+		double[] sum = new double[this.settings.length];
+		int[] depth = new int[this.settings.length];
+		for (int i = 0; i < this.settings.length; i++) {
+			weight[i] = 1.0;
+			depth[i] = Math.min(this.settings[i].depth, length);
+		}
+
+		int overlap = 0;
+		for (int d = 1; d <= length; d++) {
+			int itemS = s[d - 1];
+			int itemT = t[d - 1];
+			if (itemS == itemT) {
+				overlap++;
+			} else {
+				if (this.stampT[itemS] == this.stamp) {
+					overlap++;
+				}
+				if (this.stampS[itemT] == this.stamp) {
+					overlap++;
+				}
+			}
+			this.stampS[itemS] = this.stamp;
+			this.stampT[itemT] = this.stamp;
+
+			double agreement = (double) overlap / d;
+			for (int i = 0; i < this.settings.length; i++) {
+				if (d <= depth[i]) {
+					weight[i] *= this.settings[i].p;
+					sum[i] += agreement * weight[i];
+					if (d == depth[i]) {
+						double p = this.settings[i].p;
+						result[i] = (agreement * weight[i]) + (((1 - p) / p) * sum[i]);
+					}
+				}
+			}
+		}
+		return result;
+	}
+
+	private void nextStamp(int[] s, int[] t, int length) {
+		int maxItem = -1;
+		for (int d = 0; d < length; d++) {
+			maxItem = Math.max(maxItem, Math.max(s[d], t[d]));
+		}
+		if (maxItem >= this.stampS.length) {
+			this.stampS = new int[maxItem + 1];
+			this.stampT = new int[maxItem + 1];
+			this.stamp = 0;
+		}
+		if (++this.stamp == Integer.MAX_VALUE) {
+			Arrays.fill(this.stampS, 0);
+			Arrays.fill(this.stampT, 0);
+			this.stamp = 1;
+		}
+	}
+
+	/**
+	 * Calculate the measure for all pairs of rankings. Only the pairs above the
+	 * diagonal are calculated; the measure is symmetric, and 1 for a ranking and
+	 * itself.
+	 *
+	 * @param rankings
+	 *            the rankings
+	 * @return the measure of rankings i and j for setting k at [k][i][j]
+	 */
+	public double[][][] matrix(List<int[]> rankings) {
+		int size = rankings.size();
+		double[][][] matrix = new double[this.settings.length][size][size];
+		for (int i = 0; i < size; i++) {
+			for (int k = 0; k < this.settings.length; k++) {
+				matrix[k][i][i] = 1.0;
+			}
+			for (int j = i + 1; j < size; j++) {
+				double[] rbo = this.rboExt(rankings.get(i), rankings.get(j));
+				for (int k = 0; k < this.settings.length; k++) {
+					matrix[k][i][j] = rbo[k];
+					matrix[k][j][i] = rbo[k];
+				}
+			}
+		}
+		return matrix;
+	}
+}
@@ -2,6 +2,7 @@ package de.th_koeln.iws.sh2.ranking.analysis.evaluation;
 
 import java.util.Comparator;
 import java.util.Map;
+import java.util.Objects;
 
 import de.th_koeln.iws.sh2.ranking.analysis.data.ConferenceStream;
 
@@ -39,7 +40,7 @@ public class RelevanceRanker implements Comparator<ConferenceStream> {
 			Long delayConf1 = this.streamDelayMap.get(o1);
 			Long delayConf2 = this.streamDelayMap.get(o2);
 
-			if(delayConf1==delayConf2) {
+			if (Objects.equals(delayConf1, delayConf2)) {
 				return o1.getKey().compareTo(o2.getKey());
 			}
 			else if (null==delayConf1) {
@@ -48,7 +49,7 @@ public class RelevanceRanker implements Comparator<ConferenceStream> {
 			else if(null==delayConf2) {
 				return 1;
 			}
-			else return (int) (delayConf1-delayConf2);
+			else return Long.compare(delayConf1, delayConf2);
 		}
 		return compareVal;
 	}
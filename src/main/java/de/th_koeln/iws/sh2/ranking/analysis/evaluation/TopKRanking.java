@@ -0,0 +1,155 @@
+package de.th_koeln.iws.sh2.ranking.analysis.evaluation;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+
+import de.th_koeln.iws.sh2.ranking.analysis.data.ConferenceStream;
+
+/**
+ * The K best {@link ConferenceStream}s of a ranking, in the order of
+ * {@link RelevanceRanker}: descending by score, then streams without a delay,
+ * then ascending by delay, then by key.
+ *
+ * Streams are kept in a bounded heap, so memory and time depend on K and not on
+ * the number of streams offered. Streams scoring 0.0 are not yet expected and
+ * are never ranked.
+ *
+ * A ranking is not thread-safe; rank chunks of streams separately and
+ * {@link #merge(TopKRanking) merge} the rankings.
+ */
+public class TopKRanking {
+
+	/**
+	 * Order of the ranked entries, best first.
+	 */
+	static final Comparator<Entry> RANKING_ORDER = (e1, e2) -> {
+		int compareVal = Double.compare(e2.score, e1.score);
+		if (compareVal != 0) {
+			return compareVal;
+		}
+		if (e1.delay != e2.delay) {
+			// NO_DELAY is the smallest value, so streams without a delay come first
+			return Long.compare(e1.delay, e2.delay);
+		}
+		return e1.stream.getKey().compareTo(e2.stream.getKey());
+	};
+
+	static final class Entry {
+		final ConferenceStream stream;
+		final double score;
+		final long delay;
+
+		Entry(ConferenceStream stream, double score, long delay) {
+			this.stream = stream;
+			this.score = score;
+			this.delay = delay;
+		}
+	}
+
+	private final int k;
+	// worst entry at the head
+	private final PriorityQueue<Entry> heap;
+
+	/**
+	 * Constructor.
+	 *
+	 * @param k
+	 *            number of streams to keep
+	 */
+	public TopKRanking(int k) {
+		if (k < 1) {
+			throw new IllegalArgumentException("K must be positive: " + k);
+		}
+		this.k = k;
+		this.heap = new PriorityQueue<>(Math.min(k, 1024) + 1, RANKING_ORDER.reversed());
+	}
+
+	public int getK() {
+		return this.k;
+	}
+
+	/**
+	 * Offer a scored stream to the ranking.
+	 *
+	 * @param stream
+	 *            the stream
+	 * @param score
+	 *            its score
+	 * @param delay
+	 *            months since the creation of the latest record, for
+	 *            tie-breaking (null if the stream has no records)
+	 * @return true if the stream is among the K best so far
+	 */
+	public boolean offer(ConferenceStream stream, double score, Long delay) {
+		if (score == 0.0) {
+			// not yet expected
+			return false;
+		}
+		return this.offer(new Entry(stream, score, null == delay ? IndexRanker.NO_DELAY : delay));
+	}
+
+	private boolean offer(Entry entry) {
+		if (this.heap.size() < this.k) {
+			this.heap.add(entry);
+			return true;
+		}
+		if (RANKING_ORDER.compare(entry, this.heap.peek()) < 0) {
+			this.heap.poll();
+			this.heap.add(entry);
+			return true;
+		}
+		return false;
+	}
+
+	/**
+	 * Add the streams of another ranking to this one.
+	 *
+	 * @param other
+	 *            the other ranking
+	 */
+	public void merge(TopKRanking other) {
+		for (Entry entry : other.heap) {
+			this.offer(entry);
+		}
+	}
+
+	/**
+	 * @return number of ranked streams, at most K
+	 */
+	public int size() {
+		return this.heap.size();
+	}
+
+	/**
+	 * @return the ranked streams, best first
+	 */
+	public List<ConferenceStream> getRanked() {
+		List<ConferenceStream> ranked = new ArrayList<>(this.heap.size());
+		for (Entry entry : this.sortedEntries()) {
+			ranked.add(entry.stream);
+		}
+		return ranked;
+	}
+
+	/**
+	 * @return the ranked streams and their scores, best first
+	 */
+	public Map<ConferenceStream, Double> getScores() {
+		Map<ConferenceStream, Double> scores = new LinkedHashMap<>();
+		for (Entry entry : this.sortedEntries()) {
+			scores.put(entry.stream, entry.score);
+		}
+		return scores;
+	}
+
+	private List<Entry> sortedEntries() {
+		List<Entry> entries = new ArrayList<>(this.heap);
+		Collections.sort(entries, RANKING_ORDER);
+		return entries;
+	}
+}
@@ -0,0 +1,573 @@
+package de.th_koeln.iws.sh2.ranking.analysis.evaluation;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+import de.th_koeln.iws.sh2.ranking.analysis.data.ConferenceStream;
+
+/**
+ * Calculates the {@code all_trec} measures of trec_eval (version 9) for the run
+ * of a single topic, without writing qrels and run files and calling the
+ * trec_eval binary on them.
+ *
+ * The measures are calculated the way trec_eval does, including its handling
+ * of ties and a few of its quirks, so that the values are the same as the ones
+ * printed by {@code trec_eval -m all_trec}: documents are ranked by descending
+ * score and then by descending key (the ranks in the run are ignored), a
+ * document is relevant if its relevance level is at least 1, gains are the
+ * relevance levels, and documents without judgement are not relevant.
+ */
+public final class TrecEvaluator {
+
+	/**
+	 * Number of decimals trec_eval prints.
+	 */
+	public static final int PRINTED_DECIMALS = 4;
+
+	/**
+	 * Number of decimals of the scores written to run files.
+	 */
+	public static final int RUN_SCORE_DECIMALS = 10;
+
+	private static final int[] CUTOFFS = { 5, 10, 15, 20, 30, 100, 200, 500, 1000 };
+	private static final int[] SUCCESS_CUTOFFS = { 1, 5, 10 };
+	private static final double[] RECALL_LEVELS = { 0.0, 0.1, 0.2, 0.3, 0.4, 0.5, 0.6, 0.7, 0.8, 0.9, 1.0 };
+	private static final double[] R_MULTIPLES = { 0.2, 0.4, 0.6, 0.8, 1.0, 1.2, 1.4, 1.6, 1.8, 2.0 };
+
+	// lower bound of values averaged by the geometric mean
+	private static final double MIN_GEO_MEAN = 0.00001;
+	private static final double INFAP_EPSILON = 0.00001;
+	private static final double LN_2 = Math.log(2);
+
+	private static final int NOT_JUDGED = -1;
+
+	private TrecEvaluator() {
+	} // enforce non-instantiability
+
+	/**
+	 * Evaluate the scores of a configuration against the gold standard.
+	 *
+	 * The scores are rounded to {@link #RUN_SCORE_DECIMALS} decimals first, like
+	 * in the run files, so streams whose scores only differ after that are tied
+	 * in the same way as with trec_eval.
+	 *
+	 * @param gold
+	 *            relevance of the streams, see
+	 *            {@link Goldstandard#create(java.util.Set, java.time.YearMonth)}
+	 * @param scored
+	 *            scores of the ranked streams
+	 * @return the measures in the order trec_eval prints them
+	 */
+	public static Map<String, Double> evaluate(Map<ConferenceStream, Integer> gold,
+			Map<ConferenceStream, Double> scored) {
+		Map<String, Integer> qrels = new HashMap<>();
+		for (Map.Entry<ConferenceStream, Integer> entry : gold.entrySet()) {
+			qrels.put(entry.getKey().getKey(), entry.getValue());
+		}
+		Map<String, Double> run = new HashMap<>();
+		for (Map.Entry<ConferenceStream, Double> entry : scored.entrySet()) {
+			run.put(entry.getKey().getKey(), toRunScore(entry.getValue()));
+		}
+		return evaluateRun(qrels, run);
+	}
+
+	/**
+	 * Evaluate the scores of a configuration against the gold standard of a month,
+	 * with the scores rounded like in {@link #evaluate(Map, Map)}.
+	 *
+	 * @param relevance
+	 *            relevance level of every scored stream by ordinal, see
+	 *            {@link GoldstandardIndex#relevance(java.time.YearMonth)}
+	 * @param scored
+	 *            scores of the streams, iterated in the order of the stream keys
+	 *            (e.g. a TreeMap)
+	 * @return the measures in the order trec_eval prints them
+	 */
+	public static Map<String, Double> evaluate(byte[] relevance, Map<ConferenceStream, Double> scored) {
+		if (relevance.length != scored.size()) {
+			throw new IllegalArgumentException(
+					String.format("%d streams scored, %d judged", scored.size(), relevance.length));
+		}
+		double[] scores = new double[relevance.length];
+		long[] ties = new long[relevance.length];
+		int[] keyOrder = new int[relevance.length];
+		int ordinal = 0;
+		for (double score : scored.values()) {
+			scores[ordinal] = toRunScore(score);
+			// trec_eval breaks ties by descending key
+			keyOrder[ordinal] = relevance.length - 1 - ordinal;
+			ordinal++;
+		}
+		int[] ranking = IndexRanker.rank(scores, ties, keyOrder);
+
+		int[] levels = new int[ranking.length];
+		for (int rank = 0; rank < ranking.length; rank++) {
+			levels[rank] = relevance[ranking[rank]];
+		}
+		int[] judged = new int[relevance.length];
+		for (ordinal = 0; ordinal < relevance.length; ordinal++) {
+			judged[ordinal] = relevance[ordinal];
+		}
+		return new Run(levels, judged).measures();
+	}
+
+	/**
+	 * Evaluate a run against relevance judgements.
+	 *
+	 * @param qrels
+	 *            relevance level of the judged documents, at least 0
+	 * @param run
+	 *            scores of the retrieved documents
+	 * @return the measures in the order trec_eval prints them
+	 */
+	public static Map<String, Double> evaluateRun(Map<String, Integer> qrels, Map<String, Double> run) {
+		return new Run(qrels, run).measures();
+	}
+
+	/**
+	 * Round a score the way it is written to a run file.
+	 *
+	 * @param score
+	 *            the score
+	 * @return the score with {@link #RUN_SCORE_DECIMALS} decimals
+	 */
+	public static double toRunScore(double score) {
+		// same decimal digits as String.format("%.10f")
+		return BigDecimal.valueOf(score).setScale(RUN_SCORE_DECIMALS, RoundingMode.HALF_UP).doubleValue();
+	}
+
+	/**
+	 * Round a measure the way trec_eval prints it.
+	 *
+	 * @param measure
+	 *            name of the measure
+	 * @param value
+	 *            its value
+	 * @return counts as integers, all other measures with
+	 *         {@link #PRINTED_DECIMALS} decimals
+	 */
+	public static BigDecimal toPrinted(String measure, double value) {
+		if (isCount(measure)) {
+			return BigDecimal.valueOf((long) value);
+		}
+		// printf rounds the exact binary value
+		return new BigDecimal(value).setScale(PRINTED_DECIMALS, RoundingMode.HALF_EVEN);
+	}
+
+	private static boolean isCount(String measure) {
+		return measure.startsWith("num_");
+	}
+
+	/**
+	 * A run ranked like trec_eval ranks it, with prefix sums of its relevance.
+	 */
+	private static final class Run {
+
+		private final Map<String, Double> measures = new LinkedHashMap<>();
+
+		private final int numRet;
+		private final int numRel;
+		private final int numNonrel;
+		private final int numRelRet;
+		// relevance level by rank, NOT_JUDGED if not in the qrels
+		private final int[] levels;
+		// gains of the ideal ranking
+		private final int[] ideal;
+		// number of relevant documents in the top k
+		private final int[] relevantAt;
+		// sum of the precisions at the relevant documents in the top k
+		private final double[] precisionSumAt;
+		private final double[] dcgAt;
+		private final double[] idealDcgAt;
+
+		Run(Map<String, Integer> qrels, Map<String, Double> run) {
+			this(rankedLevels(qrels, run), judgedLevels(qrels));
+		}
+
+		/*
+		 * levels: relevance level by rank; judged: levels of all judged documents
+		 */
+		Run(int[] levels, int[] judged) {
+			this.numRet = levels.length;
+			this.levels = levels;
+
+			int rel = 0;
+			int nonrel = 0;
+			for (int level : judged) {
+				if (level < 0) {
+					throw new IllegalArgumentException("Relevance level must not be negative: " + level);
+				}
+				if (level >= 1) {
+					rel++;
+				} else {
+					nonrel++;
+				}
+			}
+			this.numRel = rel;
+			this.numNonrel = nonrel;
+
+			this.ideal = new int[rel];
+			int i = 0;
+			for (int level : judged) {
+				if (level >= 1) {
+					this.ideal[i++] = level;
+				}
+			}
+			Arrays.sort(this.ideal);
+			for (int left = 0, right = this.ideal.length - 1; left < right; left++, right--) {
+				int swap = this.ideal[left];
+				this.ideal[left] = this.ideal[right];
+				this.ideal[right] = swap;
+			}
+
+			this.relevantAt = new int[this.numRet + 1];
+			this.precisionSumAt = new double[this.numRet + 1];
+			this.dcgAt = new double[this.numRet + 1];
+			for (int rank = 0; rank < this.numRet; rank++) {
+				this.relevantAt[rank + 1] = this.relevantAt[rank];
+				this.precisionSumAt[rank + 1] = this.precisionSumAt[rank];
+				if (this.isRelevant(rank)) {
+					this.relevantAt[rank + 1]++;
+					this.precisionSumAt[rank + 1] += (double) this.relevantAt[rank + 1] / (rank + 1);
+				}
+				this.dcgAt[rank + 1] = this.dcgAt[rank] + (this.gain(rank) / log2(rank + 2));
+			}
+			this.numRelRet = this.relevantAt[this.numRet];
+			this.idealDcgAt = new double[this.ideal.length + 1];
+			for (int rank = 0; rank < this.ideal.length; rank++) {
+				this.idealDcgAt[rank + 1] = this.idealDcgAt[rank] + (this.ideal[rank] / log2(rank + 2));
+			}
+		}
+
+		private static int[] rankedLevels(Map<String, Integer> qrels, Map<String, Double> run) {
+			List<Map.Entry<String, Double>> ranked = new ArrayList<>(run.entrySet());
+			Collections.sort(ranked, (e1, e2) -> {
+				int compareVal = Double.compare(e2.getValue(), e1.getValue());
+				if (compareVal != 0) {
+					return compareVal;
+				}
+				return e2.getKey().compareTo(e1.getKey());
+			});
+
+			int[] levels = new int[ranked.size()];
+			for (int i = 0; i < levels.length; i++) {
+				Integer level = qrels.get(ranked.get(i).getKey());
+				levels[i] = null == level ? NOT_JUDGED : level;
+			}
+			return levels;
+		}
+
+		private static int[] judgedLevels(Map<String, Integer> qrels) {
+			int[] judged = new int[qrels.size()];
+			int i = 0;
+			for (int level : qrels.values()) {
+				judged[i++] = level;
+			}
+			return judged;
+		}
+
+		private boolean isRelevant(int rank) {
+			return this.levels[rank] >= 1;
+		}
+
+		private int gain(int rank) {
+			return Math.max(this.levels[rank], 0);
+		}
+
+		private int relevantAt(long k) {
+			return this.relevantAt[(int) Math.min(k, this.numRet)];
+		}
+
+		private double dcgAt(int k) {
+			return this.dcgAt[Math.min(k, this.numRet)];
+		}
+
+		private double idealDcgAt(int k) {
+			return this.idealDcgAt[Math.min(k, this.ideal.length)];
+		}
+
+		private double ndcgAt(int k) {
+			double idealDcg = this.idealDcgAt(k);
+			return idealDcg > 0 ? this.dcgAt(k) / idealDcg : 0.0;
+		}
+
+		private double perRelevant(double value) {
+			return this.numRel > 0 ? value / this.numRel : 0.0;
+		}
+
+		private void put(String measure, double value) {
+			this.measures.put(measure, value);
+		}
+
+		Map<String, Double> measures() {
+			this.put("num_q", 1);
+			this.put("num_ret", this.numRet);
+			this.put("num_rel", this.numRel);
+			this.put("num_rel_ret", this.numRelRet);
+
+			double map = this.perRelevant(this.precisionSumAt[this.numRet]);
+			this.put("map", map);
+			this.put("gm_map", geometricMean(map));
+			this.put("Rprec", this.perRelevant(this.relevantAt(this.numRel)));
+			double bpref = this.bpref();
+			this.put("bpref", bpref);
+			this.put("recip_rank", this.reciprocalRank());
+
+			double[] interpolated = this.interpolatedPrecisions();
+			for (int i = 0; i < RECALL_LEVELS.length; i++) {
+				this.put(String.format(Locale.ROOT, "iprec_at_recall_%.2f", RECALL_LEVELS[i]), interpolated[i]);
+			}
+			for (int k : CUTOFFS) {
+				this.put("P_" + k, (double) this.relevantAt(k) / k);
+			}
+			for (int k : CUTOFFS) {
+				this.put("recall_" + k, this.perRelevant(this.relevantAt(k)));
+			}
+			this.put("infAP", this.inferredAveragePrecision());
+			this.put("gm_bpref", geometricMean(bpref));
+			for (double multiple : R_MULTIPLES) {
+				long cutoff = (long) ((multiple * this.numRel) + 0.9);
+				this.put(String.format(Locale.ROOT, "Rprec_mult_%.2f", multiple),
+						cutoff > 0 ? (double) this.relevantAt(cutoff) / cutoff : 0.0);
+			}
+			// default parameters: 1 per relevant, -1 per other retrieved document
+			this.put("utility", (double) (this.numRelRet - (this.numRet - this.numRelRet)));
+			double sum = 0.0;
+			for (double precision : interpolated) {
+				sum += precision;
+			}
+			this.put("11pt_avg", sum / RECALL_LEVELS.length);
+			this.put("binG", this.binaryGain());
+			this.put("G", this.gain());
+
+			boolean hasGain = this.ideal.length > 0;
+			this.put("ndcg", hasGain ? this.dcgAt(this.numRet) / this.idealDcgAt(this.ideal.length) : 0.0);
+			this.put("ndcg_rel", this.ndcgAtRelevant());
+			this.put("Rndcg", this.ndcgAtRLevels());
+			for (int k : CUTOFFS) {
+				this.put("ndcg_cut_" + k, hasGain ? this.dcgAt(k) / this.idealDcgAt(k) : 0.0);
+			}
+			for (int k : CUTOFFS) {
+				this.put("map_cut_" + k, this.perRelevant(this.precisionSumAt[Math.min(k, this.numRet)]));
+			}
+			for (int k : CUTOFFS) {
+				this.put("relative_P_" + k,
+						this.numRel > 0 ? (double) this.relevantAt(k) / Math.min(k, this.numRel) : 0.0);
+			}
+			for (int k : SUCCESS_CUTOFFS) {
+				this.put("success_" + k, this.relevantAt(k) > 0 ? 1.0 : 0.0);
+			}
+
+			double precision = this.numRet > 0 ? (double) this.numRelRet / this.numRet : 0.0;
+			double recall = this.perRelevant(this.numRelRet);
+			this.put("set_P", precision);
+			this.put("set_relative_P",
+					this.numRel > 0 ? (double) this.numRelRet / Math.min(this.numRet, this.numRel) : 0.0);
+			this.put("set_recall", recall);
+			this.put("set_map", precision * recall);
+			this.put("set_F", (precision + recall) > 0 ? (2 * precision * recall) / (precision + recall) : 0.0);
+
+			int nonrelJudgedRet = 0;
+			for (int level : this.levels) {
+				if (level == 0) {
+					nonrelJudgedRet++;
+				}
+			}
+			this.put("num_nonrel_judged_ret", nonrelJudgedRet);
+			return this.measures;
+		}
+
+		private double bpref() {
+			double bpref = 0.0;
+			int nonrelSoFar = 0;
+			for (int level : this.levels) {
+				if (level == NOT_JUDGED) {
+					continue;
+				}
+				if (level >= 1) {
+					if (nonrelSoFar > 0) {
+						bpref += 1.0 - ((double) Math.min(nonrelSoFar, this.numRel)
+								/ Math.min(this.numNonrel, this.numRel));
+					} else {
+						bpref += 1.0;
+					}
+				} else {
+					nonrelSoFar++;
+				}
+			}
+			return this.perRelevant(bpref);
+		}
+
+		private double reciprocalRank() {
+			for (int rank = 0; rank < this.numRet; rank++) {
+				if (this.isRelevant(rank)) {
+					return 1.0 / (rank + 1);
+				}
+			}
+			return 0.0;
+		}
+
+		/*
+		 * maximum precision at all ranks with at least the given recall
+		 */
+		private double[] interpolatedPrecisions() {
+			// maximum precision at rank k or below
+			double[] maxPrecisionFrom = new double[this.numRet + 2];
+			for (int k = this.numRet; k >= 1; k--) {
+				maxPrecisionFrom[k] = Math.max(maxPrecisionFrom[k + 1], (double) this.relevantAt[k] / k);
+			}
+			int[] relevantRanks = new int[this.numRelRet];
+			for (int k = 1, found = 0; k <= this.numRet; k++) {
+				if (this.relevantAt[k] > this.relevantAt[k - 1]) {
+					relevantRanks[found++] = k;
+				}
+			}
+
+			double[] interpolated = new double[RECALL_LEVELS.length];
+			if (this.numRel == 0) {
+				return interpolated;
+			}
+			for (int i = 0; i < RECALL_LEVELS.length; i++) {
+				// relevant documents needed, rounded like trec_eval does
+				long needed = (long) ((RECALL_LEVELS[i] * this.numRel) + 0.9);
+				if (needed == 0) {
+					interpolated[i] = maxPrecisionFrom[1];
+				} else if (needed <= this.numRelRet) {
+					interpolated[i] = maxPrecisionFrom[relevantRanks[(int) needed - 1]];
+				}
+			}
+			return interpolated;
+		}
+
+		private double inferredAveragePrecision() {
+			double sum = 0.0;
+			int relSoFar = 0;
+			int nonrelSoFar = 0;
+			for (int rank = 0; rank < this.numRet; rank++) {
+				if (this.levels[rank] == NOT_JUDGED) {
+					// not in the pool
+					continue;
+				}
+				if (this.isRelevant(rank)) {
+					if (rank == 0) {
+						sum += 1.0;
+					} else {
+						sum += (1.0 / (rank + 1)) + (((double) rank / (rank + 1))
+								* ((double) (relSoFar + nonrelSoFar) / rank)
+								* ((relSoFar + INFAP_EPSILON) / (relSoFar + nonrelSoFar + (2 * INFAP_EPSILON))));
+					}
+					relSoFar++;
+				} else {
+					nonrelSoFar++;
+				}
+			}
+			return this.perRelevant(sum);
+		}
+
+		/*
+		 * average over the relevant documents of 1 / log2(2 + other documents
+		 * retrieved before)
+		 */
+		private double binaryGain() {
+			double sum = 0.0;
+			int otherSoFar = 0;
+			for (int rank = 0; rank < this.numRet; rank++) {
+				if (this.isRelevant(rank)) {
+					sum += 1 / log2(2 + otherSoFar);
+				} else {
+					otherSoFar++;
+				}
+			}
+			return this.perRelevant(sum);
+		}
+
+		/*
+		 * sum of gain / log2(2 + ideal gain - gain so far), normalized by the total
+		 * ideal gain
+		 */
+		private double gain() {
+			int total = 0;
+			for (int gain : this.ideal) {
+				total += gain;
+			}
+			if (total == 0) {
+				return 0.0;
+			}
+			double sum = 0.0;
+			double resultsGain = 0.0;
+			double idealGain = 0.0;
+			for (int rank = 0; rank < this.numRet; rank++) {
+				int gain = this.gain(rank);
+				resultsGain += gain;
+				// past the ideal ranking trec_eval keeps adding a gain of 1 per rank
+				idealGain += rank < this.ideal.length ? this.ideal[rank] : 1.0;
+				if (gain > 0) {
+					sum += gain / log2((2 + idealGain) - resultsGain);
+				}
+			}
+			return sum / total;
+		}
+
+		/*
+		 * average of the ndcg at each relevant document, the ndcg at the end of the
+		 * run for relevant documents that are not retrieved
+		 */
+		private double ndcgAtRelevant() {
+			if (this.numRel == 0) {
+				return 0.0;
+			}
+			double sum = 0.0;
+			int retrieved = 0;
+			for (int rank = 0; rank < this.numRet; rank++) {
+				if (this.gain(rank) > 0) {
+					sum += this.dcgAt(rank + 1) / this.idealDcgAt(rank + 1);
+					retrieved++;
+				}
+			}
+			sum += (this.numRel - retrieved) * (this.dcgAt(this.numRet) / this.idealDcgAt(this.numRel));
+			return sum / this.numRel;
+		}
+
+		/*
+		 * average of the ndcg at the number of documents at each relevance level or
+		 * above, and at the end of the run
+		 */
+		private double ndcgAtRLevels() {
+			List<Integer> rLevels = new ArrayList<>();
+			for (int i = 0; i < this.ideal.length; i++) {
+				if ((i + 1 == this.ideal.length) || (this.ideal[i + 1] != this.ideal[i])) {
+					rLevels.add(i + 1);
+				}
+			}
+			if (rLevels.isEmpty()) {
+				return 0.0;
+			}
+			// trec_eval only adds the end of the run more than one rank after the last level
+			if (this.numRet > this.numRel + 1) {
+				rLevels.add(this.numRet);
+			}
+			double sum = 0.0;
+			for (int k : rLevels) {
+				sum += this.ndcgAt(k);
+			}
+			return sum / rLevels.size();
+		}
+	}
+
+	private static double geometricMean(double value) {
+		// of a single topic
+		return Math.exp(Math.log(Math.max(value, MIN_GEO_MEAN)));
+	}
+
+	private static double log2(double value) {
+		return Math.log(value) / LN_2;
+	}
+}
@@ -0,0 +1,238 @@
+package de.th_koeln.iws.sh2.ranking.core;
+
+import java.io.BufferedInputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.util.Arrays;
+
+/**
+ * Sequential reader for the output of PostgreSQL's
+ * {@code COPY ... TO STDOUT (FORMAT binary)}.
+ *
+ * Rows are read with {@link #nextRow()}, then the fields of the row are read
+ * one after another with the method matching the field's type. The types have
+ * to be fixed by the query (e.g. by casts), as the binary format does not
+ * describe them. Like a JDBC result set, fields of primitive types return 0 for
+ * SQL NULL, which is told apart by {@link #wasNull()}.
+ */
+public class BinaryCopyReader implements Closeable {
+
+    private static final byte[] SIGNATURE = { 'P', 'G', 'C', 'O', 'P', 'Y', '\n', (byte) 0xFF, '\r', '\n', 0 };
+
+    /* postgres dates count the days since 2000-01-01 */
+    private static final long POSTGRES_EPOCH_DAY = LocalDate.of(2000, 1, 1).toEpochDay();
+
+    private static final int NULL_LENGTH = -1;
+
+    private final DataInputStream in;
+
+    private byte[] textBuffer = new byte[256];
+
+    private int fieldsLeft;
+
+    private boolean wasNull;
+
+    /**
+     * Constructor. Reads and checks the header of the copy data.
+     *
+     * @param in
+     *            the copy data
+     * @throws IOException
+     *             if the data cannot be read or is not in binary copy format
+     */
+    public BinaryCopyReader(InputStream in) throws IOException {
+        this.in = new DataInputStream(new BufferedInputStream(in, 1 << 16));
+        this.readHeader();
+    }
+
+    private void readHeader() throws IOException {
+        byte[] signature = new byte[SIGNATURE.length];
+        this.in.readFully(signature);
+        if (!Arrays.equals(SIGNATURE, signature)) {
+            throw new IOException("Missing binary copy signature");
+        }
+        int flags = this.in.readInt();
+        if ((flags & (1 << 16)) != 0) {
+            throw new IOException("Copy data with OIDs is not supported");
+        }
+        int extensionLength = this.in.readInt();
+        this.skip(extensionLength);
+    }
+
+    /**
+     * Advance to the next row. Unread fields of the current row are skipped.
+     *
+     * @return false if there are no more rows
+     * @throws IOException
+     *             if the data cannot be read
+     */
+    public boolean nextRow() throws IOException {
+        while (this.fieldsLeft > 0) {
+            this.skipField();
+        }
+        short fieldCount;
+        try {
+            fieldCount = this.in.readShort();
+        } catch (EOFException e) {
+            throw new IOException("Copy data ended without trailer", e);
+        }
+        if (fieldCount == -1) {
+            return false;
+        }
+        this.fieldsLeft = fieldCount;
+        return true;
+    }
+
+    /**
+     * Read a {@code text} (or {@code varchar}) field.
+     *
+     * @return the value, or null for SQL NULL
+     * @throws IOException
+     *             if the data cannot be read
+     */
+    public String readText() throws IOException {
+        int length = this.nextFieldLength();
+        if (length == NULL_LENGTH) {
+            return null;
+        }
+        if (length > this.textBuffer.length) {
+            this.textBuffer = new byte[Math.max(length, this.textBuffer.length * 2)];
+        }
+        this.in.readFully(this.textBuffer, 0, length);
+        return new String(this.textBuffer, 0, length, StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Read an {@code int2} field.
+     *
+     * @return the value, or 0 for SQL NULL
+     * @throws IOException
+     *             if the data cannot be read
+     */
+    public short readShort() throws IOException {
+        if (this.expectLength(Short.BYTES)) {
+            return this.in.readShort();
+        }
+        return 0;
+    }
+
+    /**
+     * Read an {@code int4} field.
+     *
+     * @return the value, or 0 for SQL NULL
+     * @throws IOException
+     *             if the data cannot be read
+     */
+    public int readInt() throws IOException {
+        if (this.expectLength(Integer.BYTES)) {
+            return this.in.readInt();
+        }
+        return 0;
+    }
+
+    /**
+     * Read an {@code int8} field.
+     *
+     * @return the value, or 0 for SQL NULL
+     * @throws IOException
+     *             if the data cannot be read
+     */
+    public long readLong() throws IOException {
+        if (this.expectLength(Long.BYTES)) {
+            return this.in.readLong();
+        }
+        return 0;
+    }
+
+    /**
+     * Read a {@code float8} field.
+     *
+     * @return the value, or 0 for SQL NULL; NaN is returned as NaN
+     * @throws IOException
+     *             if the data cannot be read
+     */
+    public double readDouble() throws IOException {
+        if (this.expectLength(Double.BYTES)) {
+            return this.in.readDouble();
+        }
+        return 0.0;
+    }
+
+    /**
+     * Read a {@code date} field.
+     *
+     * @return the value, or null for SQL NULL
+     * @throws IOException
+     *             if the data cannot be read
+     */
+    public LocalDate readDate() throws IOException {
+        if (this.expectLength(Integer.BYTES)) {
+            return LocalDate.ofEpochDay(POSTGRES_EPOCH_DAY + this.in.readInt());
+        }
+        return null;
+    }
+
+    /**
+     * @return whether the field read last was SQL NULL
+     */
+    public boolean wasNull() {
+        return this.wasNull;
+    }
+
+    /**
+     * Skip the next field of the current row.
+     *
+     * @throws IOException
+     *             if the data cannot be read
+     */
+    public void skipField() throws IOException {
+        int length = this.nextFieldLength();
+        if (length != NULL_LENGTH) {
+            this.skip(length);
+        }
+    }
+
+    private boolean expectLength(int expected) throws IOException {
+        int length = this.nextFieldLength();
+        if (length == NULL_LENGTH) {
+            return false;
+        }
+        if (length != expected) {
+            throw new IOException(
+                    String.format("Unexpected field length %d, expected %d (check the casts in the query)", length,
+                            expected));
+        }
+        return true;
+    }
+
+    private int nextFieldLength() throws IOException {
+        if (this.fieldsLeft <= 0) {
+            throw new IOException("No more fields in the current row");
+        }
+        this.fieldsLeft--;
+        int length = this.in.readInt();
+        this.wasNull = length == NULL_LENGTH;
+        return length;
+    }
+
+    private void skip(int length) throws IOException {
+        int skipped = 0;
+        while (skipped < length) {
+            int n = this.in.skipBytes(length - skipped);
+            if (n <= 0) {
+                throw new EOFException();
+            }
+            skipped += n;
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        this.in.close();
+    }
+}
@@ -2,7 +2,6 @@ package de.th_koeln.iws.sh2.ranking.core;
 
 import java.sql.Connection;
 import java.sql.DatabaseMetaData;
-import java.sql.DriverManager;
 import java.sql.ResultSet;
 import java.sql.SQLException;
 import java.sql.Statement;
@@ -11,96 +10,186 @@ import java.util.Properties;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
 
+import com.zaxxer.hikari.HikariConfig;
+import com.zaxxer.hikari.HikariDataSource;
+import com.zaxxer.hikari.HikariPoolMXBean;
+
 import de.th_koeln.iws.sh2.ranking.config.PropertiesUtil;
 
 /**
+ * Manager for a bounded pool of database connections.
+ *
+ * Connections obtained by {@link #getConnection()} are borrowed from the pool
+ * and have to be closed by the caller to return them. Connections are
+ * validated before they are handed out and kept alive while idle.
+ *
  * @author michels, neumannm
  *
  */
 public class DatabaseManager {
-    private Connection connection;
+
+    /**
+     * Snapshot of the pool's usage.
+     */
+    public static class PoolStatistics {
+        private final int active, idle, total, waiting;
+
+        private PoolStatistics(int active, int idle, int total, int waiting) {
+            this.active = active;
+            this.idle = idle;
+            this.total = total;
+            this.waiting = waiting;
+        }
+
+        /**
+         * @return number of connections currently borrowed
+         */
+        public int getActive() {
+            return this.active;
+        }
+
+        /**
+         * @return number of connections currently idle in the pool
+         */
+        public int getIdle() {
+            return this.idle;
+        }
+
+        /**
+         * @return total number of connections in the pool
+         */
+        public int getTotal() {
+            return this.total;
+        }
+
+        /**
+         * @return number of threads waiting for a connection
+         */
+        public int getWaiting() {
+            return this.waiting;
+        }
+
+        @Override
+        public String toString() {
+            return String.format("Pool statistics: %d active, %d idle, %d total, %d waiting", this.active, this.idle,
+                    this.total, this.waiting);
+        }
+    }
+
+    /* configuration keys for the pool in the database properties */
+    private static final String POOL_MAX_SIZE = "pool.maxsize";
+    private static final String POOL_MIN_IDLE = "pool.minidle";
+    private static final String POOL_CONNECTION_TIMEOUT = "pool.timeout";
+
+    private static final int DEFAULT_POOL_MAX_SIZE = 4;
+    private static final int DEFAULT_POOL_MIN_IDLE = 1;
+    private static final long DEFAULT_CONNECTION_TIMEOUT_MILLIS = 30000;
+    private static final long KEEPALIVE_MILLIS = 60000;
+    private static final int VALIDATION_TIMEOUT_SECONDS = 5;
+
     private static DatabaseManager instance;
 
     private static final Logger LOGGER = LogManager.getLogger(DatabaseManager.class);
 
-    private DatabaseManager(final Connection connection) {
-        this.connection = connection;
+    private final HikariDataSource dataSource;
+
+    private DatabaseManager(final HikariDataSource dataSource) {
+        this.dataSource = dataSource;
     }
 
     /**
      * Get an instance of the DatabaseManager. Singleton Pattern.
      *
      */
-    public static DatabaseManager getInstance() {
-        // return instance if it is not null and the connection is alive
-        try {
-            if (instance != null) {
-                if ((instance.getConnection() != null) && !instance.getConnection().isClosed()) {
-                    return instance;
-                }
-            }
-        } catch (SQLException e) {
-            LOGGER.error("SQLException occured while trying to get DatabaseManager instance.", e);
+    public static synchronized DatabaseManager getInstance() {
+        // return instance if its pool has not been shut down
+        if ((instance != null) && !instance.dataSource.isClosed()) {
+            return instance;
         }
 
-        // create new connection and instance for it
-        final Connection connection = connect();
-
-        instance = new DatabaseManager(connection);
+        // create new pool and instance for it
+        instance = new DatabaseManager(createDataSource());
+        instance.logDatabaseInfo();
 
         return instance;
     }
 
     /**
-     * Connect to the database
+     * Create the connection pool from the database configuration.
      *
-     * @return the database connection
+     * @return the pooled data source
      */
-    private static Connection connect() {
-        Connection connection = null;
+    private static HikariDataSource createDataSource() {
+        Properties databaseProperties = PropertiesUtil.loadDatabaseConfig();
 
-        try {
-            Properties databaseProperties = PropertiesUtil.loadDatabaseConfig();
+        String hostName = databaseProperties.getProperty("host");
+        String dbName = databaseProperties.getProperty("dbname");
+        String portNumber = databaseProperties.getProperty("port");
 
-            String hostName = databaseProperties.getProperty("host");
-            String dbName = databaseProperties.getProperty("dbname");
-            String portNumber = databaseProperties.getProperty("port");
+        String url = new StringBuilder().append("jdbc:postgresql://").append(hostName).append(":").append(portNumber)
+                .append("/").append(dbName).toString();
 
-            String url = new StringBuilder().append("jdbc:postgresql://").append(hostName).append(":")
-                    .append(portNumber).append("/").append(dbName).toString();
-            connection = DriverManager.getConnection(url, databaseProperties);
+        // everything that does not configure the pool is handed to the driver
+        Properties driverProperties = new Properties();
+        for (String name : databaseProperties.stringPropertyNames()) {
+            if (!name.startsWith("pool.")) {
+                driverProperties.setProperty(name, databaseProperties.getProperty(name));
+            }
+        }
+
+        HikariConfig config = new HikariConfig();
+        config.setPoolName("sh2-dblp");
+        config.setJdbcUrl(url);
+        config.setDataSourceProperties(driverProperties);
+        config.setMaximumPoolSize(Integer.parseInt(
+                databaseProperties.getProperty(POOL_MAX_SIZE, String.valueOf(DEFAULT_POOL_MAX_SIZE))));
+        config.setMinimumIdle(Integer.parseInt(
+                databaseProperties.getProperty(POOL_MIN_IDLE, String.valueOf(DEFAULT_POOL_MIN_IDLE))));
+        config.setConnectionTimeout(Long.parseLong(databaseProperties.getProperty(POOL_CONNECTION_TIMEOUT,
+                String.valueOf(DEFAULT_CONNECTION_TIMEOUT_MILLIS))));
+        // health checks: idle connections are pinged regularly, borrowed ones are
+        // validated through Connection#isValid
+        config.setKeepaliveTime(KEEPALIVE_MILLIS);
+        config.setRegisterMbeans(false);
+
+        return new HikariDataSource(config);
+    }
+
+    private void logDatabaseInfo() {
+        try (Connection connection = this.getConnection()) {
             LOGGER.debug("Connected to the database");
             DatabaseMetaData dbMetaData = connection.getMetaData();
             LOGGER.debug("Driver name: " + dbMetaData.getDriverName());
             LOGGER.debug("Driver version: " + dbMetaData.getDriverVersion());
             LOGGER.debug("Product name: " + dbMetaData.getDatabaseProductName());
             LOGGER.debug("Product version: " + dbMetaData.getDatabaseProductVersion());
+            LOGGER.debug("Pool size: " + this.dataSource.getMaximumPoolSize());
             LOGGER.debug("--------------------\n");
-
         } catch (SQLException e) {
             LOGGER.error(e.getMessage(), e);
         }
-
-        return connection;
     }
 
     /**
-     * Issue a query to the database
+     * Issue a query to the database. The result set keeps a pooled connection
+     * busy until it is released with {@link #close(ResultSet, boolean)}.
      *
      * @param sqlQuery SQL query string
      * @return the {@link java.sql.ResultSet} for the query
      */
     public ResultSet query(final String sqlQuery) {
         ResultSet resultSet = null;
+        Connection connection = null;
         Statement statement = null;
         try {
-            statement = this.connection.createStatement();
+            connection = this.getConnection();
+            statement = connection.createStatement();
             resultSet = statement.executeQuery(sqlQuery);
 
         } catch (SQLException e) {
             LOGGER.error(e.getMessage(), e);
-        } finally {
             this.close(statement);
+            this.close(connection);
         }
         return resultSet;
     }
@@ -122,16 +211,43 @@ public class DatabaseManager {
         }
     }
 
+    /**
+     * Close a connection, returning it to the pool.
+     *
+     * @param connection the connection to close
+     */
+    public void close(Connection connection) {
+        if (connection == null) {
+            return;
+        }
+
+        try {
+            connection.close();
+        } catch (SQLException e) {
+            LOGGER.error(e.getMessage(), e);
+        }
+    }
+
+    /**
+     * Close a result set and its statement.
+     *
+     * @param resultSet the result set to close
+     * @param closeConnection whether to return the result set's connection to the
+     *            pool, too
+     */
     public void close(ResultSet resultSet, boolean closeConnection) {
         if (resultSet == null) {
             return;
         }
 
+        Connection connection = null;
+
         // close statement
         try {
             Statement statement = resultSet.getStatement();
 
             if (statement != null) {
+                connection = statement.getConnection();
                 statement.close();
             }
 
@@ -146,18 +262,61 @@ public class DatabaseManager {
         }
 
         if (closeConnection) {
-            try {
-                this.connection.close();
-            } catch (SQLException e) {
-                LOGGER.error(e.getMessage(), e);
-            }
+            this.close(connection);
+        }
+    }
+
+    /**
+     * Borrow a connection from the pool. The connection has to be closed by the
+     * caller to return it to the pool.
+     *
+     * @return a validated connection
+     * @throws SQLException
+     *             if no connection becomes available within the configured
+     *             timeout
+     */
+    public Connection getConnection() throws SQLException {
+        return this.dataSource.getConnection();
+    }
+
+    /**
+     * @return the maximum number of connections in the pool
+     */
+    public int getMaximumPoolSize() {
+        return this.dataSource.getMaximumPoolSize();
+    }
+
+    /**
+     * Check whether the database can be reached with a connection from the pool.
+     *
+     * @return true if a valid connection could be obtained
+     */
+    public boolean isHealthy() {
+        try (Connection connection = this.getConnection()) {
+            return connection.isValid(VALIDATION_TIMEOUT_SECONDS);
+        } catch (SQLException e) {
+            LOGGER.warn("Health check failed: " + e.getMessage());
+            return false;
+        }
+    }
+
+    /**
+     * @return current usage statistics of the pool
+     */
+    public PoolStatistics getPoolStatistics() {
+        HikariPoolMXBean pool = this.dataSource.getHikariPoolMXBean();
+        if (null == pool) {
+            return new PoolStatistics(0, 0, 0, 0);
         }
+        return new PoolStatistics(pool.getActiveConnections(), pool.getIdleConnections(), pool.getTotalConnections(),
+                pool.getThreadsAwaitingConnection());
     }
 
     /**
-     * @return the current connection
+     * Shut down the pool and close all its connections.
      */
-    public Connection getConnection() {
-        return this.connection;
+    public void shutdown() {
+        LOGGER.debug(this.getPoolStatistics());
+        this.dataSource.close();
     }
-}
\ No newline at end of file
+}
@@ -22,36 +22,54 @@ import static de.th_koeln.iws.sh2.ranking.core.util.TableNames.RAW_LOG_SCORES;
 import static de.th_koeln.iws.sh2.ranking.core.util.TableNames.SCORES;
 import static de.th_koeln.iws.sh2.ranking.core.util.ViewNames.PROCEEDINGS_VIEW;
 
+import java.io.IOException;
 import java.sql.Connection;
 import java.sql.Date;
+import java.sql.PreparedStatement;
 import java.sql.ResultSet;
 import java.sql.SQLException;
 import java.sql.Statement;
 import java.time.Duration;
 import java.time.Instant;
+import java.time.LocalDate;
 import java.time.Month;
 import java.time.Year;
 import java.time.YearMonth;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.HashMap;
 import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
 import java.util.Map;
+import java.util.Map.Entry;
 import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
+import java.util.stream.Collectors;
 
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
+import org.postgresql.PGConnection;
+import org.postgresql.copy.PGCopyInputStream;
 
-import com.google.common.collect.HashBasedTable;
+import com.google.common.collect.ImmutableList;
 import com.google.common.collect.Multimap;
 import com.google.common.collect.MultimapBuilder;
-import com.google.common.collect.Table;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
 
+import de.th_koeln.iws.sh2.ranking.analysis.data.BatchTitleLoader;
 import de.th_koeln.iws.sh2.ranking.analysis.data.ConferenceRecord;
 import de.th_koeln.iws.sh2.ranking.analysis.data.ConferenceStream;
+import de.th_koeln.iws.sh2.ranking.analysis.data.LogScoreMatrix;
+import de.th_koeln.iws.sh2.ranking.analysis.data.StringDictionary;
+import de.th_koeln.iws.sh2.ranking.analysis.data.TitleLoader;
+import de.th_koeln.iws.sh2.ranking.analysis.data.util.PackedYearMonth;
 import de.th_koeln.iws.sh2.ranking.analysis.data.Type;
 
 /**
@@ -65,14 +83,55 @@ public class DbDataReader implements DataReader {
 
     private static Logger LOGGER = LogManager.getLogger(DbDataReader.class);
 
+    /**
+     * Default number of rows fetched per round trip when streaming large result
+     * sets through a server-side cursor.
+     */
+    public static final int DEFAULT_FETCH_SIZE = 10000;
+
     private DatabaseManager dbm;
 
+    private int fetchSize;
+
+    private boolean parallelLoading;
+
+    private boolean copyIngest;
+
     private Set<ConferenceStream> conferenceStreamSet;
 
+    /* strings of the current load; replaced on every full load */
+    private StringDictionary strings = new StringDictionary();
+
+    /* titles are not part of the bulk queries, they are read in one batch on demand */
+    private TitleLoader titleLoader = this.createTitleLoader();
+
+    /* number of table loads that run concurrently in parallel mode */
+    private static final int PARALLEL_LOADS = 3;
+
+    /* score columns of the scores table that are normalized by their maximum */
+    private static final List<String> SCORE_COLUMNS = ImmutableList.of(INTL_SCORE, AFFILIATON_SCORE, RATING_SCORE,
+            CITATION_SCORE, PROMINENCE_SCORE, SIZE_SCORE);
+
     final String logFormat = "{}: Reading data from table '{}'";
 
     public DbDataReader(DatabaseManager dbm) {
+        this(dbm, DEFAULT_FETCH_SIZE);
+    }
+
+    /**
+     * Constructor.
+     *
+     * @param dbm
+     *            the database manager providing the connection
+     * @param fetchSize
+     *            number of rows to fetch per round trip when streaming records
+     *            (must be positive)
+     */
+    public DbDataReader(DatabaseManager dbm, int fetchSize) {
+        if (fetchSize <= 0)
+            throw new IllegalArgumentException("Argument 'fetchSize' was " + fetchSize + ": must be positive");
         this.dbm = dbm;
+        this.fetchSize = fetchSize;
     }
 
     @Override
@@ -83,15 +142,70 @@ public class DbDataReader implements DataReader {
         return this.conferenceStreamSet;
     }
 
+    /**
+     * Enable or disable parallel loading. If enabled, the records, the scores and
+     * the log scores are read at the same time on separate pooled connections, so
+     * loading takes about as long as the slowest of the three queries.
+     *
+     * @param parallelLoading
+     *            whether to read the tables in parallel
+     */
+    public void setParallelLoading(boolean parallelLoading) {
+        this.parallelLoading = parallelLoading;
+    }
+
+    /**
+     * Enable or disable the binary copy ingest. If enabled, records and log scores
+     * are streamed through {@code COPY ... TO STDOUT (FORMAT binary)} and decoded
+     * directly, instead of being read row by row through a {@link ResultSet}.
+     *
+     * @param copyIngest
+     *            whether to use binary copy
+     */
+    public void setCopyIngest(boolean copyIngest) {
+        this.copyIngest = copyIngest;
+    }
+
     private void readFromDatabase() {
-        Multimap<String, ConferenceRecord> streamRecords = this.readRecords();
-        Set<ConferenceStream> conferencescores = this.readScores();
-        Table<String, YearMonth, Double> streamLogScores = this.readStreamLogScores();
+        this.strings = new StringDictionary();
+        this.titleLoader = this.createTitleLoader();
+
+        Multimap<String, ConferenceRecord> streamRecords;
+        Set<ConferenceStream> conferencescores;
+        LogScoreMatrix streamLogScores;
+
+        if (this.parallelLoading) {
+            if (this.dbm.getMaximumPoolSize() < PARALLEL_LOADS) {
+                LOGGER.warn("Connection pool holds only {} connections, parallel loads will wait for each other",
+                        this.dbm.getMaximumPoolSize());
+            }
+            ExecutorService executor = Executors.newFixedThreadPool(PARALLEL_LOADS,
+                    new ThreadFactoryBuilder().setNameFormat("db-reader-%d").setDaemon(true).build());
+            try {
+                CompletableFuture<Multimap<String, ConferenceRecord>> recordsFuture = CompletableFuture
+                        .supplyAsync(this::readRecords, executor);
+                CompletableFuture<Set<ConferenceStream>> scoresFuture = CompletableFuture
+                        .supplyAsync(this::readScores, executor);
+                CompletableFuture<LogScoreMatrix> logScoresFuture = CompletableFuture
+                        .supplyAsync(this::readStreamLogScores, executor);
+
+                streamRecords = recordsFuture.join();
+                conferencescores = scoresFuture.join();
+                streamLogScores = logScoresFuture.join();
+            } finally {
+                executor.shutdown();
+            }
+            LOGGER.debug(this.dbm.getPoolStatistics());
+        } else {
+            streamRecords = this.readRecords();
+            conferencescores = this.readScores();
+            streamLogScores = this.readStreamLogScores();
+        }
 
         for (ConferenceStream conferenceStream : conferencescores) {
             String key = conferenceStream.getKey();
             conferenceStream.setRecords(streamRecords.get(key));
-            conferenceStream.setLogScores(streamLogScores.row(key));
+            conferenceStream.setLogScores(streamLogScores, streamLogScores.getRow(key));
         }
 
         this.conferenceStreamSet = Collections.unmodifiableSet(conferencescores);
@@ -101,36 +215,31 @@ public class DbDataReader implements DataReader {
         LOGGER.info(this.logFormat, "START", SCORES);
         final Instant start = Instant.now();
 
-        final Connection connection = this.dbm.getConnection();
+        Connection connection = null;
 
         Statement stmt = null;
         ResultSet rs = null;
-        String selectMaxString = "SELECT MAX(%s) " + "FROM " + SCORES;
         String selectString = "SELECT * " + "FROM " + SCORES;
 
         Collection<ConferenceStream> streams = new ArrayList<>();
         try {
+            connection = this.dbm.getConnection();
             connection.setAutoCommit(false);
 
-            stmt = connection.createStatement();
-
-            double maxIntlScore = this.queryMaximum(String.format(selectMaxString, INTL_SCORE));
-            LOGGER.debug("Internationality maximum: {}", maxIntlScore);
-
-            double maxAffilScore = this.queryMaximum(String.format(selectMaxString, AFFILIATON_SCORE));
-            LOGGER.debug("Affiliation score maximum: {}", maxAffilScore);
-
-            double maxRatingScore = this.queryMaximum(String.format(selectMaxString, RATING_SCORE));
-            LOGGER.debug("Rating score maximum: {}", maxRatingScore);
-
-            double maxCiteScore = this.queryMaximum(String.format(selectMaxString, CITATION_SCORE));
-            LOGGER.debug("Citation score maximum: {}", maxCiteScore);
+            /*
+             * all maxima needed for normalization are fetched in one round trip
+             */
+            NormalizationStats maxima = this.queryMaxima(connection, SCORES, SCORE_COLUMNS);
+            LOGGER.debug("Score maxima: {}", maxima);
 
-            double maxPromScore = this.queryMaximum(String.format(selectMaxString, PROMINENCE_SCORE));
-            LOGGER.debug("Prominence score maximum: {}", maxPromScore);
+            double maxIntlScore = maxima.getMaximum(INTL_SCORE);
+            double maxAffilScore = maxima.getMaximum(AFFILIATON_SCORE);
+            double maxRatingScore = maxima.getMaximum(RATING_SCORE);
+            double maxCiteScore = maxima.getMaximum(CITATION_SCORE);
+            double maxPromScore = maxima.getMaximum(PROMINENCE_SCORE);
+            double maxSizeScore = maxima.getMaximum(SIZE_SCORE);
 
-            double maxSizeScore = this.queryMaximum(String.format(selectMaxString, SIZE_SCORE));
-            LOGGER.debug("Size score maximum: {}", maxSizeScore);
+            stmt = connection.createStatement();
 
             /*
              * get all results
@@ -150,7 +259,8 @@ public class DbDataReader implements DataReader {
                 Double prominenceScore = rs.getDouble(PROMINENCE_SCORE) / maxPromScore;
                 Double sizeScore = rs.getDouble(SIZE_SCORE) / maxSizeScore;
 
-                ConferenceStream conf = new ConferenceStream(streamKey);
+                ConferenceStream conf = new ConferenceStream(this.strings, this.strings.encode(streamKey),
+                        new ArrayList<>());
                 conf.setAffilScore(affilScore);
                 conf.setCitScore(citationScore);
                 conf.setIntlScore(intScore);
@@ -177,70 +287,91 @@ public class DbDataReader implements DataReader {
                 if (stmt != null) {
                     stmt.close();
                 }
-                connection.setAutoCommit(true);
             } catch (SQLException e) {
                 LOGGER.error("Database access error.", e);
             }
+            this.release(connection);
         }
         return new HashSet<>(streams);
     }
 
-    private Double queryMaximum(String selectMaxString) {
+    /**
+     * Query the maxima of several columns of a table with a single aggregate
+     * query.
+     *
+     * @param connection
+     *            the connection to use
+     * @param table
+     *            the table to query
+     * @param columns
+     *            the columns whose maximum is needed
+     * @return the maxima; a column containing only SQL NULL values has a maximum
+     *         of 0.0
+     * @throws SQLException
+     *             if the query fails
+     */
+    protected NormalizationStats queryMaxima(Connection connection, String table, Collection<String> columns)
+            throws SQLException {
         final Instant start = Instant.now();
 
-        final Connection connection = this.dbm.getConnection();
-
-        Statement stmt = null;
-        ResultSet rs = null;
-        try {
-            connection.setAutoCommit(false);
-
-            stmt = connection.createStatement();
+        NormalizationStats.Builder builder = new NormalizationStats.Builder();
+        if (columns.isEmpty()) {
+            return builder.build();
+        }
 
-            /*
-             * get max value
-             */
-            stmt.executeQuery(selectMaxString);
-            connection.commit();
-            rs = stmt.getResultSet();
+        String selectMaxString = columns.stream().map(column -> String.format("MAX(%s)", column))
+                .collect(Collectors.joining(", ", "SELECT ", " FROM " + table));
 
-            double maxValue = -1.0;
-            // get the single value returned by that statement
+        try (Statement stmt = connection.createStatement(); ResultSet rs = stmt.executeQuery(selectMaxString)) {
+            // the query returns a single row with one value per column
             if (rs.next()) {
-                maxValue = rs.getDouble(1);
-                return maxValue;
-            }
-
-        } catch (SQLException e) {
-            e.printStackTrace();
-            if (connection != null) {
-                try {
-                    LOGGER.error("Transaction is being rolled back");
-                    connection.rollback();
-                } catch (SQLException excep) {
-                    LOGGER.error("Could not roll back transaction.", excep);
+                int i = 1;
+                for (String column : columns) {
+                    builder.column(column);
+                    double maxValue = rs.getDouble(i++);
+                    if (!rs.wasNull()) {
+                        builder.accept(column, maxValue);
+                    }
                 }
             }
         } finally {
-            LOGGER.info("{} Reading maximum" + " (Duration: {})", "END", Duration.between(start, Instant.now()));
-            if (stmt != null)
-                try {
-                    stmt.close();
-                } catch (SQLException e) {
-                    LOGGER.error("Database access error.", e);
-                }
+            LOGGER.info("{} Reading maxima of {} columns from '{}' (Duration: {})", "END", columns.size(), table,
+                    Duration.between(start, Instant.now()));
         }
-        return null;
+        return builder.build();
     }
 
     protected Multimap<String, ConferenceRecord> readRecords() {
+        return this.readRecords(null);
+    }
+
+    /**
+     * Read only the records that are newer than a given watermark, i.e. records
+     * created after the watermark's creation date, or created on that date with
+     * a greater record key.
+     *
+     * @param watermark
+     *            the watermark of the records already known, or null to read all
+     *            records
+     * @return mapping of stream keys to their new records
+     */
+    public Multimap<String, ConferenceRecord> readRecordsSince(RecordWatermark watermark) {
+        return this.readRecords(watermark);
+    }
+
+    private Multimap<String, ConferenceRecord> readRecords(RecordWatermark since) {
+        if (this.copyIngest) {
+            return this.copyRecords(since);
+        }
 
         LOGGER.info(this.logFormat, "START", "joined table");
         final Instant start = Instant.now();
 
         final Multimap<String, ConferenceRecord> toReturn = MultimapBuilder.hashKeys().arrayListValues().build();
+        // the titles of a delta are not part of the titles of the full load
+        final TitleLoader titles = (null == since) ? this.titleLoader : this.createTitleLoader();
 
-        Statement stmt = null;
+        PreparedStatement stmt = null;
         ResultSet rs = null;
 
         /*
@@ -249,10 +380,10 @@ public class DbDataReader implements DataReader {
          * conference and entry to dblp later on
          */
         String innerSelect = String.format(
-                "SELECT procs.%s, procs.%s, hist.%s, hist.%s, hist.%s, hist.%s, hist.%s, hist.%s, hist.%s, hist.%s "
+                "SELECT procs.%s, procs.%s, hist.%s, hist.%s, hist.%s, hist.%s, hist.%s, hist.%s, hist.%s "
                         + "FROM %s procs " + "JOIN %s hist " + "ON procs.%s = hist.%s",
 
-                        STREAM_KEY, CITE_KEY, C_DATE, RECORD_TITLE, RECORD_TYPE, PUBLICATION_YEAR, EVENT_MONTH, EVENT_YEAR,
+                        STREAM_KEY, CITE_KEY, C_DATE, RECORD_TYPE, PUBLICATION_YEAR, EVENT_MONTH, EVENT_YEAR,
                         EVENT_COUNTRY, INSERTION_DELAY,
 
                         PROCEEDINGS_VIEW,
@@ -271,41 +402,63 @@ public class DbDataReader implements DataReader {
 
                         EVENT_YEAR);
 
+        if (null != since) {
+            // delta since the last load, compared as (c_date, key) tuples; keys are
+            // compared by code points like in RecordWatermark
+            selectString += String.format(" AND (conf_records.%s, conf_records.%s COLLATE \"C\") > (?, ?)", C_DATE,
+                    CITE_KEY);
+        }
+
         LOGGER.debug("{}: Returning formatted command for execution:\n{}", "SQL", selectString);
 
-        final Connection connection = this.dbm.getConnection();
+        Connection connection = null;
 
         try {
+            connection = this.dbm.getConnection();
+            /*
+             * the postgres driver only uses a server-side cursor if auto-commit is off and
+             * a fetch size is set on a forward-only statement; otherwise the complete join
+             * is buffered in memory before the first row can be read. The transaction has
+             * to stay open until the cursor is drained.
+             */
             connection.setAutoCommit(false);
 
-            stmt = connection.createStatement();
-
-            stmt.executeQuery(selectString);
-            connection.commit();
+            stmt = this.prepareStreamingStatement(connection, selectString);
+            if (null != since) {
+                stmt.setDate(1, Date.valueOf(since.getcDate()));
+                stmt.setString(2, since.getRecordKey());
+            }
 
-            rs = stmt.getResultSet();
+            rs = stmt.executeQuery();
 
             while (rs.next()) {
                 Date cDate = rs.getDate(C_DATE);
+                if (null == cDate) {
+                    // records without creation date cannot be placed in time
+                    LOGGER.debug("Skipping record without creation date: {}", rs.getString(CITE_KEY));
+                    continue;
+                }
                 short evtMonth = rs.getShort(EVENT_MONTH);
                 short evtYear = rs.getShort(EVENT_YEAR);
                 long delay = rs.getLong(INSERTION_DELAY);
                 String recordKey = rs.getString(CITE_KEY);
-                String streamKey = rs.getString(STREAM_KEY);
-                String title = rs.getString(RECORD_TITLE);
+                int streamKeyId = this.strings.encode(rs.getString(STREAM_KEY));
                 String type = rs.getString(RECORD_TYPE);
                 short year = rs.getShort(PUBLICATION_YEAR);
-                String evtPlace = rs.getString(EVENT_COUNTRY);
+                int evtPlaceId = this.strings.encode(rs.getString(EVENT_COUNTRY));
 
-                ConferenceRecord record = new ConferenceRecord(recordKey, streamKey, title, cDate.toLocalDate(),
-                        Year.of(year), Type.fromString(type), Month.of(evtMonth), Year.of(evtYear), evtPlace, delay);
+                ConferenceRecord record = new ConferenceRecord(this.strings, recordKey, streamKeyId,
+                        cDate.toLocalDate(), Year.of(year), Type.fromString(type), Month.of(evtMonth),
+                        Year.of(evtYear), evtPlaceId, delay, titles);
+                String streamKey = record.getStreamKey();
 
                 LOGGER.debug("Read stream record: {}", record);
 
                 boolean put = toReturn.put(streamKey, record);
                 if (!put)
-                    LOGGER.debug("Record has not been added to key-record map: " + record);
+                    LOGGER.debug("Record has not been added to key-record map: {}", record);
             }
+            connection.commit();
         } catch (SQLException e) {
             e.printStackTrace();
             if (connection != null) {
@@ -323,58 +476,71 @@ public class DbDataReader implements DataReader {
                 if (stmt != null) {
                     stmt.close();
                 }
-                connection.setAutoCommit(true);
             } catch (SQLException e) {
                 LOGGER.error("Database access error.", e);
             }
+            this.release(connection);
         }
         return toReturn;
     }
 
-    private Table<String, YearMonth, Double> readStreamLogScores() {
-        Table<String, YearMonth, Double> streamLogScores;
+    private LogScoreMatrix readStreamLogScores() {
+        if (this.copyIngest) {
+            return this.copyStreamLogScores();
+        }
+
+        LogScoreMatrix streamLogScores = LogScoreMatrix.EMPTY;
         LOGGER.info(this.logFormat, "START", RAW_LOG_SCORES);
         final Instant start = Instant.now();
 
-        streamLogScores = HashBasedTable.create();
-
         String selectString = String.format("SELECT * " + "FROM %s;", RAW_LOG_SCORES);
 
-        final Connection connection = this.dbm.getConnection();
+        Connection connection = null;
 
-        Statement stmt = null;
+        PreparedStatement stmt = null;
         ResultSet rs = null;
         try {
+            connection = this.dbm.getConnection();
             connection.setAutoCommit(false);
 
-            stmt = connection.createStatement();
+            stmt = this.prepareStreamingStatement(connection, selectString);
 
             /*
              * get all results
              */
-            stmt.executeQuery(selectString);
-            connection.commit();
-
-            rs = stmt.getResultSet();
+            rs = stmt.executeQuery();
 
             Map<String, YearMonth> yearMonthsColumnMap = this.getYearMonthsOfLogs(rs);
-            Map<String, Double> maxPerColumn = this.getMaxPerColumn(yearMonthsColumnMap.keySet());
+            List<String> columns = new ArrayList<>(yearMonthsColumnMap.keySet());
+
+            /*
+             * the column maxima are collected in the same pass that reads the raw scores,
+             * so the number of queries does not grow with the number of log months
+             */
+            NormalizationStats.Builder maximaBuilder = new NormalizationStats.Builder();
+            columns.forEach(maximaBuilder::column);
+            Map<String, double[]> rawScores = new LinkedHashMap<>();
 
             while (rs.next()) {
 
                 String streamKey = rs.getString(STREAM_KEY);
-
-                for (String columnName : yearMonthsColumnMap.keySet()) {
-                    Double logScore = rs.getDouble(columnName);
-                    LOGGER.debug("[{}, {}] raw log score: {}", streamKey, columnName, logScore);
-
-                    // teilen durch max
-                    logScore = logScore / maxPerColumn.get(columnName);
-                    LOGGER.debug("[{}, {}] averaged log score: {}", streamKey, columnName, logScore);
-
-                    streamLogScores.put(streamKey, yearMonthsColumnMap.get(columnName), logScore);
+                double[] streamScores = new double[columns.size()];
+
+                for (int i = 0; i < streamScores.length; i++) {
+                    String columnName = columns.get(i);
+                    // SQL NULL values are returned as 0, but do not count for the maximum
+                    streamScores[i] = rs.getDouble(columnName);
+                    if (!rs.wasNull()) {
+                        maximaBuilder.accept(columnName, streamScores[i]);
+                    }
+                    LOGGER.debug("[{}, {}] raw log score: {}", streamKey, columnName, streamScores[i]);
                 }
+                rawScores.put(streamKey, streamScores);
             }
+            connection.commit();
+
+            streamLogScores = this.normalizeLogScores(rawScores, columns, yearMonthsColumnMap,
+                    maximaBuilder.build());
 
         } catch (SQLException e) {
             e.printStackTrace();
@@ -393,14 +559,303 @@ public class DbDataReader implements DataReader {
                 if (stmt != null) {
                     stmt.close();
                 }
-                connection.setAutoCommit(true);
             } catch (SQLException e) {
                 e.printStackTrace();
             }
+            this.release(connection);
         }
         return streamLogScores;
     }
 
+    /**
+     * Read the log scores through {@code COPY ... TO STDOUT (FORMAT binary)}.
+     *
+     * @return the normalized log scores per stream and month
+     */
+    private LogScoreMatrix copyStreamLogScores() {
+        LOGGER.info(this.logFormat, "START (COPY)", RAW_LOG_SCORES);
+        final Instant start = Instant.now();
+
+        LogScoreMatrix streamLogScores = LogScoreMatrix.EMPTY;
+
+        try (Connection connection = this.dbm.getConnection()) {
+            // the log months are only known from the column names
+            Map<String, YearMonth> yearMonthsColumnMap;
+            try (Statement stmt = connection.createStatement();
+                    ResultSet rs = stmt.executeQuery(String.format("SELECT * FROM %s LIMIT 0", RAW_LOG_SCORES))) {
+                yearMonthsColumnMap = this.getYearMonthsOfLogs(rs);
+            }
+            List<String> columns = new ArrayList<>(yearMonthsColumnMap.keySet());
+
+            StringBuilder select = new StringBuilder("SELECT ").append(STREAM_KEY).append("::text");
+            columns.forEach(column -> select.append(", ").append(column).append("::float8"));
+            select.append(" FROM ").append(RAW_LOG_SCORES);
+
+            NormalizationStats.Builder maximaBuilder = new NormalizationStats.Builder();
+            columns.forEach(maximaBuilder::column);
+            Map<String, double[]> rawScores = new LinkedHashMap<>();
+
+            try (BinaryCopyReader reader = this.copyOut(connection, select.toString())) {
+                while (reader.nextRow()) {
+                    String streamKey = reader.readText();
+                    double[] streamScores = new double[columns.size()];
+                    for (int i = 0; i < streamScores.length; i++) {
+                        // SQL NULL values are returned as 0, but do not count for the maximum
+                        streamScores[i] = reader.readDouble();
+                        if (!reader.wasNull()) {
+                            maximaBuilder.accept(columns.get(i), streamScores[i]);
+                        }
+                    }
+                    rawScores.put(streamKey, streamScores);
+                }
+            }
+
+            streamLogScores = this.normalizeLogScores(rawScores, columns, yearMonthsColumnMap,
+                    maximaBuilder.build());
+        } catch (SQLException | IOException e) {
+            LOGGER.error("Could not copy log scores.", e);
+        } finally {
+            LOGGER.info(this.logFormat + " (Duration: {})", "END (COPY)", RAW_LOG_SCORES,
+                    Duration.between(start, Instant.now()));
+        }
+        return streamLogScores;
+    }
+
+    /**
+     * Divide the raw log scores by the maximum of their month. The months of the
+     * matrix range from the first to the last log month; months without a column
+     * are missing for all streams.
+     *
+     * @param rawScores
+     *            raw scores per stream, in the order of the columns
+     * @param columns
+     *            the log score columns
+     * @param yearMonthsColumnMap
+     *            mapping of column names to the months they represent
+     * @param maxPerColumn
+     *            the maximum of each column
+     * @return matrix of the normalized scores
+     */
+    private LogScoreMatrix normalizeLogScores(Map<String, double[]> rawScores, List<String> columns,
+            Map<String, YearMonth> yearMonthsColumnMap, NormalizationStats maxPerColumn) {
+        LOGGER.debug("Log score maxima: {}", maxPerColumn);
+
+        int[] months = new int[columns.size()];
+        for (int i = 0; i < months.length; i++) {
+            months[i] = PackedYearMonth.pack(yearMonthsColumnMap.get(columns.get(i)));
+        }
+        int firstMonth = Arrays.stream(months).min().orElse(0);
+        int lastMonth = Arrays.stream(months).max().orElse(-1);
+        LogScoreMatrix.Builder streamLogScores = new LogScoreMatrix.Builder(firstMonth, lastMonth);
+
+        for (Entry<String, double[]> entry : rawScores.entrySet()) {
+            String streamKey = entry.getKey();
+            double[] streamScores = entry.getValue();
+            for (int i = 0; i < streamScores.length; i++) {
+                String columnName = columns.get(i);
+                // teilen durch max
+                double logScore = maxPerColumn.normalize(columnName, streamScores[i]);
+                LOGGER.debug("[{}, {}] averaged log score: {}", streamKey, columnName, logScore);
+
+                streamLogScores.set(streamKey, months[i], logScore);
+            }
+        }
+        return streamLogScores.build();
+    }
+
+    /**
+     * Read the records through {@code COPY ... TO STDOUT (FORMAT binary)}. The
+     * columns are cast to fixed types, so the rows can be decoded without
+     * looking up columns by name.
+     *
+     * @param since
+     *            the watermark of the records already known, or null to read all
+     *            records
+     * @return mapping of stream keys to their records
+     */
+    private Multimap<String, ConferenceRecord> copyRecords(RecordWatermark since) {
+        LOGGER.info(this.logFormat, "START (COPY)", "joined table");
+        final Instant start = Instant.now();
+
+        final Multimap<String, ConferenceRecord> toReturn = MultimapBuilder.hashKeys().arrayListValues().build();
+        final TitleLoader titles = (null == since) ? this.titleLoader : this.createTitleLoader();
+
+        String selectString = String.format(
+                "SELECT procs.%s::text, procs.%s::text, hist.%s::date, hist.%s::text, hist.%s::int4, "
+                        + "hist.%s::int4, hist.%s::int4, hist.%s::text, hist.%s::int8 "
+                        + "FROM %s procs JOIN %s hist ON procs.%s = hist.%s "
+                        + "WHERE hist.%s IS NOT null AND hist.%s IS NOT null",
+
+                        STREAM_KEY, CITE_KEY, C_DATE, RECORD_TYPE, PUBLICATION_YEAR, EVENT_MONTH, EVENT_YEAR,
+                        EVENT_COUNTRY, INSERTION_DELAY,
+
+                        PROCEEDINGS_VIEW, HISTORICAL_RECORDS, CITE_KEY, RECORD_KEY,
+
+                        EVENT_MONTH, EVENT_YEAR);
+
+        if (null != since) {
+            // COPY does not take parameters, so the watermark is inlined as literals
+            selectString += String.format(" AND (hist.%s, procs.%s COLLATE \"C\") > ('%s'::date, '%s')", C_DATE,
+                    CITE_KEY, since.getcDate(), since.getRecordKey().replace("'", "''"));
+        }
+
+        try (Connection connection = this.dbm.getConnection();
+                BinaryCopyReader reader = this.copyOut(connection, selectString)) {
+            while (reader.nextRow()) {
+                int streamKeyId = this.strings.encode(reader.readText());
+                String recordKey = reader.readText();
+                LocalDate cDate = reader.readDate();
+                if (null == cDate) {
+                    // like the JDBC path, skip records without creation date
+                    LOGGER.debug("Skipping record without creation date: {}", recordKey);
+                    continue;
+                }
+                String type = reader.readText();
+                int year = reader.readInt();
+                int evtMonth = reader.readInt();
+                int evtYear = reader.readInt();
+                int evtPlaceId = this.strings.encode(reader.readText());
+                long delay = reader.readLong();
+
+                ConferenceRecord record = new ConferenceRecord(this.strings, recordKey, streamKeyId, cDate,
+                        Year.of(year), Type.fromString(type), Month.of(evtMonth), Year.of(evtYear), evtPlaceId, delay,
+                        titles);
+
+                toReturn.put(record.getStreamKey(), record);
+            }
+        } catch (SQLException | IOException e) {
+            LOGGER.error("Could not copy records.", e);
+        } finally {
+            LOGGER.info(this.logFormat + " (Duration: {})", "END (COPY)", "joined table",
+                    Duration.between(start, Instant.now()));
+        }
+        return toReturn;
+    }
+
+    /**
+     * Start a binary copy of the result of a query.
+     *
+     * @param connection
+     *            a connection to a postgres database
+     * @param selectString
+     *            the query whose result is copied
+     * @return a reader for the copied rows
+     * @throws SQLException
+     *             if the copy cannot be started
+     * @throws IOException
+     *             if the copy data cannot be read
+     */
+    private BinaryCopyReader copyOut(Connection connection, String selectString) throws SQLException, IOException {
+        String copyString = String.format("COPY (%s) TO STDOUT (FORMAT binary)", selectString);
+        LOGGER.debug("{}: Returning formatted command for execution:\n{}", "SQL", copyString);
+        return new BinaryCopyReader(new PGCopyInputStream(connection.unwrap(PGConnection.class), copyString));
+    }
+
+    /**
+     * Read the watermark of the records, i.e. the latest creation date of any
+     * record. The data of the database is considered unchanged as long as the
+     * watermark stays the same.
+     *
+     * @return the latest creation date, or null if it could not be determined
+     */
+    public LocalDate readWatermark() {
+        String selectString = String.format("SELECT MAX(%s) FROM %s", C_DATE, HISTORICAL_RECORDS);
+
+        try (Connection connection = this.dbm.getConnection();
+                Statement stmt = connection.createStatement();
+                ResultSet rs = stmt.executeQuery(selectString)) {
+            if (rs.next()) {
+                Date maxCDate = rs.getDate(1);
+                return (null == maxCDate) ? null : maxCDate.toLocalDate();
+            }
+        } catch (SQLException e) {
+            LOGGER.error("Could not read watermark.", e);
+        }
+        return null;
+    }
+
+    /**
+     * @return a loader that reads the titles of all records in one batch, when
+     *         the first title is asked for
+     */
+    public TitleLoader createTitleLoader() {
+        return new BatchTitleLoader(this::readTitles);
+    }
+
+    /**
+     * Read the titles of all conference records in one query. Records with
+     * several history rows get the title of the latest row.
+     *
+     * @return mapping of record keys to titles (which may be null)
+     */
+    private Map<String, String> readTitles() {
+        LOGGER.info(this.logFormat, "START", "titles");
+        final Instant start = Instant.now();
+
+        // rows in creation order, so later rows replace the titles of earlier ones
+        String selectString = String.format(
+                "SELECT hist.%s, hist.%s FROM %s procs JOIN %s hist ON procs.%s = hist.%s ORDER BY hist.%s",
+                RECORD_KEY, RECORD_TITLE, PROCEEDINGS_VIEW, HISTORICAL_RECORDS, CITE_KEY, RECORD_KEY, C_DATE);
+
+        Map<String, String> titles = new HashMap<>();
+        Connection connection = null;
+        try {
+            connection = this.dbm.getConnection();
+            connection.setAutoCommit(false);
+            try (PreparedStatement stmt = this.prepareStreamingStatement(connection, selectString);
+                    ResultSet rs = stmt.executeQuery()) {
+                while (rs.next()) {
+                    titles.put(rs.getString(1), rs.getString(2));
+                }
+            }
+            connection.commit();
+        } catch (SQLException e) {
+            LOGGER.error("Could not read titles.", e);
+        } finally {
+            LOGGER.info(this.logFormat + " (Duration: {})", "END", "titles", Duration.between(start, Instant.now()));
+            this.release(connection);
+        }
+        return titles;
+    }
+
+    /**
+     * Reset a borrowed connection to auto-commit mode and return it to the pool.
+     *
+     * @param connection
+     *            the connection (may be null if it could not be obtained)
+     */
+    private void release(Connection connection) {
+        if (connection == null) {
+            return;
+        }
+        try {
+            connection.setAutoCommit(true);
+        } catch (SQLException e) {
+            LOGGER.error("Database access error.", e);
+        }
+        this.dbm.close(connection);
+    }
+
+    /**
+     * Prepare a statement whose result sets are fetched in chunks of
+     * {@link #fetchSize} rows through a server-side cursor instead of being loaded
+     * into memory at once. Requires auto-commit to be disabled on the connection.
+     *
+     * @param connection
+     *            the connection to create the statement for
+     * @param sql
+     *            the query
+     * @return a forward-only, read-only statement with the configured fetch size
+     * @throws SQLException
+     *             if the statement could not be created
+     */
+    private PreparedStatement prepareStreamingStatement(Connection connection, String sql) throws SQLException {
+        PreparedStatement stmt = connection.prepareStatement(sql, ResultSet.TYPE_FORWARD_ONLY,
+                ResultSet.CONCUR_READ_ONLY);
+        stmt.setFetchSize(this.fetchSize);
+        return stmt;
+    }
+
     private Map<String, YearMonth> getYearMonthsOfLogs(ResultSet rs) throws SQLException {
         Map<String, YearMonth> monthsColumnMap = new HashMap<>();
 
@@ -430,18 +885,4 @@ public class DbDataReader implements DataReader {
         return monthsColumnMap;
     }
 
-    private Map<String, Double> getMaxPerColumn(Set<String> columns) {
-        Map<String, Double> maxPerColumn = new HashMap<>();
-
-        String selectTemplate = "SELECT MAX(%s) " + "FROM %s";
-
-        for (String column : columns) {
-            String selectMaxString = String.format(selectTemplate, column, RAW_LOG_SCORES);
-            Double max = this.queryMaximum(selectMaxString);
-            maxPerColumn.put(column, max);
-        }
-
-        return maxPerColumn;
-    }
-
 }
@@ -0,0 +1,199 @@
+package de.th_koeln.iws.sh2.ranking.core;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.Period;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Set;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import com.google.common.collect.Multimap;
+
+import de.th_koeln.iws.sh2.ranking.analysis.data.ConferenceRecord;
+import de.th_koeln.iws.sh2.ranking.analysis.data.ConferenceStream;
+
+/**
+ * Implementation of a {@link DataReader} that loads the complete data set once
+ * and afterwards only fetches the records that have been added to the
+ * database since the last load.
+ *
+ * The state of the last load is remembered as a {@link RecordWatermark}. The
+ * records since the watermark, moved back by a lookback window to pick up
+ * records committed late, are fetched; those not known yet (by creation date
+ * and key, as a key has a record per history row) are merged into the
+ * conference streams already in memory, and only the indexes of the affected
+ * streams are updated. If a snapshot file is
+ * given, the data is initially read from the snapshot (even if it is
+ * outdated), and the snapshot is rewritten whenever new records have been
+ * merged.
+ *
+ * Scores and log scores are taken from the initial load; streams that are not
+ * part of it are only picked up by a full reload.
+ */
+public class IncrementalDataReader implements DataReader {
+
+    private static Logger LOGGER = LogManager.getLogger(IncrementalDataReader.class);
+
+    /**
+     * Lookback window, unless given.
+     */
+    public static final Period DEFAULT_LOOKBACK = Period.ofDays(7);
+
+    private final DbDataReader database;
+    private final Path snapshotFile;
+    private final Period lookback;
+
+    private Set<ConferenceStream> conferenceStreamSet;
+    private Map<String, ConferenceStream> streamsByKey;
+    private RecordWatermark watermark;
+
+    /**
+     * Constructor.
+     *
+     * @param database
+     *            reader for the database
+     * @param snapshotFile
+     *            path to a snapshot file to persist the data in (may be null)
+     */
+    public IncrementalDataReader(DbDataReader database, Path snapshotFile) {
+        this(database, snapshotFile, DEFAULT_LOOKBACK);
+    }
+
+    /**
+     * Constructor.
+     *
+     * @param database
+     *            reader for the database
+     * @param snapshotFile
+     *            path to a snapshot file to persist the data in (may be null)
+     * @param lookback
+     *            records created within this window before the watermark are
+     *            fetched again, in case they were committed after the last load
+     */
+    public IncrementalDataReader(DbDataReader database, Path snapshotFile, Period lookback) {
+        this.database = database;
+        this.snapshotFile = snapshotFile;
+        this.lookback = lookback;
+    }
+
+    /**
+     * Get the data. On the first call the data is loaded from the snapshot (and
+     * refreshed) or from the database; later calls return the data in memory.
+     * Use {@link #refresh()} to fetch new records.
+     */
+    @Override
+    public Set<ConferenceStream> getData() {
+        if (null == this.conferenceStreamSet) {
+            this.load();
+        }
+        return this.conferenceStreamSet;
+    }
+
+    /**
+     * @return the watermark of the records loaded so far (null if there are no
+     *         records)
+     */
+    public RecordWatermark getWatermark() {
+        return this.watermark;
+    }
+
+    private void load() {
+        Set<ConferenceStream> data = null;
+        if ((null != this.snapshotFile) && Files.isRegularFile(this.snapshotFile)) {
+            try {
+                // an outdated snapshot is fine, the delta is fetched afterwards
+                data = SnapshotDataReader.read(this.snapshotFile, null, this.database.createTitleLoader());
+            } catch (IOException | RuntimeException e) {
+                LOGGER.warn(String.format("Could not read snapshot '%s', reading from database", this.snapshotFile),
+                        e);
+            }
+        }
+
+        boolean fromSnapshot = (null != data);
+        if (!fromSnapshot) {
+            data = this.database.getData();
+        }
+
+        this.conferenceStreamSet = data;
+        this.streamsByKey = new HashMap<>();
+        data.forEach(stream -> this.streamsByKey.put(stream.getKey(), stream));
+        this.watermark = RecordWatermark.of(data).orElse(null);
+        LOGGER.info("Loaded {} conferences from {} ({})", data.size(), fromSnapshot ? "snapshot" : "database",
+                this.watermark);
+
+        if (fromSnapshot) {
+            this.refresh();
+        } else {
+            this.writeSnapshot();
+        }
+    }
+
+    /**
+     * Fetch the records that have been added since the last load and merge them
+     * into the conference streams.
+     *
+     * @return the number of records that have been added
+     */
+    public int refresh() {
+        if (null == this.conferenceStreamSet) {
+            this.load();
+            return 0;
+        }
+        final Instant start = Instant.now();
+
+        // records of the overlap with a known creation date and key are dropped by
+        // the streams
+        Multimap<String, ConferenceRecord> newRecords = this.database
+                .readRecordsSince((null == this.watermark) ? null : this.watermark.lookback(this.lookback));
+
+        int added = 0;
+        int affectedStreams = 0;
+        RecordWatermark newWatermark = this.watermark;
+        for (Map.Entry<String, Collection<ConferenceRecord>> entry : newRecords.asMap().entrySet()) {
+            ConferenceStream stream = this.streamsByKey.get(entry.getKey());
+            if (null == stream) {
+                LOGGER.debug("Skipping {} new records of unknown stream '{}'", entry.getValue().size(),
+                        entry.getKey());
+                continue;
+            }
+            int addedToStream = stream.addRecords(entry.getValue());
+            if (addedToStream > 0) {
+                added += addedToStream;
+                affectedStreams++;
+            }
+            for (ConferenceRecord record : entry.getValue()) {
+                newWatermark = RecordWatermark.max(newWatermark, RecordWatermark.of(record));
+            }
+        }
+        this.watermark = newWatermark;
+
+        LOGGER.info("Merged {} new records into {} conferences ({}, Duration: {})", added, affectedStreams,
+                this.watermark, Duration.between(start, Instant.now()));
+
+        if (added > 0) {
+            this.writeSnapshot();
+        }
+        return added;
+    }
+
+    private void writeSnapshot() {
+        if (null == this.snapshotFile) {
+            return;
+        }
+        try {
+            SnapshotDataReader.write(this.conferenceStreamSet,
+                    (null == this.watermark) ? null : this.watermark.getcDate(), this.snapshotFile);
+            LOGGER.info("Wrote snapshot of {} conferences to '{}'", this.conferenceStreamSet.size(),
+                    this.snapshotFile);
+        } catch (IOException e) {
+            LOGGER.error(String.format("Could not write snapshot '%s'", this.snapshotFile), e);
+        }
+    }
+}
@@ -0,0 +1,106 @@
+package de.th_koeln.iws.sh2.ranking.core;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+
+import com.google.common.collect.ImmutableMap;
+
+/**
+ * Column maxima of a score table, used for normalizing raw score values to the
+ * interval [0,1].
+ *
+ * Instances are either filled from a single aggregate query or accumulated in
+ * one pass over the rows of a table with the {@link Builder}.
+ */
+public class NormalizationStats {
+
+    public static class Builder {
+
+        private final Map<String, Double> maxima = new LinkedHashMap<>();
+
+        /**
+         * Register a column without observing a value. Columns without any
+         * observed value have a maximum of 0.0, just like an SQL NULL maximum read
+         * through JDBC.
+         *
+         * @param column
+         *            the column name
+         * @return this builder
+         */
+        public Builder column(String column) {
+            this.maxima.putIfAbsent(column, null);
+            return this;
+        }
+
+        /**
+         * Observe a (non-NULL) value of a column.
+         *
+         * @param column
+         *            the column name
+         * @param value
+         *            the value
+         * @return this builder
+         */
+        public Builder accept(String column, double value) {
+            Double max = this.maxima.get(column);
+            if ((null == max) || (value > max)) {
+                this.maxima.put(column, value);
+            }
+            return this;
+        }
+
+        public NormalizationStats build() {
+            ImmutableMap.Builder<String, Double> builder = ImmutableMap.builder();
+            this.maxima.forEach((column, max) -> builder.put(column, (null == max) ? 0.0 : max));
+            return new NormalizationStats(builder.build());
+        }
+    }
+
+    private final ImmutableMap<String, Double> maxima;
+
+    private NormalizationStats(ImmutableMap<String, Double> maxima) {
+        this.maxima = maxima;
+    }
+
+    /**
+     * @return the names of all columns with a known maximum
+     */
+    public Set<String> getColumns() {
+        return this.maxima.keySet();
+    }
+
+    /**
+     * Get the maximum of a column.
+     *
+     * @param column
+     *            the column name
+     * @return the maximum value of the column
+     * @throws IllegalArgumentException
+     *             if the column is unknown
+     */
+    public double getMaximum(String column) {
+        Double max = this.maxima.get(column);
+        if (null == max)
+            throw new IllegalArgumentException("No maximum known for column '" + column + "'");
+        return max;
+    }
+
+    /**
+     * Normalize a value of a column by dividing it by the column's maximum.
+     *
+     * @param column
+     *            the column name
+     * @param value
+     *            the raw value
+     * @return the normalized value
+     */
+    public double normalize(String column, double value) {
+        return value / this.getMaximum(column);
+    }
+
+    @Override
+    public String toString() {
+        return String.format("NormalizationStats %s", this.maxima);
+    }
+}
@@ -0,0 +1,147 @@
+package de.th_koeln.iws.sh2.ranking.core;
+
+import java.time.LocalDate;
+import java.time.Period;
+import java.util.Collection;
+import java.util.Objects;
+import java.util.Optional;
+
+import de.th_koeln.iws.sh2.ranking.analysis.data.ConferenceRecord;
+import de.th_koeln.iws.sh2.ranking.analysis.data.ConferenceStream;
+
+/**
+ * High-water mark of the records that have been loaded: the creation date and
+ * key of the newest record. Records are ordered by creation date first and by
+ * key second. Keys are compared by code points, which is the byte order of
+ * their UTF-8 encoding and thus the order of {@code COLLATE "C"} in the
+ * database.
+ *
+ * A record committed late, with a creation date and key below the watermark
+ * of a load that ran in the meantime, is not greater than that watermark.
+ * Readers therefore fetch the records since a watermark moved back by a
+ * {@link #lookback(Period) lookback} window, and drop the records they already
+ * know by creation date and key.
+ */
+public final class RecordWatermark implements Comparable<RecordWatermark> {
+
+    private final LocalDate cDate;
+    private final String recordKey;
+
+    public RecordWatermark(LocalDate cDate, String recordKey) {
+        this.cDate = Objects.requireNonNull(cDate);
+        this.recordKey = Objects.requireNonNull(recordKey);
+    }
+
+    /**
+     * @param record
+     *            a record
+     * @return the watermark of the given record
+     */
+    public static RecordWatermark of(ConferenceRecord record) {
+        return new RecordWatermark(record.getcDate(), record.getRecordKey());
+    }
+
+    /**
+     * Determine the watermark of a set of conference streams.
+     *
+     * @param streams
+     *            the streams
+     * @return the watermark of the newest record of all streams, if any
+     */
+    public static Optional<RecordWatermark> of(Collection<ConferenceStream> streams) {
+        RecordWatermark max = null;
+        for (ConferenceStream stream : streams) {
+            for (ConferenceRecord record : stream.getRecords()) {
+                max = max(max, of(record));
+            }
+        }
+        return Optional.ofNullable(max);
+    }
+
+    /**
+     * @param first
+     *            a watermark (may be null)
+     * @param second
+     *            another watermark (may be null)
+     * @return the greater of both watermarks
+     */
+    public static RecordWatermark max(RecordWatermark first, RecordWatermark second) {
+        if (null == first)
+            return second;
+        if (null == second)
+            return first;
+        return (first.compareTo(second) >= 0) ? first : second;
+    }
+
+    /**
+     * @param window
+     *            the lookback window
+     * @return a watermark below all records created within the window before the
+     *         creation date of this watermark
+     */
+    public RecordWatermark lookback(Period window) {
+        // the empty key is below every key of the creation date
+        return new RecordWatermark(this.cDate.minus(window), "");
+    }
+
+    public LocalDate getcDate() {
+        return this.cDate;
+    }
+
+    public String getRecordKey() {
+        return this.recordKey;
+    }
+
+    @Override
+    public int compareTo(RecordWatermark o) {
+        int cDateCompare = this.cDate.compareTo(o.cDate);
+        if (cDateCompare == 0) {
+            return compareKeys(this.recordKey, o.recordKey);
+        }
+        return cDateCompare;
+    }
+
+    /**
+     * Compare keys by code points. {@link String#compareTo(String)} compares
+     * UTF-16 code units instead, which orders supplementary characters before
+     * the characters from U+E000 to U+FFFF.
+     *
+     * @param first
+     *            a key
+     * @param second
+     *            another key
+     * @return the comparison of the code points of both keys
+     */
+    static int compareKeys(String first, String second) {
+        int i = 0;
+        int j = 0;
+        while ((i < first.length()) && (j < second.length())) {
+            int a = first.codePointAt(i);
+            int b = second.codePointAt(j);
+            if (a != b) {
+                return Integer.compare(a, b);
+            }
+            i += Character.charCount(a);
+            j += Character.charCount(b);
+        }
+        return Integer.compare(first.length() - i, second.length() - j);
+    }
+
+    @Override
+    public boolean equals(Object obj) {
+        if (!(obj instanceof RecordWatermark))
+            return false;
+        RecordWatermark other = (RecordWatermark) obj;
+        return this.cDate.equals(other.cDate) && this.recordKey.equals(other.recordKey);
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(this.cDate, this.recordKey);
+    }
+
+    @Override
+    public String toString() {
+        return String.format("Watermark %s (%s)", this.cDate, this.recordKey);
+    }
+}
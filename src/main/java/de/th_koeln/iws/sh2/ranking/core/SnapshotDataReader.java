@@ -0,0 +1,547 @@
+package de.th_koeln.iws.sh2.ranking.core;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.Month;
+import java.time.Year;
+import java.time.YearMonth;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.function.Function;
+import java.util.function.Supplier;
+import java.util.zip.CRC32;
+import java.util.zip.CheckedOutputStream;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import com.google.common.hash.Funnels;
+import com.google.common.hash.Hasher;
+import com.google.common.hash.Hashing;
+
+import de.th_koeln.iws.sh2.ranking.analysis.data.ConferenceRecord;
+import de.th_koeln.iws.sh2.ranking.analysis.data.ConferenceStream;
+import de.th_koeln.iws.sh2.ranking.analysis.data.LogScoreMatrix;
+import de.th_koeln.iws.sh2.ranking.analysis.data.StringDictionary;
+import de.th_koeln.iws.sh2.ranking.analysis.data.TitleLoader;
+import de.th_koeln.iws.sh2.ranking.analysis.data.util.PackedYearMonth;
+import de.th_koeln.iws.sh2.ranking.analysis.data.Type;
+
+/**
+ * Implementation of a {@link DataReader} that caches the data of another
+ * {@link DataReader} in a binary snapshot file.
+ *
+ * The snapshot stores the conference streams, their records and the log
+ * scores column by column, with stream keys and countries kept once in a
+ * string table that becomes the {@link StringDictionary} of the loaded data.
+ * Titles are not stored; they are loaded lazily from the source, if it can
+ * provide them. The file is memory-mapped for reading. A snapshot is only used if its format
+ * version is known, its checksum matches, and the watermark (the latest
+ * creation date of a record) it was written with is still current; otherwise
+ * the data is read from the source and a new snapshot is written.
+ */
+public class SnapshotDataReader implements DataReader {
+
+    private static Logger LOGGER = LogManager.getLogger(SnapshotDataReader.class);
+
+    /* "SH2S" */
+    private static final int MAGIC = 0x53483253;
+    static final int FORMAT_VERSION = 3;
+
+    /* magic, version, watermark, checksum, body length */
+    private static final int HEADER_LENGTH = 4 + 4 + 8 + 8 + 8;
+
+    private static final long NO_WATERMARK = Long.MIN_VALUE;
+    private static final int NULL_REFERENCE = -1;
+
+    /* buffer between the encoder and the file or hasher */
+    private static final int BUFFER_SIZE = 1 << 16;
+
+    private final Path snapshotFile;
+    private final DataReader source;
+    private final Supplier<LocalDate> watermarkSupplier;
+    private final TitleLoader titleLoader;
+
+    private Set<ConferenceStream> conferenceStreamSet;
+
+    /**
+     * Constructor for a snapshot of the database.
+     *
+     * @param snapshotFile
+     *            path to the snapshot file
+     * @param source
+     *            reader for the database, also used to determine the watermark
+     *            and to load titles
+     */
+    public SnapshotDataReader(Path snapshotFile, DbDataReader source) {
+        this(snapshotFile, source, source::readWatermark, source.createTitleLoader());
+    }
+
+    /**
+     * Constructor.
+     *
+     * @param snapshotFile
+     *            path to the snapshot file
+     * @param source
+     *            the reader to load the data from if the snapshot is missing or
+     *            outdated
+     * @param watermarkSupplier
+     *            supplier for the current watermark of the source; may supply
+     *            null if the watermark cannot be determined, in which case an
+     *            existing snapshot is used as is
+     */
+    public SnapshotDataReader(Path snapshotFile, DataReader source, Supplier<LocalDate> watermarkSupplier) {
+        this(snapshotFile, source, watermarkSupplier, null);
+    }
+
+    /**
+     * Constructor.
+     *
+     * @param snapshotFile
+     *            path to the snapshot file
+     * @param source
+     *            the reader to load the data from if the snapshot is missing or
+     *            outdated
+     * @param watermarkSupplier
+     *            supplier for the current watermark of the source; may supply
+     *            null if the watermark cannot be determined, in which case an
+     *            existing snapshot is used as is
+     * @param titleLoader
+     *            source of the titles of records read from the snapshot (may be
+     *            null, then these records have no title)
+     */
+    public SnapshotDataReader(Path snapshotFile, DataReader source, Supplier<LocalDate> watermarkSupplier,
+            TitleLoader titleLoader) {
+        this.snapshotFile = snapshotFile;
+        this.source = source;
+        this.watermarkSupplier = watermarkSupplier;
+        this.titleLoader = titleLoader;
+    }
+
+    @Override
+    public Set<ConferenceStream> getData() {
+        if (null == this.conferenceStreamSet) {
+            this.conferenceStreamSet = this.load();
+        }
+        return this.conferenceStreamSet;
+    }
+
+    private Set<ConferenceStream> load() {
+        LocalDate watermark = this.watermarkSupplier.get();
+
+        if (Files.isRegularFile(this.snapshotFile)) {
+            final Instant start = Instant.now();
+            try {
+                Set<ConferenceStream> data = read(this.snapshotFile, watermark, this.titleLoader);
+                if (null != data) {
+                    LOGGER.info("Read {} conferences from snapshot '{}' (Duration: {})", data.size(),
+                            this.snapshotFile, Duration.between(start, Instant.now()));
+                    return data;
+                }
+            } catch (IOException | RuntimeException e) {
+                LOGGER.warn(String.format("Could not read snapshot '%s', reading from source", this.snapshotFile), e);
+            }
+        }
+
+        Set<ConferenceStream> data = this.source.getData();
+        try {
+            write(data, watermark, this.snapshotFile);
+            LOGGER.info("Wrote snapshot of {} conferences to '{}'", data.size(), this.snapshotFile);
+        } catch (IOException e) {
+            LOGGER.error(String.format("Could not write snapshot '%s'", this.snapshotFile), e);
+        }
+        return data;
+    }
+
+    /**
+     * Write a snapshot of the given data.
+     *
+     * @param data
+     *            the conference streams
+     * @param watermark
+     *            the watermark of the data (may be null)
+     * @param target
+     *            path of the snapshot file; replaced atomically
+     * @throws IOException
+     *             if the file cannot be written
+     */
+    static void write(Collection<ConferenceStream> data, LocalDate watermark, Path target) throws IOException {
+        Path parent = target.toAbsolutePath().getParent();
+        if (null != parent) {
+            Files.createDirectories(parent);
+        }
+        Path tempFile = Files.createTempFile(parent, target.getFileName().toString(), ".tmp");
+        try (FileChannel channel = FileChannel.open(tempFile, StandardOpenOption.WRITE)) {
+            // the body is streamed behind the header, which is written last
+            channel.position(HEADER_LENGTH);
+            CRC32 crc = new CRC32();
+            DataOutputStream out = new DataOutputStream(new BufferedOutputStream(
+                    new CheckedOutputStream(Channels.newOutputStream(channel), crc), BUFFER_SIZE));
+            encode(data, out);
+            out.flush();
+            long bodyLength = channel.position() - HEADER_LENGTH;
+
+            ByteBuffer header = ByteBuffer.allocate(HEADER_LENGTH);
+            header.putInt(MAGIC);
+            header.putInt(FORMAT_VERSION);
+            header.putLong((null == watermark) ? NO_WATERMARK : watermark.toEpochDay());
+            header.putLong(crc.getValue());
+            header.putLong(bodyLength);
+            header.flip();
+            while (header.hasRemaining()) {
+                channel.write(header, header.position());
+            }
+        }
+        Files.move(tempFile, target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    /**
+     * Hash the data as it would be written to a snapshot, so equal data gives
+     * the same hash whether it was read from the database or from a snapshot.
+     *
+     * @param data
+     *            the conference streams
+     * @return the SHA-256 of the snapshot format version and body, as hex string
+     */
+    public static String fingerprint(Collection<ConferenceStream> data) {
+        Hasher hasher = Hashing.sha256().newHasher().putInt(FORMAT_VERSION);
+        // the bytes are hashed as they are encoded, without a copy of the body
+        DataOutputStream out = new DataOutputStream(
+                new BufferedOutputStream(Funnels.asOutputStream(hasher), BUFFER_SIZE));
+        try {
+            encode(data, out);
+            out.flush();
+        } catch (IOException e) {
+            // encoding only writes to the hasher
+            throw new UncheckedIOException(e);
+        }
+        return hasher.hash().toString();
+    }
+
+    /**
+     * Read a snapshot.
+     *
+     * @param file
+     *            the snapshot file
+     * @param watermark
+     *            the current watermark of the source, or null if unknown
+     * @param titleLoader
+     *            source of the titles of the records (may be null)
+     * @return the conference streams, or null if the snapshot is outdated or
+     *         invalid
+     * @throws IOException
+     *             if the file cannot be read
+     */
+    static Set<ConferenceStream> read(Path file, LocalDate watermark, TitleLoader titleLoader)
+            throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            if (channel.size() < HEADER_LENGTH) {
+                LOGGER.warn("Snapshot '{}' is truncated", file);
+                return null;
+            }
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+
+            if (buffer.getInt() != MAGIC) {
+                LOGGER.warn("'{}' is not a snapshot file", file);
+                return null;
+            }
+            int version = buffer.getInt();
+            if (version != FORMAT_VERSION) {
+                LOGGER.info("Snapshot '{}' has format version {}, expected {}", file, version, FORMAT_VERSION);
+                return null;
+            }
+            long snapshotWatermark = buffer.getLong();
+            if ((null != watermark) && (snapshotWatermark != watermark.toEpochDay())) {
+                LOGGER.info("Snapshot '{}' is outdated (watermark {}, current {})", file,
+                        (snapshotWatermark == NO_WATERMARK) ? "unknown" : LocalDate.ofEpochDay(snapshotWatermark),
+                        watermark);
+                return null;
+            }
+            long checksum = buffer.getLong();
+            long bodyLength = buffer.getLong();
+            if (bodyLength != (channel.size() - HEADER_LENGTH)) {
+                LOGGER.warn("Snapshot '{}' is truncated", file);
+                return null;
+            }
+
+            ByteBuffer body = buffer.slice();
+            CRC32 crc = new CRC32();
+            crc.update(body.duplicate());
+            if (crc.getValue() != checksum) {
+                LOGGER.warn("Checksum mismatch in snapshot '{}'", file);
+                return null;
+            }
+            return decode(body, titleLoader);
+        }
+    }
+
+    /*
+     * write the body of a snapshot of the data to the stream; the stream is not
+     * flushed
+     */
+    private static void encode(Collection<ConferenceStream> data, DataOutputStream out) throws IOException {
+        // write streams in a deterministic order
+        List<ConferenceStream> streams = new ArrayList<>(new TreeSet<>(data));
+
+        StringDictionary strings = new StringDictionary();
+        TreeSet<YearMonth> logMonths = new TreeSet<>();
+
+        int recordCount = 0;
+        for (ConferenceStream stream : streams) {
+            strings.encode(stream.getKey());
+            for (ConferenceRecord record : stream.getRecords()) {
+                strings.encode(record.getEvtPlace());
+                recordCount++;
+            }
+            if (null != stream.getLogScores()) {
+                logMonths.addAll(stream.getLogScores().keySet());
+            }
+        }
+
+        /* string table */
+        out.writeInt(strings.size());
+        for (int id = 0; id < strings.size(); id++) {
+            writeString(out, strings.decode(id));
+        }
+
+        /* stream columns */
+        out.writeInt(streams.size());
+        for (ConferenceStream stream : streams) {
+            out.writeInt(strings.encode(stream.getKey()));
+        }
+        writeScores(out, streams, ConferenceStream::getAvgRating);
+        writeScores(out, streams, ConferenceStream::getIntlScore);
+        writeScores(out, streams, ConferenceStream::getCitationsScore);
+        writeScores(out, streams, ConferenceStream::getProminence);
+        writeScores(out, streams, ConferenceStream::getAvgSize);
+        writeScores(out, streams, ConferenceStream::getAffilScore);
+        for (ConferenceStream stream : streams) {
+            out.writeInt(stream.getRecords().size());
+        }
+
+        /* record columns, grouped by stream */
+        List<ConferenceRecord> records = new ArrayList<>(recordCount);
+        streams.forEach(stream -> records.addAll(stream.getRecords()));
+
+        out.writeInt(records.size());
+        for (ConferenceRecord record : records) {
+            // record keys only repeat for the history rows of a record, so they are not
+            // part of the string table
+            writeString(out, record.getRecordKey());
+        }
+        for (ConferenceRecord record : records) {
+            out.writeInt((int) record.getcDate().toEpochDay());
+        }
+        for (ConferenceRecord record : records) {
+            out.writeShort(record.getYear().getValue());
+        }
+        for (ConferenceRecord record : records) {
+            out.writeByte((null == record.getType()) ? NULL_REFERENCE : record.getType().ordinal());
+        }
+        for (ConferenceRecord record : records) {
+            out.writeByte(record.getEvtMonth().getValue());
+        }
+        for (ConferenceRecord record : records) {
+            out.writeShort(record.getEvtYear().getValue());
+        }
+        for (ConferenceRecord record : records) {
+            out.writeInt(strings.encode(record.getEvtPlace()));
+        }
+        for (ConferenceRecord record : records) {
+            out.writeLong(record.getInsertDelayInMonths());
+        }
+
+        /* log score matrix: one column per month, NaN for missing values */
+        out.writeInt(logMonths.size());
+        for (YearMonth month : logMonths) {
+            out.writeShort(month.getYear());
+            out.writeByte(month.getMonthValue());
+        }
+        for (YearMonth month : logMonths) {
+            for (ConferenceStream stream : streams) {
+                Map<YearMonth, Double> logScores = stream.getLogScores();
+                out.writeDouble(nullToNaN((null == logScores) ? null : logScores.get(month)));
+            }
+        }
+    }
+
+    private static Set<ConferenceStream> decode(ByteBuffer in, TitleLoader titleLoader) {
+        /* string table; ids are assigned in order, so they match the ids in the file */
+        StringDictionary strings = new StringDictionary();
+        int stringCount = in.getInt();
+        for (int i = 0; i < stringCount; i++) {
+            strings.encode(readString(in));
+        }
+
+        /* stream columns */
+        int streamCount = in.getInt();
+        int[] keyIds = readInts(in, streamCount);
+        Double[] ratingScores = readScores(in, streamCount);
+        Double[] intlScores = readScores(in, streamCount);
+        Double[] citScores = readScores(in, streamCount);
+        Double[] promScores = readScores(in, streamCount);
+        Double[] sizeScores = readScores(in, streamCount);
+        Double[] affilScores = readScores(in, streamCount);
+        int[] recordCounts = readInts(in, streamCount);
+
+        /* record columns */
+        int recordCount = in.getInt();
+        String[] recordKeys = new String[recordCount];
+        for (int i = 0; i < recordCount; i++) {
+            recordKeys[i] = readString(in);
+        }
+        int[] cDates = readInts(in, recordCount);
+        short[] pubYears = readShorts(in, recordCount);
+        byte[] types = readBytes(in, recordCount);
+        byte[] evtMonths = readBytes(in, recordCount);
+        short[] evtYears = readShorts(in, recordCount);
+        int[] placeIds = readInts(in, recordCount);
+        long[] delays = readLongs(in, recordCount);
+
+        /* log score matrix */
+        int monthCount = in.getInt();
+        int[] logMonths = new int[monthCount];
+        for (int m = 0; m < monthCount; m++) {
+            short year = in.getShort();
+            logMonths[m] = PackedYearMonth.pack(year, in.get());
+        }
+        double[] logScores = readDoubles(in, monthCount * streamCount);
+
+        // the months are written in ascending order
+        LogScoreMatrix.Builder logScoreMatrix = (monthCount == 0) ? new LogScoreMatrix.Builder(0, -1)
+                : new LogScoreMatrix.Builder(logMonths[0], logMonths[monthCount - 1]);
+        for (int s = 0; s < streamCount; s++) {
+            for (int m = 0; m < monthCount; m++) {
+                double logScore = logScores[(m * streamCount) + s];
+                if (!Double.isNaN(logScore)) {
+                    logScoreMatrix.set(strings.decode(keyIds[s]), logMonths[m], logScore);
+                }
+            }
+        }
+        LogScoreMatrix matrix = logScoreMatrix.build();
+
+        Type[] typeValues = Type.values();
+        Set<ConferenceStream> result = new HashSet<>(streamCount * 2);
+        int r = 0;
+        for (int s = 0; s < streamCount; s++) {
+            List<ConferenceRecord> records = new ArrayList<>(recordCounts[s]);
+            for (int end = r + recordCounts[s]; r < end; r++) {
+                records.add(new ConferenceRecord(strings, recordKeys[r], keyIds[s], LocalDate.ofEpochDay(cDates[r]),
+                        Year.of(pubYears[r]), (types[r] == NULL_REFERENCE) ? null : typeValues[types[r]],
+                        Month.of(evtMonths[r]), Year.of(evtYears[r]), placeIds[r], delays[r], titleLoader));
+            }
+
+            ConferenceStream stream = new ConferenceStream(strings, keyIds[s], records);
+            stream.setRatingScore(ratingScores[s]);
+            stream.setIntlScore(intlScores[s]);
+            stream.setCitScore(citScores[s]);
+            stream.setPromScore(promScores[s]);
+            stream.setSizeScore(sizeScores[s]);
+            stream.setAffilScore(affilScores[s]);
+
+            stream.setLogScores(matrix, matrix.getRow(stream.getKey()));
+
+            result.add(stream);
+        }
+        return Collections.unmodifiableSet(result);
+    }
+
+    private static void writeString(DataOutputStream out, String string) throws IOException {
+        byte[] encoded = string.getBytes(StandardCharsets.UTF_8);
+        out.writeInt(encoded.length);
+        out.write(encoded);
+    }
+
+    private static String readString(ByteBuffer in) {
+        byte[] encoded = new byte[in.getInt()];
+        in.get(encoded);
+        return new String(encoded, StandardCharsets.UTF_8);
+    }
+
+    private static int[] readInts(ByteBuffer in, int length) {
+        int[] values = new int[length];
+        for (int i = 0; i < length; i++) {
+            values[i] = in.getInt();
+        }
+        return values;
+    }
+
+    private static short[] readShorts(ByteBuffer in, int length) {
+        short[] values = new short[length];
+        for (int i = 0; i < length; i++) {
+            values[i] = in.getShort();
+        }
+        return values;
+    }
+
+    private static byte[] readBytes(ByteBuffer in, int length) {
+        byte[] values = new byte[length];
+        in.get(values);
+        return values;
+    }
+
+    private static long[] readLongs(ByteBuffer in, int length) {
+        long[] values = new long[length];
+        for (int i = 0; i < length; i++) {
+            values[i] = in.getLong();
+        }
+        return values;
+    }
+
+    private static double[] readDoubles(ByteBuffer in, int length) {
+        double[] values = new double[length];
+        for (int i = 0; i < length; i++) {
+            values[i] = in.getDouble();
+        }
+        return values;
+    }
+
+    /*
+     * a column of scores that may be null: one byte per stream that tells if it
+     * has a score, then the scores, so null and NaN stay apart
+     */
+    private static void writeScores(DataOutputStream out, List<ConferenceStream> streams,
+            Function<ConferenceStream, Double> score) throws IOException {
+        for (ConferenceStream stream : streams) {
+            out.writeByte((null == score.apply(stream)) ? 0 : 1);
+        }
+        for (ConferenceStream stream : streams) {
+            Double value = score.apply(stream);
+            out.writeDouble((null == value) ? 0.0 : value);
+        }
+    }
+
+    private static Double[] readScores(ByteBuffer in, int length) {
+        byte[] present = readBytes(in, length);
+        Double[] values = new Double[length];
+        for (int i = 0; i < length; i++) {
+            double value = in.getDouble();
+            values[i] = (present[i] == 0) ? null : value;
+        }
+        return values;
+    }
+
+    private static double nullToNaN(Double value) {
+        return (null == value) ? Double.NaN : value;
+    }
+}
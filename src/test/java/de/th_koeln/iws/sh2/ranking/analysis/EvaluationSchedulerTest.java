@@ -0,0 +1,176 @@
+package de.th_koeln.iws.sh2.ranking.analysis;
+
+import java.math.BigDecimal;
+import java.time.Duration;
+import java.time.YearMonth;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.junit.Assert;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import com.google.common.collect.Table;
+
+import de.th_koeln.iws.sh2.ranking.analysis.data.ConferenceStream;
+import de.th_koeln.iws.sh2.ranking.analysis.data.util.EvaluationConfiguration;
+import de.th_koeln.iws.sh2.ranking.analysis.evaluation.Goldstandard;
+import de.th_koeln.iws.sh2.ranking.analysis.evaluation.TrecEvaluator;
+
+class EvaluationSchedulerTest {
+
+    @Test
+    void testResultsDoNotDependOnWorkers() {
+        List<ConferenceStream> streams = StreamFixtures.createStreams(new Random(17), 400);
+        List<EvaluationConfiguration> configs = StreamFixtures.allConfigurations().subList(0, 24);
+        List<YearMonth> months = new ArrayList<>();
+        Map<YearMonth, Map<ConferenceStream, Integer>> golds = new HashMap<>();
+        for (int month = 5; month <= 11; month++) {
+            YearMonth evalYM = YearMonth.of(2018, month);
+            months.add(evalYM);
+            golds.put(evalYM, Goldstandard.create(new HashSet<>(streams), evalYM));
+        }
+        MultiConfigScorer scorer = new MultiConfigScorer(configs, new TemporalFeatureCache());
+
+        List<List<Table<String, String, BigDecimal>>> runs = new ArrayList<>();
+        for (EvaluationScheduler scheduler : new EvaluationScheduler[] { new EvaluationScheduler(1, Long.MAX_VALUE),
+                new EvaluationScheduler(4, 0), new EvaluationScheduler(6, Long.MAX_VALUE) }) {
+            EvaluationResults results = scheduler.run(months, configs, streams.size(),
+                    evalYM -> scorer.score(streams, evalYM),
+                    (evalYM, config, scored) -> TrecEvaluator.evaluate(golds.get(evalYM), scored));
+            Assert.assertEquals(months.size() * configs.size(), results.size());
+
+            List<Table<String, String, BigDecimal>> tables = new ArrayList<>();
+            for (int column = 0; column < configs.size(); column++) {
+                tables.add(results.getTable(column));
+            }
+            runs.add(tables);
+        }
+
+        for (int column = 0; column < configs.size(); column++) {
+            Table<String, String, BigDecimal> expected = runs.get(0).get(column);
+            Assert.assertEquals(months.size(), expected.columnKeySet().size());
+            for (List<Table<String, String, BigDecimal>> tables : runs) {
+                Table<String, String, BigDecimal> table = tables.get(column);
+                Assert.assertEquals(expected, table);
+                // same order of rows and columns in the csv
+                Assert.assertEquals(new ArrayList<>(expected.rowKeySet()), new ArrayList<>(table.rowKeySet()));
+                Assert.assertEquals(new ArrayList<>(expected.columnKeySet()), new ArrayList<>(table.columnKeySet()));
+            }
+        }
+    }
+
+    @Test
+    void testMaxConcurrentMonths() {
+        // 1000 streams x 10 configs: 80 kB per matrix, 160 kB per running cell
+        EvaluationScheduler scheduler = new EvaluationScheduler(4, (4 * 160_000) + (3 * 80_000));
+        Assert.assertEquals(3, scheduler.getMaxConcurrentMonths(1000, 10));
+        Assert.assertEquals(1, new EvaluationScheduler(4, 0).getMaxConcurrentMonths(1000, 10));
+        Assert.assertEquals(4, new EvaluationScheduler(4, Long.MAX_VALUE).getMaxConcurrentMonths(1000, 10));
+    }
+
+    @Test
+    void testFailedCellIsReported() {
+        List<ConferenceStream> streams = StreamFixtures.createStreams(new Random(3), 50);
+        List<EvaluationConfiguration> configs = StreamFixtures.allConfigurations().subList(0, 3);
+        List<YearMonth> months = new ArrayList<>();
+        for (int month = 1; month <= 6; month++) {
+            months.add(YearMonth.of(2018, month));
+        }
+        MultiConfigScorer scorer = new MultiConfigScorer(configs, new TemporalFeatureCache());
+
+        try {
+            new EvaluationScheduler(2).run(months, configs, streams.size(), evalYM -> scorer.score(streams, evalYM),
+                    (evalYM, config, scored) -> {
+                        if (evalYM.getMonthValue() == 2) {
+                            throw new IllegalArgumentException("failed");
+                        }
+                        return new HashMap<>();
+                    });
+            Assert.fail("Failure not reported");
+        } catch (IllegalStateException e) {
+            Assert.assertEquals("failed", e.getCause().getMessage());
+        }
+    }
+
+    @Test
+    void testErrorsReleaseTheirMonth() {
+        List<ConferenceStream> streams = StreamFixtures.createStreams(new Random(4), 30);
+        List<EvaluationConfiguration> configs = StreamFixtures.allConfigurations().subList(0, 2);
+        List<YearMonth> months = new ArrayList<>();
+        for (int month = 1; month <= 6; month++) {
+            months.add(YearMonth.of(2018, month));
+        }
+        MultiConfigScorer scorer = new MultiConfigScorer(configs, new TemporalFeatureCache());
+
+        // an error in scoring a month or in evaluating a cell must not keep its
+        // permit, or the run would wait for it forever
+        Assertions.assertTimeoutPreemptively(Duration.ofMinutes(1), () -> {
+            try {
+                new EvaluationScheduler(1).run(months, configs, streams.size(), evalYM -> {
+                    if (evalYM.getMonthValue() == 1) {
+                        throw new AssertionError("scoring failed");
+                    }
+                    return scorer.score(streams, evalYM);
+                }, (evalYM, config, scored) -> new HashMap<>());
+                Assert.fail("Failure not reported");
+            } catch (IllegalStateException e) {
+                Assert.assertEquals("scoring failed", e.getCause().getMessage());
+            }
+            try {
+                new EvaluationScheduler(2).run(months, configs, streams.size(), evalYM -> scorer.score(streams, evalYM),
+                        (evalYM, config, scored) -> {
+                            throw new AssertionError("cell failed");
+                        });
+                Assert.fail("Failure not reported");
+            } catch (IllegalStateException e) {
+                Assert.assertEquals("cell failed", e.getCause().getMessage());
+            }
+        });
+    }
+
+    @Test
+    void testMonthsAreFinishedAfterTheirCells() {
+        List<ConferenceStream> streams = StreamFixtures.createStreams(new Random(8), 60);
+        List<EvaluationConfiguration> configs = StreamFixtures.allConfigurations().subList(0, 5);
+        List<YearMonth> months = new ArrayList<>();
+        for (int month = 1; month <= 12; month++) {
+            months.add(YearMonth.of(2018, month));
+        }
+        MultiConfigScorer scorer = new MultiConfigScorer(configs, new TemporalFeatureCache());
+        Map<YearMonth, Integer> cells = new ConcurrentHashMap<>();
+        Map<YearMonth, Integer> finished = new ConcurrentHashMap<>();
+
+        new EvaluationScheduler(3).run(months, configs, streams.size(), evalYM -> scorer.score(streams, evalYM),
+                (evalYM, config, scored) -> {
+                    cells.merge(evalYM, 1, Integer::sum);
+                    return new HashMap<>();
+                }, evalYM -> finished.put(evalYM, cells.get(evalYM)));
+
+        Assert.assertEquals(months.size(), finished.size());
+        for (YearMonth evalYM : months) {
+            Assert.assertEquals(Integer.valueOf(configs.size()), finished.get(evalYM));
+        }
+    }
+
+    @Test
+    void testCellCannotBeAddedTwice() {
+        List<YearMonth> months = new ArrayList<>();
+        months.add(YearMonth.of(2018, 5));
+        EvaluationResults results = new EvaluationResults(StreamFixtures.allConfigurations().subList(0, 2), months);
+        results.put(1, months.get(0), new HashMap<>());
+        try {
+            results.put(1, months.get(0), new HashMap<>());
+            Assert.fail("Cell added twice");
+        } catch (IllegalStateException e) {
+            // expected
+        }
+        Assert.assertEquals(1, results.size());
+        Assert.assertNull(results.get(0, months.get(0)));
+    }
+}
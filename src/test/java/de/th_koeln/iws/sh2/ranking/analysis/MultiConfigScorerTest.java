@@ -0,0 +1,64 @@
+package de.th_koeln.iws.sh2.ranking.analysis;
+
+import java.time.Year;
+import java.time.YearMonth;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+import org.junit.Assert;
+import org.junit.jupiter.api.Test;
+
+import de.th_koeln.iws.sh2.ranking.analysis.data.ConferenceStream;
+import de.th_koeln.iws.sh2.ranking.analysis.data.util.EvaluationConfiguration;
+import de.th_koeln.iws.sh2.ranking.analysis.data.util.PackedYearMonth;
+
+class MultiConfigScorerTest {
+
+    @Test
+    void testMatrixMatchesPlans() {
+        List<ConferenceStream> streams = StreamFixtures.createStreams(new Random(13), 300);
+        List<EvaluationConfiguration> configs = StreamFixtures.allConfigurations();
+        TemporalFeatureCache cache = new TemporalFeatureCache();
+        MultiConfigScorer scorer = new MultiConfigScorer(configs, cache);
+
+        for (int year = 2012; year <= 2019; year += 7) {
+            for (int month = 1; month <= 12; month += 5) {
+                YearMonth evalYM = YearMonth.of(year, month);
+                ScoreMatrix matrix = scorer.score(streams, evalYM);
+                Assert.assertEquals(streams.size(), matrix.getRowCount());
+                Assert.assertEquals(configs.size(), matrix.getColumnCount());
+
+                for (int column = 0; column < configs.size(); column++) {
+                    ScoringPlan plan = ScoringPlan.compile(configs.get(column));
+                    for (int row = 0; row < streams.size(); row++) {
+                        ConferenceStream stream = streams.get(row);
+                        double expected = plan.score(stream, cache.get(stream, Year.of(year)),
+                                PackedYearMonth.pack(evalYM));
+                        Assert.assertEquals(Double.doubleToRawLongBits(expected),
+                                Double.doubleToRawLongBits(matrix.get(row, column)));
+                    }
+                }
+            }
+        }
+    }
+
+    @Test
+    void testScoresOfColumn() {
+        List<ConferenceStream> streams = StreamFixtures.createStreams(new Random(17), 50);
+        EvaluationConfiguration config = new EvaluationConfiguration.Builder().useActivityScore().useLogScore()
+                .build();
+        YearMonth evalYM = YearMonth.of(2018, 5);
+        TemporalFeatureCache cache = new TemporalFeatureCache();
+        ScoreMatrix matrix = new MultiConfigScorer(Collections.singletonList(config), cache)
+                .score(streams, evalYM);
+
+        Map<ConferenceStream, Double> scores = matrix.getScores(0);
+        ScoreCalculator calculator = new ScoreCalculator(config, cache);
+        Assert.assertEquals(streams.size(), scores.size());
+        for (ConferenceStream stream : streams) {
+            Assert.assertEquals(calculator.getScore(stream, evalYM, null), scores.get(stream));
+        }
+    }
+}
@@ -0,0 +1,63 @@
+package de.th_koeln.iws.sh2.ranking.analysis;
+
+import java.time.YearMonth;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.TreeMap;
+
+import org.junit.Assert;
+import org.junit.jupiter.api.Test;
+
+import de.th_koeln.iws.sh2.ranking.analysis.data.ConferenceStream;
+import de.th_koeln.iws.sh2.ranking.analysis.data.util.EvaluationConfiguration;
+
+class ParallelScorerTest {
+
+    @Test
+    void testParallelMatchesSequential() {
+        List<ConferenceStream> streams = StreamFixtures.createStreams(new Random(19), 2000);
+        EvaluationConfiguration config = new EvaluationConfiguration.Builder().useActivityScore().useRatingScore()
+                .useLogScore().build();
+        YearMonth evalYM = YearMonth.of(2018, 8);
+
+        ScoreCalculator scorer = new ScoreCalculator(config);
+        Map<ConferenceStream, Double> expected = new TreeMap<>();
+        for (ConferenceStream conf : streams) {
+            expected.put(conf, scorer.getScore(conf, evalYM, null));
+        }
+
+        ParallelScorer parallel = new ParallelScorer(4);
+        Map<ConferenceStream, Double> actual = parallel.score(new ScoreCalculator(config), streams, evalYM);
+        Assert.assertEquals(expected, actual);
+        Assert.assertEquals(new ArrayList<>(expected.keySet()), new ArrayList<>(actual.keySet()));
+
+        List<EvaluationConfiguration> configs = StreamFixtures.allConfigurations();
+        MultiConfigScorer multiScorer = new MultiConfigScorer(configs, new TemporalFeatureCache());
+        ScoreMatrix sequentialMatrix = multiScorer.score(streams, evalYM);
+        ScoreMatrix parallelMatrix = multiScorer.score(streams, evalYM, parallel);
+        for (int column = 0; column < configs.size(); column++) {
+            for (int row = 0; row < streams.size(); row++) {
+                Assert.assertEquals(Double.doubleToRawLongBits(sequentialMatrix.get(row, column)),
+                        Double.doubleToRawLongBits(parallelMatrix.get(row, column)));
+            }
+        }
+        parallel.shutdown();
+    }
+
+    @Test
+    void testChunksCoverAllOrdinals() {
+        ParallelScorer parallel = new ParallelScorer(3);
+        int[] visits = new int[10 * ParallelScorer.CHUNK_SIZE + 17];
+        parallel.forEachChunk(visits.length, (from, to) -> {
+            for (int i = from; i < to; i++) {
+                visits[i]++;
+            }
+        });
+        for (int visit : visits) {
+            Assert.assertEquals(1, visit);
+        }
+        parallel.shutdown();
+    }
+}
@@ -0,0 +1,196 @@
+package de.th_koeln.iws.sh2.ranking.analysis;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.time.YearMonth;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+
+import org.junit.Assert;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import de.th_koeln.iws.sh2.ranking.analysis.data.ConferenceStream;
+import de.th_koeln.iws.sh2.ranking.analysis.data.util.EvaluationConfiguration;
+
+class RunCacheTest {
+
+    private Path directory;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        this.directory = Files.createTempDirectory("runcache");
+    }
+
+    @AfterEach
+    void tearDown() throws Exception {
+        try (Stream<Path> files = Files.walk(this.directory)) {
+            for (Path file : files.sorted(Comparator.reverseOrder()).collect(Collectors.toList())) {
+                Files.delete(file);
+            }
+        }
+    }
+
+    @Test
+    void testCellsAreAddressedByAllInputs() {
+        List<EvaluationConfiguration> configs = StreamFixtures.allConfigurations();
+        YearMonth evalYM = YearMonth.of(2018, 5);
+        Map<String, Double> measures = new LinkedHashMap<>();
+        measures.put("num_q", 1.0);
+        measures.put("map", 0.123456789);
+
+        RunCache cache = new RunCache(this.directory, "data", "code");
+        cache.put(configs.get(0), evalYM, new int[] { 2, 0, 1 }, measures);
+
+        RunCache.Cell cell = new RunCache(this.directory, "data", "code").get(configs.get(0), evalYM);
+        Assert.assertArrayEquals(new int[] { 2, 0, 1 }, cell.getRanking());
+        Assert.assertEquals(measures, cell.getMeasures());
+        Assert.assertEquals(new ArrayList<>(measures.keySet()), new ArrayList<>(cell.getMeasures().keySet()));
+
+        Assert.assertNull(cache.get(configs.get(1), evalYM));
+        Assert.assertNull(cache.get(configs.get(0), evalYM.plusMonths(1)));
+        Assert.assertNull(new RunCache(this.directory, "other data", "code").get(configs.get(0), evalYM));
+        Assert.assertNull(new RunCache(this.directory, "data", "other code").get(configs.get(0), evalYM));
+        Assert.assertEquals(0, cache.getHitCount());
+        Assert.assertEquals(2, cache.getMissCount());
+    }
+
+    @Test
+    void testCorruptCellIsMissing() throws IOException {
+        EvaluationConfiguration config = StreamFixtures.allConfigurations().get(0);
+        YearMonth evalYM = YearMonth.of(2018, 5);
+        RunCache cache = new RunCache(this.directory, "data", "code");
+        cache.put(config, evalYM, new int[] { 0, 1 }, new LinkedHashMap<>());
+
+        Path file;
+        try (Stream<Path> files = Files.walk(this.directory)) {
+            file = files.filter(Files::isRegularFile).findFirst().get();
+        }
+        byte[] bytes = Files.readAllBytes(file);
+        bytes[bytes.length - 1] ^= 0x1;
+        Files.write(file, bytes);
+        Assert.assertNull(cache.get(config, evalYM));
+
+        Files.write(file, new byte[] { 1, 2, 3 });
+        Assert.assertNull(cache.get(config, evalYM));
+    }
+
+    @Test
+    void testCodeVersionIsStable() {
+        Assert.assertEquals(RunCache.codeVersion(), RunCache.codeVersion());
+        Assert.assertEquals(64, RunCache.codeVersion().length());
+    }
+
+    @Test
+    void testCodeVersionCoversNestedClasses() throws Exception {
+        Path classes = Paths.get(RunCache.class.getProtectionDomain().getCodeSource().getLocation().toURI());
+        String analysis = RunCache.class.getPackage().getName().replace('.', '/');
+        Path copy = this.directory.resolve("classes");
+        List<Path> files;
+        try (Stream<Path> paths = Files.walk(classes.resolve(analysis))) {
+            files = paths.filter(Files::isRegularFile).collect(Collectors.toList());
+        }
+        for (Path file : files) {
+            Path target = copy.resolve(classes.relativize(file).toString());
+            Files.createDirectories(target.getParent());
+            Files.copy(file, target);
+        }
+        Assert.assertEquals(RunCache.codeVersion(), RunCache.codeVersion(copy));
+
+        // a jar of the same classes, with the entries in another order
+        Path jar = this.directory.resolve("classes.jar");
+        try (ZipOutputStream out = new ZipOutputStream(Files.newOutputStream(jar))) {
+            for (int i = files.size() - 1; i >= 0; i--) {
+                out.putNextEntry(new ZipEntry(classes.relativize(files.get(i)).toString().replace('\\', '/')));
+                out.write(Files.readAllBytes(files.get(i)));
+                out.closeEntry();
+            }
+        }
+        Assert.assertEquals(RunCache.codeVersion(), RunCache.codeVersion(jar));
+
+        Path nested = copy.resolve(analysis).resolve("ScoringPlan$Factor$3.class");
+        byte[] bytes = Files.readAllBytes(nested);
+        bytes[bytes.length - 1] ^= 0x1;
+        Files.write(nested, bytes);
+        Assert.assertNotEquals(RunCache.codeVersion(), RunCache.codeVersion(copy));
+    }
+
+    @Test
+    void testBacktestOnlyEvaluatesNewCells() {
+        List<ConferenceStream> streams = StreamFixtures.createStreams(new Random(14), 150);
+        List<EvaluationConfiguration> all = StreamFixtures.allConfigurations().subList(0, 5);
+        List<EvaluationConfiguration> first = all.subList(0, 4);
+        List<YearMonth> months = WalkForwardBacktest.months(YearMonth.of(2017, 11), YearMonth.of(2018, 3));
+
+        EvaluationResults uncached = run(streams, all, months, null, ConcurrentHashMap.newKeySet(), new ArrayList<>());
+
+        Set<String> ranked = ConcurrentHashMap.newKeySet();
+        RunCache cache = new RunCache(this.directory, "data", "code");
+        run(streams, first, months, cache, ranked, new ArrayList<>());
+        Assert.assertEquals(first.size() * months.size(), ranked.size());
+        Assert.assertEquals(0, cache.getHitCount());
+
+        // the cells of the configurations of the first run are taken from the cache
+        ranked.clear();
+        cache = new RunCache(this.directory, "data", "code");
+        List<List<int[]>> rankings = new ArrayList<>();
+        EvaluationResults results = run(streams, all, months, cache, ranked, rankings);
+        Assert.assertEquals(months.size(), ranked.size());
+        for (String cell : ranked) {
+            Assert.assertTrue(cell, cell.endsWith("/4"));
+        }
+        Assert.assertEquals(first.size() * months.size(), cache.getHitCount());
+        Assert.assertEquals(months.size(), cache.getMissCount());
+        for (List<int[]> monthRankings : rankings) {
+            for (int[] ranking : monthRankings) {
+                Assert.assertEquals(streams.size(), ranking.length);
+            }
+        }
+        for (int column = 0; column < all.size(); column++) {
+            Assert.assertEquals(uncached.getTable(column), results.getTable(column));
+        }
+
+        // nothing is scored again
+        ranked.clear();
+        cache = new RunCache(this.directory, "data", "code");
+        results = run(streams, all, months, cache, ranked, new ArrayList<>());
+        Assert.assertTrue(ranked.isEmpty());
+        Assert.assertEquals(all.size() * months.size(), cache.getHitCount());
+        for (int column = 0; column < all.size(); column++) {
+            Assert.assertEquals(uncached.getTable(column), results.getTable(column));
+        }
+    }
+
+    private static EvaluationResults run(List<ConferenceStream> streams, List<EvaluationConfiguration> configs,
+            List<YearMonth> months, RunCache cache, Set<String> ranked, List<List<int[]>> rankings) {
+        MultiConfigScorer scorer = new MultiConfigScorer(configs, new TemporalFeatureCache());
+        return new WalkForwardBacktest(streams).run(months, scorer, null, new EvaluationScheduler(2), cache,
+                new WalkForwardBacktest.StepListener() {
+                    @Override
+                    public void ranked(YearMonth evalYM, int column, Map<ConferenceStream, Double> scored,
+                            int[] ranking) {
+                        ranked.add(evalYM + "/" + column);
+                    }
+
+                    @Override
+                    public void evaluated(YearMonth evalYM, List<int[]> monthRankings) {
+                        synchronized (rankings) {
+                            rankings.add(monthRankings);
+                        }
+                    }
+                });
+    }
+}
@@ -0,0 +1,144 @@
+package de.th_koeln.iws.sh2.ranking.analysis;
+
+import static java.time.temporal.ChronoUnit.MONTHS;
+
+import java.time.Month;
+import java.time.Year;
+import java.time.YearMonth;
+import java.util.List;
+import java.util.Random;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.junit.Assert;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+
+import de.th_koeln.iws.sh2.ranking.analysis.TemporalFeatureCache.TemporalFeatures;
+import de.th_koeln.iws.sh2.ranking.analysis.data.ConferenceStream;
+import de.th_koeln.iws.sh2.ranking.analysis.data.util.EvaluationConfiguration;
+import de.th_koeln.iws.sh2.ranking.analysis.data.util.PackedYearMonth;
+
+class ScoringPlanTest {
+
+    private static Logger LOGGER = LogManager.getLogger(ScoringPlanTest.class);
+
+    @Test
+    void testPlanMatchesFlagChecks() {
+        Random random = new Random(3);
+        List<ConferenceStream> streams = StreamFixtures.createStreams(random, 200);
+        TemporalFeatureCache cache = new TemporalFeatureCache();
+
+        for (EvaluationConfiguration config : StreamFixtures.allConfigurations()) {
+            ScoringPlan plan = ScoringPlan.compile(config);
+            for (ConferenceStream stream : streams) {
+                for (int month = 1; month <= 12; month++) {
+                    YearMonth evalYM = YearMonth.of(2012 + random.nextInt(8), month);
+                    TemporalFeatures features = cache.get(stream, Year.of(evalYM.getYear()));
+                    double expected = flagCheckingScore(config, stream, features, evalYM);
+                    double actual = plan.score(stream, features, PackedYearMonth.pack(evalYM));
+                    Assert.assertEquals(config + " " + stream.getKey() + " " + evalYM,
+                            Double.doubleToRawLongBits(expected), Double.doubleToRawLongBits(actual));
+                }
+            }
+        }
+    }
+
+    @Test
+    void testDelayFactorTable() {
+        for (long delay = -2; delay < ScoringPlan.DELAY_TABLE_SIZE + 10; delay++) {
+            Assert.assertEquals(Double.doubleToRawLongBits(delayFactor(delay)),
+                    Double.doubleToRawLongBits(ScoringPlan.delayFactor(delay)));
+        }
+    }
+
+    /**
+     * Compares the plan with checking the configuration flags for every stream.
+     * Run with {@code mvn test -Dgroups=slow}.
+     */
+    @Test
+    @Tag("slow")
+    void benchmarkPlan() {
+        Random random = new Random(5);
+        List<ConferenceStream> streams = StreamFixtures.createStreams(random, 5000);
+        TemporalFeatureCache cache = new TemporalFeatureCache();
+        EvaluationConfiguration config = new EvaluationConfiguration.Builder().useActivityScore().useRatingScore()
+                .useIntlScore().useLogScore().build();
+        ScoringPlan plan = ScoringPlan.compile(config);
+        YearMonth evalYM = YearMonth.of(2018, Month.MAY);
+        int packedEvalYM = PackedYearMonth.pack(evalYM);
+        streams.forEach(stream -> cache.get(stream, Year.of(2018)));
+
+        long flagsBest = Long.MAX_VALUE;
+        long planBest = Long.MAX_VALUE;
+        double flagsSum = 0;
+        double planSum = 0;
+        for (int round = 0; round < 20; round++) {
+            long start = System.nanoTime();
+            for (ConferenceStream stream : streams) {
+                flagsSum += flagCheckingScore(config, stream, cache.get(stream, Year.of(2018)), evalYM);
+            }
+            flagsBest = Math.min(flagsBest, System.nanoTime() - start);
+
+            start = System.nanoTime();
+            for (ConferenceStream stream : streams) {
+                planSum += plan.score(stream, cache.get(stream, Year.of(2018)), packedEvalYM);
+            }
+            planBest = Math.min(planBest, System.nanoTime() - start);
+        }
+        LOGGER.info("Scored {} streams: flag checks {} µs, plan {} µs", streams.size(), flagsBest / 1000,
+                planBest / 1000);
+        Assert.assertEquals(flagsSum, planSum, 0.0);
+    }
+
+    /*
+     * the scoring as it was before the plan: all flags are checked and all
+     * factors are multiplied
+     */
+    private static double flagCheckingScore(EvaluationConfiguration config, ConferenceStream conf,
+            TemporalFeatures features, YearMonth evalYM) {
+        if (features.isEmpty())
+            return 0.0;
+        long medianDelay = features.getMedianDelay();
+        long medianInterval = features.getMedianInterval();
+        YearMonth lastYearMonth = features.getLatestEventYearMonth();
+        YearMonth expectedNextEntry = YearMonth.of(lastYearMonth.getYear(), features.getModeMonth().getValue())
+                .plusMonths(medianInterval).plusMonths(medianDelay);
+        if (evalYM.isBefore(expectedNextEntry))
+            return 0.0;
+
+        final double delayFactor = delayFactor(expectedNextEntry.until(evalYM, MONTHS));
+        double activityFactor = 1.0, ratingFactor = 1.0, intlFactor = 1.0, citeFactor = 1.0, prominenceFactor = 1.0,
+                sizeFactor = 1.0, affilFactor = 1.0, logFactor = 1.0;
+        if (config.isUseActivityScore()) {
+            final double intervalAge = lastYearMonth.until(evalYM, MONTHS) / (double) medianInterval;
+            activityFactor = 1 + 1d / (1d + (intervalAge * intervalAge));
+        }
+        if (config.isUseSizeScore() && null != conf.getAvgSize())
+            sizeFactor = 1 + conf.getAvgSize();
+        if (config.isUseRatingScore() && null != conf.getAvgRating())
+            ratingFactor = 1 + conf.getAvgRating();
+        if (config.isUseIntlScore() && null != conf.getIntlScore())
+            intlFactor = 1 + conf.getIntlScore();
+        if (config.isUseCitationScore() && null != conf.getCitationsScore())
+            citeFactor = 1 + conf.getCitationsScore();
+        if (config.isUsePromScore() && null != conf.getProminence())
+            prominenceFactor = 1 + conf.getProminence();
+        if (config.isUseAffilScore() && null != conf.getAffilScore())
+            affilFactor = 1 + conf.getAffilScore();
+        if (config.isUseLogScore()) {
+            double logScore = conf.getLogScore(evalYM.minusMonths(1));
+            if (!Double.isNaN(logScore))
+                logFactor = 1 + logScore;
+        }
+        return delayFactor * activityFactor * sizeFactor * ratingFactor * intlFactor * citeFactor * prominenceFactor
+                * affilFactor * logFactor;
+    }
+
+    private static double delayFactor(long delay) {
+        if (delay >= 0) {
+            return 1.0 + (1.0 / (1.0 + (Math.log1p(delay) / Math.log(2))));
+        }
+        return -1;
+    }
+}
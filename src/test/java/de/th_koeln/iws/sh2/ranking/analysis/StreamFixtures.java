@@ -0,0 +1,98 @@
+package de.th_koeln.iws.sh2.ranking.analysis;
+
+import java.time.LocalDate;
+import java.time.Year;
+import java.time.YearMonth;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+import de.th_koeln.iws.sh2.ranking.analysis.data.ConferenceRecord;
+import de.th_koeln.iws.sh2.ranking.analysis.data.ConferenceStream;
+import de.th_koeln.iws.sh2.ranking.analysis.data.Type;
+import de.th_koeln.iws.sh2.ranking.analysis.data.util.EvaluationConfiguration;
+
+/**
+ * Streams and configurations shared by the scoring and evaluation tests.
+ */
+public final class StreamFixtures {
+
+    private StreamFixtures() {
+    }
+
+    /**
+     * @return all 256 combinations of the scores of a configuration
+     */
+    public static List<EvaluationConfiguration> allConfigurations() {
+        List<EvaluationConfiguration> configs = new ArrayList<>();
+        for (int mask = 0; mask < 256; mask++) {
+            EvaluationConfiguration.Builder builder = new EvaluationConfiguration.Builder();
+            if ((mask & 1) != 0)
+                builder.useActivityScore();
+            if ((mask & 2) != 0)
+                builder.useSizeScore();
+            if ((mask & 4) != 0)
+                builder.useRatingScore();
+            if ((mask & 8) != 0)
+                builder.useIntlScore();
+            if ((mask & 16) != 0)
+                builder.useCitationScore();
+            if ((mask & 32) != 0)
+                builder.usePromScore();
+            if ((mask & 64) != 0)
+                builder.useAffilScore();
+            if ((mask & 128) != 0)
+                builder.useLogScore();
+            configs.add(builder.build());
+        }
+        return configs;
+    }
+
+    /**
+     * Create streams with irregular events and scores, some of them missing. The
+     * streams are returned in the order of their keys.
+     *
+     * @param random
+     *            source of the events and scores
+     * @param count
+     *            number of streams, at most 100000
+     * @return the streams
+     */
+    public static List<ConferenceStream> createStreams(Random random, int count) {
+        List<ConferenceStream> streams = new ArrayList<>();
+        for (int s = 0; s < count; s++) {
+            // keys in key order
+            String streamKey = String.format("conf/test%05d", s);
+            List<ConferenceRecord> records = new ArrayList<>();
+            YearMonth event = YearMonth.of(1995 + random.nextInt(15), 1 + random.nextInt(12));
+            int events = 1 + random.nextInt(10);
+            for (int e = 0; e < events; e++) {
+                int delay = random.nextInt(14);
+                LocalDate cDate = event.plusMonths(delay).atDay(1 + random.nextInt(28));
+                records.add(new ConferenceRecord(streamKey + "/" + e, streamKey, null, cDate,
+                        Year.of(event.getYear()), Type.PROCEEDINGS, event.getMonth(), Year.of(event.getYear()), null,
+                        delay));
+                event = event.plusMonths(6 + random.nextInt(24));
+            }
+            ConferenceStream stream = new ConferenceStream(streamKey, records);
+            stream.setSizeScore(random.nextDouble());
+            stream.setIntlScore(random.nextDouble());
+            stream.setCitScore(random.nextDouble());
+            stream.setPromScore(random.nextDouble());
+            if (random.nextBoolean())
+                stream.setRatingScore(random.nextDouble() * 4);
+            if (random.nextBoolean())
+                stream.setAffilScore(random.nextDouble());
+            Map<YearMonth, Double> logScores = new HashMap<>();
+            for (YearMonth ym = YearMonth.of(2011, 1); ym.isBefore(YearMonth.of(2020, 1)); ym = ym.plusMonths(1)) {
+                if (random.nextInt(3) > 0)
+                    logScores.put(ym, random.nextDouble());
+            }
+            stream.setLogScores(logScores);
+            streams.add(stream);
+        }
+        return streams;
+    }
+}
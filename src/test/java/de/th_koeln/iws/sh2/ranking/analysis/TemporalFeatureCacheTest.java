@@ -0,0 +1,87 @@
+package de.th_koeln.iws.sh2.ranking.analysis;
+
+import java.time.LocalDate;
+import java.time.Month;
+import java.time.Year;
+import java.time.YearMonth;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.Assert;
+import org.junit.jupiter.api.Test;
+
+import de.th_koeln.iws.sh2.ranking.analysis.TemporalFeatureCache.TemporalFeatures;
+import de.th_koeln.iws.sh2.ranking.analysis.data.ConferenceRecord;
+import de.th_koeln.iws.sh2.ranking.analysis.data.ConferenceStream;
+import de.th_koeln.iws.sh2.ranking.analysis.data.RecordView;
+import de.th_koeln.iws.sh2.ranking.analysis.data.Type;
+import de.th_koeln.iws.sh2.ranking.analysis.data.util.Calculator;
+import de.th_koeln.iws.sh2.ranking.analysis.data.util.EvaluationConfiguration;
+import de.th_koeln.iws.sh2.ranking.analysis.data.util.PackedYearMonth;
+
+class TemporalFeatureCacheTest {
+
+    @Test
+    void testFeaturesAndCounters() {
+        ConferenceStream stream = createStream("conf/test");
+        TemporalFeatureCache cache = new TemporalFeatureCache();
+
+        Assert.assertTrue(cache.get(stream, Year.of(2005)).isEmpty());
+
+        for (int year = 2006; year <= 2020; year++) {
+            RecordView view = stream.viewRecordsCreatedBefore(Year.of(year));
+            TemporalFeatures features = cache.get(stream, Year.of(year));
+            Assert.assertFalse(features.isEmpty());
+            Assert.assertEquals(Calculator.calcMedianDelay(view, TemporalFeatureCache.DEFAULT_SAMPLE_SIZE),
+                    features.getMedianDelay());
+            Assert.assertEquals(Calculator.calcModeMonth(view, TemporalFeatureCache.DEFAULT_SAMPLE_SIZE),
+                    features.getModeMonth());
+            Assert.assertEquals(Calculator.calcMedianInterval(view, TemporalFeatureCache.DEFAULT_SAMPLE_SIZE),
+                    features.getMedianInterval());
+            Assert.assertEquals(PackedYearMonth.unpack(view.getEvtYearMonth(view.getFirstRecordOfLatestEvent())),
+                    features.getLatestEventYearMonth());
+        }
+        Assert.assertEquals(0, cache.getHitCount());
+        Assert.assertEquals(16, cache.getMissCount());
+
+        // same cutoff, other stream object with the same key
+        Assert.assertSame(cache.get(stream, Year.of(2015)), cache.get(createStream("conf/test"), Year.of(2015)));
+        Assert.assertEquals(2, cache.getHitCount());
+        Assert.assertEquals(16, cache.size());
+
+        cache.get(createStream("conf/other"), Year.of(2015));
+        Assert.assertEquals(17, cache.getMissCount());
+
+        cache.clear();
+        Assert.assertEquals(0, cache.size());
+    }
+
+    @Test
+    void testScoresWithSharedCache() {
+        ConferenceStream stream = createStream("conf/test");
+        TemporalFeatureCache cache = new TemporalFeatureCache();
+        ScoreCalculator shared = new ScoreCalculator(new EvaluationConfiguration.Builder().useActivityScore().build(), cache);
+        ScoreCalculator own = new ScoreCalculator(new EvaluationConfiguration.Builder().useActivityScore().build());
+
+        for (Month month : Month.values()) {
+            YearMonth evalYM = YearMonth.of(2016, month);
+            Assert.assertEquals(own.getScore(stream, evalYM, null), shared.getScore(stream, evalYM, null));
+        }
+        Assert.assertEquals(1, cache.getMissCount());
+        Assert.assertEquals(11, cache.getHitCount());
+    }
+
+    /*
+     * yearly events in May, alternating delays of 2 and 4 months
+     */
+    private static ConferenceStream createStream(String streamKey) {
+        List<ConferenceRecord> records = new ArrayList<>();
+        for (int year = 2005; year <= 2019; year++) {
+            int delay = year % 2 == 0 ? 2 : 4;
+            LocalDate cDate = YearMonth.of(year, Month.MAY).plusMonths(delay).atDay(15);
+            records.add(new ConferenceRecord(streamKey + "/" + year, streamKey, null, cDate, Year.of(year),
+                    Type.PROCEEDINGS, Month.MAY, Year.of(year), null, delay));
+        }
+        return new ConferenceStream(streamKey, records);
+    }
+}
@@ -0,0 +1,108 @@
+package de.th_koeln.iws.sh2.ranking.analysis;
+
+import java.time.YearMonth;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Random;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.junit.Assert;
+import org.junit.jupiter.api.Test;
+
+import de.th_koeln.iws.sh2.ranking.analysis.data.ConferenceStream;
+import de.th_koeln.iws.sh2.ranking.analysis.data.util.Calculator;
+import de.th_koeln.iws.sh2.ranking.analysis.data.util.EvaluationConfiguration;
+import de.th_koeln.iws.sh2.ranking.analysis.evaluation.Goldstandard;
+import de.th_koeln.iws.sh2.ranking.analysis.evaluation.IndexRanker;
+import de.th_koeln.iws.sh2.ranking.analysis.evaluation.TrecEvaluator;
+
+class WalkForwardBacktestTest {
+
+    @Test
+    void testStateMatchesViewOfEachMonth() {
+        List<ConferenceStream> streams = StreamFixtures.createStreams(new Random(21), 300);
+        WalkForwardBacktest backtest = new WalkForwardBacktest(streams);
+        List<ConferenceStream> sorted = backtest.getStreams();
+
+        for (YearMonth evalYM : WalkForwardBacktest.months(YearMonth.of(2010, 1), YearMonth.of(2025, 12))) {
+            backtest.advanceTo(evalYM);
+            long[] delays = backtest.getDelays();
+            for (int ordinal = 0; ordinal < sorted.size(); ordinal++) {
+                ConferenceStream stream = sorted.get(ordinal);
+                Assert.assertEquals(stream.viewRecordsCreatedBefore(evalYM).size(),
+                        backtest.getKnownRecordCount(ordinal));
+                Optional<Long> delay = Calculator.calcMonthsSinceLastCreation(stream.viewRecordsCreatedBefore(evalYM),
+                        evalYM);
+                Assert.assertEquals(delay.orElse(IndexRanker.NO_DELAY).longValue(), delays[ordinal]);
+            }
+        }
+    }
+
+    @Test
+    void testCannotStepBack() {
+        WalkForwardBacktest backtest = new WalkForwardBacktest(StreamFixtures.createStreams(new Random(2), 5));
+        backtest.advanceTo(YearMonth.of(2015, 3));
+        backtest.advanceTo(YearMonth.of(2015, 3));
+        try {
+            backtest.advanceTo(YearMonth.of(2015, 2));
+            Assert.fail("Stepped back");
+        } catch (IllegalArgumentException e) {
+            // expected
+        }
+    }
+
+    @Test
+    void testSameResultsAsEvaluatingEachMonth() {
+        List<ConferenceStream> streams = StreamFixtures.createStreams(new Random(6), 200);
+        List<EvaluationConfiguration> configs = StreamFixtures.allConfigurations().subList(0, 6);
+        // across two turns of the year
+        List<YearMonth> months = WalkForwardBacktest.months(YearMonth.of(2016, 10), YearMonth.of(2018, 2));
+        MultiConfigScorer scorer = new MultiConfigScorer(configs, new TemporalFeatureCache());
+
+        Map<String, int[]> rankings = new ConcurrentHashMap<>();
+        Map<YearMonth, Integer> evaluated = new ConcurrentHashMap<>();
+        WalkForwardBacktest backtest = new WalkForwardBacktest(streams);
+        EvaluationResults results = backtest.run(months, scorer, null, new EvaluationScheduler(3),
+                new WalkForwardBacktest.StepListener() {
+                    @Override
+                    public void ranked(YearMonth evalYM, int column, Map<ConferenceStream, Double> scored,
+                            int[] ranking) {
+                        rankings.put(evalYM + "/" + column, ranking);
+                    }
+
+                    @Override
+                    public void evaluated(YearMonth evalYM, List<int[]> monthRankings) {
+                        for (int column = 0; column < configs.size(); column++) {
+                            Assert.assertSame(rankings.get(evalYM + "/" + column), monthRankings.get(column));
+                        }
+                        evaluated.put(evalYM, monthRankings.size());
+                    }
+                });
+        Assert.assertEquals(months.size(), evaluated.size());
+
+        List<ConferenceStream> sorted = backtest.getStreams();
+        for (YearMonth evalYM : months) {
+            Map<ConferenceStream, Integer> gold = Goldstandard.create(new HashSet<>(streams), evalYM);
+            Map<ConferenceStream, Long> delays = new HashMap<>();
+            for (ConferenceStream stream : streams) {
+                Calculator.calcMonthsSinceLastCreation(stream.viewRecordsCreatedBefore(evalYM), evalYM)
+                        .ifPresent(delay -> delays.put(stream, delay));
+            }
+            ScoreMatrix matrix = scorer.score(streams, evalYM);
+            for (int column = 0; column < configs.size(); column++) {
+                Map<ConferenceStream, Double> scored = matrix.getScores(column);
+                Assert.assertEquals(TrecEvaluator.evaluate(gold, scored), results.get(column, evalYM));
+
+                List<ConferenceStream> ranked = new ArrayList<>();
+                for (int ordinal : rankings.get(evalYM + "/" + column)) {
+                    ranked.add(sorted.get(ordinal));
+                }
+                Assert.assertEquals(IndexRanker.rank(scored, delays), ranked);
+            }
+        }
+    }
+}
@@ -0,0 +1,58 @@
+package de.th_koeln.iws.sh2.ranking.analysis.data;
+
+import java.time.LocalDate;
+import java.time.Month;
+import java.time.Year;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.Assert;
+import org.junit.jupiter.api.Test;
+
+class BatchTitleLoaderTest {
+
+    @Test
+    void testTitlesAreReadOnceForAllRecords() throws Exception {
+        AtomicInteger batches = new AtomicInteger();
+        BatchTitleLoader loader = new BatchTitleLoader(() -> {
+            batches.incrementAndGet();
+            Map<String, String> titles = new HashMap<>();
+            for (int r = 0; r < 1000; r++) {
+                titles.put("conf/test/" + r, "Proceedings " + r);
+            }
+            return titles;
+        });
+
+        StringDictionary strings = new StringDictionary();
+        int streamKeyId = strings.encode("conf/test");
+        List<ConferenceRecord> records = new ArrayList<>();
+        for (int r = 0; r < 1001; r++) {
+            records.add(new ConferenceRecord(strings, "conf/test/" + r, streamKeyId, LocalDate.of(2018, 1, 1),
+                    Year.of(2018), Type.PROCEEDINGS, Month.MARCH, Year.of(2018), StringDictionary.NULL_ID, 0,
+                    loader));
+        }
+
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+        try {
+            List<Future<String>> titles = new ArrayList<>();
+            for (int i = 0; i < 4; i++) {
+                for (ConferenceRecord record : records) {
+                    titles.add(executor.submit(record::getTitle));
+                }
+            }
+            for (int i = 0; i < titles.size(); i++) {
+                int r = i % records.size();
+                Assert.assertEquals((r < 1000) ? "Proceedings " + r : null, titles.get(i).get());
+            }
+        } finally {
+            executor.shutdown();
+        }
+        Assert.assertEquals(1, batches.get());
+    }
+}
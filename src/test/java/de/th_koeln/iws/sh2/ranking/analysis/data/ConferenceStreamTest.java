@@ -0,0 +1,201 @@
+package de.th_koeln.iws.sh2.ranking.analysis.data;
+
+import java.time.LocalDate;
+import java.time.Month;
+import java.time.Year;
+import java.time.YearMonth;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map.Entry;
+import java.util.Random;
+import java.util.function.Predicate;
+
+import org.junit.Assert;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import com.google.common.collect.TreeMultimap;
+
+import de.th_koeln.iws.sh2.ranking.analysis.data.util.PackedYearMonth;
+import de.th_koeln.iws.sh2.ranking.analysis.data.util.RecordByCDateComparator;
+
+class ConferenceStreamTest {
+
+    private List<ConferenceRecord> records;
+    private ConferenceStream stream;
+
+    @BeforeEach
+    void setUp() {
+        Random random = new Random(42);
+        this.records = new ArrayList<>();
+        for (int i = 0; i < 200; i++) {
+            int evtYear = 2000 + random.nextInt(20);
+            Month evtMonth = Month.of(1 + random.nextInt(12));
+            int delay = random.nextInt(30);
+            LocalDate cDate = LocalDate.of(evtYear, evtMonth, 1).plusMonths(delay).plusDays(random.nextInt(28));
+            this.records.add(new ConferenceRecord("conf/test/" + i, "conf/test", null, cDate, Year.of(evtYear),
+                    Type.PROCEEDINGS, evtMonth, Year.of(evtYear), "Germany", delay));
+        }
+        this.stream = new ConferenceStream("conf/test", this.records);
+    }
+
+    @Test
+    void testPackedYearMonth() {
+        YearMonth yearMonth = YearMonth.of(2017, Month.DECEMBER);
+        int packed = PackedYearMonth.pack(yearMonth);
+
+        Assert.assertEquals(yearMonth, PackedYearMonth.unpack(packed));
+        Assert.assertEquals(2017, PackedYearMonth.year(packed));
+        Assert.assertEquals(12, PackedYearMonth.month(packed));
+        Assert.assertEquals(1, PackedYearMonth.pack(YearMonth.of(2018, Month.JANUARY)) - packed);
+    }
+
+    @Test
+    void testRecordStoreIsSortedByCreationDate() {
+        RecordStore store = this.stream.getRecordStore();
+
+        Assert.assertEquals(this.records.size(), store.size());
+        for (int i = 1; i < store.size(); i++) {
+            Assert.assertTrue(store.getcDay(i - 1) <= store.getcDay(i));
+            Assert.assertEquals(store.getRecord(i).getcDate().toEpochDay(), store.getcDay(i));
+            Assert.assertEquals(store.getRecord(i).getEvtYearMonth(),
+                    PackedYearMonth.unpack(store.getEvtYearMonth(i)));
+            Assert.assertEquals(store.getRecord(i).getInsertDelayInMonths(), store.getInsertDelay(i));
+        }
+    }
+
+    @Test
+    void testEqualRecordsAreKeptOnce() {
+        ConferenceRecord record = this.records.get(0);
+        ConferenceRecord copy = new ConferenceRecord(record.getRecordKey(), "conf/test", null, record.getcDate(),
+                Year.of(2030), Type.PROCEEDINGS, Month.JANUARY, Year.of(2030), null, 0);
+        ConferenceRecord later = new ConferenceRecord(record.getRecordKey(), "conf/test", null,
+                record.getcDate().plusDays(1), Year.of(2030), Type.PROCEEDINGS, Month.JANUARY, Year.of(2030), null, 0);
+        List<ConferenceRecord> withCopies = new ArrayList<>(this.records);
+        withCopies.add(copy);
+        withCopies.add(record);
+        withCopies.add(later);
+
+        RecordStore store = new ConferenceStream("conf/test", withCopies).getRecordStore();
+        Assert.assertEquals(this.records.size() + 1, store.size());
+        Assert.assertTrue(store.asList().contains(record));
+        Assert.assertFalse(store.asList().contains(copy));
+        Assert.assertTrue(store.asList().contains(later));
+    }
+
+    @Test
+    void testEventOrderOfViews() {
+        RecordStore store = this.stream.getRecordStore();
+        Random random = new Random(7);
+        for (int run = 0; run < 50; run++) {
+            int from = random.nextInt(store.size());
+            int to = from + random.nextInt(store.size() - from + 1);
+            RecordView view = store.view(from, to);
+
+            List<Integer> expected = new ArrayList<>();
+            for (ConferenceRecord record : view.toMultimap(new RecordByCDateComparator()).values()) {
+                expected.add(store.asList().indexOf(record) - from);
+            }
+            List<Integer> visited = new ArrayList<>();
+            view.visitInEventOrder(index -> visited.add(index));
+            Assert.assertEquals(expected, visited);
+            Assert.assertEquals(expected.isEmpty() ? -1 : (int) expected.get(0), view.getFirstRecordOfLatestEvent());
+
+            int events = 1 + random.nextInt(4);
+            List<Integer> yearMonths = new ArrayList<>();
+            List<Integer> delays = new ArrayList<>();
+            for (int index : expected) {
+                int evtYearMonth = view.getEvtYearMonth(index);
+                if (yearMonths.isEmpty() || (yearMonths.get(yearMonths.size() - 1) != evtYearMonth)) {
+                    if (yearMonths.size() == events) {
+                        break;
+                    }
+                    yearMonths.add(evtYearMonth);
+                }
+                delays.add(view.getInsertDelay(index));
+            }
+            int[] latest = new int[events];
+            int count = view.getLatestEventYearMonths(latest);
+            Assert.assertEquals(yearMonths.size(), count);
+            for (int i = 0; i < count; i++) {
+                Assert.assertEquals((int) yearMonths.get(i), latest[i]);
+            }
+            int[] target = new int[2];
+            Assert.assertEquals(delays.size(), view.getLatestEventDelays(events, target));
+            for (int i = 0; i < Math.min(target.length, delays.size()); i++) {
+                Assert.assertEquals((int) delays.get(i), target[i]);
+            }
+        }
+    }
+
+    @Test
+    void testTemporalQueries() {
+        for (int year = 1999; year <= 2022; year++) {
+            Year y = Year.of(year);
+            YearMonth ym = YearMonth.of(year, 7);
+
+            assertSameRecords(r -> r.getEvtYear().isBefore(y), this.stream.getRecordsWithEventsBefore(y));
+            assertSameRecords(r -> r.getEvtYearMonth().isBefore(ym), this.stream.getRecordsWithEventsBefore(ym));
+            assertSameRecords(r -> Year.from(r.getcDate()).isBefore(y), this.stream.getRecordsCreatedBefore(y));
+            assertSameRecords(r -> !Year.from(r.getcDate()).isAfter(y),
+                    this.stream.getRecordsCreatedUntilIncludingYear(y));
+            assertSameRecords(r -> YearMonth.from(r.getcDate()).isBefore(ym),
+                    this.stream.getRecordsCreatedBefore(ym));
+            assertSameRecords(r -> r.getcDate().getYear() == y.getValue(), this.stream.getRecordsCreatedInYear(y));
+        }
+    }
+
+    @Test
+    void testAddRecords() {
+        ConferenceRecord known = this.records.get(0);
+        ConferenceRecord added = new ConferenceRecord("conf/test/new", "conf/test", null, LocalDate.of(2030, 3, 1),
+                Year.of(2020), Type.PROCEEDINGS, Month.DECEMBER, Year.of(2020), null, 3);
+        List<ConferenceRecord> newRecords = new ArrayList<>();
+        newRecords.add(known);
+        newRecords.add(added);
+
+        Assert.assertEquals(1, this.stream.addRecords(newRecords));
+        Assert.assertEquals(this.records.size() + 1, this.stream.getRecords().size());
+        Assert.assertSame(added, this.stream.getRecordStore().getRecord(this.records.size()));
+        Assert.assertTrue(this.stream.getRecordsByEventYear().get(Year.of(2020)).contains(added));
+
+        // a history row of a known key with another creation date is a record of its own
+        ConferenceRecord history = new ConferenceRecord(known.getRecordKey(), "conf/test", null,
+                known.getcDate().plusDays(1), known.getEvtYear(), Type.PROCEEDINGS, known.getEvtMonth(),
+                known.getEvtYear(), null, 0);
+        Assert.assertEquals(1, this.stream.addRecords(Collections.singletonList(history)));
+        Assert.assertEquals(this.records.size() + 2, this.stream.getRecords().size());
+        Assert.assertEquals(0, this.stream.addRecords(Collections.singletonList(history)));
+    }
+
+    @Test
+    void testLogScores() {
+        LogScoreMatrix matrix = new LogScoreMatrix.Builder(PackedYearMonth.pack(2018, 1), PackedYearMonth.pack(2018, 4))
+                .set("conf/test", PackedYearMonth.pack(2018, 1), 0.5)
+                .set("conf/test", PackedYearMonth.pack(2018, 4), 1.0)
+                .set("conf/other", PackedYearMonth.pack(2018, 2), 0.25).build();
+        this.stream.setLogScores(matrix, matrix.getRow("conf/test"));
+
+        Assert.assertEquals(0.5, this.stream.getLogScore(YearMonth.of(2018, 1)), 0.0);
+        Assert.assertEquals(1.0, this.stream.getLogScore(YearMonth.of(2018, 4)), 0.0);
+        Assert.assertTrue(Double.isNaN(this.stream.getLogScore(YearMonth.of(2018, 2))));
+        Assert.assertTrue(Double.isNaN(this.stream.getLogScore(YearMonth.of(2017, 12))));
+        Assert.assertTrue(Double.isNaN(this.stream.getLogScore(YearMonth.of(2018, 5))));
+        Assert.assertEquals(2, this.stream.getLogScores().size());
+
+        this.stream.setLogScores(matrix, matrix.getRow("conf/unknown"));
+        Assert.assertTrue(Double.isNaN(this.stream.getLogScore(YearMonth.of(2018, 1))));
+        Assert.assertTrue(this.stream.getLogScores().isEmpty());
+    }
+
+    private void assertSameRecords(Predicate<ConferenceRecord> expected,
+            TreeMultimap<YearMonth, ConferenceRecord> actual) {
+        long expectedCount = this.records.stream().filter(expected).count();
+        Assert.assertEquals(expectedCount, actual.size());
+        for (Entry<YearMonth, ConferenceRecord> entry : actual.entries()) {
+            Assert.assertTrue(expected.test(entry.getValue()));
+            Assert.assertEquals(entry.getValue().getEvtYearMonth(), entry.getKey());
+        }
+    }
+}
@@ -0,0 +1,135 @@
+package de.th_koeln.iws.sh2.ranking.analysis.data.util;
+
+import java.time.LocalDate;
+import java.time.Month;
+import java.time.Year;
+import java.time.YearMonth;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import org.junit.Assert;
+import org.junit.jupiter.api.Test;
+
+import com.google.common.collect.Ordering;
+import com.google.common.collect.TreeMultimap;
+import com.google.common.math.Quantiles;
+
+import de.th_koeln.iws.sh2.ranking.analysis.data.ConferenceRecord;
+import de.th_koeln.iws.sh2.ranking.analysis.data.ConferenceStream;
+import de.th_koeln.iws.sh2.ranking.analysis.data.RecordView;
+import de.th_koeln.iws.sh2.ranking.analysis.data.Type;
+
+class CalculatorTest {
+
+    private static final int SAMPLE_SIZE = 5;
+
+    @Test
+    void testViewsMatchMultimaps() {
+        Random random = new Random(7);
+        for (int s = 0; s < 300; s++) {
+            ConferenceStream stream = createStream(random, s);
+
+            for (int year = 2000; year <= 2022; year++) {
+                TreeMultimap<YearMonth, ConferenceRecord> multimap = stream.getRecordsCreatedBefore(Year.of(year));
+                RecordView view = stream.viewRecordsCreatedBefore(Year.of(year));
+                Assert.assertEquals(multimap.size(), view.size());
+                if (multimap.isEmpty()) {
+                    continue;
+                }
+
+                String message = stream.getKey() + " before " + year;
+                Assert.assertEquals(message, Calculator.calcMedianInterval(multimap, SAMPLE_SIZE),
+                        Calculator.calcMedianInterval(view, SAMPLE_SIZE));
+                Assert.assertEquals(message, Calculator.calcModeMonth(multimap, SAMPLE_SIZE),
+                        Calculator.calcModeMonth(view, SAMPLE_SIZE));
+                Assert.assertEquals(message, Calculator.calcMedianDelay(multimap, SAMPLE_SIZE),
+                        Calculator.calcMedianDelay(view, SAMPLE_SIZE));
+                Assert.assertEquals(message, multimap.keySet().first(), PackedYearMonth
+                        .unpack(view.getEvtYearMonth(view.getFirstRecordOfLatestEvent())));
+
+                YearMonth evalYM = YearMonth.of(year, 1 + random.nextInt(12));
+                Assert.assertEquals(message,
+                        Calculator.calcMonthsSinceLastCreation(stream.getRecordsCreatedBefore(evalYM), evalYM),
+                        Calculator.calcMonthsSinceLastCreation(stream.viewRecordsCreatedBefore(evalYM), evalYM));
+                Assert.assertEquals(message,
+                        Calculator.calcMonthsSinceLastCreation(stream.getRecordsCreatedInYear(Year.of(year)), evalYM),
+                        Calculator.calcMonthsSinceLastCreation(stream.viewRecordsCreatedInYear(Year.of(year)),
+                                evalYM));
+            }
+        }
+    }
+
+    @Test
+    void testPrimitiveKernels() {
+        Random random = new Random(11);
+        for (int n = 0; n < 10000; n++) {
+            int count = 1 + random.nextInt(9);
+            int[] values = new int[count + random.nextInt(3)];
+            List<Long> boxed = new ArrayList<>();
+            for (int i = 0; i < values.length; i++) {
+                values[i] = random.nextInt(60) - 20;
+                if (i < count) {
+                    boxed.add((long) values[i]);
+                }
+            }
+            Assert.assertEquals((int) Math.floor(Quantiles.median().compute(boxed)),
+                    Calculator.medianFloor(values, count));
+
+            // distinct year-months, latest first
+            TreeMultimap<YearMonth, ConferenceRecord> events = TreeMultimap.create(Ordering.natural().reverse(),
+                    Ordering.arbitrary());
+            int[] yearMonths = new int[count];
+            YearMonth event = YearMonth.of(2020, 1 + random.nextInt(12));
+            for (int i = 0; i < count; i++) {
+                yearMonths[i] = PackedYearMonth.pack(event);
+                events.put(event, new ConferenceRecord("r" + i, "s", null, event.atDay(1), Year.of(event.getYear()),
+                        Type.PROCEEDINGS, event.getMonth(), Year.of(event.getYear()), null, 0));
+                event = event.minusMonths(1 + random.nextInt(24));
+            }
+            Assert.assertEquals(Calculator.calcModeMonth(events, count).getValue(),
+                    Calculator.modeMonth(yearMonths, count));
+            Assert.assertEquals(Calculator.calcMedianInterval(events, count),
+                    Calculator.medianInterval(yearMonths, count));
+        }
+    }
+
+    @Test
+    void testMedianDelayOfLargeEvents() {
+        String streamKey = "conf/large";
+        List<ConferenceRecord> records = new ArrayList<>();
+        for (int n = 0; n < 100; n++) {
+            YearMonth event = YearMonth.of(2000 + n % 4, Month.JUNE);
+            records.add(new ConferenceRecord(streamKey + "/" + n, streamKey, null, event.plusMonths(n % 7).atDay(1),
+                    Year.of(event.getYear()), Type.PROCEEDINGS, event.getMonth(), Year.of(event.getYear()), null,
+                    n % 7));
+        }
+        ConferenceStream stream = new ConferenceStream(streamKey, records);
+        Assert.assertEquals(Calculator.calcMedianDelay(stream.getRecordsCreatedBefore(Year.of(2010)), SAMPLE_SIZE),
+                Calculator.calcMedianDelay(stream.viewRecordsCreatedBefore(Year.of(2010)), SAMPLE_SIZE));
+    }
+
+    /*
+     * streams with irregular intervals, several records per event and few
+     * distinct months, so that ties in the mode month occur
+     */
+    private static ConferenceStream createStream(Random random, int s) {
+        String streamKey = "conf/test" + s;
+        List<ConferenceRecord> records = new ArrayList<>();
+        int events = 1 + random.nextInt(12);
+        YearMonth event = YearMonth.of(1998 + random.nextInt(6), 1 + random.nextInt(12));
+        int n = 0;
+        for (int e = 0; e < events; e++) {
+            int recordsOfEvent = 1 + random.nextInt(3);
+            for (int r = 0; r < recordsOfEvent; r++) {
+                int delay = random.nextInt(20);
+                LocalDate cDate = event.plusMonths(delay).atDay(1 + random.nextInt(28));
+                records.add(new ConferenceRecord(streamKey + "/" + n++, streamKey, null, cDate,
+                        Year.of(event.getYear()), Type.PROCEEDINGS, event.getMonth(), Year.of(event.getYear()), null,
+                        delay));
+            }
+            event = event.plusMonths(6 + random.nextInt(3) * 6).withMonth(random.nextBoolean() ? 6 : 9);
+        }
+        return new ConferenceStream(streamKey, records);
+    }
+}
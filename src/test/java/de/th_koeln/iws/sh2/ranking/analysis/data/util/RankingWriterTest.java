@@ -0,0 +1,137 @@
+package de.th_koeln.iws.sh2.ranking.analysis.data.util;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+
+import org.junit.Assert;
+import org.junit.jupiter.api.Test;
+
+class RankingWriterTest {
+
+    @Test
+    void testBatchedUpsert() throws Exception {
+        Path file = Files.createTempFile("ranking", ".sqlite");
+        try (Connection conn = DriverManager.getConnection("jdbc:sqlite:" + file)) {
+            RankingWriter.createTableIfNotExists(conn);
+
+            try (RankingWriter writer = new RankingWriter(conn, 100, true, true)) {
+                for (int i = 0; i < 250; i++) {
+                    writer.add(row(i, 1.0));
+                }
+                Assert.assertEquals(200, writer.getWrittenCount());
+                writer.commit();
+            }
+            Assert.assertTrue(conn.getAutoCommit());
+            Assert.assertEquals(250, count(conn, "SELECT COUNT(*) FROM ranking"));
+            Assert.assertEquals(1, count(conn, "SELECT COUNT(*) FROM ranking WHERE rating IS NULL"));
+            try (Statement stmt = conn.createStatement(); ResultSet rs = stmt.executeQuery("PRAGMA journal_mode")) {
+                rs.next();
+                Assert.assertEquals("wal", rs.getString(1).toLowerCase());
+            }
+
+            // rerun replaces the rows
+            try (RankingWriter writer = new RankingWriter(conn)) {
+                for (int i = 0; i < 250; i += 2) {
+                    writer.add(row(i, 2.0));
+                }
+                writer.commit();
+            }
+            Assert.assertEquals(250, count(conn, "SELECT COUNT(*) FROM ranking"));
+            Assert.assertEquals(125, count(conn, "SELECT COUNT(*) FROM ranking WHERE score = 2.0"));
+        } finally {
+            Files.deleteIfExists(file);
+            Files.deleteIfExists(file.resolveSibling(file.getFileName() + "-wal"));
+            Files.deleteIfExists(file.resolveSibling(file.getFileName() + "-shm"));
+        }
+    }
+
+    @Test
+    void testFailedBatchIsRolledBack() throws Exception {
+        try (Connection conn = DriverManager.getConnection("jdbc:sqlite::memory:")) {
+            RankingWriter.createTableIfNotExists(conn);
+
+            RankingWriter writer = new RankingWriter(conn, 10, false, false);
+            writer.add(row(1, 1.0));
+            writer.add(row(1, 1.0));
+            try {
+                writer.commit();
+                Assert.fail("duplicate key must fail without upsert");
+            } catch (SQLException e) {
+                // expected
+            }
+            writer.close();
+            Assert.assertEquals(0, count(conn, "SELECT COUNT(*) FROM ranking"));
+        }
+    }
+
+    @Test
+    void testFailedAddIsRolledBackOnClose() throws Exception {
+        try (Connection conn = DriverManager.getConnection("jdbc:sqlite::memory:")) {
+            RankingWriter.createTableIfNotExists(conn);
+
+            RankingWriter writer = new RankingWriter(conn, 2, false, false);
+            writer.add(row(1, 1.0));
+            writer.add(row(2, 1.0));
+            Assert.assertEquals(2, writer.getWrittenCount());
+            writer.add(row(3, 1.0));
+            try {
+                // the second batch fails
+                writer.add(row(3, 1.0));
+                Assert.fail("duplicate key must fail without upsert");
+            } catch (SQLException e) {
+                // expected
+            }
+            try {
+                writer.add(row(4, 1.0));
+                Assert.fail("failed writer must refuse rows");
+            } catch (SQLException e) {
+                // expected
+            }
+            try {
+                writer.commit();
+                Assert.fail("failed writer must not commit");
+            } catch (SQLException e) {
+                // expected
+            }
+            writer.close();
+            Assert.assertTrue(conn.getAutoCommit());
+            Assert.assertEquals(0, count(conn, "SELECT COUNT(*) FROM ranking"));
+        }
+    }
+
+    @Test
+    void testUncommittedRowsAreRolledBackOnClose() throws Exception {
+        try (Connection conn = DriverManager.getConnection("jdbc:sqlite::memory:")) {
+            RankingWriter.createTableIfNotExists(conn);
+
+            try (RankingWriter writer = new RankingWriter(conn, 2, false, true)) {
+                for (int i = 0; i < 5; i++) {
+                    writer.add(row(i, 1.0));
+                }
+                // scoring fails before the writer is committed
+                throw new IllegalArgumentException("scoring failed");
+            } catch (IllegalArgumentException e) {
+                // expected
+            }
+            Assert.assertTrue(conn.getAutoCommit());
+            Assert.assertEquals(0, count(conn, "SELECT COUNT(*) FROM ranking"));
+        }
+    }
+
+    private static RankingWriter.Row row(int i, double score) {
+        return new RankingWriter.Row("conf/test" + i, score, 12, "MAY", 3, "2017-05", "2018-08", 0.5,
+                i == 0 ? null : 2.0, 0.1, 0.2, 0.3, null, 0.4);
+    }
+
+    private static int count(Connection conn, String query) throws SQLException {
+        try (Statement stmt = conn.createStatement(); ResultSet rs = stmt.executeQuery(query)) {
+            rs.next();
+            return rs.getInt(1);
+        }
+    }
+}
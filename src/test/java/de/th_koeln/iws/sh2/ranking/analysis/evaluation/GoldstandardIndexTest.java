@@ -0,0 +1,91 @@
+package de.th_koeln.iws.sh2.ranking.analysis.evaluation;
+
+import java.time.Year;
+import java.time.YearMonth;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Random;
+import java.util.Set;
+import java.util.TreeMap;
+
+import org.junit.Assert;
+import org.junit.jupiter.api.Test;
+
+import de.th_koeln.iws.sh2.ranking.analysis.StreamFixtures;
+import de.th_koeln.iws.sh2.ranking.analysis.data.ConferenceStream;
+import de.th_koeln.iws.sh2.ranking.analysis.data.util.Calculator;
+
+class GoldstandardIndexTest {
+
+	@Test
+	void testSameAsRelevanceOfEachStream() {
+		List<ConferenceStream> streams = StreamFixtures.createStreams(new Random(4), 300);
+		// a stream without records, after the others in key order
+		streams.add(new ConferenceStream("conf/unpublished"));
+		GoldstandardIndex index = GoldstandardIndex.create(new HashSet<>(streams), Year.of(2018));
+		Assert.assertEquals(streams, index.getStreams());
+
+		Set<Integer> levels = new HashSet<>();
+		for (int month = 1; month <= 12; month++) {
+			YearMonth evalYM = YearMonth.of(2018, month);
+			byte[] relevance = index.relevance(evalYM);
+			Map<ConferenceStream, Integer> gold = Goldstandard.create(new HashSet<>(streams), evalYM);
+			Assert.assertEquals(index.toMap(relevance), gold);
+			for (int ordinal = 0; ordinal < streams.size(); ordinal++) {
+				Assert.assertEquals(relevance(streams.get(ordinal), evalYM), relevance[ordinal]);
+				levels.add((int) relevance[ordinal]);
+			}
+		}
+		Assert.assertEquals(5, levels.size());
+	}
+
+	@Test
+	void testMonthOfAnotherYear() {
+		GoldstandardIndex index = GoldstandardIndex.create(StreamFixtures.createStreams(new Random(1), 3),
+				Year.of(2018));
+		try {
+			index.relevance(YearMonth.of(2019, 1));
+			Assert.fail("Month of another year accepted");
+		} catch (IllegalArgumentException e) {
+			// expected
+		}
+	}
+
+	@Test
+	void testSameMeasuresAsWithMaps() {
+		Random random = new Random(12);
+		List<ConferenceStream> streams = StreamFixtures.createStreams(random, 400);
+		GoldstandardIndex index = GoldstandardIndex.create(streams, Year.of(2018));
+		for (int month = 1; month <= 12; month++) {
+			YearMonth evalYM = YearMonth.of(2018, month);
+			byte[] relevance = index.relevance(evalYM);
+			Map<ConferenceStream, Double> scored = new TreeMap<>();
+			for (ConferenceStream stream : streams) {
+				// many ties, some only below the rounding of the run files
+				scored.put(stream, random.nextInt(5) + (random.nextBoolean() ? 0.0 : 1e-12));
+			}
+			Assert.assertEquals(TrecEvaluator.evaluate(index.toMap(relevance), scored),
+					TrecEvaluator.evaluate(relevance, scored));
+		}
+	}
+
+	/*
+	 * the relevance as defined on the multimap of the records created in the year
+	 */
+	private static int relevance(ConferenceStream stream, YearMonth evalYM) {
+		Optional<Long> months = Calculator
+				.calcMonthsSinceLastCreation(stream.getRecordsCreatedInYear(Year.of(evalYM.getYear())), evalYM);
+		if (!months.isPresent() || months.get() < 0) {
+			return 0;
+		}
+		if (months.get() == 0) {
+			return 4;
+		}
+		if (months.get() <= 2) {
+			return 3;
+		}
+		return months.get() <= 5 ? 2 : 1;
+	}
+}
@@ -0,0 +1,115 @@
+package de.th_koeln.iws.sh2.ranking.analysis.evaluation;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.TreeMap;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.junit.Assert;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+
+import de.th_koeln.iws.sh2.ranking.analysis.data.ConferenceStream;
+
+class IndexRankerTest {
+
+	private static Logger LOGGER = LogManager.getLogger(IndexRankerTest.class);
+
+	@Test
+	void testMatchesRelevanceRanker() {
+		Random random = new Random(29);
+		for (int size : new int[] { 0, 1, 31, 1000, IndexRanker.PARALLEL_THRESHOLD * 3 + 7 }) {
+			Map<ConferenceStream, Double> scores = new TreeMap<>();
+			Map<ConferenceStream, Long> delays = new HashMap<>();
+			createData(random, size, scores, delays);
+
+			List<ConferenceStream> expected = new ArrayList<>(scores.keySet());
+			Collections.sort(expected, new RelevanceRanker(scores, delays));
+			Assert.assertEquals(expected, IndexRanker.rank(scores, delays));
+		}
+	}
+
+	@Test
+	void testLargeDelaysAreTieBrokenByKey() {
+		// delays outside the Long cache used to be compared by reference
+		Map<ConferenceStream, Double> scores = new TreeMap<>();
+		Map<ConferenceStream, Long> delays = new HashMap<>();
+		for (String key : new String[] { "conf/c", "conf/a", "conf/b" }) {
+			ConferenceStream stream = new ConferenceStream(key);
+			scores.put(stream, 1.0);
+			delays.put(stream, Long.valueOf(1000));
+		}
+		List<ConferenceStream> ranked = IndexRanker.rank(scores, delays);
+		Assert.assertEquals("conf/a", ranked.get(0).getKey());
+		Assert.assertEquals("conf/c", ranked.get(2).getKey());
+
+		List<ConferenceStream> sorted = new ArrayList<>(scores.keySet());
+		Collections.reverse(sorted);
+		Collections.sort(sorted, new RelevanceRanker(scores, delays));
+		Assert.assertEquals(ranked, sorted);
+	}
+
+	@Test
+	void testTiesAreBrokenByKeyInAnyMap() {
+		Random random = new Random(37);
+		Map<ConferenceStream, Double> sorted = new TreeMap<>();
+		Map<ConferenceStream, Long> delays = new HashMap<>();
+		createData(random, 500, sorted, delays);
+		List<ConferenceStream> expected = IndexRanker.rank(sorted, delays);
+
+		Map<ConferenceStream, Double> hashed = new HashMap<>(sorted);
+		Assert.assertEquals(expected, IndexRanker.rank(hashed, delays));
+		Map<ConferenceStream, Double> reversed = new TreeMap<>(Collections.reverseOrder());
+		reversed.putAll(sorted);
+		Assert.assertEquals(expected, IndexRanker.rank(reversed, delays));
+	}
+
+	/**
+	 * Compares the index sort with sorting by the map-backed comparator. Run with
+	 * {@code mvn test -Dgroups=slow}.
+	 */
+	@Test
+	@Tag("slow")
+	void benchmarkRanking() {
+		Random random = new Random(31);
+		Map<ConferenceStream, Double> scores = new TreeMap<>();
+		Map<ConferenceStream, Long> delays = new HashMap<>();
+		createData(random, 200000, scores, delays);
+
+		long comparatorBest = Long.MAX_VALUE;
+		long indexBest = Long.MAX_VALUE;
+		for (int round = 0; round < 5; round++) {
+			long start = System.nanoTime();
+			List<ConferenceStream> expected = new ArrayList<>(scores.keySet());
+			Collections.sort(expected, new RelevanceRanker(scores, delays));
+			comparatorBest = Math.min(comparatorBest, System.nanoTime() - start);
+
+			start = System.nanoTime();
+			List<ConferenceStream> ranked = IndexRanker.rank(scores, delays);
+			indexBest = Math.min(indexBest, System.nanoTime() - start);
+			Assert.assertEquals(expected, ranked);
+		}
+		LOGGER.info("Ranked {} streams: comparator {} ms, index sort {} ms", scores.size(),
+				comparatorBest / 1000000, indexBest / 1000000);
+	}
+
+	/*
+	 * few distinct scores, so that delays and keys break ties; some streams
+	 * without delay
+	 */
+	private static void createData(Random random, int size, Map<ConferenceStream, Double> scores,
+			Map<ConferenceStream, Long> delays) {
+		for (int i = 0; i < size; i++) {
+			ConferenceStream stream = new ConferenceStream("conf/test" + random.nextInt(Integer.MAX_VALUE));
+			scores.put(stream, random.nextInt(3) == 0 ? 0.0 : random.nextInt(40) / 8.0);
+			if (random.nextInt(8) > 0) {
+				delays.put(stream, (long) random.nextInt(400));
+			}
+		}
+	}
+}
@@ -0,0 +1,154 @@
+package de.th_koeln.iws.sh2.ranking.analysis.evaluation;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import org.junit.Assert;
+import org.junit.jupiter.api.Test;
+
+class PairedSignificanceTest {
+
+	@Test
+	void testSameAsExactRandomizationTest() {
+		Random random = new Random(3);
+		PairedSignificance significance = new PairedSignificance(PairedSignificance.DEFAULT_RESAMPLES, 7,
+				PairedSignificance.DEFAULT_CONFIDENCE);
+		for (int run = 0; run < 5; run++) {
+			int n = 6 + random.nextInt(8);
+			double[] a = new double[n];
+			double[] b = new double[n];
+			for (int i = 0; i < n; i++) {
+				a[i] = random.nextDouble();
+				b[i] = a[i] + ((random.nextDouble() - 0.4) * 0.2);
+			}
+			PairedSignificance.Result result = significance.compare(a, b);
+			// no more sign flips than resamples, so all of them are counted
+			Assert.assertTrue(result.isExact());
+			Assert.assertEquals(n, result.getTopics());
+			Assert.assertEquals(exactPValue(a, b), result.getPValue(), 0.0);
+			Assert.assertTrue(result.getLower() <= result.getMeanDifference());
+			Assert.assertTrue(result.getMeanDifference() <= result.getUpper());
+		}
+	}
+
+	@Test
+	void testRandomSignFlipsOfManyTopics() {
+		Random random = new Random(5);
+		PairedSignificance significance = new PairedSignificance(20000, 7, PairedSignificance.DEFAULT_CONFIDENCE);
+		for (int run = 0; run < 3; run++) {
+			int n = 16;
+			double[] a = new double[n];
+			double[] b = new double[n];
+			for (int i = 0; i < n; i++) {
+				a[i] = random.nextDouble();
+				b[i] = a[i] + ((random.nextDouble() - 0.45) * 0.2);
+			}
+			PairedSignificance.Result result = significance.compare(a, b);
+			Assert.assertFalse(result.isExact());
+			Assert.assertEquals(exactPValue(a, b), result.getPValue(), 0.01);
+		}
+	}
+
+	@Test
+	void testBootstrapInterval() {
+		Random random = new Random(8);
+		int n = 200;
+		double[] a = new double[n];
+		double[] b = new double[n];
+		double sum = 0.0;
+		for (int i = 0; i < n; i++) {
+			a[i] = random.nextDouble();
+			b[i] = a[i] - 0.05 + (random.nextGaussian() * 0.1);
+			sum += a[i] - b[i];
+		}
+		double mean = sum / n;
+		double variance = 0.0;
+		for (int i = 0; i < n; i++) {
+			variance += Math.pow((a[i] - b[i]) - mean, 2);
+		}
+		double halfWidth = 1.96 * Math.sqrt(variance / (n - 1) / n);
+
+		PairedSignificance.Result result = new PairedSignificance(PairedSignificance.DEFAULT_RESAMPLES, 1,
+				PairedSignificance.DEFAULT_CONFIDENCE).compare(a, b);
+		Assert.assertEquals(mean, result.getMeanDifference(), 1e-12);
+		// the normal approximation holds for this many topics
+		Assert.assertEquals(mean - halfWidth, result.getLower(), halfWidth * 0.05);
+		Assert.assertEquals(mean + halfWidth, result.getUpper(), halfWidth * 0.05);
+		Assert.assertTrue(result.getPValue() < 0.001);
+	}
+
+	@Test
+	void testIdenticalValues() {
+		double[] a = { 0.1, 0.3, 0.2, 0.7 };
+		PairedSignificance.Result result = new PairedSignificance(5000, 1, 0.9).compare(a, a.clone());
+		Assert.assertEquals(1.0, result.getPValue(), 0.0);
+		Assert.assertEquals(0.0, result.getLower(), 0.0);
+		Assert.assertEquals(0.0, result.getUpper(), 0.0);
+	}
+
+	@Test
+	void testDeterministic() {
+		Random random = new Random(11);
+		List<double[]> values = new ArrayList<>();
+		for (int c = 0; c < 4; c++) {
+			double[] v = new double[100];
+			for (int i = 0; i < v.length; i++) {
+				v[i] = random.nextDouble();
+			}
+			values.add(v);
+		}
+		PairedSignificance significance = new PairedSignificance(30000, 5, PairedSignificance.DEFAULT_CONFIDENCE);
+		PairedSignificance.Result[][] first = significance.compareAll(values);
+		PairedSignificance.Result[][] second = new PairedSignificance(30000, 5, PairedSignificance.DEFAULT_CONFIDENCE)
+				.compareAll(values);
+		for (int i = 0; i < values.size(); i++) {
+			for (int j = 0; j < values.size(); j++) {
+				if (j <= i) {
+					Assert.assertNull(first[i][j]);
+					continue;
+				}
+				Assert.assertEquals(first[i][j].toString(), second[i][j].toString());
+				Assert.assertEquals(first[i][j].getPValue(), second[i][j].getPValue(), 0.0);
+				Assert.assertEquals(first[i][j].getLower(), second[i][j].getLower(), 0.0);
+				Assert.assertEquals(first[i][j].getUpper(), second[i][j].getUpper(), 0.0);
+			}
+		}
+		// another seed draws other resamples
+		PairedSignificance.Result other = new PairedSignificance(30000, 6, PairedSignificance.DEFAULT_CONFIDENCE)
+				.compare(values.get(0), values.get(1));
+		Assert.assertNotEquals(significance.compare(values.get(0), values.get(1)).getLower(), other.getLower(), 0.0);
+	}
+
+	@Test
+	void testValuesOfDifferentTopics() {
+		try {
+			new PairedSignificance(10, 1, 0.95).compare(new double[3], new double[4]);
+			Assert.fail("Values of different topics accepted");
+		} catch (IllegalArgumentException e) {
+			// expected
+		}
+	}
+
+	/*
+	 * the p-value of all 2^n sign flips
+	 */
+	private static double exactPValue(double[] a, double[] b) {
+		int n = a.length;
+		double observed = 0.0;
+		for (int i = 0; i < n; i++) {
+			observed += a[i] - b[i];
+		}
+		int extreme = 0;
+		for (int flips = 0; flips < (1 << n); flips++) {
+			double sum = 0.0;
+			for (int i = 0; i < n; i++) {
+				sum += ((flips >>> i) & 1) == 0 ? a[i] - b[i] : b[i] - a[i];
+			}
+			if (Math.abs(sum) >= Math.abs(observed) - 1e-12) {
+				extreme++;
+			}
+		}
+		return (double) extreme / (1 << n);
+	}
+}
@@ -0,0 +1,136 @@
+package de.th_koeln.iws.sh2.ranking.analysis.evaluation;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+
+import org.junit.Assert;
+import org.junit.jupiter.api.Test;
+
+class RankBiasedOverlapTest {
+
+	private static final List<RankBiasedOverlap.Setting> SETTINGS = RankBiasedOverlap.Setting
+			.parseAll("0.9984:500, 0.973:30,0.992:100,0.996:200");
+
+	@Test
+	void testSameAsDefinition() {
+		Random random = new Random(5);
+		RankBiasedOverlap rbo = new RankBiasedOverlap(SETTINGS);
+		for (int run = 0; run < 50; run++) {
+			int size = 1 + random.nextInt(700);
+			int[] s = shuffled(size, random);
+			int[] t = random.nextBoolean() ? shuffled(size, random) : swapped(s, random);
+
+			double[] values = rbo.rboExt(s, t);
+			for (int k = 0; k < SETTINGS.size(); k++) {
+				RankBiasedOverlap.Setting setting = SETTINGS.get(k);
+				Assert.assertEquals(rboExt(s, t, setting.getP(), setting.getDepth()), values[k], 1e-12);
+				// a calculator for one setting gives the same value
+				Assert.assertEquals(values[k],
+						new RankBiasedOverlap(Collections.singletonList(setting)).rboExt(s, t)[0], 0.0);
+			}
+		}
+	}
+
+	@Test
+	void testIdenticalAndDisjointRankings() {
+		RankBiasedOverlap rbo = new RankBiasedOverlap(SETTINGS);
+		int[] s = shuffled(300, new Random(1));
+		for (double value : rbo.rboExt(s, s.clone())) {
+			Assert.assertEquals(1.0, value, 1e-12);
+		}
+		int[] t = new int[s.length];
+		for (int d = 0; d < s.length; d++) {
+			t[d] = s[d] + s.length;
+		}
+		for (double value : rbo.rboExt(s, t)) {
+			Assert.assertEquals(0.0, value, 0.0);
+		}
+	}
+
+	@Test
+	void testMatrix() {
+		Random random = new Random(9);
+		List<int[]> rankings = new ArrayList<>();
+		for (int i = 0; i < 6; i++) {
+			rankings.add(shuffled(250, random));
+		}
+		RankBiasedOverlap rbo = new RankBiasedOverlap(SETTINGS);
+		double[][][] matrix = rbo.matrix(rankings);
+		for (int k = 0; k < SETTINGS.size(); k++) {
+			RankBiasedOverlap.Setting setting = SETTINGS.get(k);
+			for (int i = 0; i < rankings.size(); i++) {
+				Assert.assertEquals(1.0, matrix[k][i][i], 0.0);
+				for (int j = 0; j < rankings.size(); j++) {
+					Assert.assertEquals(matrix[k][i][j], matrix[k][j][i], 0.0);
+					if (i != j) {
+						Assert.assertEquals(
+								rboExt(rankings.get(i), rankings.get(j), setting.getP(), setting.getDepth()),
+								matrix[k][i][j], 1e-12);
+					}
+				}
+			}
+		}
+	}
+
+	@Test
+	void testInvalidSettings() {
+		for (String settings : new String[] { "1.0:10", "0.9:0", "0.9", "0.9:10:1" }) {
+			try {
+				RankBiasedOverlap.Setting.parseAll(settings);
+				Assert.fail("Accepted " + settings);
+			} catch (IllegalArgumentException e) {
+				// expected
+			}
+		}
+	}
+
+	/*
+	 * the definition, with the overlap of each prefix counted on sets
+	 */
+	private static double rboExt(int[] s, int[] t, double p, int depth) {
+		int k = Math.min(depth, Math.min(s.length, t.length));
+		Set<Integer> seenS = new HashSet<>();
+		Set<Integer> seenT = new HashSet<>();
+		double sum = 0.0;
+		double agreement = 0.0;
+		for (int d = 1; d <= k; d++) {
+			seenS.add(s[d - 1]);
+			seenT.add(t[d - 1]);
+			Set<Integer> overlap = new HashSet<>(seenS);
+			overlap.retainAll(seenT);
+			agreement = (double) overlap.size() / d;
+			sum += agreement * Math.pow(p, d);
+		}
+		return (agreement * Math.pow(p, k)) + (((1 - p) / p) * sum);
+	}
+
+	private static int[] shuffled(int size, Random random) {
+		List<Integer> items = new ArrayList<>();
+		for (int i = 0; i < size; i++) {
+			items.add(i);
+		}
+		Collections.shuffle(items, random);
+		int[] ranking = new int[size];
+		for (int i = 0; i < size; i++) {
+			ranking[i] = items.get(i);
+		}
+		return ranking;
+	}
+
+	// a ranking close to the given one
+	private static int[] swapped(int[] ranking, Random random) {
+		int[] result = ranking.clone();
+		for (int swap = 0; swap < ranking.length / 10; swap++) {
+			int i = random.nextInt(result.length);
+			int j = Math.min(result.length - 1, i + random.nextInt(20));
+			int item = result[i];
+			result[i] = result[j];
+			result[j] = item;
+		}
+		return result;
+	}
+}
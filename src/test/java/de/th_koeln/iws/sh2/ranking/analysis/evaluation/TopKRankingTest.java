@@ -0,0 +1,75 @@
+package de.th_koeln.iws.sh2.ranking.analysis.evaluation;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+import org.junit.Assert;
+import org.junit.jupiter.api.Test;
+
+import de.th_koeln.iws.sh2.ranking.analysis.data.ConferenceStream;
+
+class TopKRankingTest {
+
+	@Test
+	void testTopKMatchesFullSort() {
+		Random random = new Random(23);
+		List<ConferenceStream> streams = new ArrayList<>();
+		Map<ConferenceStream, Double> scores = new HashMap<>();
+		Map<ConferenceStream, Long> delays = new HashMap<>();
+		for (int i = 0; i < 3000; i++) {
+			ConferenceStream stream = new ConferenceStream("conf/test" + i);
+			streams.add(stream);
+			// few distinct values, so that ties are broken by delay and key
+			scores.put(stream, random.nextInt(4) == 0 ? 0.0 : random.nextInt(20) / 4.0);
+			if (random.nextInt(10) > 0) {
+				delays.put(stream, (long) random.nextInt(300));
+			}
+		}
+
+		List<ConferenceStream> expected = new ArrayList<>();
+		for (ConferenceStream stream : streams) {
+			if (scores.get(stream) != 0.0) {
+				expected.add(stream);
+			}
+		}
+		Collections.sort(expected, intendedOrder(scores, delays));
+
+		for (int k : new int[] { 1, 10, 500, 5000 }) {
+			TopKRanking ranking = new TopKRanking(k);
+			// rank in two halves and merge them
+			TopKRanking other = new TopKRanking(k);
+			for (int i = 0; i < streams.size(); i++) {
+				ConferenceStream stream = streams.get(i);
+				(i % 2 == 0 ? ranking : other).offer(stream, scores.get(stream), delays.get(stream));
+			}
+			ranking.merge(other);
+
+			List<ConferenceStream> top = expected.subList(0, Math.min(k, expected.size()));
+			Assert.assertEquals(top, ranking.getRanked());
+			Assert.assertEquals(top, new ArrayList<>(ranking.getScores().keySet()));
+		}
+	}
+
+	@Test
+	void testZeroScoresAreSkipped() {
+		TopKRanking ranking = new TopKRanking(5);
+		Assert.assertFalse(ranking.offer(new ConferenceStream("conf/a"), 0.0, 3L));
+		Assert.assertTrue(ranking.offer(new ConferenceStream("conf/b"), 1.5, null));
+		Assert.assertEquals(1, ranking.size());
+	}
+
+	/*
+	 * score descending, streams without delay first, delay ascending, key
+	 */
+	private static Comparator<ConferenceStream> intendedOrder(Map<ConferenceStream, Double> scores,
+			Map<ConferenceStream, Long> delays) {
+		return Comparator.comparing((ConferenceStream s) -> scores.get(s), Comparator.reverseOrder())
+				.thenComparing(s -> delays.get(s), Comparator.nullsFirst(Comparator.naturalOrder()))
+				.thenComparing(ConferenceStream::getKey);
+	}
+}
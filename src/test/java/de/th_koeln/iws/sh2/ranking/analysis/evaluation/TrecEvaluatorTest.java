@@ -0,0 +1,100 @@
+package de.th_koeln.iws.sh2.ranking.analysis.evaluation;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+import org.junit.Assert;
+import org.junit.jupiter.api.Test;
+
+import de.th_koeln.iws.sh2.ranking.analysis.data.ConferenceStream;
+
+/**
+ * Compares the measures with the output of {@code trec_eval -m all_trec} (9.0.4)
+ * on the qrels and run files in {@code src/test/resources/trec}.
+ */
+class TrecEvaluatorTest {
+
+	@Test
+	void testJudgedRun() throws IOException {
+		assertSameAsTrecEval("judged");
+	}
+
+	@Test
+	void testUnjudgedAndTiedDocuments() throws IOException {
+		// run file ranks are not in score order, some documents are not in the qrels
+		assertSameAsTrecEval("unjudged");
+	}
+
+	@Test
+	void testNoRelevantDocuments() throws IOException {
+		assertSameAsTrecEval("nonrelevant");
+	}
+
+	@Test
+	void testScoresAreRoundedLikeInTheRunFile() {
+		Map<ConferenceStream, Integer> gold = new TreeMap<>();
+		Map<ConferenceStream, Double> scored = new TreeMap<>();
+		ConferenceStream a = new ConferenceStream("conf/a");
+		ConferenceStream b = new ConferenceStream("conf/b");
+		gold.put(a, 1);
+		gold.put(b, 0);
+		// tied in the run file, so ranked by descending key
+		scored.put(a, 0.50000000001);
+		scored.put(b, 0.5);
+
+		Map<String, Double> measures = TrecEvaluator.evaluate(gold, scored);
+		Assert.assertEquals(0.5, measures.get("recip_rank"), 0.0);
+		Assert.assertEquals(1.0, measures.get("num_rel_ret"), 0.0);
+	}
+
+	@Test
+	void testToPrinted() {
+		Assert.assertEquals("37", TrecEvaluator.toPrinted("num_rel", 37).toPlainString());
+		Assert.assertEquals("0.6667", TrecEvaluator.toPrinted("P_5", 2.0 / 3).toPlainString());
+		Assert.assertEquals("-2.0000", TrecEvaluator.toPrinted("utility", -2).toPlainString());
+	}
+
+	private static void assertSameAsTrecEval(String name) throws IOException {
+		Map<String, Integer> qrels = new HashMap<>();
+		for (String[] columns : read(name + ".qrel")) {
+			qrels.put(columns[2], Integer.parseInt(columns[3]));
+		}
+		Map<String, Double> run = new HashMap<>();
+		for (String[] columns : read(name + ".trec")) {
+			run.put(columns[2], Double.parseDouble(columns[4]));
+		}
+		Map<String, String> expected = new LinkedHashMap<>();
+		for (String[] columns : read(name + ".eval")) {
+			if (!"runid".equals(columns[0].trim())) {
+				expected.put(columns[0].trim(), columns[2].trim());
+			}
+		}
+
+		Map<String, Double> measures = TrecEvaluator.evaluateRun(qrels, run);
+		Assert.assertEquals(new ArrayList<>(expected.keySet()), new ArrayList<>(measures.keySet()));
+		for (Map.Entry<String, Double> entry : measures.entrySet()) {
+			Assert.assertEquals(name + ": " + entry.getKey(), expected.get(entry.getKey()),
+					TrecEvaluator.toPrinted(entry.getKey(), entry.getValue()).toPlainString());
+		}
+	}
+
+	private static List<String[]> read(String resource) throws IOException {
+		List<String[]> lines = new ArrayList<>();
+		try (BufferedReader reader = new BufferedReader(new InputStreamReader(
+				TrecEvaluatorTest.class.getResourceAsStream("/trec/" + resource), StandardCharsets.UTF_8))) {
+			String line;
+			while ((line = reader.readLine()) != null) {
+				lines.add(line.split("\t"));
+			}
+		}
+		return lines;
+	}
+}
@@ -0,0 +1,113 @@
+package de.th_koeln.iws.sh2.ranking.core;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+
+import org.junit.Assert;
+import org.junit.jupiter.api.Test;
+
+class BinaryCopyReaderTest {
+
+    @Test
+    void testReadRows() throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        DataOutputStream out = new DataOutputStream(bytes);
+        writeHeader(out);
+
+        out.writeShort(5);
+        writeText(out, "conf/first");
+        out.writeInt(4);
+        out.writeInt(6544); // 2017-12-01
+        out.writeInt(4);
+        out.writeInt(2017);
+        out.writeInt(8);
+        out.writeDouble(0.25);
+        out.writeInt(8);
+        out.writeLong(42L);
+
+        out.writeShort(5);
+        out.writeInt(-1);
+        out.writeInt(-1);
+        out.writeInt(-1);
+        out.writeInt(-1);
+        writeText(out, "skipped");
+
+        // NaN is a value, not NULL
+        out.writeShort(1);
+        out.writeInt(8);
+        out.writeDouble(Double.NaN);
+
+        out.writeShort(-1);
+
+        try (BinaryCopyReader reader = new BinaryCopyReader(new ByteArrayInputStream(bytes.toByteArray()))) {
+            Assert.assertTrue(reader.nextRow());
+            Assert.assertEquals("conf/first", reader.readText());
+            Assert.assertEquals(LocalDate.of(2017, 12, 1), reader.readDate());
+            Assert.assertEquals(2017, reader.readInt());
+            Assert.assertEquals(0.25, reader.readDouble(), 0.0);
+            Assert.assertFalse(reader.wasNull());
+            Assert.assertEquals(42L, reader.readLong());
+
+            Assert.assertTrue(reader.nextRow());
+            Assert.assertNull(reader.readText());
+            Assert.assertNull(reader.readDate());
+            Assert.assertEquals(0, reader.readInt());
+            Assert.assertTrue(reader.wasNull());
+            Assert.assertEquals(0.0, reader.readDouble(), 0.0);
+            Assert.assertTrue(reader.wasNull());
+
+            Assert.assertTrue(reader.nextRow());
+            Assert.assertTrue(Double.isNaN(reader.readDouble()));
+            Assert.assertFalse(reader.wasNull());
+
+            Assert.assertFalse(reader.nextRow());
+        }
+    }
+
+    @Test
+    void testWrongFieldLength() throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        DataOutputStream out = new DataOutputStream(bytes);
+        writeHeader(out);
+        out.writeShort(1);
+        out.writeInt(2);
+        out.writeShort(7);
+        out.writeShort(-1);
+
+        try (BinaryCopyReader reader = new BinaryCopyReader(new ByteArrayInputStream(bytes.toByteArray()))) {
+            Assert.assertTrue(reader.nextRow());
+            try {
+                reader.readInt();
+                Assert.fail("int2 field must not be read as int4");
+            } catch (IOException e) {
+                // expected
+            }
+        }
+    }
+
+    @Test
+    void testMissingSignature() {
+        try {
+            new BinaryCopyReader(new ByteArrayInputStream("conf/first\t2017\n".getBytes(StandardCharsets.UTF_8)));
+            Assert.fail("text copy data must be rejected");
+        } catch (IOException e) {
+            // expected
+        }
+    }
+
+    private static void writeHeader(DataOutputStream out) throws IOException {
+        out.write(new byte[] { 'P', 'G', 'C', 'O', 'P', 'Y', '\n', (byte) 0xFF, '\r', '\n', 0 });
+        out.writeInt(0);
+        out.writeInt(0);
+    }
+
+    private static void writeText(DataOutputStream out, String value) throws IOException {
+        byte[] text = value.getBytes(StandardCharsets.UTF_8);
+        out.writeInt(text.length);
+        out.write(text);
+    }
+}
@@ -0,0 +1,69 @@
+package de.th_koeln.iws.sh2.ranking.core;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.Set;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.junit.Assert;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+
+import com.google.common.collect.Multimap;
+
+import de.th_koeln.iws.sh2.ranking.analysis.data.ConferenceRecord;
+
+/**
+ * Compares the ingest of the records through JDBC result sets with the ingest
+ * through binary copy. Needs a database, so it is excluded from the default
+ * build; run with {@code mvn test -Dgroups=slow}.
+ */
+@Tag("slow")
+class CopyIngestBenchmarkTest {
+
+    private static Logger LOGGER = LogManager.getLogger(CopyIngestBenchmarkTest.class);
+
+    private static final int ROUNDS = 3;
+
+    @Test
+    void benchmarkRecordIngest() {
+        DbDataReader jdbcReader = new DbDataReader(DatabaseManager.getInstance());
+        DbDataReader copyReader = new DbDataReader(DatabaseManager.getInstance());
+        copyReader.setCopyIngest(true);
+
+        Multimap<String, ConferenceRecord> jdbcRecords = null;
+        Multimap<String, ConferenceRecord> copyRecords = null;
+        Duration jdbcBest = null;
+        Duration copyBest = null;
+        for (int round = 0; round < ROUNDS; round++) {
+            Instant start = Instant.now();
+            jdbcRecords = jdbcReader.readRecords();
+            jdbcBest = min(jdbcBest, Duration.between(start, Instant.now()));
+
+            start = Instant.now();
+            copyRecords = copyReader.readRecords();
+            copyBest = min(copyBest, Duration.between(start, Instant.now()));
+        }
+        LOGGER.info("Read {} records: JDBC {}, COPY {}", jdbcRecords.size(), jdbcBest, copyBest);
+
+        Assert.assertEquals(jdbcRecords.keySet(), copyRecords.keySet());
+        for (String streamKey : jdbcRecords.keySet()) {
+            Assert.assertEquals(toStrings(jdbcRecords.get(streamKey)), toStrings(copyRecords.get(streamKey)));
+        }
+    }
+
+    private static Duration min(Duration best, Duration current) {
+        return (null == best || current.compareTo(best) < 0) ? current : best;
+    }
+
+    private static Set<String> toStrings(Collection<ConferenceRecord> records) {
+        Set<String> strings = new HashSet<>();
+        // titles are loaded lazily, so they are not compared
+        records.forEach(record -> strings.add(record.toString() + record.getType() + record.getYear()
+                + record.getEvtPlace()));
+        return strings;
+    }
+}
@@ -0,0 +1,123 @@
+package de.th_koeln.iws.sh2.ranking.core;
+
+import java.time.LocalDate;
+import java.time.Month;
+import java.time.Period;
+import java.time.Year;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import org.junit.Assert;
+import org.junit.jupiter.api.Test;
+
+import com.google.common.collect.Multimap;
+import com.google.common.collect.MultimapBuilder;
+
+import de.th_koeln.iws.sh2.ranking.analysis.data.ConferenceRecord;
+import de.th_koeln.iws.sh2.ranking.analysis.data.ConferenceStream;
+import de.th_koeln.iws.sh2.ranking.analysis.data.Type;
+
+class IncrementalDataReaderTest {
+
+    private static final String STREAM_KEY = "conf/test";
+    private static final LocalDate C_DATE = LocalDate.of(2018, 6, 1);
+
+    @Test
+    void testLateRecordOfSameDayIsPickedUp() {
+        FakeDatabase database = new FakeDatabase();
+        database.commit("conf/test/2", C_DATE);
+        IncrementalDataReader reader = new IncrementalDataReader(database, null, Period.ZERO);
+        Assert.assertEquals(1, records(reader).size());
+
+        // committed after the load, with the same creation date and a smaller key
+        database.commit("conf/test/1", C_DATE);
+        database.commit("conf/test/3", C_DATE.plusDays(1));
+        Assert.assertEquals(2, reader.refresh());
+        Assert.assertEquals(3, records(reader).size());
+        Assert.assertEquals(new RecordWatermark(C_DATE.plusDays(1), "conf/test/3"), reader.getWatermark());
+
+        // the records of the overlap are known
+        Assert.assertEquals(0, reader.refresh());
+        Assert.assertEquals(3, records(reader).size());
+    }
+
+    @Test
+    void testLateRecordWithinLookbackIsPickedUp() {
+        FakeDatabase database = new FakeDatabase();
+        database.commit("conf/test/2", C_DATE);
+        IncrementalDataReader withLookback = new IncrementalDataReader(database, null, Period.ofDays(7));
+        IncrementalDataReader withoutLookback = new IncrementalDataReader(database, null, Period.ZERO);
+        withLookback.getData();
+        withoutLookback.getData();
+
+        database.commit("conf/test/0", C_DATE.minusDays(3));
+        Assert.assertEquals(1, withLookback.refresh());
+        Assert.assertEquals(0, withoutLookback.refresh());
+        Assert.assertEquals(2, records(withLookback).size());
+
+        // too late for the window
+        database.commit("conf/test/00", C_DATE.minusDays(30));
+        Assert.assertEquals(0, withLookback.refresh());
+    }
+
+    @Test
+    void testNewHistoryRowOfKnownKeyIsPickedUp() {
+        FakeDatabase database = new FakeDatabase();
+        database.commit("conf/test/1", C_DATE);
+        IncrementalDataReader reader = new IncrementalDataReader(database, null, Period.ofDays(7));
+        reader.getData();
+
+        // a newer history row of the same record, within the lookback window
+        database.commit("conf/test/1", C_DATE.plusDays(2));
+        Assert.assertEquals(1, reader.refresh());
+        Assert.assertEquals(2, records(reader).size());
+        Assert.assertEquals(0, reader.refresh());
+
+        // same as loading at once
+        Assert.assertEquals(records(new IncrementalDataReader(database, null, Period.ZERO)).size(),
+                records(reader).size());
+    }
+
+    private static List<ConferenceRecord> records(IncrementalDataReader reader) {
+        List<ConferenceRecord> records = new ArrayList<>();
+        reader.getData().forEach(stream -> records.addAll(stream.getRecords()));
+        return records;
+    }
+
+    /*
+     * the records committed so far, with the query of the delta on the watermark
+     * order
+     */
+    private static final class FakeDatabase extends DbDataReader {
+
+        private final List<ConferenceRecord> committed = new ArrayList<>();
+
+        FakeDatabase() {
+            super(null);
+        }
+
+        void commit(String recordKey, LocalDate cDate) {
+            this.committed.add(new ConferenceRecord(recordKey, STREAM_KEY, null, cDate, Year.of(2018),
+                    Type.PROCEEDINGS, Month.MARCH, Year.of(2018), null, 3));
+        }
+
+        @Override
+        public Set<ConferenceStream> getData() {
+            return new HashSet<>(Collections.singleton(new ConferenceStream(STREAM_KEY, this.committed)));
+        }
+
+        @Override
+        public Multimap<String, ConferenceRecord> readRecordsSince(RecordWatermark watermark) {
+            Multimap<String, ConferenceRecord> records = MultimapBuilder.hashKeys().arrayListValues().build();
+            for (ConferenceRecord record : this.committed) {
+                if ((null == watermark) || (RecordWatermark.of(record).compareTo(watermark) > 0)) {
+                    records.put(record.getStreamKey(), record);
+                }
+            }
+            return records;
+        }
+    }
+}
@@ -0,0 +1,72 @@
+package de.th_koeln.iws.sh2.ranking.core;
+
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.time.Period;
+import java.util.Random;
+
+import org.junit.Assert;
+import org.junit.jupiter.api.Test;
+
+class RecordWatermarkTest {
+
+    private static final LocalDate C_DATE = LocalDate.of(2018, 6, 1);
+
+    @Test
+    void testKeysInByteOrderOfUtf8() {
+        // code points from all planes, including the range above the surrogates
+        int[] codePoints = { 'a', 'z', 0xE9, 0x20AC, 0xD7FF, 0xE000, 0xFFFD, 0xFFFF, 0x1F600, 0x10FFFF };
+        Random random = new Random(3);
+        for (int run = 0; run < 5000; run++) {
+            String first = randomKey(random, codePoints);
+            String second = randomKey(random, codePoints);
+            int expected = Integer.signum(compareUnsigned(first.getBytes(StandardCharsets.UTF_8),
+                    second.getBytes(StandardCharsets.UTF_8)));
+            Assert.assertEquals(first + " / " + second, expected, Integer.signum(
+                    new RecordWatermark(C_DATE, first).compareTo(new RecordWatermark(C_DATE, second))));
+        }
+    }
+
+    @Test
+    void testSupplementaryCharactersAfterBasicPlane() {
+        RecordWatermark basic = new RecordWatermark(C_DATE, "conf/x/\uFFFD");
+        RecordWatermark supplementary = new RecordWatermark(C_DATE, "conf/x/\uD83D\uDE00");
+        // String.compareTo orders them the other way round
+        Assert.assertTrue("conf/x/\uD83D\uDE00".compareTo("conf/x/\uFFFD") < 0);
+        Assert.assertTrue(supplementary.compareTo(basic) > 0);
+        Assert.assertSame(supplementary, RecordWatermark.max(basic, supplementary));
+    }
+
+    @Test
+    void testCreationDateFirst() {
+        Assert.assertTrue(
+                new RecordWatermark(C_DATE, "a").compareTo(new RecordWatermark(C_DATE.minusDays(1), "z")) > 0);
+        Assert.assertTrue(new RecordWatermark(C_DATE, "a").compareTo(new RecordWatermark(C_DATE, "ab")) < 0);
+        Assert.assertEquals(0, new RecordWatermark(C_DATE, "a").compareTo(new RecordWatermark(C_DATE, "a")));
+    }
+
+    @Test
+    void testLookback() {
+        RecordWatermark lookback = new RecordWatermark(C_DATE, "conf/x/2018").lookback(Period.ofDays(7));
+        Assert.assertEquals(C_DATE.minusDays(7), lookback.getcDate());
+        // all records of the first day of the window are above it
+        Assert.assertTrue(new RecordWatermark(C_DATE.minusDays(7), "!").compareTo(lookback) > 0);
+    }
+
+    private static String randomKey(Random random, int[] codePoints) {
+        StringBuilder key = new StringBuilder();
+        for (int i = random.nextInt(4); i >= 0; i--) {
+            key.appendCodePoint(codePoints[random.nextInt(codePoints.length)]);
+        }
+        return key.toString();
+    }
+
+    private static int compareUnsigned(byte[] first, byte[] second) {
+        for (int i = 0; (i < first.length) && (i < second.length); i++) {
+            if (first[i] != second[i]) {
+                return Integer.compare(first[i] & 0xFF, second[i] & 0xFF);
+            }
+        }
+        return Integer.compare(first.length, second.length);
+    }
+}
@@ -0,0 +1,180 @@
+package de.th_koeln.iws.sh2.ranking.core;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.time.Month;
+import java.time.Year;
+import java.time.YearMonth;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.Assert;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import de.th_koeln.iws.sh2.ranking.analysis.data.ConferenceRecord;
+import de.th_koeln.iws.sh2.ranking.analysis.data.ConferenceStream;
+import de.th_koeln.iws.sh2.ranking.analysis.data.Type;
+
+class SnapshotDataReaderTest {
+
+    private static final LocalDate WATERMARK = LocalDate.of(2018, 11, 30);
+
+    /* titles are not part of the snapshot, they are loaded on demand */
+    private static final Map<String, String> TITLES = new HashMap<>();
+    static {
+        TITLES.put("conf/first/2016", "Proceedings 2016");
+    }
+
+    private Path snapshotFile;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        this.snapshotFile = Files.createTempFile("snapshot", ".bin");
+        Files.delete(this.snapshotFile);
+    }
+
+    @AfterEach
+    void tearDown() throws Exception {
+        Files.deleteIfExists(this.snapshotFile);
+    }
+
+    @Test
+    void testRoundTrip() {
+        AtomicInteger sourceReads = new AtomicInteger();
+        DataReader source = () -> {
+            sourceReads.incrementAndGet();
+            return createData();
+        };
+
+        Set<ConferenceStream> original = new SnapshotDataReader(this.snapshotFile, source, () -> WATERMARK)
+                .getData();
+        Set<ConferenceStream> restored = new SnapshotDataReader(this.snapshotFile, source, () -> WATERMARK,
+                TITLES::get).getData();
+
+        Assert.assertEquals(1, sourceReads.get());
+        Assert.assertEquals(original.size(), restored.size());
+
+        Iterator<ConferenceStream> expectedStreams = new TreeSet<>(original).iterator();
+        Iterator<ConferenceStream> actualStreams = new TreeSet<>(restored).iterator();
+        while (expectedStreams.hasNext()) {
+            ConferenceStream expected = expectedStreams.next();
+            ConferenceStream actual = actualStreams.next();
+
+            Assert.assertEquals(expected.getKey(), actual.getKey());
+            Assert.assertEquals(expected.getAvgRating(), actual.getAvgRating());
+            Assert.assertEquals(expected.getIntlScore(), actual.getIntlScore());
+            Assert.assertEquals(expected.getCitationsScore(), actual.getCitationsScore());
+            Assert.assertEquals(expected.getProminence(), actual.getProminence());
+            Assert.assertEquals(expected.getAvgSize(), actual.getAvgSize());
+            Assert.assertEquals(expected.getAffilScore(), actual.getAffilScore());
+            Assert.assertEquals(expected.getLogScores(), actual.getLogScores());
+
+            List<ConferenceRecord> expectedRecords = new ArrayList<>(expected.getRecords());
+            List<ConferenceRecord> actualRecords = new ArrayList<>(actual.getRecords());
+            Assert.assertEquals(expectedRecords.size(), actualRecords.size());
+            for (int i = 0; i < expectedRecords.size(); i++) {
+                Assert.assertEquals(expectedRecords.get(i).toString(), actualRecords.get(i).toString());
+                Assert.assertEquals(expectedRecords.get(i).getTitle(), actualRecords.get(i).getTitle());
+                Assert.assertEquals(expectedRecords.get(i).getType(), actualRecords.get(i).getType());
+                Assert.assertEquals(expectedRecords.get(i).getYear(), actualRecords.get(i).getYear());
+                Assert.assertEquals(expectedRecords.get(i).getEvtPlace(), actualRecords.get(i).getEvtPlace());
+            }
+        }
+    }
+
+    @Test
+    void testOutdatedSnapshotIsReplaced() {
+        AtomicInteger sourceReads = new AtomicInteger();
+        DataReader source = () -> {
+            sourceReads.incrementAndGet();
+            return createData();
+        };
+
+        new SnapshotDataReader(this.snapshotFile, source, () -> WATERMARK).getData();
+        new SnapshotDataReader(this.snapshotFile, source, () -> WATERMARK.plusDays(1)).getData();
+        Assert.assertEquals(2, sourceReads.get());
+
+        // unknown watermark: the existing snapshot is used
+        new SnapshotDataReader(this.snapshotFile, source, () -> null).getData();
+        Assert.assertEquals(2, sourceReads.get());
+    }
+
+    @Test
+    void testCorruptSnapshotIsReplaced() throws Exception {
+        AtomicInteger sourceReads = new AtomicInteger();
+        DataReader source = () -> {
+            sourceReads.incrementAndGet();
+            return createData();
+        };
+
+        new SnapshotDataReader(this.snapshotFile, source, () -> WATERMARK).getData();
+
+        byte[] bytes = Files.readAllBytes(this.snapshotFile);
+        bytes[bytes.length - 1] ^= 0x1;
+        Files.write(this.snapshotFile, bytes);
+
+        Set<ConferenceStream> data = new SnapshotDataReader(this.snapshotFile, source, () -> WATERMARK).getData();
+        Assert.assertEquals(2, sourceReads.get());
+        Assert.assertEquals(2, data.size());
+    }
+
+    @Test
+    void testFingerprint() {
+        Set<ConferenceStream> original = new SnapshotDataReader(this.snapshotFile, SnapshotDataReaderTest::createData,
+                () -> WATERMARK).getData();
+        Set<ConferenceStream> restored = new SnapshotDataReader(this.snapshotFile, SnapshotDataReaderTest::createData,
+                () -> WATERMARK).getData();
+        Assert.assertEquals(SnapshotDataReader.fingerprint(original), SnapshotDataReader.fingerprint(restored));
+
+        Set<ConferenceStream> changed = createData();
+        changed.iterator().next().setSizeScore(0.5);
+        Assert.assertNotEquals(SnapshotDataReader.fingerprint(original), SnapshotDataReader.fingerprint(changed));
+
+        Set<ConferenceStream> missing = createData();
+        for (ConferenceStream stream : missing) {
+            if ((null != stream.getIntlScore()) && stream.getIntlScore().isNaN()) {
+                stream.setIntlScore(null);
+            }
+        }
+        Assert.assertNotEquals(SnapshotDataReader.fingerprint(original), SnapshotDataReader.fingerprint(missing));
+    }
+
+    private static Set<ConferenceStream> createData() {
+        ConferenceStream first = new ConferenceStream("conf/first",
+                Arrays.asList(
+                        new ConferenceRecord("conf/first/2016", "conf/first", TITLES.get("conf/first/2016"),
+                                LocalDate.of(2016, 9, 1), Year.of(2016), Type.PROCEEDINGS, Month.JUNE, Year.of(2016),
+                                "Germany", 3),
+                        new ConferenceRecord("conf/first/2017", "conf/first", null, LocalDate.of(2017, 8, 15),
+                                Year.of(2017), null, Month.MAY, Year.of(2017), null, 3)));
+        first.setRatingScore(0.75);
+        first.setIntlScore(0.5);
+        first.setCitScore(0.25);
+        first.setPromScore(0.125);
+        first.setSizeScore(1.0);
+        first.setAffilScore(null);
+        Map<YearMonth, Double> logScores = new HashMap<>();
+        logScores.put(YearMonth.of(2018, 3), 0.5);
+        logScores.put(YearMonth.of(2018, 4), 1.0);
+        first.setLogScores(logScores);
+
+        ConferenceStream second = new ConferenceStream("conf/second");
+        second.setAffilScore(0.3);
+        // a NaN score is kept apart from a missing one
+        second.setIntlScore(Double.NaN);
+        second.setLogScores(new HashMap<>());
+
+        return new HashSet<>(Arrays.asList(first, second));
+    }
+}